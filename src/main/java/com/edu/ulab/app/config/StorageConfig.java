@@ -0,0 +1,158 @@
+package com.edu.ulab.app.config;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.storage.BookStorageRepository;
+import com.edu.ulab.app.storage.FootprintEndpoint;
+import com.edu.ulab.app.storage.FootprintSource;
+import com.edu.ulab.app.storage.IdAllocator;
+import com.edu.ulab.app.storage.JdbcWriteBehindTarget;
+import com.edu.ulab.app.storage.ReplicationFollower;
+import com.edu.ulab.app.storage.ReplicationLeader;
+import com.edu.ulab.app.storage.StorageJournal;
+import com.edu.ulab.app.storage.StorageMutation;
+import com.edu.ulab.app.storage.TinyLfuCache;
+import com.edu.ulab.app.storage.UserStorage;
+import com.edu.ulab.app.storage.WriteAheadLog;
+import com.edu.ulab.app.storage.WriteBehindJournal;
+import com.edu.ulab.app.storage.WriteBehindTarget;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+@Configuration
+@EnableConfigurationProperties(StorageProperties.class)
+public class StorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "storage.wal", name = "enabled", havingValue = "true")
+    public WriteAheadLog writeAheadLog(StorageProperties storageProperties) {
+        return WriteAheadLog.open(Path.of(storageProperties.getWal().getDirectory()));
+    }
+
+    /**
+     * The journal the storages write to: the first enabled of the replication leader, the
+     * write-behind flusher and the write-ahead log, each passing mutations on to the next one.
+     * It forwards to them rather than being one of them, so their lifecycle is not registered twice.
+     */
+    @Bean
+    @Primary
+    public StorageJournal storageJournal(Optional<ReplicationLeader> replicationLeader,
+                                         Optional<WriteBehindJournal> writeBehindJournal,
+                                         Optional<WriteAheadLog> writeAheadLog) {
+        StorageJournal journal = replicationLeader.<StorageJournal>map(leader -> leader)
+                .or(() -> writeBehindJournal.map(StorageJournal.class::cast))
+                .or(() -> writeAheadLog.map(StorageJournal.class::cast))
+                .orElse(StorageJournal.NOOP);
+        return new StorageJournal() {
+            @Override
+            public long append(StorageMutation mutation) {
+                return journal.append(mutation);
+            }
+
+            @Override
+            public void sync(long position) {
+                journal.sync(position);
+            }
+        };
+    }
+
+    /**
+     * The database the write-behind flusher writes to and the storages are loaded from on startup.
+     */
+    @Bean
+    @Conditional(WriteBehindCondition.class)
+    public WriteBehindTarget writeBehindTarget(StorageProperties storageProperties,
+                                               JdbcTemplate jdbcTemplate,
+                                               PlatformTransactionManager transactionManager) {
+        return new JdbcWriteBehindTarget(jdbcTemplate, new TransactionTemplate(transactionManager),
+                storageProperties.getWriteBehind().getFetchSize());
+    }
+
+    /**
+     * Wraps the write-ahead log, if enabled, so storage writes also reach the database.
+     * A snapshot without the log is older than the flushed rows the storages are loaded from,
+     * so write-behind with snapshots requires the log, which replays what came after them.
+     */
+    @Bean
+    @Conditional(WriteBehindCondition.class)
+    public WriteBehindJournal writeBehindJournal(StorageProperties storageProperties,
+                                                 Optional<WriteAheadLog> writeAheadLog,
+                                                 WriteBehindTarget writeBehindTarget) {
+        if (storageProperties.getSnapshot().isEnabled() && writeAheadLog.isEmpty()) {
+            throw new IllegalStateException("storage.snapshot.enabled with storage.write-behind.enabled "
+                    + "requires storage.wal.enabled, or the snapshot would roll back the database rows");
+        }
+        StorageProperties.WriteBehind writeBehind = storageProperties.getWriteBehind();
+        return new WriteBehindJournal(writeAheadLog.map(StorageJournal.class::cast).orElse(StorageJournal.NOOP),
+                writeBehindTarget, writeBehind.getCapacity(), writeBehind.getBatchSize(), writeBehind.getLinger(),
+                writeBehind.getMaxAttempts());
+    }
+
+    /**
+     * Wraps the write-behind flusher or the write-ahead log, if enabled, and ships storage writes to followers.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "storage.replication", name = "role", havingValue = "leader")
+    public ReplicationLeader replicationLeader(StorageProperties storageProperties,
+                                               Optional<WriteBehindJournal> writeBehindJournal,
+                                               Optional<WriteAheadLog> writeAheadLog) {
+        StorageProperties.Replication replication = storageProperties.getReplication();
+        StorageJournal journal = writeBehindJournal.map(StorageJournal.class::cast)
+                .or(() -> writeAheadLog.map(StorageJournal.class::cast))
+                .orElse(StorageJournal.NOOP);
+        return new ReplicationLeader(journal, replication.getPort(), replication.getLogSize());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "storage.replication", name = "role", havingValue = "follower")
+    public ReplicationFollower replicationFollower(StorageProperties storageProperties,
+                                                   UserStorage userStorage,
+                                                   BookStorageRepository bookStorage,
+                                                   IdAllocator idAllocator) {
+        String leader = storageProperties.getReplication().getLeader();
+        int separator = leader.lastIndexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Replication leader must be host:port: " + leader);
+        }
+        return new ReplicationFollower(userStorage, bookStorage, idAllocator,
+                leader.substring(0, separator), Integer.parseInt(leader.substring(separator + 1)));
+    }
+
+    /**
+     * Only the storage backend allocates ids itself; the others leave it to the database.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "service", name = "backend", havingValue = "storage")
+    public IdAllocator idAllocator(StorageProperties storageProperties) {
+        StorageProperties.Id id = storageProperties.getId();
+        return IdAllocator.open(Path.of(id.getFile()), id.getBlockSize());
+    }
+
+    @Bean
+    public FootprintEndpoint footprintEndpoint(List<FootprintSource> sources) {
+        return new FootprintEndpoint(sources, System::nanoTime);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "service", name = "backend", havingValue = "tiered")
+    public TinyLfuCache<Person> userCache(StorageProperties storageProperties) {
+        return new TinyLfuCache<>("users", storageProperties.getCache().getUserMaximumSize());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "service", name = "backend", havingValue = "tiered")
+    public TinyLfuCache<Book> bookCache(StorageProperties storageProperties) {
+        return new TinyLfuCache<>("books", storageProperties.getCache().getBookMaximumSize());
+    }
+}
@@ -0,0 +1,140 @@
+package com.edu.ulab.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the in-memory storages under the {@code storage} prefix.
+ */
+@Data
+@ConfigurationProperties(prefix = "storage")
+public class StorageProperties {
+
+    private Book book = new Book();
+    private Wal wal = new Wal();
+    private Snapshot snapshot = new Snapshot();
+    private Cache cache = new Cache();
+    private Id id = new Id();
+    private WriteBehind writeBehind = new WriteBehind();
+    private Replication replication = new Replication();
+
+    @Data
+    public static class Book {
+        /**
+         * Book storage engine: heap, off-heap or partitioned.
+         */
+        private String type = "heap";
+        /**
+         * Number of partitions of the partitioned engine; 0 means one per available processor.
+         */
+        private int partitions = 0;
+        /**
+         * Maximum number of commands a partition writer applies under one journal sync.
+         */
+        private int batchSize = 256;
+    }
+
+    @Data
+    public static class Wal {
+        /**
+         * Whether storage mutations are written to the write-ahead log and recovered on startup.
+         */
+        private boolean enabled = false;
+        /**
+         * Directory of the write-ahead log segments.
+         */
+        private String directory = "data/wal";
+    }
+
+    @Data
+    public static class Snapshot {
+        /**
+         * Whether storage snapshots are written in the background and loaded on startup.
+         */
+        private boolean enabled = false;
+        /**
+         * Directory of the snapshot file.
+         */
+        private String directory = "data";
+        /**
+         * Delay between the end of one snapshot and the start of the next.
+         */
+        private Duration interval = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class Cache {
+        /**
+         * Maximum number of users held in memory by the tiered backend.
+         */
+        private int userMaximumSize = 100_000;
+        /**
+         * Maximum number of books held in memory by the tiered backend.
+         */
+        private int bookMaximumSize = 500_000;
+    }
+
+    @Data
+    public static class Id {
+        /**
+         * File holding the high-water mark of the ids allocated by the storage-backed services.
+         */
+        private String file = "data/storage.ids";
+        /**
+         * Number of ids a thread leases at a time.
+         */
+        private int blockSize = 1024;
+    }
+
+    @Data
+    public static class WriteBehind {
+        /**
+         * Whether storage writes are acknowledged in memory and flushed to the database in the background.
+         * Applies to the storage backend only; with snapshots, the write-ahead log must be enabled too.
+         */
+        private boolean enabled = false;
+        /**
+         * Entities waiting for the flush above which writers are held back.
+         */
+        private int capacity = 100_000;
+        /**
+         * Maximum number of entities written to the database in one transaction.
+         */
+        private int batchSize = 500;
+        /**
+         * How long the flusher waits for a full batch.
+         */
+        private Duration linger = Duration.ofMillis(20);
+        /**
+         * Rows the database sends per round trip while the storages are loaded from it on startup.
+         */
+        private int fetchSize = 1000;
+        /**
+         * Times a batch the database refuses for its content is tried before it is split, or its
+         * only entity dead-lettered.
+         */
+        private int maxAttempts = 5;
+    }
+
+    @Data
+    public static class Replication {
+        /**
+         * Replication role of this node: none, leader or follower.
+         */
+        private String role = "none";
+        /**
+         * Port the leader accepts followers on.
+         */
+        private int port = 7400;
+        /**
+         * Host and replication port of the leader a follower connects to.
+         */
+        private String leader = "localhost:7400";
+        /**
+         * Number of recent mutations the leader keeps for reconnecting followers.
+         */
+        private int logSize = 100_000;
+    }
+}
@@ -0,0 +1,23 @@
+package com.edu.ulab.app.config;
+
+import org.springframework.boot.autoconfigure.condition.AllNestedConditions;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+/**
+ * Write-behind is enabled and the storage backend is active; other backends write to the
+ * database themselves and do not read the in-memory storages.
+ */
+class WriteBehindCondition extends AllNestedConditions {
+
+    WriteBehindCondition() {
+        super(ConfigurationPhase.REGISTER_BEAN);
+    }
+
+    @ConditionalOnProperty(prefix = "storage.write-behind", name = "enabled", havingValue = "true")
+    static class Enabled {
+    }
+
+    @ConditionalOnProperty(prefix = "service", name = "backend", havingValue = "storage")
+    static class StorageBackend {
+    }
+}
@@ -0,0 +1,11 @@
+package com.edu.ulab.app.exception;
+
+/**
+ * A write was made on a replication follower, whose storages only the leader changes.
+ */
+public class ReadOnlyReplicaException extends RuntimeException {
+
+    public ReadOnlyReplicaException(String leader) {
+        super("Storage is a read replica, writes go to the replication leader " + leader);
+    }
+}
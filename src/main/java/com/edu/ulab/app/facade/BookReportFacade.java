@@ -0,0 +1,114 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.storage.BookColumns;
+import com.edu.ulab.app.storage.BookStorageRepository;
+import com.edu.ulab.app.storage.GroupTotals;
+import com.edu.ulab.app.web.response.BookReportResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+import static com.edu.ulab.app.web.constant.WebConstant.MAX_PAGE_SIZE;
+
+/**
+ * Catalogue reports computed over a columnar copy of the in-memory book storage, so they cover
+ * the books of the {@code storage} backend.
+ * <p>
+ * The copy is kept between reports and built again only when the {@link BookStorageRepository#version()
+ * storage changed}, and then at most once per {@code service.report.columns-max-age}, so a
+ * report may lag the writes by up to that long. One request builds the copy while the others wait
+ * for it.
+ */
+@Slf4j
+@Component
+public class BookReportFacade {
+    private final BookStorageRepository bookStorage;
+    private final long maxAgeNanos;
+    private volatile CachedColumns cached;
+
+    public BookReportFacade(BookStorageRepository bookStorage,
+                            @Value("${service.report.columns-max-age:5s}") Duration columnsMaxAge) {
+        if (columnsMaxAge.isNegative()) {
+            throw new IllegalArgumentException("Columns max age must not be negative: " + columnsMaxAge);
+        }
+        this.bookStorage = bookStorage;
+        this.maxAgeNanos = columnsMaxAge.toNanos();
+    }
+
+    public BookReportResponse getBookReport(int top) {
+        if (top <= 0 || top > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Top must be between 1 and " + MAX_PAGE_SIZE + ": " + top);
+        }
+        long start = System.nanoTime();
+        CachedColumns current = columns(start);
+        BookColumns columns = current.columns;
+        long totalPages = columns.totalPages();
+        GroupTotals pagesPerUser = columns.pagesPerUser();
+        GroupTotals booksPerAuthor = columns.booksPerAuthor();
+        long scanMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Scanned {} books in {} ms, columns built {} ms ago", columns.size(), scanMillis,
+                (System.nanoTime() - current.builtAt) / 1_000_000);
+
+        return BookReportResponse.builder()
+                .bookCount(columns.size())
+                .totalPages(totalPages)
+                .userCount(pagesPerUser.size())
+                .authorCount(booksPerAuthor.size())
+                .topUsersByPages(pagesPerUser.top(top)
+                        .stream()
+                        .map(group -> BookReportResponse.UserPages.builder()
+                                .userId(group.getKey())
+                                .pages(group.getTotal())
+                                .build())
+                        .toList())
+                .topAuthorsByBooks(booksPerAuthor.top(top)
+                        .stream()
+                        .map(group -> BookReportResponse.AuthorBooks.builder()
+                                .author(columns.decode(group.getKey()))
+                                .books(group.getTotal())
+                                .build())
+                        .toList())
+                .scanMillis(scanMillis)
+                .build();
+    }
+
+    private CachedColumns columns(long now) {
+        CachedColumns current = cached;
+        if (isUsable(current, now)) {
+            return current;
+        }
+        synchronized (this) {
+            current = cached;
+            if (isUsable(current, System.nanoTime())) {
+                return current;
+            }
+            // read before the copy, so writes the copy may miss make it stale
+            long version = bookStorage.version();
+            long start = System.nanoTime();
+            BookColumns columns = bookStorage.columns();
+            log.info("Built columns of {} books in {} ms", columns.size(), (System.nanoTime() - start) / 1_000_000);
+            current = new CachedColumns(columns, version, start);
+            cached = current;
+            return current;
+        }
+    }
+
+    private boolean isUsable(CachedColumns current, long now) {
+        return current != null
+                && (current.version == bookStorage.version() || now - current.builtAt < maxAgeNanos);
+    }
+
+    private static final class CachedColumns {
+        private final BookColumns columns;
+        private final long version;
+        private final long builtAt;
+
+        private CachedColumns(BookColumns columns, long version, long builtAt) {
+            this.columns = columns;
+            this.version = version;
+            this.builtAt = builtAt;
+        }
+    }
+}
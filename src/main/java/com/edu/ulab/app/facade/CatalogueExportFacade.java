@@ -0,0 +1,196 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.storage.BookStorageRepository;
+import com.edu.ulab.app.storage.UserStorage;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Streams every person of the active {@code service.backend} with their books as NDJSON, one
+ * {@code {"id","fullName","title","age","books":[{"id","title","author","pageCount"}]}} object
+ * per line, ordered by person id.
+ * <p>
+ * On the database backends, the rows of one {@code person LEFT JOIN book} query are read through
+ * a forward-only, read-only cursor fetching {@code service.export.fetch-size} rows per round trip
+ * and written to the output stream as they arrive, so memory does not grow with the tables. The
+ * {@code jpa} and {@code tiered} backends keep the entities in the {@code ulab_edu} tables, the
+ * {@code template} backend in the unqualified ones of {@code schema.sql}. The query runs in a
+ * read-only transaction, since PostgreSQL only fetches with a cursor outside auto-commit.
+ * <p>
+ * The {@code storage} backend is exported from the in-memory storages instead, whether or not
+ * write-behind copies them to the database: people in keyset pages of the fetch size and the
+ * books of each person through the userId index.
+ */
+@Slf4j
+@Component
+public class CatalogueExportFacade {
+
+    static final String SELECT_PERSON_BOOKS = "SELECT p.id, p.full_name, p.title, p.age, "
+            + "b.id, b.title, b.author, b.page_count FROM ulab_edu.person p "
+            + "LEFT JOIN ulab_edu.book b ON b.user_id = p.id ORDER BY p.id, b.id";
+    static final String SELECT_TEMPLATE_PERSON_BOOKS = "SELECT p.id, p.full_name, p.title, p.age, "
+            + "b.id, b.title, b.author, b.page_count FROM PERSON p "
+            + "LEFT JOIN BOOK b ON b.user_id = p.id ORDER BY p.id, b.id";
+
+    private static final String STORAGE = "storage";
+    private static final String TEMPLATE = "template";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    private final String backend;
+    private final UserStorage userStorage;
+    private final BookStorageRepository bookStorage;
+
+    public CatalogueExportFacade(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 ObjectMapper objectMapper,
+                                 @Value("${service.export.fetch-size:1000}") int fetchSize,
+                                 @Value("${service.backend:jpa}") String backend,
+                                 UserStorage userStorage, BookStorageRepository bookStorage) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Export fetch size must be positive: " + fetchSize);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+        this.backend = backend;
+        this.userStorage = userStorage;
+        this.bookStorage = bookStorage;
+    }
+
+    /**
+     * Writes all people with their books to the stream, leaving it open.
+     * @param out - stream of the export; must not be null.
+     * @return the number of exported people.
+     */
+    public long exportUsers(OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            generator.setRootValueSeparator(null);
+            UserBooksWriter writer = new UserBooksWriter(generator);
+            if (STORAGE.equals(backend)) {
+                exportStorages(writer);
+            } else {
+                String query = TEMPLATE.equals(backend) ? SELECT_TEMPLATE_PERSON_BOOKS : SELECT_PERSON_BOOKS;
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(query,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSize);
+                    return ps;
+                }, writer));
+            }
+            writer.finish();
+            log.info("Exported {} users with {} books in {} ms", writer.users, writer.books,
+                    (System.nanoTime() - start) / 1_000_000);
+            return writer.users;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void exportStorages(UserBooksWriter writer) throws IOException {
+        List<Person> page = userStorage.findPage(0L, fetchSize);
+        while (!page.isEmpty()) {
+            for (Person person : page) {
+                writer.startUser(person.getId(), person.getFullName(), person.getTitle(), person.getAge());
+                List<Book> books = new ArrayList<>(bookStorage.findAllByUserId(person.getId()));
+                books.sort(Comparator.comparing(Book::getId));
+                for (Book book : books) {
+                    writer.writeBook(book.getId(), book.getTitle(), book.getAuthor(), book.getPageCount());
+                }
+            }
+            page = page.size() < fetchSize ? List.of()
+                    : userStorage.findPage(page.get(page.size() - 1).getId(), fetchSize);
+        }
+    }
+
+    /**
+     * Writes the people with their books, which come grouped by person, as one JSON line per
+     * person: the joined rows of a query or the entities of the storages.
+     */
+    private static final class UserBooksWriter implements RowCallbackHandler {
+        private final JsonGenerator generator;
+        private long userId;
+        private long users;
+        private long books;
+
+        UserBooksWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            try {
+                long id = rs.getLong(1);
+                if (users == 0 || id != userId) {
+                    startUser(id, rs.getString(2), rs.getString(3), rs.getInt(4));
+                }
+                long bookId = rs.getLong(5);
+                if (!rs.wasNull()) {
+                    writeBook(bookId, rs.getString(6), rs.getString(7), rs.getInt(8));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void startUser(long id, String fullName, String title, int age) throws IOException {
+            endUser();
+            userId = id;
+            users++;
+            generator.writeStartObject();
+            generator.writeNumberField("id", id);
+            generator.writeStringField("fullName", fullName);
+            generator.writeStringField("title", title);
+            generator.writeNumberField("age", age);
+            generator.writeArrayFieldStart("books");
+        }
+
+        void writeBook(long id, String title, String author, long pageCount) throws IOException {
+            books++;
+            generator.writeStartObject();
+            generator.writeNumberField("id", id);
+            generator.writeStringField("title", title);
+            generator.writeStringField("author", author);
+            generator.writeNumberField("pageCount", pageCount);
+            generator.writeEndObject();
+        }
+
+        void finish() throws IOException {
+            endUser();
+            generator.flush();
+        }
+
+        private void endUser() throws IOException {
+            if (users > 0) {
+                generator.writeEndArray();
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+    }
+}
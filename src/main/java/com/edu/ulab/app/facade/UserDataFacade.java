@@ -1,6 +1,7 @@
 package com.edu.ulab.app.facade;
 
 import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.dto.UserBooksDto;
 import com.edu.ulab.app.dto.UserDto;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.mapper.UserMapper;
@@ -8,13 +9,23 @@ import com.edu.ulab.app.service.BookService;
 import com.edu.ulab.app.service.UserService;
 import com.edu.ulab.app.web.request.UpdateUserBookRequest;
 import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserIdsRequest;
+import com.edu.ulab.app.web.response.UserBookListResponse;
 import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserPageResponse;
+import com.edu.ulab.app.web.response.UserResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.edu.ulab.app.web.constant.WebConstant.MAX_PAGE_SIZE;
 
 @Slf4j
 @Component
@@ -32,13 +43,15 @@ public class UserDataFacade {
         UserDto createdUser = userService.createUser(userDto);
         log.info("Created user: {}", createdUser);
 
-        List<Long> bookIdList = userBookRequest.getBookRequests()
+        List<BookDto> mappedBooks = userBookRequest.getBookRequests()
                 .stream()
                 .filter(Objects::nonNull)
                 .map(bookMapper::bookRequestToBookDto)
                 .peek(bookDto -> bookDto.setUserId(createdUser.getId()))
                 .peek(mappedBookDto -> log.info("mapped book: {}", mappedBookDto))
-                .map(bookService::createBook)
+                .toList();
+        List<Long> bookIdList = bookService.createBooks(mappedBooks)
+                .stream()
                 .peek(createdBook -> log.info("Created book: {}", createdBook))
                 .map(BookDto::getId)
                 .toList();
@@ -50,6 +63,12 @@ public class UserDataFacade {
                 .build();
     }
 
+    /**
+     * Updates the user and the books in one transaction, so a missing book rolls back the update of
+     * the user as well on the database backends. The storage backend has no transactions; it checks
+     * the books before writing any of them, but after the user.
+     */
+    @Transactional
     public UserBookResponse updateUserWithBooks(UpdateUserBookRequest updateUserWithBookRequest) {
         log.debug("Got user book update request: {}", updateUserWithBookRequest);
         UserDto userDto = userMapper.updateUserRequestToUserDto(updateUserWithBookRequest.getUserRequest());
@@ -57,13 +76,15 @@ public class UserDataFacade {
         UserDto userUpdated = userService.updateUser(userDto);
         log.debug("Updated user: {}", userUpdated);
 
-        List<Long> bookUpdated = updateUserWithBookRequest.getBookRequests()
+        List<BookDto> mappedBooks = updateUserWithBookRequest.getBookRequests()
                 .stream()
                 .filter(Objects::nonNull)
                 .map(bookMapper::updateBookRequestToBookDto)
                 .peek(bookDto -> bookDto.setUserId(userUpdated.getId()))
                 .peek(mappedBookDto -> log.debug("mapped book: {}", mappedBookDto))
-                .map(bookService::updateBook)
+                .toList();
+        List<Long> bookUpdated = bookService.updateBooks(mappedBooks)
+                .stream()
                 .peek(updateBook -> log.debug("Updated book: {}", updateBook))
                 .map(BookDto::getId)
                 .toList();
@@ -77,27 +98,66 @@ public class UserDataFacade {
 
     public UserBookResponse getUserWithBooks(Long userId) {
         log.debug("Got user id get user with books: {}", userId);
-        UserDto userById = userService.getUserById(userId);
-        log.debug("Get user by id: {}", userById);
-        List<Long> books = bookService.getBooksByUserId(userId)
+        UserBooksDto userBooks = userService.getUserWithBookIds(userId);
+        log.debug("Get user with book ids: {}", userBooks);
+
+        return UserBookResponse.builder()
+                .userId(userBooks.getUserId())
+                .booksIdList(userBooks.getBookIds())
+                .build();
+    }
+
+    public UserBookListResponse getUsersWithBooks(UserIdsRequest userIdsRequest) {
+        log.debug("Got user ids get users with books: {}", userIdsRequest);
+        List<Long> userIds = userIdsRequest.getUserIds();
+        if (userIds == null || userIds.isEmpty() || userIds.size() > MAX_PAGE_SIZE
+                || userIds.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("User ids must hold from 1 to " + MAX_PAGE_SIZE + " ids");
+        }
+        List<UserDto> users = userService.getUsersByIds(userIds);
+        Map<Long, List<Long>> bookIds = bookService.getBookIdsByUserIds(users.stream()
+                .map(UserDto::getId)
+                .toList());
+        log.debug("Got users: {} with books: {}", users.size(), bookIds.size());
+        Set<Long> foundIds = users.stream()
+                .map(UserDto::getId)
+                .collect(Collectors.toSet());
+
+        return UserBookListResponse.builder()
+                .users(users.stream()
+                        .map(user -> UserBookResponse.builder()
+                                .userId(user.getId())
+                                .booksIdList(bookIds.getOrDefault(user.getId(), List.of()))
+                                .build())
+                        .toList())
+                .notFoundIds(userIds.stream()
+                        .distinct()
+                        .filter(id -> !foundIds.contains(id))
+                        .toList())
+                .build();
+    }
+
+    public UserPageResponse getUsers(Long afterId, int limit) {
+        log.debug("Got users page request: afterId {}, limit {}", afterId, limit);
+        if (afterId == null || afterId < 0 || limit <= 0) {
+            throw new IllegalArgumentException("Page cursor must not be negative and limit must be positive");
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        List<UserResponse> users = userService.getUsers(afterId, pageSize)
                 .stream()
-                .peek(book -> log.debug("Got books by user id: {}", book))
-                .map(BookDto::getId)
+                .map(userMapper::userDtoToUserResponse)
                 .toList();
-        log.debug("Get books by user: {}", books);
+        log.debug("Got users page: {}", users);
 
-        return UserBookResponse.builder()
-                .userId(userById.getId())
-                .booksIdList(books)
+        return UserPageResponse.builder()
+                .users(users)
+                .nextAfterId(users.size() < pageSize ? null : users.get(users.size() - 1).getId())
                 .build();
     }
 
     public void deleteUserWithBooks(Long userId) {
         log.debug("Got id delete user by id: {}", userId);
-        bookService.getBooksByUserId(userId)
-                .stream()
-                .map(BookDto::getId)
-                .forEach(bookService::deleteBookById);
+        bookService.deleteBooksByUserId(userId);
         userService.deleteUserById(userId);
         log.debug("User was delete.");
     }
@@ -0,0 +1,219 @@
+package com.edu.ulab.app.mapper;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * {@link RowMapper} that maps columns to bean properties by name like {@link BeanPropertyRowMapper},
+ * {@code FULL_NAME} to {@code fullName}, without its per-row reflection.
+ * <p>
+ * The constructor and setters are bound once per class through {@link LambdaMetafactory}, so
+ * setting a property is a plain interface call, and primitive properties are read without boxing.
+ * The columns are matched to the properties once per shape of the column list and cached;
+ * columns without a property are skipped. {@link #rows()} reads the column list of a result set
+ * once for all its rows, while {@link #mapRow} reads it for every row, as a {@link RowMapper}
+ * cannot tell whether two rows come from the same result set. The mapper is thread-safe, so one
+ * instance per class is shared, see {@link RowMappers}.
+ * <p>
+ * Like {@link BeanPropertyRowMapper}, a NULL in a column of a primitive property is rejected with
+ * a {@link TypeMismatchException} instead of being mapped to zero.
+ * @param <T> mapped class with a public no-argument constructor and public setters.
+ */
+public final class CompiledRowMapper<T> implements RowMapper<T> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Class<T> type;
+    private final Supplier<T> constructor;
+    private final Map<String, IntFunction<ColumnWriter<T>>> properties;
+    private final Map<String, List<ColumnWriter<T>>> shapes = new ConcurrentHashMap<>();
+    private final ResultSetExtractor<List<T>> rows = this::mapRows;
+
+    private CompiledRowMapper(Class<T> type) {
+        this.type = type;
+        this.constructor = constructor(type);
+        this.properties = new HashMap<>();
+        for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(type)) {
+            if (descriptor.getWriteMethod() != null) {
+                properties.put(normalize(descriptor.getName()), writer(descriptor));
+            }
+        }
+    }
+
+    /**
+     * Compiles a mapper of the given class.
+     * @param type - mapped class.
+     * @return the mapper.
+     */
+    public static <T> CompiledRowMapper<T> of(Class<T> type) {
+        return new CompiledRowMapper<>(type);
+    }
+
+    @Override
+    public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return map(rs, resolve(rs.getMetaData()));
+    }
+
+    /**
+     * Returns an extractor that maps all rows of a result set, matching its columns once.
+     * @return the extractor; never returns null.
+     */
+    public ResultSetExtractor<List<T>> rows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of distinct column lists matched so far.
+     * @return the number of shapes.
+     */
+    public int shapeCount() {
+        return shapes.size();
+    }
+
+    private List<T> mapRows(ResultSet rs) throws SQLException {
+        List<ColumnWriter<T>> columns = resolve(rs.getMetaData());
+        List<T> beans = new ArrayList<>();
+        while (rs.next()) {
+            beans.add(map(rs, columns));
+        }
+        return beans;
+    }
+
+    private T map(ResultSet rs, List<ColumnWriter<T>> columns) throws SQLException {
+        T bean = constructor.get();
+        for (ColumnWriter<T> column : columns) {
+            column.write(rs, bean);
+        }
+        return bean;
+    }
+
+    private List<ColumnWriter<T>> resolve(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        String[] labels = new String[columnCount];
+        for (int column = 1; column <= columnCount; column++) {
+            labels[column - 1] = normalize(metaData.getColumnLabel(column));
+        }
+        return shapes.computeIfAbsent(String.join(",", labels), key -> {
+            List<ColumnWriter<T>> columns = new ArrayList<>(columnCount);
+            for (int column = 1; column <= columnCount; column++) {
+                IntFunction<ColumnWriter<T>> property = properties.get(labels[column - 1]);
+                if (property != null) {
+                    columns.add(property.apply(column));
+                }
+            }
+            return List.copyOf(columns);
+        });
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static <T> Supplier<T> constructor(Class<T> type) {
+        try {
+            MethodHandle handle = LOOKUP.findConstructor(type, MethodType.methodType(void.class));
+            return lambda(Supplier.class, "get", MethodType.methodType(Object.class), handle);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(type + " has no accessible no-argument constructor", e);
+        }
+    }
+
+    private IntFunction<ColumnWriter<T>> writer(PropertyDescriptor descriptor) {
+        MethodHandle setter;
+        try {
+            setter = LOOKUP.unreflect(descriptor.getWriteMethod());
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Setter of " + type.getName() + "." + descriptor.getName()
+                    + " is not accessible", e);
+        }
+        Class<?> propertyType = descriptor.getPropertyType();
+        String name = descriptor.getName();
+        if (propertyType == long.class) {
+            ObjLongConsumer<T> set = lambda(ObjLongConsumer.class, "accept",
+                    MethodType.methodType(void.class, Object.class, long.class), setter);
+            return column -> (rs, bean) -> {
+                long value = rs.getLong(column);
+                if (rs.wasNull()) {
+                    throw nullForPrimitive(bean, name, long.class);
+                }
+                set.accept(bean, value);
+            };
+        }
+        if (propertyType == int.class) {
+            ObjIntConsumer<T> set = lambda(ObjIntConsumer.class, "accept",
+                    MethodType.methodType(void.class, Object.class, int.class), setter);
+            return column -> (rs, bean) -> {
+                int value = rs.getInt(column);
+                if (rs.wasNull()) {
+                    throw nullForPrimitive(bean, name, int.class);
+                }
+                set.accept(bean, value);
+            };
+        }
+        BiConsumer<T, Object> set = lambda(BiConsumer.class, "accept",
+                MethodType.methodType(void.class, Object.class, Object.class), setter);
+        if (propertyType == Long.class) {
+            return column -> (rs, bean) -> {
+                long value = rs.getLong(column);
+                set.accept(bean, rs.wasNull() ? null : value);
+            };
+        }
+        if (propertyType == Integer.class) {
+            return column -> (rs, bean) -> {
+                int value = rs.getInt(column);
+                set.accept(bean, rs.wasNull() ? null : value);
+            };
+        }
+        if (propertyType == String.class) {
+            return column -> (rs, bean) -> set.accept(bean, rs.getString(column));
+        }
+        return column -> (rs, bean) -> set.accept(bean, rs.getObject(column, propertyType));
+    }
+
+    private static TypeMismatchException nullForPrimitive(Object bean, String name, Class<?> type) {
+        return new TypeMismatchException(new PropertyChangeEvent(bean, name, null, null), type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <F> F lambda(Class<? super F> functionalInterface, String method, MethodType erasedType,
+                                MethodHandle target) {
+        try {
+            return (F) LambdaMetafactory.metafactory(LOOKUP, method, MethodType.methodType(functionalInterface),
+                    erasedType, target, target.type()).getTarget().invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot compile " + target, e);
+        }
+    }
+
+    /**
+     * Reads one column of the current row into a property.
+     */
+    @FunctionalInterface
+    private interface ColumnWriter<T> {
+        void write(ResultSet rs, T bean) throws SQLException;
+    }
+}
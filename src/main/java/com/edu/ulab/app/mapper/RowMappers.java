@@ -0,0 +1,17 @@
+package com.edu.ulab.app.mapper;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Shared {@link CompiledRowMapper}s of the JdbcTemplate services, which query through their
+ * {@link CompiledRowMapper#rows()} extractors.
+ */
+@UtilityClass
+public class RowMappers {
+    public static final CompiledRowMapper<Person> PERSON = CompiledRowMapper.of(Person.class);
+    public static final CompiledRowMapper<Book> BOOK = CompiledRowMapper.of(Book.class);
+    public static final CompiledRowMapper<BookDto> BOOK_DTO = CompiledRowMapper.of(BookDto.class);
+}
@@ -4,6 +4,7 @@ import com.edu.ulab.app.dto.UserDto;
 import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.web.request.UpdateUserRequest;
 import com.edu.ulab.app.web.request.UserRequest;
+import com.edu.ulab.app.web.response.UserResponse;
 import org.mapstruct.Mapper;
 /**
  * Interface for Person mapping operations.
@@ -53,4 +54,11 @@ public interface UserMapper {
      * @return UpdateUserRequest.
      */
     UpdateUserRequest userDtoToUpdateUserRequest(UserDto userDto);
+
+    /**
+     * Map userDto to UserResponse.
+     * @param userDto - must not be null.
+     * @return UserResponse object.
+     */
+    UserResponse userDtoToUserResponse(UserDto userDto);
 }
@@ -1,11 +1,13 @@
 package com.edu.ulab.app.repository;
 
 import com.edu.ulab.app.entity.Book;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 
 import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,4 +33,41 @@ public interface BookRepository extends JpaRepository<Book, Long> {
      */
     @Query(value = "select b from Book b where b.userId = ?1")
     List<Book> findAllByPersonId(Long id);
+
+    /**
+     * Return ids of the Books of person id from database, ordered by id.
+     * @param id - must not be null.
+     * @return list of Book ids for person id.
+     */
+    @Query("select b.id from Book b where b.userId = ?1 order by b.id")
+    List<Long> findIdsByPersonId(Long id);
+
+    /**
+     * Return the person ids with the ids of their Books from database: a row of person id and Book
+     * id per Book, ordered by person id and Book id.
+     * @param ids - must not be null.
+     * @return list of person id and Book id pairs.
+     */
+    @Query("select b.userId, b.id from Book b where b.userId in ?1 order by b.userId, b.id")
+    List<Object[]> findIdsByPersonIds(Collection<Long> ids);
+
+    /**
+     * Return the person id with the ids of its Books in one query: a row of person id and Book id
+     * per Book ordered by Book id, a single row with a null Book id for a person without Books,
+     * and no rows if there is no person with the id.
+     * @param id - must not be null.
+     * @return list of person id and Book id pairs.
+     */
+    @Query("select p.id, b.id from Person p left join Book b on b.userId = p.id where p.id = ?1 order by b.id")
+    List<Object[]> findPersonWithBookIds(Long id);
+
+    /**
+     * Return page of Book objects for person id with id greater than afterId, ordered by id.
+     * @param id - must not be null.
+     * @param afterId - id the page starts after; must not be null.
+     * @param pageable - page size; the page number must be 0.
+     * @return list of Book objects for person id.
+     */
+    @Query("select b from Book b where b.userId = :id and b.id > :afterId order by b.id")
+    List<Book> findPageByPersonId(Long id, Long afterId, Pageable pageable);
 }
@@ -1,11 +1,13 @@
 package com.edu.ulab.app.repository;
 
 import com.edu.ulab.app.entity.Person;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 
 import javax.persistence.LockModeType;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -21,4 +23,13 @@ public interface UserRepository extends JpaRepository<Person, Long> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("select p from Person p where p.id = :id")
     Optional<Person> findByIdForUpdate(long id);
+
+    /**
+     * Return page of Person objects with id greater than afterId, ordered by id.
+     * @param afterId - id the page starts after; must not be null.
+     * @param pageable - page size; the page number must be 0.
+     * @return list of Person objects.
+     */
+    @Query("select p from Person p where p.id > :afterId order by p.id")
+    List<Person> findPage(Long afterId, Pageable pageable);
 }
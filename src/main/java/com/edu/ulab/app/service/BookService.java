@@ -4,6 +4,7 @@ package com.edu.ulab.app.service;
 import com.edu.ulab.app.dto.BookDto;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface for CRUD operations for a Book.
@@ -17,6 +18,17 @@ public interface BookService {
      */
     BookDto createBook(BookDto bookDto);
 
+    /**
+     * Create new Books in database. Generate the ids and insert the Books, by default one by one.
+     * @param bookDtos – must not be null.
+     * @return bookDto objects with generated ids, in the given order.
+     */
+    default List<BookDto> createBooks(List<BookDto> bookDtos) {
+        return bookDtos.stream()
+                .map(this::createBook)
+                .toList();
+    }
+
     /**
      * Update Book for given userDto in database. Update fields of an existing Book in database.
      * @param bookDto – must not be null.
@@ -24,6 +36,17 @@ public interface BookService {
      */
     BookDto updateBook(BookDto bookDto);
 
+    /**
+     * Update Books for given bookDtos in database, by default one by one.
+     * @param bookDtos – must not be null.
+     * @return bookDto objects with updated fields, in the given order.
+     */
+    default List<BookDto> updateBooks(List<BookDto> bookDtos) {
+        return bookDtos.stream()
+                .map(this::updateBook)
+                .toList();
+    }
+
     /**
      * Return bookDto object for given id from database.
      * @param id – must not be null.
@@ -37,10 +60,45 @@ public interface BookService {
      */
     void deleteBookById(Long id);
 
+    /**
+     * Delete Books for given ids from database, by default one by one.
+     * @param ids – must not be null.
+     */
+    default void deleteBooksByIds(List<Long> ids) {
+        ids.forEach(this::deleteBookById);
+    }
+
+    /**
+     * Delete all Books of given userId from database, by default one by one.
+     * @param userId – must not be null.
+     */
+    default void deleteBooksByUserId(Long userId) {
+        deleteBooksByIds(getBooksByUserId(userId)
+                .stream()
+                .map(BookDto::getId)
+                .toList());
+    }
+
     /**
      * Return list of bookDto object for given userId from database.
      * @param userId – must not be null.
      * @return list of bookDto objects for given userId.
      */
     List<BookDto> getBooksByUserId(Long userId);
+
+    /**
+     * Return the ids of the Books of given userIds from database, ordered by id.
+     * @param userIds – must not be null nor contain null.
+     * @return ids of the Books by userId; userIds without Books are absent.
+     */
+    Map<Long, List<Long>> getBookIdsByUserIds(List<Long> userIds);
+
+    /**
+     * Return page of bookDto objects for given userId ordered by id, starting after the given id.
+     * @param userId – must not be null.
+     * @param afterId – id of the last book of the previous page; 0 for the first page.
+     * @param limit – maximum number of books; must be positive.
+     * @return list of bookDto objects for given userId with id greater than afterId.
+     */
+    List<BookDto> getBooksByUserId(Long userId, Long afterId, int limit);
 }
@@ -1,7 +1,10 @@
 package com.edu.ulab.app.service;
 
+import com.edu.ulab.app.dto.UserBooksDto;
 import com.edu.ulab.app.dto.UserDto;
 import org.springframework.stereotype.Repository;
+
+import java.util.List;
 /**
  * Interface for CRUD operations for a User.
  */
@@ -30,6 +33,29 @@ public interface UserService {
      */
     UserDto getUserById(Long id);
 
+    /**
+     * Return page of userDto objects ordered by id, starting after the given id.
+     * @param afterId – id of the last user of the previous page; 0 for the first page.
+     * @param limit – maximum number of users; must be positive.
+     * @return list of userDto objects with id greater than afterId.
+     */
+    List<UserDto> getUsers(Long afterId, int limit);
+
+    /**
+     * Return userDto objects for given ids from database, skipping ids without a user.
+     * @param ids – must not be null nor contain null.
+     * @return userDto objects in the order of the given ids, without duplicates.
+     */
+    List<UserDto> getUsersByIds(List<Long> ids);
+
+    /**
+     * Return the id of the user with given id and the ids of its books ordered by id, without
+     * reading the books themselves; database services read both in one query.
+     * @param id – must not be null.
+     * @return userBooksDto for given id.
+     */
+    UserBooksDto getUserWithBookIds(Long id);
+
     /**
      * Delete UserEntity for given id from database.
      * @param id – must not be null.
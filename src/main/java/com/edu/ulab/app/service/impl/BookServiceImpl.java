@@ -8,21 +8,28 @@ import com.edu.ulab.app.repository.BookRepository;
 import com.edu.ulab.app.service.BookService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 @Slf4j
 @Service
 @Primary
+@ConditionalOnProperty(prefix = "service", name = "backend", havingValue = "jpa", matchIfMissing = true)
 @RequiredArgsConstructor
 public class BookServiceImpl implements BookService {
 
     private final BookRepository bookRepository;
     private final BookMapper bookMapper;
+    private final EntityUpsertWriter upsertWriter;
 
 
     @Override
@@ -54,6 +61,33 @@ public class BookServiceImpl implements BookService {
         return bookMapper.bookToBookDto(updateBook);
     }
 
+    /**
+     * Writes all books with one batched update of the {@link EntityUpsertWriter} instead of a
+     * {@code findById} and a {@code save} per book; nothing is written if any of them is missing.
+     */
+    @Override
+    public List<BookDto> updateBooks(List<BookDto> bookDtos) {
+        log.debug("Got bookDtos update books: {}", bookDtos.size());
+        bookDtos.stream()
+                .filter(this::verificationBookDto)
+                .findFirst()
+                .ifPresent(bookDto -> {
+                    throw new BookNotFoundException(bookDto.getId());
+                });
+        List<Book> books = bookDtos.stream()
+                .map(bookMapper::bookDtoToBook)
+                .toList();
+        List<Long> missing = upsertWriter.updateBooks(books);
+        if (!missing.isEmpty()) {
+            throw new BookNotFoundException(missing.get(0));
+        }
+        log.debug("Updated books: {}", books.size());
+
+        return books.stream()
+                .map(bookMapper::bookToBookDto)
+                .toList();
+    }
+
     @Override
     public BookDto getBookById(Long id) {
         log.debug("Got id get book by id: {}", id);
@@ -85,6 +119,31 @@ public class BookServiceImpl implements BookService {
                 .toList();
     }
 
+    /**
+     * Reads only the ids of the books, with one {@code IN} query per chunk of {@link InListChunks}.
+     */
+    @Override
+    public Map<Long, List<Long>> getBookIdsByUserIds(List<Long> userIds) {
+        log.info("Received book ids by userIds: {}", userIds.size());
+        Map<Long, List<Long>> bookIds = new HashMap<>();
+        for (List<Long> chunk : InListChunks.chunks(userIds)) {
+            for (Object[] row : bookRepository.findIdsByPersonIds(chunk)) {
+                bookIds.computeIfAbsent((Long) row[0], userId -> new ArrayList<>()).add((Long) row[1]);
+            }
+        }
+        return bookIds;
+    }
+
+    @Override
+    public List<BookDto> getBooksByUserId(Long userId, Long afterId, int limit) {
+        log.info("Received books by userId = {} after id = {}", userId, afterId);
+        return bookRepository
+                .findPageByPersonId(userId, afterId, PageRequest.ofSize(limit))
+                .stream()
+                .map(bookMapper::bookToBookDto)
+                .toList();
+    }
+
     private boolean verificationBookDto(BookDto bookDto) {
         return bookDto.getTitle() == null
                 || bookDto.getAuthor() == null
@@ -3,33 +3,69 @@ package com.edu.ulab.app.service.impl;
 import com.edu.ulab.app.dto.BookDto;
 import com.edu.ulab.app.entity.Book;
 import com.edu.ulab.app.exception.BookNotFoundException;
+import com.edu.ulab.app.exception.ReadOnlyReplicaException;
 import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.service.BookService;
-import com.edu.ulab.app.storage.BookStorage;
+import com.edu.ulab.app.storage.BookStorageRepository;
+import com.edu.ulab.app.storage.BookStorageSnapshot;
+import com.edu.ulab.app.storage.IdAllocator;
+import com.edu.ulab.app.storage.ReplicationFollower;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Component
 @Slf4j
+@Primary
+@ConditionalOnProperty(prefix = "service", name = "backend", havingValue = "storage")
 @RequiredArgsConstructor
 public class BookServiceImplStorage implements BookService {
-    private final BookStorage bookStorage;
+    private final BookStorageRepository bookStorage;
     private final BookMapper bookMapper;
+    private final IdAllocator idAllocator;
+    private final Optional<ReplicationFollower> replicationFollower;
 
     @Override
     public BookDto createBook(BookDto bookDto) {
+        checkWritable();
         Book newBook = bookMapper.bookDtoToBook(bookDto);
+        if (newBook.getId() == null) {
+            newBook.setId(idAllocator.nextId());
+        }
         log.info("Mapped book: {}", newBook);
         Book savedBook = bookStorage.save(newBook);
         log.info("Saved book: {}", savedBook);
         return bookMapper.bookToBookDto(savedBook);
     }
 
+    @Override
+    public List<BookDto> createBooks(List<BookDto> bookDtos) {
+        checkWritable();
+        List<Book> newBooks = bookDtos.stream()
+                .map(bookMapper::bookDtoToBook)
+                .peek(book -> {
+                    if (book.getId() == null) {
+                        book.setId(idAllocator.nextId());
+                    }
+                })
+                .toList();
+        List<Book> savedBooks = bookStorage.saveAll(newBooks);
+        log.info("Saved books: {}", savedBooks);
+        return savedBooks.stream()
+                .map(bookMapper::bookToBookDto)
+                .toList();
+    }
+
     @Override
     public BookDto updateBook(BookDto bookDto) {
+        checkWritable();
         Book updatedBook = bookStorage.findById(bookDto.getId())
                 .map(book -> bookMapper.bookDtoToBook(bookDto))
                 .map(bookStorage::save)
@@ -38,6 +74,29 @@ public class BookServiceImplStorage implements BookService {
         return bookMapper.bookToBookDto(updatedBook);
     }
 
+    /**
+     * Checks that all books exist before the first of them is written, so a missing book leaves
+     * the others unchanged.
+     */
+    @Override
+    public List<BookDto> updateBooks(List<BookDto> bookDtos) {
+        checkWritable();
+        bookDtos.stream()
+                .map(BookDto::getId)
+                .filter(id -> id == null || bookStorage.findById(id).isEmpty())
+                .findFirst()
+                .ifPresent(id -> {
+                    throw new BookNotFoundException(id);
+                });
+        List<Book> updatedBooks = bookStorage.saveAll(bookDtos.stream()
+                .map(bookMapper::bookDtoToBook)
+                .toList());
+        log.info("Updated books: {}", updatedBooks.size());
+        return updatedBooks.stream()
+                .map(bookMapper::bookToBookDto)
+                .toList();
+    }
+
     @Override
     public BookDto getBookById(Long id) {
         Book book = bookStorage.findById(id)
@@ -47,16 +106,58 @@ public class BookServiceImplStorage implements BookService {
     }
 
     public List<BookDto> getBooksByUserId(Long userId) {
-        return bookStorage.findAll()
+        try (BookStorageSnapshot books = bookStorage.snapshot()) {
+            return books.findAllByUserId(userId)
+                    .map(bookMapper::bookToBookDto)
+                    .toList();
+        }
+    }
+
+    @Override
+    public Map<Long, List<Long>> getBookIdsByUserIds(List<Long> userIds) {
+        Map<Long, List<Long>> bookIds = new HashMap<>();
+        try (BookStorageSnapshot books = bookStorage.snapshot()) {
+            for (Long userId : userIds) {
+                List<Long> ids = books.findAllByUserId(userId)
+                        .map(Book::getId)
+                        .sorted()
+                        .toList();
+                if (!ids.isEmpty()) {
+                    bookIds.put(userId, ids);
+                }
+            }
+        }
+        log.info("Received book ids by userIds: {}", userIds.size());
+        return bookIds;
+    }
+
+    @Override
+    public List<BookDto> getBooksByUserId(Long userId, Long afterId, int limit) {
+        return bookStorage.findPageByUserId(userId, afterId, limit)
                 .stream()
-                .filter(book -> book.getUserId().equals(userId))
                 .map(bookMapper::bookToBookDto)
                 .toList();
     }
 
     @Override
     public void deleteBookById(Long id) {
+        checkWritable();
         bookStorage.deleteById(id);
     }
-}
 
+    @Override
+    public void deleteBooksByIds(List<Long> ids) {
+        checkWritable();
+        bookStorage.deleteAllById(ids);
+        log.info("Deleted books by ids = {}", ids);
+    }
+
+    /**
+     * A follower's storages change only with its leader, so writes made here would be lost.
+     */
+    private void checkWritable() {
+        replicationFollower.ifPresent(follower -> {
+            throw new ReadOnlyReplicaException(follower.leaderAddress());
+        });
+    }
+}
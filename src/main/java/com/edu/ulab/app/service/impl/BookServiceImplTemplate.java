@@ -4,37 +4,64 @@ import com.edu.ulab.app.dto.BookDto;
 import com.edu.ulab.app.entity.Book;
 import com.edu.ulab.app.exception.BookNotFoundException;
 import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.mapper.RowMappers;
 import com.edu.ulab.app.service.BookService;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 
 import javax.validation.constraints.NotNull;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import static com.edu.ulab.app.web.constant.BookSQLConstant.DELETE_FROM_BOOK_ID;
+import static com.edu.ulab.app.web.constant.BookSQLConstant.SELECT_BOOK_IDS_USER_IDS;
+import static com.edu.ulab.app.web.constant.BookSQLConstant.DELETE_FROM_BOOK_USER_ID;
 import static com.edu.ulab.app.web.constant.BookSQLConstant.INSERT_INTO_BOOK_VALUES;
 import static com.edu.ulab.app.web.constant.BookSQLConstant.SELECT_FROM_BOOK_ID;
 import static com.edu.ulab.app.web.constant.BookSQLConstant.SELECT_FROM_BOOK_USER_ID;
+import static com.edu.ulab.app.web.constant.BookSQLConstant.SELECT_FROM_BOOK_USER_ID_PAGE;
 import static com.edu.ulab.app.web.constant.BookSQLConstant.UPDATE_BOOK_ID;
 
 @Slf4j
 @Service
 public class BookServiceImplTemplate implements BookService {
 
+    /**
+     * Maximum number of books inserted by one batch statement.
+     */
+    public static final int INSERT_BATCH_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
     private final BookMapper bookMapper;
-    private final KeyHolder keyHolder;
+    private final MultiRowBookWriter multiRowBookWriter;
+    private final boolean multiRowInsert;
+    private final boolean updateCountChecks;
 
-    public BookServiceImplTemplate(JdbcTemplate jdbcTemplate, BookMapper bookMapper) {
+    public BookServiceImplTemplate(JdbcTemplate jdbcTemplate, BookMapper bookMapper,
+                                   MultiRowBookWriter multiRowBookWriter,
+                                   @Value("${service.template.multi-row-insert:true}") boolean multiRowInsert,
+                                   @Value("${service.template.update-count-checks:true}") boolean updateCountChecks) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
         this.bookMapper = bookMapper;
-        this.keyHolder = new GeneratedKeyHolder();
+        this.multiRowBookWriter = multiRowBookWriter;
+        this.multiRowInsert = multiRowInsert;
+        this.updateCountChecks = updateCountChecks;
     }
 
     @Override
@@ -44,6 +71,7 @@ public class BookServiceImplTemplate implements BookService {
             throw new BookNotFoundException(bookMapper.bookDtoToBook(bookDto));
         }
 
+        KeyHolder keyHolder = new GeneratedKeyHolder();
         jdbcTemplate.update(
                 connection -> {
                     PreparedStatement ps = connection.prepareStatement(INSERT_INTO_BOOK_VALUES, new String[]{"id"});
@@ -59,13 +87,54 @@ public class BookServiceImplTemplate implements BookService {
         return bookDto;
     }
 
+    /**
+     * Inserts the books with multi-row statements of the {@link MultiRowBookWriter}, or, with
+     * {@code service.template.multi-row-insert=false}, with one JDBC batch per
+     * {@value #INSERT_BATCH_SIZE} books, reading their generated ids back either way, instead of a
+     * round trip per book.
+     */
+    @Override
+    public List<BookDto> createBooks(@NotNull List<BookDto> bookDtos) {
+        log.debug("Got bookDtos create books: {}", bookDtos.size());
+        bookDtos.stream()
+                .filter(this::verificationBookDto)
+                .findFirst()
+                .ifPresent(bookDto -> {
+                    throw new BookNotFoundException(bookMapper.bookDtoToBook(bookDto));
+                });
+
+        if (multiRowInsert) {
+            return multiRowBookWriter.insert(bookDtos);
+        }
+        for (int from = 0; from < bookDtos.size(); from += INSERT_BATCH_SIZE) {
+            List<BookDto> batch = bookDtos.subList(from, Math.min(from + INSERT_BATCH_SIZE, bookDtos.size()));
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> insertBooks(connection, batch));
+        }
+        log.debug("Created books: {}", bookDtos.size());
+
+        return bookDtos;
+    }
+
+    /**
+     * Updates the book with a plain statement, telling a missing book from the update count, or,
+     * with {@code service.template.update-count-checks=false}, reading its id back as a generated key.
+     */
     @Override
     public BookDto updateBook(@NotNull BookDto bookDto) {
         log.debug("Got bookDto update book: {}", bookDto);
         if (verificationBookDto(bookDto)) {
             throw new BookNotFoundException(bookMapper.bookDtoToBook(bookDto));
         }
+        if (updateCountChecks) {
+            int updated = jdbcTemplate.update(UPDATE_BOOK_ID, bookDto.getTitle(), bookDto.getAuthor(),
+                    bookDto.getPageCount(), bookDto.getUserId(), bookDto.getId());
+            if (updated == 0) {
+                throw new BookNotFoundException(bookDto.getId());
+            }
+            return bookDto;
+        }
 
+        KeyHolder keyHolder = new GeneratedKeyHolder();
         jdbcTemplate.update(
                 connection -> {
                     PreparedStatement ps = connection.prepareStatement(UPDATE_BOOK_ID, new String[]{"id"});
@@ -87,7 +156,7 @@ public class BookServiceImplTemplate implements BookService {
         log.debug("Got id user to get: {}", id);
 
         List<Book> books = jdbcTemplate
-                .query(SELECT_FROM_BOOK_ID, new BeanPropertyRowMapper<>(Book.class), id);
+                .query(SELECT_FROM_BOOK_ID, RowMappers.BOOK.rows(), id);
         log.debug("Query list books: {}", books);
 
         return bookMapper.bookToBookDto(books
@@ -97,22 +166,37 @@ public class BookServiceImplTemplate implements BookService {
                 .orElseThrow(() -> new BookNotFoundException(id)));
     }
 
+    /**
+     * Deletes the book, telling a missing book from the update count, or, with
+     * {@code service.template.update-count-checks=false}, selecting it first.
+     */
     @Override
     public void deleteBookById(Long id) {
         log.debug("Got id book to delete: {}", id);
-        if (getBookById(id) != null) {
+        if (updateCountChecks) {
+            if (jdbcTemplate.update(DELETE_FROM_BOOK_ID, id) == 0) {
+                throw new BookNotFoundException(id);
+            }
+        } else if (getBookById(id) != null) {
             jdbcTemplate.update(DELETE_FROM_BOOK_ID, id);
         } else {
             throw new BookNotFoundException(id);
         }
     }
 
+    @Override
+    public void deleteBooksByUserId(Long userId) {
+        log.debug("Got id user to delete books: {}", userId);
+        int deleted = jdbcTemplate.update(DELETE_FROM_BOOK_USER_ID, userId);
+        log.debug("Deleted books: {}", deleted);
+    }
+
     @Override
     public List<BookDto> getBooksByUserId(Long userId) {
         log.debug("Got id user to get: {}", userId);
 
         List<BookDto> books = jdbcTemplate
-                .query(SELECT_FROM_BOOK_USER_ID, new BeanPropertyRowMapper<>(BookDto.class), userId);
+                .query(SELECT_FROM_BOOK_USER_ID, RowMappers.BOOK_DTO.rows(), userId);
         log.debug("Get books: {}", books);
 
         return books.stream()
@@ -121,6 +205,58 @@ public class BookServiceImplTemplate implements BookService {
                 .toList();
     }
 
+    /**
+     * Reads only the ids of the books, with one {@code IN (:userIds)} query per chunk of
+     * {@link InListChunks}.
+     */
+    @Override
+    public Map<Long, List<Long>> getBookIdsByUserIds(List<Long> userIds) {
+        log.debug("Got ids users to get book ids: {}", userIds.size());
+        Map<Long, List<Long>> bookIds = new HashMap<>();
+        for (List<Long> chunk : InListChunks.chunks(userIds)) {
+            namedParameterJdbcTemplate.query(SELECT_BOOK_IDS_USER_IDS, Map.of("userIds", chunk), rs -> {
+                bookIds.computeIfAbsent(rs.getLong(1), userId -> new ArrayList<>()).add(rs.getLong(2));
+            });
+        }
+        log.debug("Get book ids of users: {}", bookIds.size());
+
+        return bookIds;
+    }
+
+    @Override
+    public List<BookDto> getBooksByUserId(Long userId, Long afterId, int limit) {
+        log.debug("Got id user to get page after: {}, {}", userId, afterId);
+
+        List<BookDto> books = jdbcTemplate
+                .query(SELECT_FROM_BOOK_USER_ID_PAGE, RowMappers.BOOK_DTO.rows(), userId, afterId, limit);
+        log.debug("Get books page: {}", books);
+
+        return books;
+    }
+
+    private Void insertBooks(Connection connection, List<BookDto> batch) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_INTO_BOOK_VALUES, new String[]{"id"})) {
+            for (BookDto bookDto : batch) {
+                ps.setString(1, bookDto.getTitle());
+                ps.setString(2, bookDto.getAuthor());
+                ps.setLong(3, bookDto.getPageCount());
+                ps.setLong(4, bookDto.getUserId());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                for (BookDto bookDto : batch) {
+                    if (!keys.next()) {
+                        throw new DataRetrievalFailureException(
+                                "Expected a generated id for each of " + batch.size() + " inserted books");
+                    }
+                    bookDto.setId(keys.getLong(1));
+                }
+            }
+        }
+        return null;
+    }
+
     private boolean verificationBookDto(BookDto bookDto) {
         return bookDto.getAuthor() == null
                 || bookDto.getTitle() == null
@@ -0,0 +1,149 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.exception.BookNotFoundException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.service.BookService;
+import com.edu.ulab.app.storage.TinyLfuCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Book service that keeps the hot working set in a bounded {@link TinyLfuCache} in front of
+ * {@link BookRepository}. Writes go to the database first; created books are then cached, and
+ * updated or deleted ones evicted, see {@link CacheWrites}. Misses are loaded from the database.
+ * Lists of a user's books always come from the database, and the loaded books warm the cache.
+ * Loaded books are cached with the {@link TinyLfuCache#stamp() stamp} taken before the load, so a
+ * load racing with an update or a delete does not cache the old book.
+ * Enabled with {@code service.backend=tiered}.
+ */
+@Slf4j
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "service", name = "backend", havingValue = "tiered")
+@RequiredArgsConstructor
+public class BookServiceImplTiered implements BookService {
+
+    private final BookRepository bookRepository;
+    private final BookMapper bookMapper;
+    private final TinyLfuCache<Book> bookCache;
+
+    @Override
+    public BookDto createBook(@NotNull BookDto bookDto) {
+        log.debug("Got bookDto create book: {}", bookDto);
+        Book book = bookMapper.bookDtoToBook(bookDto);
+        if (verificationBookDto(bookDto)) {
+            throw new BookNotFoundException(book);
+        }
+        Book savedBook = bookRepository.save(book);
+        CacheWrites.created(bookCache, savedBook.getId(), savedBook);
+        log.info("Saved book: {}", savedBook);
+
+        return bookMapper.bookToBookDto(savedBook);
+    }
+
+    @Override
+    public BookDto updateBook(@NotNull BookDto bookDto) {
+        log.debug("Got bookDto update book: {}", bookDto);
+        if (verificationBookDto(bookDto)) {
+            throw new BookNotFoundException(bookDto.getId());
+        }
+        findBook(bookDto.getId())
+                .orElseThrow(() -> new BookNotFoundException(bookDto.getId()));
+        Book updatedBook = bookRepository.save(bookMapper.bookDtoToBook(bookDto));
+        CacheWrites.changed(bookCache, updatedBook.getId());
+        log.debug("Updated book: {}", updatedBook);
+
+        return bookMapper.bookToBookDto(updatedBook);
+    }
+
+    @Override
+    public BookDto getBookById(Long id) {
+        log.debug("Got id get book by id: {}", id);
+        Book book = findBook(id)
+                .orElseThrow(() -> new BookNotFoundException(id));
+
+        return bookMapper.bookToBookDto(book);
+    }
+
+    @Override
+    public void deleteBookById(Long id) {
+        log.debug("Got id delete book by id: {}", id);
+        Book book = findBook(id)
+                .orElseThrow(() -> new BookNotFoundException(id));
+        bookRepository.deleteById(book.getId());
+        CacheWrites.changed(bookCache, id);
+    }
+
+    @Override
+    public List<BookDto> getBooksByUserId(Long userId) {
+        log.info("Received books by userId = {}", userId);
+        long stamp = bookCache.stamp();
+        return bookRepository
+                .findAllByPersonId(userId)
+                .stream()
+                .filter(Objects::nonNull)
+                .peek(book -> bookCache.putIfAbsent(book.getId(), book, stamp))
+                .map(bookMapper::bookToBookDto)
+                .toList();
+    }
+
+    /**
+     * Reads only the ids of the books, with one {@code IN} query per chunk of {@link InListChunks}.
+     */
+    @Override
+    public Map<Long, List<Long>> getBookIdsByUserIds(List<Long> userIds) {
+        log.info("Received book ids by userIds: {}", userIds.size());
+        Map<Long, List<Long>> bookIds = new HashMap<>();
+        for (List<Long> chunk : InListChunks.chunks(userIds)) {
+            for (Object[] row : bookRepository.findIdsByPersonIds(chunk)) {
+                bookIds.computeIfAbsent((Long) row[0], userId -> new ArrayList<>()).add((Long) row[1]);
+            }
+        }
+        return bookIds;
+    }
+
+    @Override
+    public List<BookDto> getBooksByUserId(Long userId, Long afterId, int limit) {
+        log.info("Received books by userId = {} after id = {}", userId, afterId);
+        long stamp = bookCache.stamp();
+        return bookRepository
+                .findPageByPersonId(userId, afterId, PageRequest.ofSize(limit))
+                .stream()
+                .peek(book -> bookCache.putIfAbsent(book.getId(), book, stamp))
+                .map(bookMapper::bookToBookDto)
+                .toList();
+    }
+
+    private Optional<Book> findBook(Long id) {
+        Book cached = bookCache.get(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long stamp = bookCache.stamp();
+        Optional<Book> loaded = bookRepository.findById(id);
+        loaded.ifPresent(book -> bookCache.putIfAbsent(id, book, stamp));
+        return loaded;
+    }
+
+    private boolean verificationBookDto(BookDto bookDto) {
+        return bookDto.getTitle() == null
+                || bookDto.getAuthor() == null
+                || bookDto.getPageCount() <= 0
+                || bookDto.getUserId() <= 0;
+    }
+}
@@ -0,0 +1,54 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.storage.TinyLfuCache;
+import lombok.experimental.UtilityClass;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps a {@link TinyLfuCache} in line with the database writes of the tiered services.
+ * Updated and deleted rows are evicted rather than cached, as concurrent writes of one row can
+ * return in another order than they commit; the next read loads the committed row. Inside a
+ * transaction the row is evicted again once it completes, as a load before the commit still sees
+ * the old row, and created rows are cached only once committed.
+ */
+@UtilityClass
+public class CacheWrites {
+
+    /**
+     * Caches a created entity. No other request knows its id before the create returns.
+     * @param cache - cache of the entities.
+     * @param id - id of the created entity.
+     * @param value - the entity as written.
+     */
+    public static <V> void created(TinyLfuCache<V> cache, long id, V value) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.put(id, value);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.put(id, value);
+            }
+        });
+    }
+
+    /**
+     * Evicts an updated or deleted entity. Called after the write, so that a load that read
+     * the row before it is not cached either.
+     * @param cache - cache of the entities.
+     * @param id - id of the written entity.
+     */
+    public static void changed(TinyLfuCache<?> cache, long id) {
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+}
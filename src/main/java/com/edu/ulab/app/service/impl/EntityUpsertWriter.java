@@ -0,0 +1,93 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Writes updates of existing {@link Person} and {@link Book} entities to their tables with one
+ * batched {@code UPDATE ... WHERE id=?} statement per table. Unlike {@code save} of the JPA
+ * repositories, which selects every detached entity again before its update, the statement needs
+ * no read of the row.
+ * <p>
+ * An update never creates a row, so an upsert such as {@code MERGE} would have to lock and check
+ * the ids first; the update counts of the batch tell the missing rows instead. If any of them is
+ * zero, the transaction is rolled back, so nothing is written, and the missing ids are returned.
+ * The writer joins the transaction of the caller when there is one.
+ */
+@Slf4j
+@Component
+public class EntityUpsertWriter {
+
+    private static final String UPDATE_PERSON = "UPDATE ulab_edu.person SET full_name=?, title=?, age=? WHERE id=?";
+    private static final String UPDATE_BOOK = "UPDATE ulab_edu.book SET user_id=?, title=?, author=?, page_count=? "
+            + "WHERE id=?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public EntityUpsertWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Updates the people if all of them exist.
+     * @param people - people with ids; must not be null.
+     * @return ids of the people that do not exist, in the given order; empty if all were updated.
+     */
+    public List<Long> updatePeople(List<Person> people) {
+        return write(UPDATE_PERSON, people, Person::getId,
+                person -> new Object[]{person.getFullName(), person.getTitle(), person.getAge(), person.getId()});
+    }
+
+    /**
+     * Updates the books if all of them exist.
+     * @param books - books with ids; must not be null.
+     * @return ids of the books that do not exist, in the given order; empty if all were updated.
+     */
+    public List<Long> updateBooks(List<Book> books) {
+        return write(UPDATE_BOOK, books, Book::getId,
+                book -> new Object[]{book.getUserId(), book.getTitle(), book.getAuthor(), book.getPageCount(),
+                        book.getId()});
+    }
+
+    private <T> List<Long> write(String update, List<T> rows, Function<T, Long> id,
+                                 Function<T, Object[]> arguments) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        List<Object[]> batch = new ArrayList<>(rows.size());
+        for (T row : rows) {
+            if (id.apply(row) == null) {
+                throw new IllegalArgumentException("Ids of updated rows must not be null");
+            }
+            batch.add(arguments.apply(row));
+        }
+        return transactionTemplate.execute(status -> {
+            int[] counts = jdbcTemplate.batchUpdate(update, batch);
+            Set<Long> missing = new LinkedHashSet<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    missing.add(id.apply(rows.get(i)));
+                }
+            }
+            if (!missing.isEmpty()) {
+                status.setRollbackOnly();
+                return List.copyOf(missing);
+            }
+            log.debug("Updated rows: {}", batch.size());
+            return List.of();
+        });
+    }
+}
@@ -0,0 +1,55 @@
+package com.edu.ulab.app.service.impl;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Splits ids for {@code IN (...)} queries into chunks of a few fixed sizes, so that any number of
+ * ids is read with at most {@value #MAX_CHUNK_SIZE} parameters per statement and the statements
+ * take only three shapes, which the statement caches of the driver and of the database keep.
+ * A chunk shorter than its size is padded by repeating its last id, which does not change the
+ * result of {@code IN}.
+ */
+@UtilityClass
+public class InListChunks {
+
+    /**
+     * Largest number of ids in one chunk.
+     */
+    public static final int MAX_CHUNK_SIZE = 256;
+
+    private static final int[] CHUNK_SIZES = {16, 64, MAX_CHUNK_SIZE};
+
+    /**
+     * Returns the distinct ids, in the given order, split into padded chunks.
+     * @param ids - ids to read; must not contain null.
+     * @return chunks of 16, 64 or {@value #MAX_CHUNK_SIZE} ids; empty for no ids.
+     */
+    public static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> distinct = List.copyOf(new LinkedHashSet<>(ids));
+        List<List<Long>> chunks = new ArrayList<>((distinct.size() + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        for (int from = 0; from < distinct.size(); from += MAX_CHUNK_SIZE) {
+            List<Long> chunk = new ArrayList<>(distinct.subList(from, Math.min(from + MAX_CHUNK_SIZE, distinct.size())));
+            Long last = chunk.get(chunk.size() - 1);
+            int size = chunkSize(chunk.size());
+            while (chunk.size() < size) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private static int chunkSize(int ids) {
+        for (int size : CHUNK_SIZES) {
+            if (ids <= size) {
+                return size;
+            }
+        }
+        throw new IllegalArgumentException("Chunk of " + ids + " ids exceeds " + MAX_CHUNK_SIZE);
+    }
+}
@@ -0,0 +1,139 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.BookDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static com.edu.ulab.app.web.constant.BookSQLConstant.BOOK_VALUES_ROW;
+import static com.edu.ulab.app.web.constant.BookSQLConstant.INSERT_INTO_BOOK;
+import static com.edu.ulab.app.web.constant.BookSQLConstant.RETURNING_ID;
+
+/**
+ * Inserts books with multi-row {@code INSERT INTO BOOK(...) VALUES (...),(...)} statements, one
+ * statement and one round trip per chunk of rows, and reads the generated ids back in row order:
+ * with {@code RETURNING ID} on PostgreSQL and with the generated keys of the statement elsewhere,
+ * such as on H2.
+ * <p>
+ * A chunk holds at most {@value #MAX_PARAMETERS} bind parameters, the limit of a PostgreSQL
+ * statement, whatever the configured number of rows.
+ */
+@Slf4j
+@Component
+public class MultiRowBookWriter {
+
+    /**
+     * Bind parameters per statement PostgreSQL accepts; the protocol counts them in 16 bits.
+     */
+    public static final int MAX_PARAMETERS = Short.MAX_VALUE;
+
+    private static final int COLUMNS = 4;
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int rowsPerStatement;
+    private volatile Boolean returning;
+
+    /**
+     * @param jdbcTemplate - template of the book table.
+     * @param rowsPerStatement - rows inserted by one statement, capped by the parameter limit.
+     */
+    public MultiRowBookWriter(JdbcTemplate jdbcTemplate,
+                              @Value("${service.template.rows-per-insert:1000}") int rowsPerStatement) {
+        if (rowsPerStatement <= 0) {
+            throw new IllegalArgumentException("Rows per insert must be positive: " + rowsPerStatement);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.rowsPerStatement = Math.min(rowsPerStatement, MAX_PARAMETERS / COLUMNS);
+    }
+
+    public int rowsPerStatement() {
+        return rowsPerStatement;
+    }
+
+    /**
+     * Inserts the books and sets their generated ids.
+     * @param bookDtos - valid books; must not be null.
+     * @return the same bookDto objects with generated ids, in the given order.
+     */
+    public List<BookDto> insert(List<BookDto> bookDtos) {
+        boolean useReturning = supportsReturning();
+        for (int from = 0; from < bookDtos.size(); from += rowsPerStatement) {
+            List<BookDto> chunk = bookDtos.subList(from, Math.min(from + rowsPerStatement, bookDtos.size()));
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> insertChunk(connection, chunk, useReturning));
+        }
+        log.debug("Inserted books: {} in statements of up to {} rows", bookDtos.size(), rowsPerStatement);
+        return bookDtos;
+    }
+
+    private Void insertChunk(Connection connection, List<BookDto> chunk, boolean useReturning) throws SQLException {
+        String sql = insertSql(chunk.size(), useReturning);
+        try (PreparedStatement ps = useReturning
+                ? connection.prepareStatement(sql)
+                : connection.prepareStatement(sql, new String[]{"id"})) {
+            int index = 1;
+            for (BookDto bookDto : chunk) {
+                ps.setString(index++, bookDto.getTitle());
+                ps.setString(index++, bookDto.getAuthor());
+                ps.setLong(index++, bookDto.getPageCount());
+                ps.setLong(index++, bookDto.getUserId());
+            }
+            if (useReturning) {
+                try (ResultSet ids = ps.executeQuery()) {
+                    readIds(ids, chunk);
+                }
+            } else {
+                ps.executeUpdate();
+                try (ResultSet ids = ps.getGeneratedKeys()) {
+                    readIds(ids, chunk);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void readIds(ResultSet ids, List<BookDto> chunk) throws SQLException {
+        for (BookDto bookDto : chunk) {
+            if (!ids.next()) {
+                throw new DataRetrievalFailureException(
+                        "Expected a generated id for each of " + chunk.size() + " inserted books");
+            }
+            bookDto.setId(ids.getLong(1));
+        }
+    }
+
+    private static String insertSql(int rows, boolean useReturning) {
+        StringBuilder sql = new StringBuilder(INSERT_INTO_BOOK.length() + rows * (BOOK_VALUES_ROW.length() + 1)
+                + RETURNING_ID.length());
+        sql.append(INSERT_INTO_BOOK);
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                sql.append(',');
+            }
+            sql.append(BOOK_VALUES_ROW);
+        }
+        if (useReturning) {
+            sql.append(RETURNING_ID);
+        }
+        return sql.toString();
+    }
+
+    private boolean supportsReturning() {
+        Boolean supported = returning;
+        if (supported == null) {
+            supported = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    POSTGRESQL.equals(connection.getMetaData().getDatabaseProductName()));
+            returning = supported;
+        }
+        return Boolean.TRUE.equals(supported);
+    }
+}
@@ -1,26 +1,37 @@
 package com.edu.ulab.app.service.impl;
 
+import com.edu.ulab.app.dto.UserBooksDto;
 import com.edu.ulab.app.dto.UserDto;
 import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.exception.UserNotFoundException;
 import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.repository.BookRepository;
 import com.edu.ulab.app.repository.UserRepository;
 import com.edu.ulab.app.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import javax.validation.constraints.NotNull;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Slf4j
 @Service
 @Primary
+@ConditionalOnProperty(prefix = "service", name = "backend", havingValue = "jpa", matchIfMissing = true)
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final BookRepository bookRepository;
     private final UserMapper userMapper;
+    private final EntityUpsertWriter upsertWriter;
 
 
     @Override
@@ -37,6 +48,10 @@ public class UserServiceImpl implements UserService {
         return userMapper.personToUserDto(savedUser);
     }
 
+    /**
+     * Writes the user with an update of the {@link EntityUpsertWriter} instead of a {@code findById}
+     * and a {@code save}, which selects the detached entity once more before its update.
+     */
     @Override
     public UserDto updateUser(@NotNull UserDto userDto) {
         log.debug("Got userDto update userMapper: {}", userDto);
@@ -45,13 +60,12 @@ public class UserServiceImpl implements UserService {
         if (verificationUserDto(userDto)) {
             throw new UserNotFoundException(person);
         }
-        Person updatedPerson = userRepository.findById(userDto.getId())
-                .map(user -> userMapper.userDtoToPerson(userDto))
-                .map(userRepository::save)
-                .orElseThrow(() -> new UserNotFoundException(userDto.getId()));
-        log.info("Updated user: {}", updatedPerson);
+        if (!upsertWriter.updatePeople(List.of(person)).isEmpty()) {
+            throw new UserNotFoundException(userDto.getId());
+        }
+        log.info("Updated user: {}", person);
 
-        return userMapper.personToUserDto(updatedPerson);
+        return userMapper.personToUserDto(person);
     }
 
     @Override
@@ -65,6 +79,51 @@ public class UserServiceImpl implements UserService {
         return userMapper.personToUserDto(person);
     }
 
+    @Override
+    public List<UserDto> getUsers(Long afterId, int limit) {
+        log.debug("Got id get users after id: {}", afterId);
+        return userRepository
+                .findPage(afterId, PageRequest.ofSize(limit))
+                .stream()
+                .map(userMapper::personToUserDto)
+                .toList();
+    }
+
+    /**
+     * Reads the users with {@code findAllById} per chunk of {@link InListChunks}.
+     */
+    @Override
+    public List<UserDto> getUsersByIds(List<Long> ids) {
+        log.debug("Got ids get users: {}", ids.size());
+        Map<Long, Person> people = new HashMap<>();
+        for (List<Long> chunk : InListChunks.chunks(ids)) {
+            userRepository.findAllById(chunk).forEach(person -> people.put(person.getId(), person));
+        }
+        log.debug("Get users by ids: {}", people.size());
+
+        return ids.stream()
+                .distinct()
+                .map(people::get)
+                .filter(Objects::nonNull)
+                .map(userMapper::personToUserDto)
+                .toList();
+    }
+
+    @Override
+    public UserBooksDto getUserWithBookIds(Long id) {
+        log.debug("Got id get user with book ids: {}", id);
+        List<Object[]> rows = bookRepository.findPersonWithBookIds(id);
+        if (rows.isEmpty()) {
+            throw new UserNotFoundException(id);
+        }
+        List<Long> bookIds = rows.get(0)[1] == null
+                ? List.of()
+                : rows.stream().map(row -> (Long) row[1]).toList();
+        log.debug("Get book ids by user: {}", bookIds);
+
+        return new UserBooksDto(id, bookIds);
+    }
+
     @Override
     public void deleteUserById(Long id) {
         log.debug("Got id delete user by id: {}", id);
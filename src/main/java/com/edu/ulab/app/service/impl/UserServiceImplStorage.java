@@ -1,27 +1,50 @@
 package com.edu.ulab.app.service.impl;
 
+import com.edu.ulab.app.dto.UserBooksDto;
 import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.entity.Book;
 import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.ReadOnlyReplicaException;
 import com.edu.ulab.app.exception.UserNotFoundException;
 import com.edu.ulab.app.mapper.UserMapper;
 import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.storage.BookStorageRepository;
+import com.edu.ulab.app.storage.IdAllocator;
+import com.edu.ulab.app.storage.ReplicationFollower;
 import com.edu.ulab.app.storage.UserStorage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Optional;
+
 @Slf4j
 @Service
+@Primary
+@ConditionalOnProperty(prefix = "service", name = "backend", havingValue = "storage")
 @RequiredArgsConstructor
 public class UserServiceImplStorage implements UserService {
 
     private final UserStorage userStorage;
 
+    private final BookStorageRepository bookStorage;
+
     private final UserMapper userMapper;
 
+    private final IdAllocator idAllocator;
+
+    private final Optional<ReplicationFollower> replicationFollower;
+
     @Override
     public UserDto createUser(UserDto userDto) {
+        checkWritable();
         Person personNew = userMapper.userDtoToPerson(userDto);
+        if (personNew.getId() == null) {
+            personNew.setId(idAllocator.nextId());
+        }
         log.info("Mapped user: {}", personNew);
         Person savedPerson = userStorage.save(personNew);
         log.info("Saved user: {}", savedPerson);
@@ -31,6 +54,7 @@ public class UserServiceImplStorage implements UserService {
 
     @Override
     public UserDto updateUser(UserDto userDto) {
+        checkWritable();
         Person updatedPerson = userStorage.findById(userDto.getId())
                 .map(user -> userMapper.userDtoToPerson(userDto))
                 .map(userStorage::save)
@@ -48,9 +72,52 @@ public class UserServiceImplStorage implements UserService {
     }
 
 
+    @Override
+    public List<UserDto> getUsers(Long afterId, int limit) {
+        return userStorage.findPage(afterId, limit)
+                .stream()
+                .map(userMapper::personToUserDto)
+                .toList();
+    }
+
+    @Override
+    public List<UserDto> getUsersByIds(List<Long> ids) {
+        List<UserDto> users = ids.stream()
+                .distinct()
+                .map(userStorage::findById)
+                .flatMap(Optional::stream)
+                .map(userMapper::personToUserDto)
+                .toList();
+        log.info("Received users: {} of ids: {}", users.size(), ids.size());
+        return users;
+    }
+
+    @Override
+    public UserBooksDto getUserWithBookIds(Long id) {
+        Person person = userStorage.findById(id)
+                .orElseThrow(() -> new UserNotFoundException(id));
+        List<Long> bookIds = bookStorage.findAllByUserId(id)
+                .stream()
+                .map(Book::getId)
+                .sorted()
+                .toList();
+        log.info("Received user: {} with book ids: {}", person.getId(), bookIds);
+        return new UserBooksDto(person.getId(), bookIds);
+    }
+
     @Override
     public void deleteUserById(Long id) {
+        checkWritable();
         userStorage.deleteById(id);
         log.info("Delete book by id = {}", id);
     }
+
+    /**
+     * A follower's storages change only with its leader, so writes made here would be lost.
+     */
+    private void checkWritable() {
+        replicationFollower.ifPresent(follower -> {
+            throw new ReadOnlyReplicaException(follower.leaderAddress());
+        });
+    }
 }
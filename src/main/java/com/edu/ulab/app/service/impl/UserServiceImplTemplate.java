@@ -1,38 +1,50 @@
 package com.edu.ulab.app.service.impl;
 
+import com.edu.ulab.app.dto.UserBooksDto;
 import com.edu.ulab.app.dto.UserDto;
 import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.exception.UserNotFoundException;
+import com.edu.ulab.app.mapper.RowMappers;
 import com.edu.ulab.app.mapper.UserMapper;
 import com.edu.ulab.app.service.UserService;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 
 import javax.validation.constraints.NotNull;
 import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import static com.edu.ulab.app.web.constant.UserSQLConstant.DELETE_FROM_PERSON_ID;
 import static com.edu.ulab.app.web.constant.UserSQLConstant.INSERT_INTO_PERSON_VALUES;
 import static com.edu.ulab.app.web.constant.UserSQLConstant.SELECT_FROM_PERSON_ID;
+import static com.edu.ulab.app.web.constant.UserSQLConstant.SELECT_FROM_PERSON_IDS;
+import static com.edu.ulab.app.web.constant.UserSQLConstant.SELECT_FROM_PERSON_PAGE;
+import static com.edu.ulab.app.web.constant.UserSQLConstant.SELECT_PERSON_BOOK_IDS;
 import static com.edu.ulab.app.web.constant.UserSQLConstant.UPDATE_PERSON_ID;
 
 @Slf4j
 @Service
 public class UserServiceImplTemplate implements UserService {
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
     private final UserMapper userMapper;
-    private final KeyHolder keyHolder;
+    private final boolean updateCountChecks;
 
-    public UserServiceImplTemplate(JdbcTemplate jdbcTemplate, UserMapper userMapper) {
+    public UserServiceImplTemplate(JdbcTemplate jdbcTemplate, UserMapper userMapper,
+                                   @Value("${service.template.update-count-checks:true}") boolean updateCountChecks) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
         this.userMapper = userMapper;
-        this.keyHolder = new GeneratedKeyHolder();
+        this.updateCountChecks = updateCountChecks;
     }
 
     @Override
@@ -41,6 +53,7 @@ public class UserServiceImplTemplate implements UserService {
         if (verificationUserDto(userDto)) {
             throw new UserNotFoundException(userMapper.userDtoToPerson(userDto));
         }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
         jdbcTemplate.update(
                 connection -> {
                     PreparedStatement ps = connection.prepareStatement(INSERT_INTO_PERSON_VALUES, new String[]{"id"});
@@ -56,12 +69,25 @@ public class UserServiceImplTemplate implements UserService {
     }
 
 
+    /**
+     * Updates the user with a plain statement, telling a missing user from the update count, or,
+     * with {@code service.template.update-count-checks=false}, reading its id back as a generated key.
+     */
     @Override
     public UserDto updateUser(@NotNull UserDto userDto) {
         log.debug("Got userDto update user: {}", userDto);
         if (verificationUserDto(userDto)) {
             throw new UserNotFoundException(userMapper.userDtoToPerson(userDto));
         }
+        if (updateCountChecks) {
+            int updated = jdbcTemplate.update(UPDATE_PERSON_ID, userDto.getFullName(), userDto.getTitle(),
+                    userDto.getAge(), userDto.getId());
+            if (updated == 0) {
+                throw new UserNotFoundException(userDto.getId());
+            }
+            return userDto;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
         jdbcTemplate.update(
                 connection -> {
                     PreparedStatement ps = connection.prepareStatement(UPDATE_PERSON_ID, new String[]{"id"});
@@ -81,7 +107,7 @@ public class UserServiceImplTemplate implements UserService {
     public UserDto getUserById(Long id) {
         log.debug("Got id user to get: {}", id);
         List<Person> people = jdbcTemplate
-                .query(SELECT_FROM_PERSON_ID, new BeanPropertyRowMapper<>(Person.class), id);
+                .query(SELECT_FROM_PERSON_ID, RowMappers.PERSON.rows(), id);
         log.debug("Query list people: {}", people);
 
         return userMapper.personToUserDto(people
@@ -91,11 +117,80 @@ public class UserServiceImplTemplate implements UserService {
                 .orElseThrow(() -> new UserNotFoundException(id)));
     }
 
+    @Override
+    public List<UserDto> getUsers(Long afterId, int limit) {
+        log.debug("Got id get users after id: {}", afterId);
+        List<Person> people = jdbcTemplate
+                .query(SELECT_FROM_PERSON_PAGE, RowMappers.PERSON.rows(), afterId, limit);
+        log.debug("Query page people: {}", people);
+
+        return people.stream()
+                .map(userMapper::personToUserDto)
+                .toList();
+    }
+
+    /**
+     * Reads the users with one {@code IN (:ids)} query per chunk of {@link InListChunks}.
+     */
+    @Override
+    public List<UserDto> getUsersByIds(List<Long> ids) {
+        log.debug("Got ids users to get: {}", ids.size());
+        Map<Long, Person> people = new HashMap<>();
+        for (List<Long> chunk : InListChunks.chunks(ids)) {
+            namedParameterJdbcTemplate.query(SELECT_FROM_PERSON_IDS, Map.of("ids", chunk), RowMappers.PERSON.rows())
+                    .forEach(person -> people.put(person.getId(), person));
+        }
+        log.debug("Query people by ids: {}", people.size());
+
+        return ids.stream()
+                .distinct()
+                .map(people::get)
+                .filter(Objects::nonNull)
+                .map(userMapper::personToUserDto)
+                .toList();
+    }
+
+    /**
+     * Reads the user and the ids of its books with one LEFT JOIN, taking only the ids from the rows.
+     */
+    @Override
+    public UserBooksDto getUserWithBookIds(Long id) {
+        log.debug("Got id user with book ids to get: {}", id);
+        UserBooksDto userBooks = jdbcTemplate.query(SELECT_PERSON_BOOK_IDS, rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            long userId = rs.getLong(1);
+            List<Long> bookIds = new ArrayList<>();
+            do {
+                long bookId = rs.getLong(2);
+                if (!rs.wasNull()) {
+                    bookIds.add(bookId);
+                }
+            } while (rs.next());
+            return new UserBooksDto(userId, bookIds);
+        }, id);
+        log.debug("Query user with book ids: {}", userBooks);
+
+        if (userBooks == null) {
+            throw new UserNotFoundException(id);
+        }
+        return userBooks;
+    }
+
+    /**
+     * Deletes the user, telling a missing user from the update count, or, with
+     * {@code service.template.update-count-checks=false}, selecting it first.
+     */
     @Override
     public void deleteUserById(Long id) {
         log.debug("Got id user to delete: {}", id);
 
-        if (getUserById(id) != null) {
+        if (updateCountChecks) {
+            if (jdbcTemplate.update(DELETE_FROM_PERSON_ID, id) == 0) {
+                throw new UserNotFoundException(id);
+            }
+        } else if (getUserById(id) != null) {
             jdbcTemplate.update(DELETE_FROM_PERSON_ID, id);
         } else {
             throw new UserNotFoundException(id);
@@ -0,0 +1,167 @@
+package com.edu.ulab.app.service.impl;
+
+import com.edu.ulab.app.dto.UserBooksDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.UserNotFoundException;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.repository.UserRepository;
+import com.edu.ulab.app.service.UserService;
+import com.edu.ulab.app.storage.TinyLfuCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * User service that keeps the hot working set in a bounded {@link TinyLfuCache} in front of
+ * {@link UserRepository}. Writes go to the database first; created users are then cached, and
+ * updated or deleted ones evicted, see {@link CacheWrites}. Misses are loaded from the database
+ * and cached with the {@link TinyLfuCache#stamp() stamp} taken before the load, so a load racing
+ * with an update or a delete does not cache the old user.
+ * Enabled with {@code service.backend=tiered}.
+ */
+@Slf4j
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "service", name = "backend", havingValue = "tiered")
+@RequiredArgsConstructor
+public class UserServiceImplTiered implements UserService {
+
+    private final UserRepository userRepository;
+    private final BookRepository bookRepository;
+    private final UserMapper userMapper;
+    private final TinyLfuCache<Person> userCache;
+
+    @Override
+    public UserDto createUser(@NotNull UserDto userDto) {
+        log.debug("Got userDto create user: {}", userDto);
+        Person user = userMapper.userDtoToPerson(userDto);
+        if (verificationUserDto(userDto)) {
+            throw new UserNotFoundException(user);
+        }
+        Person savedUser = userRepository.save(user);
+        CacheWrites.created(userCache, savedUser.getId(), savedUser);
+        log.info("Saved user: {}", savedUser);
+
+        return userMapper.personToUserDto(savedUser);
+    }
+
+    @Override
+    public UserDto updateUser(@NotNull UserDto userDto) {
+        log.debug("Got userDto update user: {}", userDto);
+        Person person = userMapper.userDtoToPerson(userDto);
+        if (verificationUserDto(userDto)) {
+            throw new UserNotFoundException(person);
+        }
+        findPerson(userDto.getId())
+                .orElseThrow(() -> new UserNotFoundException(userDto.getId()));
+        Person updatedPerson = userRepository.save(person);
+        CacheWrites.changed(userCache, updatedPerson.getId());
+        log.info("Updated user: {}", updatedPerson);
+
+        return userMapper.personToUserDto(updatedPerson);
+    }
+
+    @Override
+    public UserDto getUserById(Long id) {
+        log.debug("Got id get user by id: {}", id);
+        Person person = findPerson(id)
+                .orElseThrow(() -> new UserNotFoundException(id));
+
+        return userMapper.personToUserDto(person);
+    }
+
+    @Override
+    public List<UserDto> getUsers(Long afterId, int limit) {
+        log.debug("Got id get users after id: {}", afterId);
+        return userRepository
+                .findPage(afterId, PageRequest.ofSize(limit))
+                .stream()
+                .map(userMapper::personToUserDto)
+                .toList();
+    }
+
+    /**
+     * Serves cached users from memory and reads the rest with {@code findAllById} per chunk of
+     * {@link InListChunks}, caching them.
+     */
+    @Override
+    public List<UserDto> getUsersByIds(List<Long> ids) {
+        log.debug("Got ids get users: {}", ids.size());
+        Map<Long, Person> people = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : ids) {
+            Person cached = userCache.get(id);
+            if (cached != null) {
+                people.put(id, cached);
+            } else {
+                misses.add(id);
+            }
+        }
+        long stamp = userCache.stamp();
+        for (List<Long> chunk : InListChunks.chunks(misses)) {
+            userRepository.findAllById(chunk).forEach(person -> {
+                people.put(person.getId(), person);
+                userCache.putIfAbsent(person.getId(), person, stamp);
+            });
+        }
+        log.debug("Get users by ids: {}, loaded: {}", people.size(), misses.size());
+
+        return ids.stream()
+                .distinct()
+                .map(people::get)
+                .filter(Objects::nonNull)
+                .map(userMapper::personToUserDto)
+                .toList();
+    }
+
+    /**
+     * Serves the user from memory when cached and reads only the ids of its books.
+     */
+    @Override
+    public UserBooksDto getUserWithBookIds(Long id) {
+        log.debug("Got id get user with book ids: {}", id);
+        Person person = findPerson(id)
+                .orElseThrow(() -> new UserNotFoundException(id));
+
+        return new UserBooksDto(person.getId(), bookRepository.findIdsByPersonId(id));
+    }
+
+    @Override
+    public void deleteUserById(Long id) {
+        log.debug("Got id delete user by id: {}", id);
+        Person person = findPerson(id)
+                .orElseThrow(() -> new UserNotFoundException(id));
+        userRepository.deleteById(person.getId());
+        CacheWrites.changed(userCache, id);
+    }
+
+    private Optional<Person> findPerson(Long id) {
+        Person cached = userCache.get(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long stamp = userCache.stamp();
+        Optional<Person> loaded = userRepository.findById(id);
+        loaded.ifPresent(person -> userCache.putIfAbsent(id, person, stamp));
+        return loaded;
+    }
+
+    private boolean verificationUserDto(UserDto userDto) {
+        return userDto.getFullName() == null
+                || userDto.getTitle() == null
+                || userDto.getAge() <= 0;
+    }
+}
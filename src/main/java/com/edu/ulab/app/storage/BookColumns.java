@@ -0,0 +1,160 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+
+import java.util.Arrays;
+
+/**
+ * Columnar copy of the books of a storage for analytics: ids, userIds and pageCounts in
+ * primitive {@code long[]} columns, titles and authors as {@code int[]} codes of the shared
+ * {@link StringDictionary}. A scan reads only the columns it needs, sequentially, so it streams
+ * through memory instead of chasing a pointer per {@link Book}, and the aggregations split the
+ * rows over the common {@link java.util.concurrent.ForkJoinPool}.
+ * <p>
+ * The columns are filled from a {@link BookStorageSnapshot}, so they are consistent, and do not
+ * change afterwards. They keep the strings of their codes themselves, since the dictionary may
+ * reassign the code of a string released after the copy. A book without a user has userId
+ * {@link #NO_USER}; a missing title or author has code {@link StringDictionary#NO_CODE}.
+ */
+public class BookColumns {
+
+    public static final long NO_USER = 0;
+
+    private final StringDictionary dictionary;
+    private long[] ids;
+    private long[] userIds;
+    private long[] pageCounts;
+    private int[] titles;
+    private int[] authors;
+    private String[] strings = new String[64];
+    private int size;
+
+    BookColumns(StringDictionary dictionary, int capacity) {
+        this.dictionary = dictionary;
+        int length = Math.max(16, capacity);
+        ids = new long[length];
+        userIds = new long[length];
+        pageCounts = new long[length];
+        titles = new int[length];
+        authors = new int[length];
+    }
+
+    /**
+     * Copies the books of the snapshot into columns.
+     * @param snapshot - open snapshot of a book storage.
+     * @param dictionary - the dictionary the storage interns its strings with.
+     * @return the columns.
+     */
+    static BookColumns of(BookStorageSnapshot snapshot, StringDictionary dictionary) {
+        BookColumns columns = new BookColumns(dictionary, 1024);
+        snapshot.stream().forEach(columns::add);
+        return columns;
+    }
+
+    void add(Book book) {
+        int title = dictionary.codeOf(book.getTitle());
+        int author = dictionary.codeOf(book.getAuthor());
+        remember(title, book.getTitle());
+        remember(author, book.getAuthor());
+        append(book.getId(), book.getUserId() == null ? NO_USER : book.getUserId(), book.getPageCount(),
+                title, author);
+    }
+
+    /**
+     * Adds a row of codes that are held by the storage while the columns are filled.
+     */
+    void add(long id, long userId, long pageCount, int title, int author) {
+        remember(title, null);
+        remember(author, null);
+        append(id, userId, pageCount, title, author);
+    }
+
+    private void remember(int code, String value) {
+        if (code == StringDictionary.NO_CODE) {
+            return;
+        }
+        if (code >= strings.length) {
+            strings = Arrays.copyOf(strings, Math.max(code + 1, strings.length << 1));
+        }
+        if (strings[code] == null) {
+            strings[code] = value == null ? dictionary.decode(code) : value;
+        }
+    }
+
+    private void append(long id, long userId, long pageCount, int title, int author) {
+        if (size == ids.length) {
+            int length = size << 1;
+            ids = Arrays.copyOf(ids, length);
+            userIds = Arrays.copyOf(userIds, length);
+            pageCounts = Arrays.copyOf(pageCounts, length);
+            titles = Arrays.copyOf(titles, length);
+            authors = Arrays.copyOf(authors, length);
+        }
+        ids[size] = id;
+        userIds[size] = userId;
+        pageCounts[size] = pageCount;
+        titles[size] = title;
+        authors[size] = author;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long id(int row) {
+        return ids[row];
+    }
+
+    public long userId(int row) {
+        return userIds[row];
+    }
+
+    public long pageCount(int row) {
+        return pageCounts[row];
+    }
+
+    public String title(int row) {
+        return decode(titles[row]);
+    }
+
+    public String author(int row) {
+        return decode(authors[row]);
+    }
+
+    /**
+     * Returns the string of a dictionary code, such as a group key of {@link #booksPerAuthor()}.
+     * @param code - the code.
+     * @return the string or null for {@link StringDictionary#NO_CODE}.
+     */
+    public String decode(long code) {
+        return code == StringDictionary.NO_CODE ? null : strings[(int) code];
+    }
+
+    /**
+     * Returns the total page count of all books.
+     * @return the sum of the pageCount column.
+     */
+    public long totalPages() {
+        return ColumnScans.sum(pageCounts, size);
+    }
+
+    /**
+     * Returns the total page count of the books of each user.
+     * @return totals keyed by userId.
+     */
+    public GroupTotals pagesPerUser() {
+        long[] userIds = this.userIds;
+        long[] pageCounts = this.pageCounts;
+        return ColumnScans.sumByKey(row -> userIds[row], row -> pageCounts[row], size);
+    }
+
+    /**
+     * Returns the number of books of each author.
+     * @return totals keyed by the dictionary code of the author; see {@link #decode(long)}.
+     */
+    public GroupTotals booksPerAuthor() {
+        int[] authors = this.authors;
+        return ColumnScans.sumByKey(row -> authors[row], row -> 1, size);
+    }
+}
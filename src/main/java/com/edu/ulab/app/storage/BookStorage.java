@@ -1,36 +1,332 @@
 package com.edu.ulab.app.storage;
 
 import com.edu.ulab.app.entity.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
 
+/**
+ * Concurrent in-memory storage of books keyed by a primitive {@link ConcurrentLongMap}.
+ * Writes are serialized per book id by a striped lock, so the primary map and the
+ * {@link SecondaryIndex secondary indexes} are always changed together. Reads take no locks.
+ * Book ids are also kept in a primitive {@link ConcurrentSortedLongSet} which serves keyset pages,
+ * and the userId index keeps the ids of each user sorted for the same purpose.
+ * Titles and authors are replaced with shared instances from the {@link StringDictionary} and
+ * released to it when the book is replaced or removed.
+ */
 @Component
-public class BookStorage implements StorageRepository<Book, Long> {
+@ConditionalOnProperty(prefix = "storage.book", name = "type", havingValue = "heap", matchIfMissing = true)
+public class BookStorage implements BookStorageRepository, MeterBinder, FootprintSource {
 
-    private final Map<Long, Book> storage = new HashMap<>();
+    private static final int STRIPES = 64;
+
+    private final ConcurrentLongMap<Book> storage = new ConcurrentLongMap<>();
+    private final ConcurrentSortedLongSet ids = new ConcurrentSortedLongSet();
+    private final LockStripes locks = new LockStripes(STRIPES);
+    private final SecondaryIndex<Book, Long> userIndex = SecondaryIndex.equality("userId", Book::getUserId);
+    private final SecondaryIndex<Book, String> authorIndex = SecondaryIndex.equality("author", Book::getAuthor);
+    private final SecondaryIndexes<Book> indexes = new SecondaryIndexes<>("book", storage, locks,
+            List.of(userIndex, authorIndex));
+    // titles and authors are counted by the dictionary
+    private final EntrySampler sampler = new EntrySampler(object -> object instanceof String);
+    private final LongAdder version = new LongAdder();
+    private final StringDictionary dictionary;
+    private final StorageJournal journal;
+
+    public BookStorage(StringDictionary dictionary, StorageJournal journal) {
+        this.dictionary = dictionary;
+        this.journal = journal;
+    }
 
     @Override
     public Book save(Book book) {
-        storage.put(book.getId(), book);
+        Long id = Objects.requireNonNull(book.getId(), "Book id must not be null");
+        book.setTitle(dictionary.intern(book.getTitle()));
+        book.setAuthor(dictionary.intern(book.getAuthor()));
+        long position;
+        Lock lock = locks.forId(id);
+        lock.lock();
+        try {
+            position = saveJournaled(book);
+        } finally {
+            lock.unlock();
+        }
+        journal.sync(position);
         return book;
     }
 
+    @Override
+    public List<Book> saveAll(Collection<Book> books) {
+        List<Long> ids = new ArrayList<>(books.size());
+        for (Book book : books) {
+            ids.add(Objects.requireNonNull(book.getId(), "Book id must not be null"));
+            book.setTitle(dictionary.intern(book.getTitle()));
+            book.setAuthor(dictionary.intern(book.getAuthor()));
+        }
+        long position = 0;
+        List<Lock> batch = locks.forIds(ids);
+        LockStripes.lockAll(batch);
+        try {
+            for (Book book : books) {
+                position = saveJournaled(book);
+            }
+        } finally {
+            LockStripes.unlockAll(batch);
+        }
+        journal.sync(position);
+        return new ArrayList<>(books);
+    }
+
     @Override
     public Optional<Book> findById(Long id) {
         return Optional.ofNullable(storage.get(id));
     }
 
+    @Override
+    public List<Book> findAllById(Collection<Long> ids) {
+        List<Book> books = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Book book = storage.get(id);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+
     @Override
     public List<Book> findAll() {
-        return storage.values().stream().toList();
+        try (BookStorageSnapshot snapshot = snapshot()) {
+            return snapshot.stream().toList();
+        }
+    }
+
+    @Override
+    public List<Book> findPage(Long afterId, int limit) {
+        return KeysetPages.after(ids, afterId, limit, storage::get);
+    }
+
+    @Override
+    public BookColumns columns() {
+        try (BookStorageSnapshot snapshot = snapshot()) {
+            return BookColumns.of(snapshot, dictionary);
+        }
+    }
+
+    @Override
+    public long version() {
+        return version.sum();
+    }
+
+    @Override
+    public BookStorageSnapshot snapshot() {
+        return new View(storage.snapshot());
+    }
+
+    /**
+     * Returns all books of the given user using the userId index.
+     * Costs O(k) in the number of the user's books instead of a scan over the whole storage.
+     */
+    @Override
+    public List<Book> findAllByUserId(Long userId) {
+        return userIndex.find(userId, storage::get);
+    }
+
+    @Override
+    public List<Book> findPageByUserId(Long userId, Long afterId, int limit) {
+        return KeysetPages.after(userIndex.ids(userId), afterId, limit,
+                bookId -> {
+                    Book book = storage.get(bookId);
+                    return userIndex.matches(book, userId) ? book : null;
+                });
+    }
+
+    /**
+     * Returns all books of the given author using the author index.
+     */
+    @Override
+    public List<Book> findAllByAuthor(String author) {
+        return authorIndex.find(author, storage::get);
+    }
+
+    @Override
+    public List<IndexStats> indexStats() {
+        return indexes.stats();
+    }
+
+    @Override
+    public StoreFootprint footprint() {
+        int size = storage.size();
+        Map<String, Long> components = new LinkedHashMap<>();
+        components.put("entities", sampler.estimate(size, EntrySampler.randomOf(ids, storage::get)));
+        components.put("primaryMap", storage.sizeInBytes());
+        components.put("ids", ids.sizeInBytes());
+        indexes.addTo(components);
+        return new StoreFootprint("book", size, components);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindTo(registry, Tags.empty());
+    }
+
+    void bindTo(MeterRegistry registry, Tags tags) {
+        indexes.bindTo(registry, tags);
     }
 
     @Override
     public void deleteById(Long id) {
-        storage.remove(id);
+        long position;
+        Lock lock = locks.forId(id);
+        lock.lock();
+        try {
+            position = deleteJournaled(id);
+        } finally {
+            lock.unlock();
+        }
+        journal.sync(position);
+    }
+
+    @Override
+    public void deleteAllById(Collection<Long> ids) {
+        long position = 0;
+        List<Lock> batch = locks.forIds(ids);
+        LockStripes.lockAll(batch);
+        try {
+            for (Long id : ids) {
+                position = deleteJournaled(id);
+            }
+        } finally {
+            LockStripes.unlockAll(batch);
+        }
+        journal.sync(position);
+    }
+
+    @Override
+    public void apply(StorageMutation mutation) {
+        Lock lock = locks.forId(mutation.getId());
+        lock.lock();
+        try {
+            switch (mutation.getType()) {
+                case SAVE_BOOK -> {
+                    Book book = mutation.getBook();
+                    book.setTitle(dictionary.intern(book.getTitle()));
+                    book.setAuthor(dictionary.intern(book.getAuthor()));
+                    put(book);
+                }
+                case DELETE_BOOK -> remove(mutation.getId());
+                default -> throw new IllegalArgumentException("Not a book mutation: " + mutation.getType());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores the book and journals the save with the lock of its id held. If the journal refuses
+     * the save, the previous book is put back, so the change never stays visible unjournaled.
+     * @return journal position of the save.
+     */
+    private long saveJournaled(Book book) {
+        Book previous = storage.get(book.getId());
+        boolean created = put(book);
+        try {
+            return journal.append(StorageMutation.saveBook(book, created));
+        } catch (RuntimeException e) {
+            restore(book.getId(), previous);
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the book and journals the delete with the lock of its id held, putting the book
+     * back if the journal refuses the delete.
+     * @return journal position of the delete.
+     */
+    private long deleteJournaled(long id) {
+        Book previous = storage.get(id);
+        remove(id);
+        try {
+            return journal.append(StorageMutation.deleteBook(id));
+        } catch (RuntimeException e) {
+            restore(id, previous);
+            throw e;
+        }
+    }
+
+    private void restore(long id, Book previous) {
+        if (previous == null) {
+            remove(id);
+            return;
+        }
+        // the strings of the previous book were released when it was replaced or removed
+        previous.setTitle(dictionary.intern(previous.getTitle()));
+        previous.setAuthor(dictionary.intern(previous.getAuthor()));
+        put(previous);
+    }
+
+    /**
+     * @return whether the book is new.
+     */
+    private boolean put(Book book) {
+        indexes.beforePut(book, book.getId());
+        // the stripe lock is held, so only a new id takes the lock of the id set
+        if (storage.get(book.getId()) == null) {
+            ids.add(book.getId());
+        }
+        Book previous = storage.put(book.getId(), book);
+        indexes.afterPut(previous, book, book.getId());
+        // a stored book saved again already holds references to its strings
+        release(previous == book ? book : previous);
+        version.increment();
+        return previous == null;
+    }
+
+    private void remove(long id) {
+        Book removed = storage.remove(id);
+        if (removed != null) {
+            ids.remove(id);
+            indexes.afterRemove(removed, id);
+            release(removed);
+            version.increment();
+        }
+    }
+
+    private void release(Book book) {
+        if (book != null) {
+            dictionary.release(book.getTitle());
+            dictionary.release(book.getAuthor());
+        }
+    }
+
+    private class View extends LongMapSnapshot<Book> implements BookStorageSnapshot {
+
+        private View(ConcurrentLongMap.Snapshot<Book> view) {
+            super(view);
+        }
+
+        @Override
+        public Stream<Book> findAllByUserId(Long userId) {
+            return userIndex.find(userId, view::get).stream();
+        }
+
+        @Override
+        public void close() {
+            super.close();
+            indexes.viewClosed();
+        }
     }
 }
@@ -0,0 +1,57 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+
+import java.util.List;
+
+/**
+ * Interface for local storage of books, implemented by the heap and off-heap engines.
+ * The engine is selected with the {@code storage.book.type} property.
+ */
+public interface BookStorageRepository extends StorageRepository<Book, Long> {
+
+    /**
+     * Returns all books of the given user.
+     * @param userId - must not be null.
+     * @return books of the user; empty list if none found.
+     */
+    List<Book> findAllByUserId(Long userId);
+
+    /**
+     * Returns a page of the user's books in ascending id order, starting after the given id.
+     * @param userId - must not be null.
+     * @param afterId - id the page starts after; 0 for the first page; must not be null.
+     * @param limit - maximum number of books; must be positive.
+     * @return up to {@code limit} books of the user with ids greater than {@code afterId}.
+     */
+    List<Book> findPageByUserId(Long userId, Long afterId, int limit);
+
+    /**
+     * Returns all books of the given author in ascending id order.
+     * @param author - must not be null.
+     * @return books of the author; empty list if none found.
+     */
+    List<Book> findAllByAuthor(String author);
+
+    /**
+     * Copies all books into columns for analytics, as of a single point in time.
+     * @return the columns.
+     */
+    BookColumns columns();
+
+    /**
+     * Returns a counter of the writes applied so far, which only grows, so that a copy such as
+     * {@link #columns()} can tell whether it is stale. A write is counted once it is visible.
+     * @return the current version.
+     */
+    long version();
+
+    @Override
+    BookStorageSnapshot snapshot();
+
+    /**
+     * Applies a journaled mutation without journaling it again.
+     * @param mutation - book mutation; must not be null.
+     */
+    void apply(StorageMutation mutation);
+}
@@ -0,0 +1,17 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+
+import java.util.stream.Stream;
+
+/**
+ * Point-in-time view of a book storage.
+ */
+public interface BookStorageSnapshot extends StorageSnapshot<Book, Long> {
+    /**
+     * Returns books of the given user as of the moment the view was opened.
+     * @param userId - must not be null.
+     * @return lazy stream of the user's books; valid until the view is closed.
+     */
+    Stream<Book> findAllByUserId(Long userId);
+}
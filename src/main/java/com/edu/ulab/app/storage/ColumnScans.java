@@ -0,0 +1,232 @@
+package com.edu.ulab.app.storage;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Parallel scans over primitive columns on the common {@link ForkJoinPool}. The rows are split
+ * into parts of {@value #LEAF_ROWS} rows, each scanned with a tight loop over the arrays.
+ * <p>
+ * Grouping first finds the range of the keys. Dense keys, such as ids from a sequence or
+ * dictionary codes, are summed straight into an array indexed by the key, one array per worker,
+ * and the arrays are added up at the end. Sparse keys are radix-partitioned: each part counts its
+ * rows per partition of the key hash, then scatters its keys and values to the partition's slice
+ * of two shared arrays, and each partition is aggregated into its own small hash map. Partitions
+ * hold disjoint keys, so there is nothing to merge however many groups there are.
+ */
+class ColumnScans {
+
+    static final int LEAF_ROWS = 1 << 16;
+
+    static final int PARTITION_BITS = 6;
+
+    static final int PARTITIONS = 1 << PARTITION_BITS;
+
+    /**
+     * Keys are dense when their range is at most this many times the number of rows.
+     */
+    private static final int DENSE_RANGE_FACTOR = 2;
+
+    private ColumnScans() {
+    }
+
+    /**
+     * Returns the sum of the first {@code size} values.
+     */
+    static long sum(long[] values, int size) {
+        return ForkJoinPool.commonPool().invoke(new Sum(values, 0, size));
+    }
+
+    /**
+     * Returns the sum of the values per key over the first {@code size} rows.
+     * @param key - key of a row.
+     * @param value - value of a row.
+     * @return the totals.
+     */
+    static GroupTotals sumByKey(IntToLongFunction key, IntToLongFunction value, int size) {
+        if (size == 0) {
+            return new GroupTotals(0, new long[0], new int[0]);
+        }
+        int parts = partsOf(size);
+        long[] minimums = new long[parts];
+        long[] maximums = new long[parts];
+        forEach(parts, part -> {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int row = part * LEAF_ROWS, end = endOf(part, size); row < end; row++) {
+                long rowKey = key.applyAsLong(row);
+                min = Math.min(min, rowKey);
+                max = Math.max(max, rowKey);
+            }
+            minimums[part] = min;
+            maximums[part] = max;
+        });
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int part = 0; part < parts; part++) {
+            min = Math.min(min, minimums[part]);
+            max = Math.max(max, maximums[part]);
+        }
+        long range = max - min + 1;
+        if (range > 0 && range <= (long) Math.max(size, LEAF_ROWS) * DENSE_RANGE_FACTOR) {
+            return sumDense(key, value, size, min, (int) range);
+        }
+        return new GroupTotals(sumPartitioned(key, value, size));
+    }
+
+    static int partitionOf(long key) {
+        return LongLongHashMap.hash(key) >>> (Integer.SIZE - PARTITION_BITS);
+    }
+
+    /**
+     * Sums into one array per worker, each filled from a contiguous run of parts.
+     */
+    private static GroupTotals sumDense(IntToLongFunction key, IntToLongFunction value, int size,
+                                        long base, int range) {
+        int parts = partsOf(size);
+        int workers = Math.min(parts, ForkJoinPool.getCommonPoolParallelism());
+        long[][] totals = new long[workers][];
+        int[][] counts = new int[workers][];
+        forEach(workers, worker -> {
+            long[] workerTotals = new long[range];
+            int[] workerCounts = new int[range];
+            int from = (int) ((long) parts * worker / workers) * LEAF_ROWS;
+            int to = Math.min(size, (int) ((long) parts * (worker + 1) / workers) * LEAF_ROWS);
+            for (int row = from; row < to; row++) {
+                int slot = (int) (key.applyAsLong(row) - base);
+                workerTotals[slot] += value.applyAsLong(row);
+                workerCounts[slot]++;
+            }
+            totals[worker] = workerTotals;
+            counts[worker] = workerCounts;
+        });
+        forEach(partsOf(range), slice -> {
+            for (int worker = 1; worker < workers; worker++) {
+                for (int slot = slice * LEAF_ROWS, end = endOf(slice, range); slot < end; slot++) {
+                    totals[0][slot] += totals[worker][slot];
+                    counts[0][slot] += counts[worker][slot];
+                }
+            }
+        });
+        return new GroupTotals(base, totals[0], counts[0]);
+    }
+
+    private static LongLongHashMap[] sumPartitioned(IntToLongFunction key, IntToLongFunction value, int size) {
+        int parts = partsOf(size);
+        byte[] partitionOfRow = new byte[size];
+        int[][] counts = new int[parts][PARTITIONS];
+        forEach(parts, part -> {
+            int[] partCounts = counts[part];
+            for (int row = part * LEAF_ROWS, end = endOf(part, size); row < end; row++) {
+                int partition = partitionOf(key.applyAsLong(row));
+                partitionOfRow[row] = (byte) partition;
+                partCounts[partition]++;
+            }
+        });
+
+        int[] partitionStart = new int[PARTITIONS + 1];
+        int[][] offsets = new int[parts][PARTITIONS];
+        int offset = 0;
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            partitionStart[partition] = offset;
+            for (int part = 0; part < parts; part++) {
+                offsets[part][partition] = offset;
+                offset += counts[part][partition];
+            }
+        }
+        partitionStart[PARTITIONS] = offset;
+
+        long[] keys = new long[size];
+        long[] values = new long[size];
+        forEach(parts, part -> {
+            int[] next = offsets[part];
+            for (int row = part * LEAF_ROWS, end = endOf(part, size); row < end; row++) {
+                int position = next[partitionOfRow[row]]++;
+                keys[position] = key.applyAsLong(row);
+                values[position] = value.applyAsLong(row);
+            }
+        });
+
+        LongLongHashMap[] totals = new LongLongHashMap[PARTITIONS];
+        forEach(PARTITIONS, partition -> {
+            int from = partitionStart[partition];
+            int to = partitionStart[partition + 1];
+            LongLongHashMap partitionTotals = new LongLongHashMap(Math.min(to - from, 1024));
+            for (int position = from; position < to; position++) {
+                partitionTotals.addTo(keys[position], values[position]);
+            }
+            totals[partition] = partitionTotals;
+        });
+        return totals;
+    }
+
+    private static int partsOf(int size) {
+        return Math.max(1, (size + LEAF_ROWS - 1) / LEAF_ROWS);
+    }
+
+    private static int endOf(int part, int size) {
+        return Math.min(size, (part + 1) * LEAF_ROWS);
+    }
+
+    /**
+     * Runs the action for each task index in parallel and waits for all of them.
+     */
+    private static void forEach(int tasks, IntConsumer action) {
+        ForkJoinPool.commonPool().invoke(new ForEach(action, 0, tasks));
+    }
+
+    private static final class Sum extends RecursiveTask<Long> {
+
+        private final long[] values;
+        private final int from;
+        private final int to;
+
+        private Sum(long[] values, int from, int to) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= LEAF_ROWS) {
+                long sum = 0;
+                for (int row = from; row < to; row++) {
+                    sum += values[row];
+                }
+                return sum;
+            }
+            int middle = (from + to) >>> 1;
+            Sum left = new Sum(values, from, middle);
+            left.fork();
+            long right = new Sum(values, middle, to).compute();
+            return left.join() + right;
+        }
+    }
+
+    private static final class ForEach extends RecursiveAction {
+
+        private final IntConsumer action;
+        private final int from;
+        private final int to;
+
+        private ForEach(IntConsumer action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.accept(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ForEach(action, from, middle), new ForEach(action, middle, to));
+        }
+    }
+}
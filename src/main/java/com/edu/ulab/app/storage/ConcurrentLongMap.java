@@ -0,0 +1,670 @@
+package com.edu.ulab.app.storage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Concurrent open-addressing hash map with primitive {@code long} keys.
+ * Keys live in a {@code long[]} next to the values array, so there are no boxed keys and no
+ * per-entry node objects. The table is split into segments, each guarded by its own
+ * {@link StampedLock}: lookups are optimistic and allocation-free, writes lock a single segment,
+ * and a segment grows without blocking readers or writers of the other segments.
+ * Null values are not permitted.
+ * <p>
+ * {@link #snapshot()} opens a point-in-time view using multi-version concurrency control.
+ * Opening a view takes the next epoch; while any view is open, writes keep the replaced value
+ * in a chain of versions stamped with the epoch they were made in, and removals leave a
+ * tombstone instead of shifting entries. A view resolves each slot to the newest version not
+ * newer than its epoch, so it iterates the live tables lazily without locks or copies.
+ * Versions no open view can see are pruned on the next write to the key and when a view closes.
+ * While no view is open, values are stored as is and writes allocate nothing.
+ *
+ * @param <V> the type of mapped values.
+ */
+public class ConcurrentLongMap<V> {
+
+    private static final int SEGMENTS = 64;
+    private static final int SEGMENT_SHIFT = Integer.SIZE - Integer.numberOfTrailingZeros(SEGMENTS);
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final long NO_READERS = Long.MAX_VALUE;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final AtomicLong clock = new AtomicLong();
+    private final ConcurrentSkipListSet<Long> readers = new ConcurrentSkipListSet<>();
+
+    public ConcurrentLongMap() {
+        this(SEGMENTS * MIN_CAPACITY);
+    }
+
+    /**
+     * Creates a map presized to hold the given number of entries without growing.
+     * @param expectedSize - expected number of entries.
+     */
+    public ConcurrentLongMap(int expectedSize) {
+        int perSegment = (int) Math.ceil(expectedSize / (double) SEGMENTS / LOAD_FACTOR);
+        int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(perSegment - 1, 1)) << 1);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    /**
+     * Returns the value mapped to the key. Does not allocate and does not block unless
+     * the key's segment is being written concurrently.
+     * @param key - the key.
+     * @return the value or null if the key is absent.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        return (V) latest(findSlot(key, hash(key)));
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the key to the value.
+     * @param key - the key.
+     * @param value - must not be null.
+     * @return the previous value or null if the key was absent.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value);
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.writeLock();
+        try {
+            long epoch = clock.get();
+            return (V) segment.put(key, hash, value, epoch, horizon());
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the mapping for the key.
+     * @param key - the key.
+     * @return the removed value or null if the key was absent.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        long stamp = segment.writeLock();
+        try {
+            long epoch = clock.get();
+            return (V) segment.remove(key, hash, epoch, horizon());
+        } finally {
+            segment.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of slots allocated across all segments, occupied or not.
+     * @return total table capacity.
+     */
+    public long capacity() {
+        long capacity = 0;
+        for (Segment segment : segments) {
+            capacity += segment.table.values.length;
+        }
+        return capacity;
+    }
+
+    /**
+     * Returns the heap taken by the tables of the segments, not counting the values.
+     * @return bytes.
+     */
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            int length = segment.table.values.length;
+            bytes += ObjectLayout.arraySize(long.class, length) + ObjectLayout.arraySize(Object.class, length);
+        }
+        return bytes;
+    }
+
+    /**
+     * Performs the action for each entry. Entries of one segment are copied under its read lock
+     * and the action runs outside of it, so the action may write to this map.
+     * The view is weakly consistent, as with {@link java.util.concurrent.ConcurrentHashMap};
+     * use {@link #snapshot()} for a consistent one.
+     * @param action - must not be null.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Entries<? super V> action) {
+        for (Segment segment : segments) {
+            long[] keys;
+            Object[] values;
+            int n = 0;
+            long stamp = segment.readLock();
+            try {
+                Table table = segment.table;
+                keys = new long[segment.size];
+                values = new Object[segment.size];
+                for (int i = 0; i < table.values.length; i++) {
+                    Object value = latest(table.values[i]);
+                    if (value != null) {
+                        keys[n] = table.keys[i];
+                        values[n++] = value;
+                    }
+                }
+            } finally {
+                segment.unlockRead(stamp);
+            }
+            for (int i = 0; i < n; i++) {
+                action.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns a weakly consistent copy of all values.
+     * @return list of values.
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size());
+        forEach((key, value) -> values.add(value));
+        return values;
+    }
+
+    /**
+     * Opens a consistent point-in-time view of the map. Writers are not blocked while the view is
+     * open, but keep old versions for it, so it must be closed.
+     * @return the open view.
+     */
+    public Snapshot<V> snapshot() {
+        long epoch;
+        synchronized (readers) {
+            epoch = clock.get();
+            readers.add(epoch);
+            clock.incrementAndGet();
+        }
+        for (Segment segment : segments) {
+            segment.unlockRead(segment.readLock());
+        }
+        return new Snapshot<>(this, epoch);
+    }
+
+    /**
+     * Returns whether a view opened by {@link #snapshot()} is still open.
+     * @return true if any view is open.
+     */
+    public boolean hasOpenSnapshots() {
+        return !readers.isEmpty();
+    }
+
+    /**
+     * Returns the epoch that the next write will be stamped with. Every view opened after the
+     * write sees it; a view with an epoch not lower than the returned value sees it as well.
+     * @return current epoch.
+     */
+    public long epoch() {
+        return clock.get();
+    }
+
+    /**
+     * Returns the oldest epoch that an open view can read at.
+     * @return the epoch or {@link Long#MAX_VALUE} when no view is open.
+     */
+    public long horizon() {
+        Long oldest = readers.ceiling(Long.MIN_VALUE);
+        return oldest == null ? NO_READERS : oldest;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            long stamp = segment.writeLock();
+            try {
+                segment.table = new Table(MIN_CAPACITY);
+                segment.size = 0;
+                segment.occupied = 0;
+                segment.pendingCount = 0;
+            } finally {
+                segment.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private void release(long epoch) {
+        readers.remove(epoch);
+        for (Segment segment : segments) {
+            if (segment.pendingCount > 0) {
+                long stamp = segment.writeLock();
+                try {
+                    segment.vacuum(horizon());
+                } finally {
+                    segment.unlockWrite(stamp);
+                }
+            }
+        }
+    }
+
+    private Object findSlot(long key, int hash) {
+        Segment segment = segmentFor(hash);
+        long stamp = segment.tryOptimisticRead();
+        Object slot = segment.find(key, hash);
+        if (!segment.validate(stamp)) {
+            stamp = segment.readLock();
+            try {
+                slot = segment.find(key, hash);
+            } finally {
+                segment.unlockRead(stamp);
+            }
+        }
+        return slot;
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[hash >>> SEGMENT_SHIFT];
+    }
+
+    private static int hash(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (int) (key ^ (key >>> 33));
+    }
+
+    /**
+     * Returns the current value held in a slot, or null for an empty slot or a tombstone.
+     */
+    private static Object latest(Object slot) {
+        return slot instanceof Version version ? version.value : slot;
+    }
+
+    /**
+     * Returns the value of a slot as seen at the given epoch, or null if it did not exist then.
+     */
+    private static Object visible(Object slot, long epoch) {
+        if (!(slot instanceof Version)) {
+            return slot;
+        }
+        for (Version version = (Version) slot; version != null; version = version.older) {
+            if (version.epoch <= epoch) {
+                return version.value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Callback for {@link #forEach(Entries)} taking a primitive key.
+     * @param <V> the type of values.
+     */
+    @FunctionalInterface
+    public interface Entries<V> {
+        void accept(long key, V value);
+    }
+
+    /**
+     * Point-in-time view opened by {@link #snapshot()}. Lookups and iteration see the map exactly
+     * as it was when the view was opened. Iteration walks the live segment tables in place.
+     * Not thread-safe; must be closed to let writers drop the versions kept for it.
+     *
+     * @param <V> the type of mapped values.
+     */
+    public static final class Snapshot<V> implements AutoCloseable {
+
+        private final ConcurrentLongMap<V> map;
+        private final long epoch;
+        private boolean closed;
+
+        private Snapshot(ConcurrentLongMap<V> map, long epoch) {
+            this.map = map;
+            this.epoch = epoch;
+        }
+
+        /**
+         * Returns the value the key was mapped to when the view was opened.
+         * @param key - the key.
+         * @return the value or null if the key was absent.
+         */
+        @SuppressWarnings("unchecked")
+        public V get(long key) {
+            checkOpen();
+            return (V) visible(map.findSlot(key, hash(key)), epoch);
+        }
+
+        /**
+         * Returns a lazy iterator over the values of the view.
+         * @return iterator; valid until the view is closed.
+         */
+        public Iterator<V> iterator() {
+            checkOpen();
+            return new Iterator<>() {
+                private int segment = -1;
+                private Table table;
+                private int index;
+                private V next;
+
+                @Override
+                public boolean hasNext() {
+                    if (next == null) {
+                        next = advance();
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public V next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    V value = next;
+                    next = null;
+                    return value;
+                }
+
+                @SuppressWarnings("unchecked")
+                private V advance() {
+                    checkOpen();
+                    while (true) {
+                        if (table == null || index == table.values.length) {
+                            if (++segment == SEGMENTS) {
+                                return null;
+                            }
+                            table = map.segments[segment].table;
+                            index = 0;
+                            continue;
+                        }
+                        Object value = visible(SLOTS.getAcquire(table.values, index++), epoch);
+                        if (value != null) {
+                            return (V) value;
+                        }
+                    }
+                }
+            };
+        }
+
+        /**
+         * Returns a lazy sequential stream over the values of the view.
+         * @return stream; valid until the view is closed.
+         */
+        public Stream<V> stream() {
+            Spliterator<V> spliterator = Spliterators.spliteratorUnknownSize(iterator(), Spliterator.NONNULL);
+            return StreamSupport.stream(spliterator, false);
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                map.release(epoch);
+            }
+        }
+
+        private void checkOpen() {
+            if (closed) {
+                throw new IllegalStateException("Snapshot is closed");
+            }
+        }
+    }
+
+    /**
+     * A value stamped with the epoch it was written in; a null value marks a removal.
+     * Chains run from the newest version to older ones.
+     */
+    private static final class Version {
+        private final long epoch;
+        private final Object value;
+        private Version older;
+
+        private Version(long epoch, Object value, Version older) {
+            this.epoch = epoch;
+            this.value = value;
+            this.older = older;
+        }
+
+        /**
+         * Wraps a plain slot value written while no view was open; it is visible to every view.
+         */
+        private static Version of(Object slot) {
+            return slot instanceof Version version ? version : new Version(Long.MIN_VALUE, slot, null);
+        }
+
+        /**
+         * Drops versions hidden from every open view by a newer one they can all see.
+         */
+        private Version prune(long horizon) {
+            for (Version version = this; version != null; version = version.older) {
+                if (version.epoch <= horizon) {
+                    version.older = null;
+                    break;
+                }
+            }
+            return this;
+        }
+    }
+
+    private static final class Table {
+        private final long[] keys;
+        private final Object[] values;
+        private final int mask;
+        private final int threshold;
+
+        private Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+            this.threshold = (int) (capacity * LOAD_FACTOR);
+        }
+    }
+
+    private static final class Segment extends StampedLock {
+        private volatile Table table;
+        private volatile int size;
+        private int occupied;
+        private long[] pending = new long[MIN_CAPACITY];
+        private volatile int pendingCount;
+
+        private Segment(int capacity) {
+            this.table = new Table(capacity);
+        }
+
+        /**
+         * Probes for the key and returns its raw slot. Safe to run without the lock: the probe is
+         * bounded by the table length and the caller discards the result unless its stamp validates.
+         */
+        private Object find(long key, int hash) {
+            Table t = table;
+            long[] keys = t.keys;
+            Object[] values = t.values;
+            int mask = t.mask;
+            int i = hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                Object value = values[i];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[i] == key) {
+                    return value;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        private Object put(long key, int hash, Object value, long epoch, long horizon) {
+            Table t = table;
+            int i = hash & t.mask;
+            while (true) {
+                Object current = t.values[i];
+                if (current == null) {
+                    t.keys[i] = key;
+                    SLOTS.setRelease(t.values, i, horizon == NO_READERS ? value : versioned(key, new Version(epoch, value, null)));
+                    size++;
+                    if (++occupied > t.threshold) {
+                        grow(horizon);
+                    }
+                    return null;
+                }
+                if (t.keys[i] == key) {
+                    Object previous = latest(current);
+                    SLOTS.setRelease(t.values, i, horizon == NO_READERS
+                            ? value
+                            : versioned(key, new Version(epoch, value, Version.of(current)).prune(horizon)));
+                    if (previous == null) {
+                        size++;
+                    }
+                    return previous;
+                }
+                i = (i + 1) & t.mask;
+            }
+        }
+
+        private Object remove(long key, int hash, long epoch, long horizon) {
+            Table t = table;
+            int mask = t.mask;
+            int i = hash & mask;
+            while (true) {
+                Object current = t.values[i];
+                if (current == null) {
+                    return null;
+                }
+                if (t.keys[i] == key) {
+                    break;
+                }
+                i = (i + 1) & mask;
+            }
+            Object current = t.values[i];
+            Object removed = latest(current);
+            if (removed == null) {
+                return null;
+            }
+            if (horizon == NO_READERS) {
+                shiftOut(t, i);
+            } else {
+                SLOTS.setRelease(t.values, i, versioned(key, new Version(epoch, null, Version.of(current)).prune(horizon)));
+            }
+            size--;
+            return removed;
+        }
+
+        /**
+         * Removes the slot with backward-shift deletion, so probe chains never contain holes.
+         * Moves other entries, so it only runs while no view is iterating.
+         */
+        private void shiftOut(Table t, int i) {
+            int mask = t.mask;
+            int gap = i;
+            int j = (i + 1) & mask;
+            while (t.values[j] != null) {
+                int home = hash(t.keys[j]) & mask;
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    t.keys[gap] = t.keys[j];
+                    t.values[gap] = t.values[j];
+                    gap = j;
+                }
+                j = (j + 1) & mask;
+            }
+            t.values[gap] = null;
+            occupied--;
+        }
+
+        /**
+         * Remembers a key holding versions so that {@link #vacuum(long)} can collapse it later.
+         */
+        private Version versioned(long key, Version version) {
+            if (pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, pendingCount << 1);
+            }
+            pending[pendingCount++] = key;
+            return version;
+        }
+
+        /**
+         * Collapses version chains that every open view sees in full back to plain values,
+         * and drops tombstones once no view is open.
+         */
+        private void vacuum(long horizon) {
+            long[] keys = pending;
+            int count = pendingCount;
+            pending = new long[MIN_CAPACITY];
+            pendingCount = 0;
+            Table t = table;
+            for (int k = 0; k < count; k++) {
+                long key = keys[k];
+                int i = indexOf(t, key);
+                if (i < 0 || !(t.values[i] instanceof Version version)) {
+                    continue;
+                }
+                version.prune(horizon);
+                if (version.epoch > horizon) {
+                    versioned(key, version);
+                } else if (version.value != null) {
+                    t.values[i] = version.value;
+                } else if (horizon == NO_READERS) {
+                    shiftOut(t, i);
+                } else {
+                    versioned(key, version);
+                }
+            }
+        }
+
+        private static int indexOf(Table t, long key) {
+            int i = hash(key) & t.mask;
+            while (t.values[i] != null) {
+                if (t.keys[i] == key) {
+                    return i;
+                }
+                i = (i + 1) & t.mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Rehashes into a table twice as large, dropping tombstones that no open view can see
+         * past. Views iterating the old table keep reading it unchanged.
+         */
+        private void grow(long horizon) {
+            Table old = table;
+            Table grown = new Table(old.values.length << 1);
+            int count = 0;
+            for (int i = 0; i < old.values.length; i++) {
+                Object value = old.values[i];
+                if (value == null || value instanceof Version version && version.value == null && version.epoch <= horizon) {
+                    continue;
+                }
+                long key = old.keys[i];
+                int j = hash(key) & grown.mask;
+                while (grown.values[j] != null) {
+                    j = (j + 1) & grown.mask;
+                }
+                grown.keys[j] = key;
+                grown.values[j] = value;
+                count++;
+            }
+            occupied = count;
+            table = grown;
+        }
+    }
+}
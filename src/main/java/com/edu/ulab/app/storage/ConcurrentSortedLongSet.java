@@ -0,0 +1,93 @@
+package com.edu.ulab.app.storage;
+
+import java.util.OptionalLong;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe {@link SortedLongSet} for the id indexes of the heap storages: about 8 to 16 bytes
+ * per id instead of a boxed {@code Long} and its skip list nodes. Writers, which only come with
+ * new and removed ids, hold a write lock for one block shift. Readers copy the ids they need
+ * under an optimistic read and repeat the copy under the read lock only if a writer intervened.
+ */
+class ConcurrentSortedLongSet {
+
+    private final SortedLongSet set = new SortedLongSet();
+    private final StampedLock lock = new StampedLock();
+
+    boolean add(long value) {
+        long stamp = lock.writeLock();
+        try {
+            return set.add(value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    boolean remove(long value) {
+        long stamp = lock.writeLock();
+        try {
+            return set.remove(value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return set.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    long sizeInBytes() {
+        long stamp = lock.readLock();
+        try {
+            return set.sizeInBytes();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Copies the smallest values greater than the given one, in ascending order.
+     * @param after - lower bound, exclusive.
+     * @param into - receives up to its length values.
+     * @return the number of copied values.
+     */
+    int copyAfter(long after, long[] into) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int copied = set.copyAfter(after, into);
+                if (lock.validate(stamp)) {
+                    return copied;
+                }
+            } catch (RuntimeException e) {
+                // a writer moved the blocks under the optimistic read; copy again under the lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return set.copyAfter(after, into);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns a value chosen uniformly at random.
+     * @return the value or empty for an empty set.
+     */
+    OptionalLong random() {
+        long stamp = lock.readLock();
+        try {
+            int size = set.size();
+            return size == 0 ? OptionalLong.empty() : OptionalLong.of(set.get(ThreadLocalRandom.current().nextInt(size)));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
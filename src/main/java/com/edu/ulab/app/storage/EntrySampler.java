@@ -0,0 +1,93 @@
+package com.edu.ulab.app.storage;
+
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Estimates the memory taken by the entries of a store from the average {@link ObjectLayout#deepSize}
+ * of a random sample. The average is kept until the number of entries changes by a quarter or the
+ * sample gets a minute old, so most estimates cost a multiplication.
+ */
+class EntrySampler {
+
+    static final int SAMPLE_SIZE = 64;
+
+    private static final long MAX_AGE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Predicate<Object> shared;
+    private volatile Sample sample;
+
+    /**
+     * @param shared - objects referenced by the entries but held elsewhere, such as dictionary strings.
+     */
+    EntrySampler(Predicate<Object> shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Returns a supplier of random entries of a store that keeps its ids in a sorted set.
+     * @param ids - ids of the store.
+     * @param lookup - returns the entry of an id or null if it was removed meanwhile.
+     * @return the supplier; it returns null for an empty store.
+     */
+    static <E> Supplier<E> randomOf(ConcurrentSortedLongSet ids, LongFunction<E> lookup) {
+        return () -> {
+            OptionalLong id = ids.random();
+            return id.isPresent() ? lookup.apply(id.getAsLong()) : null;
+        };
+    }
+
+    /**
+     * Returns the estimated memory of the entries, sampling them again if the average is stale.
+     * @param count - current number of entries.
+     * @param randomEntry - returns a random entry or null if none was found.
+     * @return estimated bytes.
+     */
+    long estimate(long count, Supplier<?> randomEntry) {
+        if (count == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        Sample current = sample;
+        if (current == null || current.isStale(count, now)) {
+            current = take(count, randomEntry, now);
+            if (current == null) {
+                return 0;
+            }
+            sample = current;
+        }
+        return Math.round(current.averageBytes * count);
+    }
+
+    private Sample take(long count, Supplier<?> randomEntry, long now) {
+        long bytes = 0;
+        int taken = 0;
+        for (int attempt = 0; attempt < SAMPLE_SIZE * 2 && taken < SAMPLE_SIZE; attempt++) {
+            Object entry = randomEntry.get();
+            if (entry != null) {
+                bytes += ObjectLayout.deepSize(entry, shared);
+                taken++;
+            }
+        }
+        return taken == 0 ? null : new Sample(count, (double) bytes / taken, now);
+    }
+
+    private static final class Sample {
+        private final long count;
+        private final double averageBytes;
+        private final long takenAt;
+
+        private Sample(long count, double averageBytes, long takenAt) {
+            this.count = count;
+            this.averageBytes = averageBytes;
+            this.takenAt = takenAt;
+        }
+
+        private boolean isStale(long currentCount, long now) {
+            return now - takenAt > MAX_AGE_NANOS || Math.abs(currentCount - count) * 4 > count;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.edu.ulab.app.storage;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Actuator endpoint {@code /actuator/footprint} with the entries and the estimated memory of each
+ * in-memory store, split by structure, and how fast they grow. The same figures are published as
+ * the {@code storage.footprint.*} gauges.
+ * <p>
+ * Each store is observed at most once a second, however many gauges and requests read it, and the
+ * growth rates are measured between observations at least {@value #RATE_WINDOW_SECONDS} seconds
+ * apart, so they are per scrape when scraped every 15 seconds.
+ */
+@Endpoint(id = "footprint")
+public class FootprintEndpoint implements MeterBinder {
+
+    static final long RATE_WINDOW_SECONDS = 10;
+
+    private static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(RATE_WINDOW_SECONDS);
+
+    private final List<Tracker> trackers;
+    private final LongSupplier nanoClock;
+
+    /**
+     * @param sources - the stores.
+     * @param nanoClock - monotonic time in nanoseconds, such as {@link System#nanoTime()}.
+     */
+    public FootprintEndpoint(List<FootprintSource> sources, LongSupplier nanoClock) {
+        this.trackers = sources.stream().map(Tracker::new).toList();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Returns the footprint of all stores.
+     * @return the report.
+     */
+    @ReadOperation
+    public FootprintReport footprint() {
+        List<StoreFootprint> stores = trackers.stream()
+                .map(tracker -> tracker.observe(nanoClock.getAsLong()))
+                .toList();
+        return new FootprintReport(stores.stream().mapToLong(StoreFootprint::getTotalBytes).sum(), stores);
+    }
+
+    /**
+     * Returns the footprint of one store.
+     * @param store - store name, such as {@code user}, {@code book} or {@code dictionary}.
+     * @return the footprint or null, answered with 404, if there is no such store.
+     */
+    @ReadOperation
+    public StoreFootprint store(@Selector String store) {
+        return footprint().getStores().stream()
+                .filter(footprint -> footprint.getStore().equals(store))
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Tracker tracker : trackers) {
+            StoreFootprint initial = tracker.observe(nanoClock.getAsLong());
+            Tags tags = Tags.of("store", initial.getStore());
+            Gauge.builder("storage.footprint.entries", tracker, t -> t.observe(nanoClock.getAsLong()).getEntries())
+                    .tags(tags)
+                    .description("Entries of the in-memory store")
+                    .register(registry);
+            for (String component : initial.getComponents().keySet()) {
+                Gauge.builder("storage.footprint.bytes", tracker,
+                                t -> t.observe(nanoClock.getAsLong()).getComponents().getOrDefault(component, 0L))
+                        .tags(tags.and("component", component))
+                        .baseUnit("bytes")
+                        .description("Estimated memory of a structure of the in-memory store")
+                        .register(registry);
+            }
+            Gauge.builder("storage.footprint.entries.growth", tracker,
+                            t -> t.observe(nanoClock.getAsLong()).getEntriesPerSecond())
+                    .tags(tags)
+                    .description("Entries added to the in-memory store per second")
+                    .register(registry);
+            Gauge.builder("storage.footprint.bytes.growth", tracker,
+                            t -> t.observe(nanoClock.getAsLong()).getBytesPerSecond())
+                    .tags(tags)
+                    .baseUnit("bytes")
+                    .description("Estimated memory added to the in-memory store per second")
+                    .register(registry);
+        }
+    }
+
+    @Value
+    public static class FootprintReport {
+        long totalBytes;
+        List<StoreFootprint> stores;
+    }
+
+    private static final class Tracker {
+
+        private final FootprintSource source;
+        private StoreFootprint latest;
+        private long latestAt;
+        private StoreFootprint baseline;
+        private long baselineAt;
+        private double entriesPerSecond;
+        private double bytesPerSecond;
+
+        private Tracker(FootprintSource source) {
+            this.source = source;
+        }
+
+        private synchronized StoreFootprint observe(long now) {
+            if (latest != null && now - latestAt < REFRESH_NANOS) {
+                return latest;
+            }
+            StoreFootprint current = source.footprint();
+            if (baseline == null) {
+                baseline = current;
+                baselineAt = now;
+            } else if (now - baselineAt >= RATE_WINDOW_NANOS) {
+                double seconds = (double) (now - baselineAt) / TimeUnit.SECONDS.toNanos(1);
+                entriesPerSecond = (current.getEntries() - baseline.getEntries()) / seconds;
+                bytesPerSecond = (current.getTotalBytes() - baseline.getTotalBytes()) / seconds;
+                baseline = current;
+                baselineAt = now;
+            }
+            latest = current.withGrowth(entriesPerSecond, bytesPerSecond);
+            latestAt = now;
+            return latest;
+        }
+    }
+}
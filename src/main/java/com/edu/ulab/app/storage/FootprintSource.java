@@ -0,0 +1,14 @@
+package com.edu.ulab.app.storage;
+
+/**
+ * A store that can estimate the memory it takes, published by the {@link FootprintEndpoint}.
+ * The estimate is requested on every scrape, so it must not scan the store.
+ */
+public interface FootprintSource {
+
+    /**
+     * Returns the current size and estimated memory of the store.
+     * @return the footprint without growth rates.
+     */
+    StoreFootprint footprint();
+}
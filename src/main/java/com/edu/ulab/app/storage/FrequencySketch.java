@@ -0,0 +1,84 @@
+package com.edu.ulab.app.storage;
+
+/**
+ * Count-min sketch of access frequencies with 4-bit counters, the TinyLFU admission filter.
+ * Each {@code long} holds sixteen counters and every key maps to four of them; the estimate is
+ * the smallest. After a sample of ten accesses per cached entry all counters are halved, so
+ * the sketch follows changes in popularity instead of remembering old hits forever.
+ * Not thread-safe.
+ */
+class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+        int capacity = Integer.highestOneBit(Math.max(maximumSize - 1, 1)) << 1;
+        this.table = new long[Math.max(capacity >>> 2, 8)];
+        this.tableMask = table.length - 1;
+        this.sampleSize = (int) Math.min(10L * Math.max(maximumSize, 1), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the estimated number of recent accesses to the key.
+     * @param key - the key.
+     * @return frequency from 0 to 15.
+     */
+    int frequency(long key) {
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long hash = hash(key, i);
+            int shift = counterShift(hash);
+            frequency = Math.min(frequency, (int) ((table[index(hash)] >>> shift) & 0xF));
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an access to the key.
+     * @param key - the key.
+     */
+    void increment(long key) {
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long hash = hash(key, i);
+            int index = index(hash);
+            int shift = counterShift(hash);
+            if (((table[index] >>> shift) & 0xF) < MAX_COUNT) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int index(long hash) {
+        return (int) (hash >>> 32) & tableMask;
+    }
+
+    private static int counterShift(long hash) {
+        return ((int) hash & 0xF) << 2;
+    }
+
+    private static long hash(long key, int i) {
+        long hash = (key + SEEDS[i]) * SEEDS[i];
+        hash = (hash ^ (hash >>> 32)) * SEEDS[i];
+        return hash ^ (hash >>> 29);
+    }
+}
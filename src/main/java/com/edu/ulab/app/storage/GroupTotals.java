@@ -0,0 +1,116 @@
+package com.edu.ulab.app.storage;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Totals per group key computed by a column scan. Dense keys are held in an array indexed by
+ * the key minus the smallest key, with the number of rows per key telling which keys occur;
+ * sparse keys in the disjoint hash maps of the partitions the scan grouped them into.
+ */
+public class GroupTotals {
+
+    private static final Comparator<Group> BY_TOTAL = Comparator.comparingLong(Group::getTotal)
+            .thenComparing(Comparator.comparingLong(Group::getKey).reversed());
+
+    private final LongLongHashMap[] partitions;
+    private final long base;
+    private final long[] totals;
+    private final int[] counts;
+    private final int size;
+
+    GroupTotals(LongLongHashMap[] partitions) {
+        this.partitions = partitions;
+        this.base = 0;
+        this.totals = null;
+        this.counts = null;
+        int groups = 0;
+        for (LongLongHashMap partition : partitions) {
+            groups += partition.size();
+        }
+        this.size = groups;
+    }
+
+    GroupTotals(long base, long[] totals, int[] counts) {
+        this.partitions = null;
+        this.base = base;
+        this.totals = totals;
+        this.counts = counts;
+        int groups = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                groups++;
+            }
+        }
+        this.size = groups;
+    }
+
+    /**
+     * Returns the number of groups.
+     * @return number of distinct keys.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the total of the group.
+     * @param key - group key.
+     * @return the total or 0 if there is no such group.
+     */
+    public long get(long key) {
+        if (partitions != null) {
+            return partitions[ColumnScans.partitionOf(key)].get(key);
+        }
+        long slot = key - base;
+        return slot >= 0 && slot < totals.length ? totals[(int) slot] : 0;
+    }
+
+    /**
+     * Returns the groups with the largest totals, keeping only {@code limit} of them on the way.
+     * @param limit - maximum number of groups; must be positive.
+     * @return groups in descending order of the total, ties in ascending order of the key.
+     */
+    public List<Group> top(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        }
+        PriorityQueue<Group> top = new PriorityQueue<>(limit + 1, BY_TOTAL);
+        forEach((key, total) -> {
+            if (top.size() < limit) {
+                top.add(new Group(key, total));
+            } else if (total > top.peek().getTotal()
+                    || total == top.peek().getTotal() && key < top.peek().getKey()) {
+                top.poll();
+                top.add(new Group(key, total));
+            }
+        });
+        List<Group> groups = new ArrayList<>(top);
+        groups.sort(BY_TOTAL.reversed());
+        return groups;
+    }
+
+    private void forEach(LongLongHashMap.EntryConsumer action) {
+        if (partitions != null) {
+            for (LongLongHashMap partition : partitions) {
+                partition.forEach(action);
+            }
+            return;
+        }
+        for (int slot = 0; slot < counts.length; slot++) {
+            if (counts[slot] > 0) {
+                action.accept(base + slot, totals[slot]);
+            }
+        }
+    }
+
+    @Value
+    public static class Group {
+        long key;
+        long total;
+    }
+}
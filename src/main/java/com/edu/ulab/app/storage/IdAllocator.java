@@ -0,0 +1,145 @@
+package com.edu.ulab.app.storage;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocator of unique ids for the storage-backed services.
+ * <p>
+ * Threads lease blocks of consecutive ids from one atomic counter and then hand out ids from
+ * their own block without any shared writes, so the counter is touched once per block instead
+ * of once per id. The high-water mark, the end of the ids reserved so far, is persisted to a
+ * file ahead of the ids handed out, by at least {@value #RESERVED_BLOCKS} blocks and by at most
+ * as many ids as were allocated since the start, so the number of syncs grows logarithmically.
+ * After a restart the counter resumes from the persisted mark, so ids are never reused; ids
+ * reserved but not used before the restart are skipped.
+ */
+@Slf4j
+public class IdAllocator implements MeterBinder {
+
+    private static final int RESERVED_BLOCKS = 64;
+
+    private final Path file;
+    private final int blockSize;
+    private final long initialMark;
+    private final AtomicLong nextBlock;
+    private final AtomicLong leases = new AtomicLong();
+    private final ThreadLocal<Lease> lease = ThreadLocal.withInitial(Lease::new);
+    private volatile long highWaterMark;
+
+    private IdAllocator(Path file, int blockSize, long highWaterMark) {
+        this.file = file;
+        this.blockSize = blockSize;
+        this.initialMark = highWaterMark;
+        this.nextBlock = new AtomicLong(highWaterMark);
+        this.highWaterMark = highWaterMark;
+    }
+
+    /**
+     * Creates an allocator that resumes from the high-water mark persisted in the file.
+     * The file is created on the first lease.
+     * @param file - high-water mark file.
+     * @param blockSize - ids leased by a thread at a time; must be positive.
+     * @return the allocator.
+     */
+    public static IdAllocator open(Path file, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        try {
+            long highWaterMark = 1;
+            if (Files.exists(file) && Files.size(file) >= Long.BYTES) {
+                highWaterMark = ByteBuffer.wrap(Files.readAllBytes(file)).getLong();
+            }
+            log.info("Allocating ids from {} in blocks of {}", highWaterMark, blockSize);
+            return new IdAllocator(file, blockSize, highWaterMark);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read id high-water mark " + file, e);
+        }
+    }
+
+    /**
+     * Returns the next id of the calling thread's block, leasing a new block when it is used up.
+     * @return a positive id never returned before.
+     */
+    public long nextId() {
+        Lease current = lease.get();
+        if (current.next == current.limit) {
+            long start = nextBlock.getAndAdd(blockSize);
+            if (start + blockSize > highWaterMark) {
+                reserve(start + blockSize);
+            }
+            current.next = start;
+            current.limit = start + blockSize;
+            leases.incrementAndGet();
+        }
+        return current.next++;
+    }
+
+    /**
+     * Makes sure ids up to the given one are never allocated. Used after recovering entities
+     * whose ids may be above the persisted mark.
+     * @param id - an id in use.
+     */
+    public void advancePast(long id) {
+        nextBlock.accumulateAndGet(id + 1, Math::max);
+    }
+
+    public long highWaterMark() {
+        return highWaterMark;
+    }
+
+    public long leaseCount() {
+        return leases.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("storage.ids.leases", this, IdAllocator::leaseCount)
+                .description("Id blocks leased by threads")
+                .register(registry);
+        Gauge.builder("storage.ids.high.water.mark", this, IdAllocator::highWaterMark)
+                .description("End of the ids reserved on disk")
+                .register(registry);
+    }
+
+    private synchronized void reserve(long end) {
+        if (end <= highWaterMark) {
+            return;
+        }
+        long mark = end + Math.max((long) blockSize * RESERVED_BLOCKS, end - initialMark);
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(mark).flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, buffer.position());
+                }
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot persist id high-water mark " + file, e);
+        }
+        highWaterMark = mark;
+    }
+
+    private static final class Lease {
+        private long next;
+        private long limit;
+    }
+}
@@ -0,0 +1,42 @@
+package com.edu.ulab.app.storage;
+
+import lombok.Value;
+
+/**
+ * Size and cost of a {@link SecondaryIndex}.
+ */
+@Value
+public class IndexStats {
+
+    String name;
+
+    /**
+     * {@code equality} or {@code range}.
+     */
+    String kind;
+
+    /**
+     * Distinct indexed keys.
+     */
+    long keys;
+
+    /**
+     * Indexed ids across all keys.
+     */
+    long entries;
+
+    /**
+     * Estimated heap taken by the index structures, not counting the keys themselves.
+     */
+    long estimatedBytes;
+
+    /**
+     * Index changes since the start.
+     */
+    long updates;
+
+    /**
+     * Time spent changing the index since the start.
+     */
+    long maintenanceNanos;
+}
@@ -0,0 +1,149 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Writes the flushed mutations to the tables of the {@link Person} and {@link Book} entities in
+ * one transaction, with a JDBC batch per statement, keeping the storage ids. Saves that created
+ * an entity are plain inserts, so an id already taken in the database, such as by another
+ * backend, fails the batch with a {@link RejectedWriteException} instead of overwriting the row. Other saves are upserts, as a replayed
+ * save may or may not have been flushed before: a batch of updates first, then a batch of inserts
+ * for the rows the updates did not find.
+ * The JPA repositories cannot be used here, as {@code save} of an entity with an assigned id
+ * selects it first and replaces the id of a new one with a generated one.
+ */
+public class JdbcWriteBehindTarget implements WriteBehindTarget {
+
+    private static final String UPDATE_PERSON = "UPDATE ulab_edu.person SET full_name=?, title=?, age=? WHERE id=?";
+    private static final String INSERT_PERSON = "INSERT INTO ulab_edu.person(full_name, title, age, id) VALUES (?,?,?,?)";
+    private static final String DELETE_PERSON = "DELETE FROM ulab_edu.person WHERE id=?";
+    private static final String UPDATE_BOOK = "UPDATE ulab_edu.book SET user_id=?, title=?, author=?, page_count=? WHERE id=?";
+    private static final String INSERT_BOOK = "INSERT INTO ulab_edu.book(user_id, title, author, page_count, id) VALUES (?,?,?,?,?)";
+    private static final String DELETE_BOOK = "DELETE FROM ulab_edu.book WHERE id=?";
+    private static final String SELECT_PEOPLE = "SELECT id, full_name, title, age FROM ulab_edu.person";
+    private static final String SELECT_BOOKS = "SELECT id, user_id, title, author, page_count FROM ulab_edu.book";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int fetchSize;
+
+    /**
+     * @param fetchSize - rows the database sends per round trip while loading.
+     */
+    public JdbcWriteBehindTarget(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public void write(List<StorageMutation> batch) {
+        List<Object[]> createdPeople = new ArrayList<>();
+        List<Object[]> savedPeople = new ArrayList<>();
+        List<Object[]> deletedPeople = new ArrayList<>();
+        List<Object[]> createdBooks = new ArrayList<>();
+        List<Object[]> savedBooks = new ArrayList<>();
+        List<Object[]> deletedBooks = new ArrayList<>();
+        for (StorageMutation mutation : batch) {
+            switch (mutation.getType()) {
+                case SAVE_USER -> {
+                    Person person = mutation.getPerson();
+                    (mutation.isCreated() ? createdPeople : savedPeople).add(new Object[]{
+                            person.getFullName(), person.getTitle(), person.getAge(), person.getId()});
+                }
+                case DELETE_USER -> deletedPeople.add(new Object[]{mutation.getId()});
+                case SAVE_BOOK -> {
+                    Book book = mutation.getBook();
+                    (mutation.isCreated() ? createdBooks : savedBooks).add(new Object[]{
+                            book.getUserId(), book.getTitle(), book.getAuthor(), book.getPageCount(), book.getId()});
+                }
+                case DELETE_BOOK -> deletedBooks.add(new Object[]{mutation.getId()});
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                batchUpdate(INSERT_PERSON, createdPeople);
+                upsert(UPDATE_PERSON, INSERT_PERSON, savedPeople);
+                batchUpdate(INSERT_BOOK, createdBooks);
+                upsert(UPDATE_BOOK, INSERT_BOOK, savedBooks);
+                batchUpdate(DELETE_BOOK, deletedBooks);
+                batchUpdate(DELETE_PERSON, deletedPeople);
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw new RejectedWriteException("Database refused a write-behind batch of " + batch.size(), e);
+        }
+    }
+
+    /**
+     * Updates the rows and inserts the ones that are not there. Both statements take the same
+     * arguments with the id last.
+     */
+    private void upsert(String update, String insert, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(update, rows);
+        List<Object[]> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                missing.add(rows.get(i));
+            }
+        }
+        batchUpdate(insert, missing);
+    }
+
+    /**
+     * Streams the tables in one transaction, so the database hands out {@link #fetchSize} rows at a time.
+     */
+    @Override
+    public void load(Consumer<StorageMutation> sink) {
+        transactionTemplate.executeWithoutResult(status -> {
+            query(SELECT_PEOPLE, rs -> {
+                Person person = new Person();
+                person.setId(rs.getLong("id"));
+                person.setFullName(rs.getString("full_name"));
+                person.setTitle(rs.getString("title"));
+                person.setAge(rs.getInt("age"));
+                sink.accept(StorageMutation.saveUser(person));
+            });
+            query(SELECT_BOOKS, rs -> {
+                Book book = new Book();
+                book.setId(rs.getLong("id"));
+                book.setUserId(rs.getLong("user_id"));
+                book.setTitle(rs.getString("title"));
+                book.setAuthor(rs.getString("author"));
+                book.setPageCount(rs.getLong("page_count"));
+                sink.accept(StorageMutation.saveBook(book));
+            });
+        });
+    }
+
+    private void query(String sql, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, handler);
+    }
+
+    private void batchUpdate(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+        }
+    }
+}
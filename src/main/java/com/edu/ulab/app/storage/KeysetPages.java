@@ -0,0 +1,65 @@
+package com.edu.ulab.app.storage;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.function.LongFunction;
+
+/**
+ * Keyset pagination over a sorted index of ids: a page is read by seeking to the first id after
+ * the cursor and walking forward, so its cost does not depend on how many ids precede it.
+ */
+@UtilityClass
+class KeysetPages {
+
+    /**
+     * Reads a page of entities whose ids follow the cursor.
+     * @param ids - sorted ids; may contain ids of removed entities.
+     * @param afterId - cursor; the page starts after it.
+     * @param limit - maximum number of entities.
+     * @param lookup - returns the entity with the id or null to skip it.
+     * @return up to {@code limit} entities in ascending id order.
+     */
+    static <E> List<E> after(NavigableSet<Long> ids, long afterId, int limit, LongFunction<E> lookup) {
+        List<E> page = new ArrayList<>(Math.min(limit, 256));
+        Iterator<Long> iterator = ids.tailSet(afterId, false).iterator();
+        while (page.size() < limit && iterator.hasNext()) {
+            E entity = lookup.apply(iterator.next());
+            if (entity != null) {
+                page.add(entity);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Reads a page of entities whose ids follow the cursor, copying the ids in batches.
+     * @param ids - sorted ids; may contain ids of removed entities.
+     * @param afterId - cursor; the page starts after it.
+     * @param limit - maximum number of entities.
+     * @param lookup - returns the entity with the id or null to skip it.
+     * @return up to {@code limit} entities in ascending id order.
+     */
+    static <E> List<E> after(ConcurrentSortedLongSet ids, long afterId, int limit, LongFunction<E> lookup) {
+        List<E> page = new ArrayList<>(Math.min(limit, 256));
+        long[] batch = new long[Math.min(limit, 256)];
+        long cursor = afterId;
+        while (page.size() < limit) {
+            int count = ids.copyAfter(cursor, batch);
+            for (int i = 0; i < count && page.size() < limit; i++) {
+                E entity = lookup.apply(batch[i]);
+                if (entity != null) {
+                    page.add(entity);
+                }
+            }
+            if (count < batch.length) {
+                break;
+            }
+            cursor = batch[count - 1];
+        }
+        return page;
+    }
+}
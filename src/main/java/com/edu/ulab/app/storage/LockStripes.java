@@ -0,0 +1,61 @@
+package com.edu.ulab.app.storage;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks shared by ids, so that writes to one id are serialized
+ * while writes to different ids mostly proceed in parallel.
+ */
+class LockStripes {
+
+    private final Lock[] locks;
+
+    LockStripes(int stripes) {
+        if (Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Stripes must be a power of two: " + stripes);
+        }
+        locks = new Lock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    Lock forId(long id) {
+        return locks[stripe(id)];
+    }
+
+    /**
+     * Returns the distinct locks of the given ids in stripe order. Batches take them in this
+     * order, so two batches never wait for each other's locks in a cycle.
+     */
+    List<Lock> forIds(Iterable<Long> ids) {
+        BitSet stripes = new BitSet(locks.length);
+        for (Long id : ids) {
+            stripes.set(stripe(id));
+        }
+        List<Lock> batch = new ArrayList<>(stripes.cardinality());
+        for (int stripe = stripes.nextSetBit(0); stripe >= 0; stripe = stripes.nextSetBit(stripe + 1)) {
+            batch.add(locks[stripe]);
+        }
+        return batch;
+    }
+
+    static void lockAll(List<Lock> batch) {
+        batch.forEach(Lock::lock);
+    }
+
+    static void unlockAll(List<Lock> batch) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            batch.get(i).unlock();
+        }
+    }
+
+    private int stripe(long id) {
+        int hash = Long.hashCode(id);
+        return (hash ^ (hash >>> 16)) & (locks.length - 1);
+    }
+}
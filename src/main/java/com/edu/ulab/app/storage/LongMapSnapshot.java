@@ -0,0 +1,33 @@
+package com.edu.ulab.app.storage;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * {@link StorageSnapshot} over a {@link ConcurrentLongMap.Snapshot}.
+ *
+ * @param <E> the type of stored entities.
+ */
+class LongMapSnapshot<E> implements StorageSnapshot<E, Long> {
+
+    protected final ConcurrentLongMap.Snapshot<E> view;
+
+    LongMapSnapshot(ConcurrentLongMap.Snapshot<E> view) {
+        this.view = view;
+    }
+
+    @Override
+    public Optional<E> findById(Long id) {
+        return Optional.ofNullable(view.get(id));
+    }
+
+    @Override
+    public Stream<E> stream() {
+        return view.stream();
+    }
+
+    @Override
+    public void close() {
+        view.close();
+    }
+}
@@ -0,0 +1,84 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import lombok.experimental.UtilityClass;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary encoding of {@link StorageMutation} shared by the journal and the snapshot files.
+ */
+@UtilityClass
+class MutationCodec {
+
+    static void write(DataOutput out, StorageMutation mutation) throws IOException {
+        out.writeByte(mutation.getType().ordinal());
+        out.writeLong(mutation.getId());
+        switch (mutation.getType()) {
+            case SAVE_USER -> writePerson(out, mutation.getPerson());
+            case SAVE_BOOK -> writeBook(out, mutation.getBook());
+            default -> {
+            }
+        }
+    }
+
+    static StorageMutation read(DataInput in) throws IOException {
+        StorageMutation.Type type = StorageMutation.Type.values()[in.readUnsignedByte()];
+        long id = in.readLong();
+        return switch (type) {
+            case SAVE_USER -> StorageMutation.saveUser(readPerson(in, id));
+            case DELETE_USER -> StorageMutation.deleteUser(id);
+            case SAVE_BOOK -> StorageMutation.saveBook(readBook(in, id));
+            case DELETE_BOOK -> StorageMutation.deleteBook(id);
+        };
+    }
+
+    static void writePerson(DataOutput out, Person person) throws IOException {
+        writeString(out, person.getFullName());
+        writeString(out, person.getTitle());
+        out.writeInt(person.getAge());
+    }
+
+    static Person readPerson(DataInput in, long id) throws IOException {
+        Person person = new Person();
+        person.setId(id);
+        person.setFullName(readString(in));
+        person.setTitle(readString(in));
+        person.setAge(in.readInt());
+        return person;
+    }
+
+    static void writeBook(DataOutput out, Book book) throws IOException {
+        out.writeBoolean(book.getUserId() != null);
+        if (book.getUserId() != null) {
+            out.writeLong(book.getUserId());
+        }
+        writeString(out, book.getTitle());
+        writeString(out, book.getAuthor());
+        out.writeLong(book.getPageCount());
+    }
+
+    static Book readBook(DataInput in, long id) throws IOException {
+        Book book = new Book();
+        book.setId(id);
+        book.setUserId(in.readBoolean() ? in.readLong() : null);
+        book.setTitle(readString(in));
+        book.setAuthor(readString(in));
+        book.setPageCount(in.readLong());
+        return book;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
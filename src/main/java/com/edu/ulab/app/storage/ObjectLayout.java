@@ -0,0 +1,213 @@
+package com.edu.ulab.app.storage;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Estimates of the heap taken by objects, computed from their field layout the way HotSpot lays
+ * them out: an object header, then the fields, padded to 8 bytes. The header and reference sizes
+ * follow the compressed oops setting of the running VM. Field packing gaps are ignored, so the
+ * estimates may be a few bytes low per object.
+ */
+@Slf4j
+public final class ObjectLayout {
+
+    private static final int ALIGNMENT = 8;
+    private static final boolean COMPRESSED_OOPS = compressedOops();
+    private static final int REFERENCE_BYTES = COMPRESSED_OOPS ? 4 : 8;
+    private static final int OBJECT_HEADER_BYTES = COMPRESSED_OOPS ? 12 : 16;
+    private static final int ARRAY_HEADER_BYTES = COMPRESSED_OOPS ? 16 : 24;
+
+    private static final String SKIP_LIST = "java.util.concurrent.ConcurrentSkipListMap";
+    private static final String HASH_MAP_NODE = "java.util.concurrent.ConcurrentHashMap$Node";
+
+    private static final ClassValue<Long> SHALLOW_SIZES = new ClassValue<>() {
+        @Override
+        protected Long computeValue(Class<?> type) {
+            long size = OBJECT_HEADER_BYTES;
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        size += fieldBytes(field.getType());
+                    }
+                }
+            }
+            return align(size);
+        }
+    };
+
+    private ObjectLayout() {
+    }
+
+    public static int referenceBytes() {
+        return REFERENCE_BYTES;
+    }
+
+    /**
+     * Returns the size of an instance of the class itself, without the objects it references.
+     * @param type - a non-array class.
+     * @return bytes including the header and the padding.
+     */
+    public static long shallowSize(Class<?> type) {
+        return SHALLOW_SIZES.get(type);
+    }
+
+    /**
+     * Returns the heap an entry of a {@link java.util.concurrent.ConcurrentSkipListMap} or
+     * {@link java.util.concurrent.ConcurrentSkipListSet} takes besides its key and value: the node
+     * and its share of index nodes, one per three nodes on average.
+     * @return bytes.
+     */
+    public static long skipListEntrySize() {
+        return jdkShallowSize(SKIP_LIST + "$Node") + jdkShallowSize(SKIP_LIST + "$Index") / 3;
+    }
+
+    /**
+     * Returns the heap an entry of a {@link java.util.concurrent.ConcurrentHashMap} takes besides
+     * its key and value: the node and two table slots, as the table is between 3/8 and 3/4 full.
+     * @return bytes.
+     */
+    public static long hashMapEntrySize() {
+        return jdkShallowSize(HASH_MAP_NODE) + 2L * REFERENCE_BYTES;
+    }
+
+    /**
+     * Returns the size of an array.
+     * @param componentType - the element type.
+     * @param length - number of elements.
+     * @return bytes including the header and the padding.
+     */
+    public static long arraySize(Class<?> componentType, long length) {
+        return align(ARRAY_HEADER_BYTES + length * fieldBytes(componentType));
+    }
+
+    /**
+     * Returns the size of a string and its backing array, one byte per char for Latin-1 content
+     * and two otherwise.
+     * @param value - must not be null.
+     * @return bytes.
+     */
+    public static long stringSize(String value) {
+        int bytesPerChar = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return shallowSize(String.class) + arraySize(byte.class, (long) value.length() * bytesPerChar);
+    }
+
+    /**
+     * Returns the size of the object and of everything it references that is not shared.
+     * Strings count with their backing arrays; other JDK objects count only themselves, as their
+     * fields cannot be read without opening the JDK modules.
+     * @param root - the object.
+     * @param shared - objects held elsewhere, not counted and not followed.
+     * @return bytes.
+     */
+    public static long deepSize(Object root, Predicate<Object> shared) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(root);
+        long size = 0;
+        while (!pending.isEmpty()) {
+            Object object = pending.pop();
+            if (shared.test(object) || !visited.add(object)) {
+                continue;
+            }
+            Class<?> type = object.getClass();
+            if (type == String.class) {
+                size += stringSize((String) object);
+            } else if (type.isArray()) {
+                int length = Array.getLength(object);
+                size += arraySize(type.getComponentType(), length);
+                if (!type.getComponentType().isPrimitive()) {
+                    for (int i = 0; i < length; i++) {
+                        pushIfPresent(pending, Array.get(object, i));
+                    }
+                }
+            } else {
+                size += shallowSize(type);
+                if (!type.getModule().isNamed()) {
+                    pushFields(pending, object);
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the size of a JDK class by name, as private nested classes cannot be referenced.
+     * The field metadata can be read without opening the module.
+     */
+    private static long jdkShallowSize(String className) {
+        try {
+            return shallowSize(Class.forName(className));
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Unknown JDK class " + className, e);
+        }
+    }
+
+    private static void pushFields(Deque<Object> pending, Object object) {
+        for (Class<?> c = object.getClass(); c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    pushIfPresent(pending, field.get(object));
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    log.debug("Cannot read field {} for size estimate", field, e);
+                }
+            }
+        }
+    }
+
+    private static void pushIfPresent(Deque<Object> pending, Object value) {
+        if (value != null) {
+            pending.push(value);
+        }
+    }
+
+    private static int fieldBytes(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE_BYTES;
+    }
+
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    private static boolean compressedOops() {
+        try {
+            HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return Boolean.parseBoolean(bean.getVMOption("UseCompressedOops").getValue());
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+}
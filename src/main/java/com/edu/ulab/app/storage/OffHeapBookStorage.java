@@ -0,0 +1,575 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Book storage that keeps records outside the Java heap, in fixed-layout slots of direct
+ * {@link ByteBuffer} chunks. A {@link Book} object is decoded only when a caller asks for it, so
+ * the heap holds just primitive indexes (id -> slot, userId -> first slot and the sorted ids for
+ * keyset pages) and GC work does not grow with the number of stored books. Books of one user are
+ * chained through the slots in no particular order, so a page of a user's books sorts the chain.
+ * <p>
+ * Slot layout: id, userId, pageCount (long), next and previous slot of the same user (int),
+ * then title and author as int codes of the shared {@link StringDictionary}, released when the
+ * slot is overwritten or freed.
+ * <p>
+ * Books by author are found through an on-heap {@link SecondaryIndex} of ids, changed under the
+ * write lock together with the slots.
+ * <p>
+ * Slots are updated in place, so a {@link #snapshot()} holds no lock while it is open, which
+ * would stop the writers for as long as a snapshot file or a full sync takes: each read of the view
+ * copies what it returns under the read lock and is consistent on its own, while two reads of one
+ * view may see the writes made between them. A full scan copies the slot fields into
+ * {@link BookColumns} and decodes the books after releasing the lock.
+ */
+@Component
+@ConditionalOnProperty(prefix = "storage.book", name = "type", havingValue = "off-heap")
+public class OffHeapBookStorage implements BookStorageRepository, MeterBinder, FootprintSource {
+
+    private static final int ID = 0;
+    private static final int USER_ID = 8;
+    private static final int PAGE_COUNT = 16;
+    private static final int NEXT = 24;
+    private static final int PREV = 28;
+    private static final int TITLE = 32;
+    private static final int AUTHOR = 36;
+    private static final int SLOT_SIZE = 40;
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int SLOTS_PER_CHUNK = 1 << CHUNK_SHIFT;
+    private static final int NO_SLOT = LongIntHashMap.NO_VALUE;
+    private static final long FREE_SLOT_ID = Long.MIN_VALUE;
+
+    private final StringDictionary dictionary;
+    private final StorageJournal journal;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final LongIntHashMap slotsById = new LongIntHashMap(SLOTS_PER_CHUNK);
+    private final LongIntHashMap headSlotByUserId = new LongIntHashMap(SLOTS_PER_CHUNK);
+    private final SortedLongSet sortedIds = new SortedLongSet();
+    private final SecondaryIndex<Book, String> authorIndex = SecondaryIndex.equality("author", Book::getAuthor);
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+    private int nextSlot;
+    private volatile long version;
+
+    public OffHeapBookStorage(StringDictionary dictionary, StorageJournal journal) {
+        this.dictionary = dictionary;
+        this.journal = journal;
+    }
+
+    @Override
+    public Book save(Book book) {
+        Objects.requireNonNull(book.getId(), "Book id must not be null");
+        Objects.requireNonNull(book.getUserId(), "Book userId must not be null");
+        long position;
+        lock.writeLock().lock();
+        try {
+            position = saveJournaled(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        journal.sync(position);
+        return book;
+    }
+
+    @Override
+    public List<Book> saveAll(Collection<Book> books) {
+        for (Book book : books) {
+            Objects.requireNonNull(book.getId(), "Book id must not be null");
+            Objects.requireNonNull(book.getUserId(), "Book userId must not be null");
+        }
+        long position = 0;
+        lock.writeLock().lock();
+        try {
+            for (Book book : books) {
+                position = saveJournaled(book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        journal.sync(position);
+        return new ArrayList<>(books);
+    }
+
+    @Override
+    public Optional<Book> findById(Long id) {
+        lock.readLock().lock();
+        try {
+            int slot = slotsById.get(id);
+            return slot == NO_SLOT ? Optional.empty() : Optional.of(decode(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> findAllById(Collection<Long> ids) {
+        lock.readLock().lock();
+        try {
+            List<Book> books = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                int slot = slotsById.get(id);
+                if (slot != NO_SLOT) {
+                    books.add(decode(slot));
+                }
+            }
+            return books;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> findAll() {
+        lock.readLock().lock();
+        try {
+            List<Book> books = new ArrayList<>(slotsById.size());
+            for (int slot = 0; slot < nextSlot; slot++) {
+                if (isOccupied(slot)) {
+                    books.add(decode(slot));
+                }
+            }
+            return books;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> findPage(Long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Book> books = new ArrayList<>(Math.min(limit, 256));
+            sortedIds.forEachAfter(afterId, id -> {
+                books.add(decode(slotsById.get(id)));
+                return books.size() < limit;
+            });
+            return books;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the slot fields straight into the columns, without decoding books.
+     */
+    @Override
+    public BookColumns columns() {
+        lock.readLock().lock();
+        try {
+            BookColumns columns = new BookColumns(dictionary, slotsById.size());
+            for (int slot = 0; slot < nextSlot; slot++) {
+                if (isOccupied(slot)) {
+                    ByteBuffer chunk = chunk(slot);
+                    int offset = offset(slot);
+                    columns.add(chunk.getLong(offset + ID),
+                            chunk.getLong(offset + USER_ID),
+                            chunk.getLong(offset + PAGE_COUNT),
+                            chunk.getInt(offset + TITLE),
+                            chunk.getInt(offset + AUTHOR));
+                }
+            }
+            return columns;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public BookStorageSnapshot snapshot() {
+        return new BookStorageSnapshot() {
+            @Override
+            public Optional<Book> findById(Long id) {
+                return OffHeapBookStorage.this.findById(id);
+            }
+
+            @Override
+            public Stream<Book> stream() {
+                BookColumns columns = columns();
+                return IntStream.range(0, columns.size())
+                        .mapToObj(row -> {
+                            Book book = new Book();
+                            book.setId(columns.id(row));
+                            book.setUserId(columns.userId(row));
+                            book.setPageCount(columns.pageCount(row));
+                            book.setTitle(columns.title(row));
+                            book.setAuthor(columns.author(row));
+                            return book;
+                        });
+            }
+
+            @Override
+            public Stream<Book> findAllByUserId(Long userId) {
+                return OffHeapBookStorage.this.findAllByUserId(userId).stream();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public List<Book> findAllByUserId(Long userId) {
+        lock.readLock().lock();
+        try {
+            List<Book> books = new ArrayList<>();
+            for (int slot = headSlotByUserId.get(userId); slot != NO_SLOT; slot = chunk(slot).getInt(offset(slot) + NEXT)) {
+                books.add(decode(slot));
+            }
+            return books;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> findPageByUserId(Long userId, Long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Integer> slots = new ArrayList<>();
+            for (int slot = headSlotByUserId.get(userId); slot != NO_SLOT; slot = chunk(slot).getInt(offset(slot) + NEXT)) {
+                if (idOf(slot) > afterId) {
+                    slots.add(slot);
+                }
+            }
+            return slots.stream()
+                    .sorted(Comparator.comparingLong(this::idOf))
+                    .limit(limit)
+                    .map(this::decode)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> findAllByAuthor(String author) {
+        lock.readLock().lock();
+        try {
+            return authorIndex.find(author, bookId -> {
+                int slot = slotsById.get(bookId);
+                return slot == NO_SLOT ? null : decode(slot);
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<IndexStats> indexStats() {
+        return List.of(authorIndex.stats());
+    }
+
+    /**
+     * Returns the footprint with the slots counted as entities, though they are off the heap.
+     * Titles and authors are counted by the dictionary.
+     */
+    @Override
+    public StoreFootprint footprint() {
+        lock.readLock().lock();
+        try {
+            Map<String, Long> components = new LinkedHashMap<>();
+            components.put("entities", (long) chunks.size() * SLOTS_PER_CHUNK * SLOT_SIZE);
+            components.put("primaryMap", slotsById.sizeInBytes());
+            components.put("userHeads", headSlotByUserId.sizeInBytes());
+            components.put("ids", sortedIds.sizeInBytes());
+            components.put("index.author", authorIndex.stats().getEstimatedBytes());
+            return new StoreFootprint("book", slotsById.size(), components);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        authorIndex.bindTo(registry, Tags.of("entity", "book"));
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        long position;
+        lock.writeLock().lock();
+        try {
+            position = deleteJournaled(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        journal.sync(position);
+    }
+
+    @Override
+    public void deleteAllById(Collection<Long> ids) {
+        long position = 0;
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                position = deleteJournaled(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        journal.sync(position);
+    }
+
+    @Override
+    public void apply(StorageMutation mutation) {
+        lock.writeLock().lock();
+        try {
+            switch (mutation.getType()) {
+                case SAVE_BOOK -> put(mutation.getBook());
+                case DELETE_BOOK -> remove(mutation.getId());
+                default -> throw new IllegalArgumentException("Not a book mutation: " + mutation.getType());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of stored books.
+     * @return number of occupied slots.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the off-heap memory reserved for slots.
+     * @return reserved bytes.
+     */
+    public long reservedBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) chunks.size() * SLOTS_PER_CHUNK * SLOT_SIZE;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores the book and journals the save with the write lock held. If the journal refuses the
+     * save, the previous book is written back, so the change never stays visible unjournaled.
+     * @return journal position of the save.
+     */
+    private long saveJournaled(Book book) {
+        Book previous = stored(book.getId());
+        boolean created = put(book);
+        try {
+            return journal.append(StorageMutation.saveBook(book, created));
+        } catch (RuntimeException e) {
+            restore(book.getId(), previous);
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the book and journals the delete with the write lock held, writing the book back
+     * if the journal refuses the delete.
+     * @return journal position of the delete.
+     */
+    private long deleteJournaled(long id) {
+        Book previous = stored(id);
+        remove(id);
+        try {
+            return journal.append(StorageMutation.deleteBook(id));
+        } catch (RuntimeException e) {
+            restore(id, previous);
+            throw e;
+        }
+    }
+
+    private Book stored(long id) {
+        int slot = slotsById.get(id);
+        return slot == NO_SLOT ? null : decode(slot);
+    }
+
+    private void restore(long id, Book previous) {
+        if (previous == null) {
+            remove(id);
+        } else {
+            put(previous);
+        }
+    }
+
+    /**
+     * @return whether the book is new.
+     */
+    private boolean put(Book book) {
+        long id = book.getId();
+        long userId = book.getUserId();
+        int title = dictionary.encode(book.getTitle());
+        int author = dictionary.encode(book.getAuthor());
+        int slot = slotsById.get(id);
+        boolean created = slot == NO_SLOT;
+        if (!created) {
+            Book previous = decode(slot);
+            if (authorIndex.keyChanged(previous, book)) {
+                authorIndex.remove(previous, id);
+            }
+            release(previous);
+        }
+        authorIndex.add(book, id);
+        if (created) {
+            slot = allocateSlot();
+            slotsById.put(id, slot);
+            sortedIds.add(id);
+        } else if (chunk(slot).getLong(offset(slot) + USER_ID) != userId) {
+            unlink(slot);
+        } else {
+            writeFields(slot, book.getPageCount(), title, author);
+            version++;
+            return false;
+        }
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putLong(offset + ID, id);
+        chunk.putLong(offset + USER_ID, userId);
+        writeFields(slot, book.getPageCount(), title, author);
+        link(slot, userId);
+        version++;
+        return created;
+    }
+
+    private void remove(long id) {
+        int slot = slotsById.remove(id);
+        if (slot != NO_SLOT) {
+            Book removed = decode(slot);
+            authorIndex.remove(removed, id);
+            release(removed);
+            sortedIds.remove(id);
+            unlink(slot);
+            releaseSlot(slot);
+            version++;
+        }
+    }
+
+    private void release(Book book) {
+        dictionary.release(book.getTitle());
+        dictionary.release(book.getAuthor());
+    }
+
+    private void writeFields(int slot, long pageCount, int title, int author) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putLong(offset + PAGE_COUNT, pageCount);
+        chunk.putInt(offset + TITLE, title);
+        chunk.putInt(offset + AUTHOR, author);
+    }
+
+    private Book decode(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        Book book = new Book();
+        book.setId(chunk.getLong(offset + ID));
+        book.setUserId(chunk.getLong(offset + USER_ID));
+        book.setPageCount(chunk.getLong(offset + PAGE_COUNT));
+        book.setTitle(dictionary.decode(chunk.getInt(offset + TITLE)));
+        book.setAuthor(dictionary.decode(chunk.getInt(offset + AUTHOR)));
+        return book;
+    }
+
+    /**
+     * Tells a slot in use from a freed one by its id, which {@link #releaseSlot} clears, without
+     * a lookup in the id map.
+     */
+    private boolean isOccupied(int slot) {
+        return idOf(slot) != FREE_SLOT_ID;
+    }
+
+    private long idOf(int slot) {
+        return chunk(slot).getLong(offset(slot) + ID);
+    }
+
+    private void link(int slot, long userId) {
+        int head = headSlotByUserId.get(userId);
+        ByteBuffer chunk = chunk(slot);
+        chunk.putInt(offset(slot) + NEXT, head);
+        chunk.putInt(offset(slot) + PREV, NO_SLOT);
+        if (head != NO_SLOT) {
+            chunk(head).putInt(offset(head) + PREV, slot);
+        }
+        headSlotByUserId.put(userId, slot);
+    }
+
+    private void unlink(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        int next = chunk.getInt(offset + NEXT);
+        int prev = chunk.getInt(offset + PREV);
+        if (prev == NO_SLOT) {
+            long userId = chunk.getLong(offset + USER_ID);
+            if (next == NO_SLOT) {
+                headSlotByUserId.remove(userId);
+            } else {
+                headSlotByUserId.put(userId, next);
+            }
+        } else {
+            chunk(prev).putInt(offset(prev) + NEXT, next);
+        }
+        if (next != NO_SLOT) {
+            chunk(next).putInt(offset(next) + PREV, prev);
+        }
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (nextSlot == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Off-heap book storage is full");
+        }
+        int slot = nextSlot++;
+        if ((slot >>> CHUNK_SHIFT) == chunks.size()) {
+            chunks.add(ByteBuffer.allocateDirect(SLOTS_PER_CHUNK * SLOT_SIZE));
+        }
+        return slot;
+    }
+
+    private void releaseSlot(int slot) {
+        chunk(slot).putLong(offset(slot) + ID, FREE_SLOT_ID);
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount << 1);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private ByteBuffer chunk(int slot) {
+        return chunks.get(slot >>> CHUNK_SHIFT);
+    }
+
+    private static int offset(int slot) {
+        return (slot & (SLOTS_PER_CHUNK - 1)) * SLOT_SIZE;
+    }
+}
@@ -0,0 +1,569 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.config.StorageProperties;
+import com.edu.ulab.app.entity.Book;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Book storage for write-heavy workloads, split into partitions by the hash of the user id, so
+ * all books of one user live in one partition. Each partition is a {@link BookStorage} changed
+ * only by its own writer thread: callers post save and delete commands to the partition's
+ * mailbox and wait, and the writer drains the mailbox in batches, applies and journals the whole
+ * batch and then syncs the journal once for it. The stripe locks of a partition are therefore
+ * never contended by writers, and writes to different partitions share nothing but the journal.
+ * <p>
+ * Reads go straight to the partitions and take no locks. A book is found by id through the
+ * partition of its in-flight commands, if there are any, and otherwise by looking it up in every
+ * partition. A book whose user moves it to another partition is deleted from the old one before
+ * its save is forwarded to the new one, so it is briefly not found by id.
+ * <p>
+ * A {@link #snapshot()} opens the view of a partition when it first reads from it. Each view is
+ * consistent within its partition, which covers all lookups by user; a full scan may see a book
+ * that is moving between partitions twice or not at all.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "storage.book", name = "type", havingValue = "partitioned")
+public class PartitionedBookStorage implements BookStorageRepository, MeterBinder, DisposableBean, FootprintSource {
+
+    private static final long FORWARDED = -1;
+    private static final Command STOP = new Command(null, false);
+
+    private final Partition[] partitions;
+    private final Map<Long, Route> routes = new ConcurrentHashMap<>();
+    private final StringDictionary dictionary;
+    private final StorageJournal journal;
+    private final int batchSize;
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private volatile boolean stopped;
+
+    public PartitionedBookStorage(StringDictionary dictionary, StorageJournal journal,
+                                  StorageProperties storageProperties) {
+        StorageProperties.Book settings = storageProperties.getBook();
+        int count = settings.getPartitions() > 0
+                ? settings.getPartitions()
+                : Runtime.getRuntime().availableProcessors();
+        if (settings.getBatchSize() <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + settings.getBatchSize());
+        }
+        this.dictionary = dictionary;
+        this.journal = journal;
+        this.batchSize = settings.getBatchSize();
+        this.partitions = new Partition[count];
+        for (int i = 0; i < count; i++) {
+            partitions[i] = new Partition(i, new BookStorage(dictionary, StorageJournal.NOOP));
+        }
+        for (Partition partition : partitions) {
+            partition.writer.start();
+        }
+        log.info("Started {} book partitions with batches of up to {} commands", count, batchSize);
+    }
+
+    @Override
+    public Book save(Book book) {
+        Objects.requireNonNull(book.getId(), "Book id must not be null");
+        submit(new Command(StorageMutation.saveBook(book), true));
+        return book;
+    }
+
+    @Override
+    public List<Book> saveAll(Collection<Book> books) {
+        List<Command> batch = new ArrayList<>(books.size());
+        for (Book book : books) {
+            Objects.requireNonNull(book.getId(), "Book id must not be null");
+            batch.add(new Command(StorageMutation.saveBook(book), true));
+        }
+        submitAll(batch);
+        return new ArrayList<>(books);
+    }
+
+    @Override
+    public Optional<Book> findById(Long id) {
+        Route route = routes.get(id);
+        if (route != null) {
+            return partitions[route.partition].books.findById(id);
+        }
+        int owner = locate(id);
+        return owner < 0 ? Optional.empty() : partitions[owner].books.findById(id);
+    }
+
+    @Override
+    public List<Book> findAllById(Collection<Long> ids) {
+        return ids.stream()
+                .map(this::findById)
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    @Override
+    public List<Book> findAll() {
+        try (BookStorageSnapshot snapshot = snapshot()) {
+            return snapshot.stream().toList();
+        }
+    }
+
+    /**
+     * Merges the pages of all partitions, each read with the same cursor.
+     */
+    @Override
+    public List<Book> findPage(Long afterId, int limit) {
+        return Arrays.stream(partitions)
+                .flatMap(partition -> partition.books.findPage(afterId, limit).stream())
+                .sorted(Comparator.comparing(Book::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public BookColumns columns() {
+        try (BookStorageSnapshot snapshot = snapshot()) {
+            return BookColumns.of(snapshot, dictionary);
+        }
+    }
+
+    @Override
+    public long version() {
+        long version = 0;
+        for (Partition partition : partitions) {
+            version += partition.books.version();
+        }
+        return version;
+    }
+
+    @Override
+    public BookStorageSnapshot snapshot() {
+        return new View();
+    }
+
+    /**
+     * Returns all books of the given user from the user's partition.
+     */
+    @Override
+    public List<Book> findAllByUserId(Long userId) {
+        return partitions[partitionOf(userId)].books.findAllByUserId(userId);
+    }
+
+    @Override
+    public List<Book> findPageByUserId(Long userId, Long afterId, int limit) {
+        return partitions[partitionOf(userId)].books.findPageByUserId(userId, afterId, limit);
+    }
+
+    /**
+     * Merges the books of the author from all partitions.
+     */
+    @Override
+    public List<Book> findAllByAuthor(String author) {
+        return Arrays.stream(partitions)
+                .flatMap(partition -> partition.books.findAllByAuthor(author).stream())
+                .sorted(Comparator.comparing(Book::getId))
+                .toList();
+    }
+
+    /**
+     * Sums the stats of each index over the partitions.
+     */
+    @Override
+    public List<IndexStats> indexStats() {
+        Map<String, IndexStats> total = new LinkedHashMap<>();
+        for (Partition partition : partitions) {
+            for (IndexStats stats : partition.books.indexStats()) {
+                total.merge(stats.getName(), stats, (sum, next) -> new IndexStats(sum.getName(), sum.getKind(),
+                        sum.getKeys() + next.getKeys(),
+                        sum.getEntries() + next.getEntries(),
+                        sum.getEstimatedBytes() + next.getEstimatedBytes(),
+                        sum.getUpdates() + next.getUpdates(),
+                        sum.getMaintenanceNanos() + next.getMaintenanceNanos()));
+            }
+        }
+        return List.copyOf(total.values());
+    }
+
+    /**
+     * Sums the footprint of each structure over the partitions.
+     */
+    @Override
+    public StoreFootprint footprint() {
+        long entries = 0;
+        Map<String, Long> components = new LinkedHashMap<>();
+        for (Partition partition : partitions) {
+            StoreFootprint footprint = partition.books.footprint();
+            entries += footprint.getEntries();
+            footprint.getComponents().forEach((component, bytes) -> components.merge(component, bytes, Long::sum));
+        }
+        return new StoreFootprint("book", entries, components);
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        submit(new Command(StorageMutation.deleteBook(id), true));
+    }
+
+    @Override
+    public void deleteAllById(Collection<Long> ids) {
+        submitAll(ids.stream()
+                .map(id -> new Command(StorageMutation.deleteBook(id), true))
+                .toList());
+    }
+
+    @Override
+    public void apply(StorageMutation mutation) {
+        submit(new Command(mutation, false));
+    }
+
+    public int partitionCount() {
+        return partitions.length;
+    }
+
+    public long commandCount() {
+        return commands.sum();
+    }
+
+    public long batchCount() {
+        return batches.sum();
+    }
+
+    public int mailboxSize() {
+        return Arrays.stream(partitions).mapToInt(partition -> partition.mailbox.size()).sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("storage.partition.commands", this, PartitionedBookStorage::commandCount)
+                .description("Book commands applied by the partition writers")
+                .register(registry);
+        FunctionCounter.builder("storage.partition.batches", this, PartitionedBookStorage::batchCount)
+                .description("Batches drained from the partition mailboxes")
+                .register(registry);
+        Gauge.builder("storage.partition.mailbox.size", this, PartitionedBookStorage::mailboxSize)
+                .description("Book commands waiting in the partition mailboxes")
+                .register(registry);
+        for (Partition partition : partitions) {
+            partition.books.bindTo(registry, Tags.of("partition", String.valueOf(partition.index)));
+        }
+    }
+
+    /**
+     * Lets the writers finish the commands posted so far and stops them.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        stopped = true;
+        for (Partition partition : partitions) {
+            partition.mailbox.add(STOP);
+        }
+        for (Partition partition : partitions) {
+            partition.writer.join();
+        }
+    }
+
+    /**
+     * Posts the command to the partition that owns the book and waits until it is applied and
+     * durable.
+     */
+    private void submit(Command command) {
+        post(command);
+        await(command);
+    }
+
+    /**
+     * Posts all commands before waiting for any, so that partition writers take them in as few
+     * batches as possible.
+     */
+    private void submitAll(List<Command> batch) {
+        batch.forEach(this::post);
+        batch.forEach(this::await);
+    }
+
+    /**
+     * Posts the command to the partition that owns the book. The route of a book is changed only
+     * together with posting to its partition, so commands of one book are applied and journaled
+     * in the order they were posted.
+     */
+    private void post(Command command) {
+        if (stopped) {
+            throw new IllegalStateException("Book storage is stopped");
+        }
+        StorageMutation mutation = command.getMutation();
+        routes.compute(mutation.getId(), (id, route) -> {
+            if (route == null) {
+                int owner = locate(id);
+                if (owner < 0 && mutation.getType() == StorageMutation.Type.DELETE_BOOK) {
+                    command.future.complete(null);
+                    return null;
+                }
+                route = new Route(owner < 0 ? partitionOf(mutation.getBook().getUserId()) : owner);
+            }
+            route.inFlight++;
+            partitions[route.partition].mailbox.add(command);
+            return route;
+        });
+    }
+
+    private void await(Command command) {
+        try {
+            command.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the partition holding the book or -1. Called only for books without in-flight
+     * commands, which no writer is changing.
+     */
+    private int locate(long id) {
+        for (Partition partition : partitions) {
+            if (partition.books.findById(id).isPresent()) {
+                return partition.index;
+            }
+        }
+        return -1;
+    }
+
+    private int partitionOf(Long userId) {
+        if (userId == null) {
+            return 0;
+        }
+        int hash = Long.hashCode(userId);
+        return Math.floorMod(hash ^ (hash >>> 16), partitions.length);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static final class Command {
+        private final StorageMutation mutation;
+        private final boolean journaled;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+    }
+
+    /**
+     * Partition of a book with in-flight commands; changed only inside
+     * {@code routes.compute} for the book's id.
+     */
+    private static final class Route {
+        private volatile int partition;
+        private int inFlight;
+
+        private Route(int partition) {
+            this.partition = partition;
+        }
+    }
+
+    private final class Partition implements Runnable {
+
+        private final int index;
+        private final BookStorage books;
+        private final BlockingQueue<Command> mailbox = new LinkedBlockingQueue<>();
+        private final Thread writer;
+
+        private Partition(int index, BookStorage books) {
+            this.index = index;
+            this.books = books;
+            this.writer = new Thread(this, "book-partition-" + index);
+            this.writer.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Command> batch = new ArrayList<>(batchSize);
+            List<Command> applied = new ArrayList<>(batchSize);
+            boolean running = true;
+            while (running) {
+                try {
+                    batch.add(mailbox.take());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                mailbox.drainTo(batch, batchSize - 1);
+                long position = 0;
+                for (Command command : batch) {
+                    if (command == STOP) {
+                        running = false;
+                        continue;
+                    }
+                    try {
+                        long applyPosition = handle(command);
+                        if (applyPosition != FORWARDED) {
+                            position = Math.max(position, applyPosition);
+                            applied.add(command);
+                        }
+                    } catch (RuntimeException e) {
+                        command.future.completeExceptionally(e);
+                    }
+                }
+                complete(applied, position);
+                commands.add(applied.size());
+                batches.increment();
+                batch.clear();
+                applied.clear();
+            }
+            IllegalStateException stoppedException = new IllegalStateException("Book storage is stopped");
+            for (Command command; (command = mailbox.poll()) != null; ) {
+                command.future.completeExceptionally(stoppedException);
+            }
+        }
+
+        /**
+         * Applies and journals the command, or hands it over to the partition that owns the book
+         * now. A save that moves a book to another user's partition deletes the book here first.
+         * The route is read inside {@code compute}, which also waits for a submitter that posted
+         * the command and has not stored the route yet.
+         * @return journal position of the change or {@link #FORWARDED}.
+         */
+        private long handle(Command command) {
+            StorageMutation mutation = command.getMutation();
+            long id = mutation.getId();
+            boolean[] moved = new boolean[1];
+            routes.compute(id, (key, route) -> {
+                if (route.partition != index) {
+                    partitions[route.partition].mailbox.add(command);
+                    moved[0] = true;
+                }
+                return route;
+            });
+            if (moved[0]) {
+                return FORWARDED;
+            }
+            try {
+                if (mutation.getType() == StorageMutation.Type.SAVE_BOOK) {
+                    int target = partitionOf(mutation.getBook().getUserId());
+                    if (target != index) {
+                        if (books.findById(id).isPresent()) {
+                            apply(command, StorageMutation.deleteBook(id));
+                        }
+                        routes.compute(id, (key, route) -> {
+                            route.partition = target;
+                            partitions[target].mailbox.add(command);
+                            return route;
+                        });
+                        return FORWARDED;
+                    }
+                } else if (mutation.getType() != StorageMutation.Type.DELETE_BOOK) {
+                    throw new IllegalArgumentException("Not a book mutation: " + mutation.getType());
+                }
+                long position = apply(command, mutation);
+                release(id);
+                return position;
+            } catch (RuntimeException e) {
+                release(id);
+                throw e;
+            }
+        }
+
+        /**
+         * Applies the mutation to the partition and journals it, marking a save of a book new to
+         * the partition as a creation; for a moved book it follows the journaled delete. If the
+         * journal refuses the mutation, the previous state of the book is applied back.
+         */
+        private long apply(Command command, StorageMutation mutation) {
+            if (!command.isJournaled()) {
+                books.apply(mutation);
+                return 0;
+            }
+            long id = mutation.getId();
+            Book previous = books.findById(id).orElse(null);
+            boolean created = !mutation.isDelete() && previous == null;
+            books.apply(mutation);
+            try {
+                return journal.append(created ? mutation.withCreated(true) : mutation);
+            } catch (RuntimeException e) {
+                books.apply(previous == null ? StorageMutation.deleteBook(id) : StorageMutation.saveBook(previous));
+                throw e;
+            }
+        }
+
+        private void release(long id) {
+            routes.computeIfPresent(id, (key, route) -> --route.inFlight == 0 ? null : route);
+        }
+
+        private void complete(List<Command> applied, long position) {
+            try {
+                journal.sync(position);
+            } catch (RuntimeException e) {
+                applied.forEach(command -> command.future.completeExceptionally(e));
+                return;
+            }
+            applied.forEach(command -> command.future.complete(null));
+        }
+    }
+
+    /**
+     * Snapshot that opens the view of a partition on first use.
+     */
+    private class View implements BookStorageSnapshot {
+
+        private final BookStorageSnapshot[] views = new BookStorageSnapshot[partitions.length];
+
+        @Override
+        public Optional<Book> findById(Long id) {
+            for (int i = 0; i < views.length; i++) {
+                Optional<Book> book = view(i).findById(id);
+                if (book.isPresent()) {
+                    return book;
+                }
+            }
+            return Optional.empty();
+        }
+
+        @Override
+        public Stream<Book> findAllByUserId(Long userId) {
+            return view(partitionOf(userId)).findAllByUserId(userId);
+        }
+
+        @Override
+        public Stream<Book> stream() {
+            for (int i = 0; i < views.length; i++) {
+                view(i);
+            }
+            return Arrays.stream(views).flatMap(BookStorageSnapshot::stream);
+        }
+
+        @Override
+        public void close() {
+            for (BookStorageSnapshot view : views) {
+                if (view != null) {
+                    view.close();
+                }
+            }
+        }
+
+        private BookStorageSnapshot view(int partition) {
+            if (views[partition] == null) {
+                views[partition] = partitions[partition].books.snapshot();
+            }
+            return views[partition];
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.edu.ulab.app.storage;
+
+/**
+ * Thrown by a {@link WriteBehindTarget} that refused a batch for its content, such as a created
+ * entity whose id is already taken, so writing the same mutations again fails the same way.
+ */
+public class RejectedWriteException extends RuntimeException {
+
+    public RejectedWriteException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,308 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the local storages a read replica of a {@link ReplicationLeader}: connects to it, applies
+ * the mutations it streams without journaling them again, and reconnects after a failure, resuming
+ * from the last applied sequence if the leader still has it. Recovered ids are reported to the
+ * {@link IdAllocator}, so the node can take over writes without reusing them.
+ * <p>
+ * Writes made directly on a follower are not sent back and are overwritten by the next full sync,
+ * so the storage services reject them and they should go to the leader.
+ * <p>
+ * Replication lag is published as {@code storage.replication.lag} in mutations and
+ * {@code storage.replication.lag.time}: how long ago the leader was in the state the follower
+ * shows, zero when caught up as of the last heartbeat. It compares the clocks of both nodes.
+ */
+@Slf4j
+public class ReplicationFollower implements MeterBinder, DisposableBean {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+    private static final long RECONNECT_MILLIS = 1_000;
+
+    private final UserStorage userStorage;
+    private final BookStorageRepository bookStorage;
+    private final IdAllocator idAllocator;
+    private final InetSocketAddress leader;
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder fullSyncs = new LongAdder();
+    private volatile long runId;
+    private volatile long appliedSeq;
+    private volatile long leaderSeq;
+    private volatile long appliedLeaderTime;
+    private volatile boolean connected;
+    private volatile boolean stopped;
+    private volatile Socket socket;
+    private Thread reader;
+
+    /**
+     * @param userStorage - storage the users are applied to.
+     * @param bookStorage - storage the books are applied to.
+     * @param idAllocator - allocator the applied ids are reported to.
+     * @param host - host of the leader.
+     * @param port - replication port of the leader.
+     */
+    public ReplicationFollower(UserStorage userStorage, BookStorageRepository bookStorage, IdAllocator idAllocator,
+                               String host, int port) {
+        this.userStorage = userStorage;
+        this.bookStorage = bookStorage;
+        this.idAllocator = idAllocator;
+        this.leader = InetSocketAddress.createUnresolved(host, port);
+    }
+
+    /**
+     * Starts following the leader; after {@link #stop()}, resumes from the last applied sequence.
+     */
+    public synchronized void start() {
+        if (reader != null) {
+            throw new IllegalStateException("Replication follower already started");
+        }
+        stopped = false;
+        appliedLeaderTime = System.currentTimeMillis();
+        reader = new Thread(this::run, "storage-replication-follower");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Disconnects from the leader and waits for the mutation being applied.
+     */
+    public synchronized void stop() throws InterruptedException {
+        stopped = true;
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                log.debug("Cannot close the replication connection", e);
+            }
+        }
+        if (reader != null) {
+            reader.interrupt();
+            reader.join();
+            reader = null;
+        }
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * @return host:port of the leader.
+     */
+    public String leaderAddress() {
+        return leader.getHostString() + ":" + leader.getPort();
+    }
+
+    public long appliedSeq() {
+        return appliedSeq;
+    }
+
+    /**
+     * Returns the number of mutations the leader has that are not applied here yet, as of the last heartbeat.
+     * @return the lag in mutations.
+     */
+    public long lag() {
+        return Math.max(0, leaderSeq - appliedSeq);
+    }
+
+    /**
+     * Returns how long ago the leader was in the state the local storages show.
+     * @return the lag in milliseconds, 0 when connected and caught up.
+     */
+    public long lagMillis() {
+        if (connected && appliedSeq >= leaderSeq) {
+            return 0;
+        }
+        return Math.max(0, System.currentTimeMillis() - appliedLeaderTime);
+    }
+
+    public long fullSyncCount() {
+        return fullSyncs.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("storage.replication.lag", this, ReplicationFollower::lag)
+                .baseUnit("mutations")
+                .description("Mutations of the replication leader not applied by the follower yet")
+                .register(registry);
+        TimeGauge.builder("storage.replication.lag.time", this, TimeUnit.MILLISECONDS, ReplicationFollower::lagMillis)
+                .description("How long ago the replication leader was in the state the follower shows")
+                .register(registry);
+        Gauge.builder("storage.replication.connected", this, follower -> follower.isConnected() ? 1 : 0)
+                .description("Whether the follower is connected to the replication leader")
+                .register(registry);
+        FunctionCounter.builder("storage.replication.applied", applied, LongAdder::sum)
+                .description("Mutations applied from the replication leader")
+                .register(registry);
+        FunctionCounter.builder("storage.replication.full.syncs", fullSyncs, LongAdder::sum)
+                .description("Full syncs received from the replication leader")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        stop();
+    }
+
+    private void run() {
+        boolean reported = false;
+        while (!stopped) {
+            try (Socket current = new Socket()) {
+                socket = current;
+                if (stopped) {
+                    break;
+                }
+                current.connect(new InetSocketAddress(leader.getHostString(), leader.getPort()),
+                        CONNECT_TIMEOUT_MILLIS);
+                current.setSoTimeout((int) (3 * ReplicationProtocol.HEARTBEAT_MILLIS));
+                current.setTcpNoDelay(true);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(current.getOutputStream()));
+                out.writeLong(runId);
+                out.writeLong(appliedSeq);
+                out.flush();
+                connected = true;
+                reported = false;
+                log.info("Following replication leader {}:{} from seq {}",
+                        leader.getHostString(), leader.getPort(), appliedSeq);
+                follow(new DataInputStream(new BufferedInputStream(current.getInputStream())));
+            } catch (IOException e) {
+                if (!stopped && !reported) {
+                    log.warn("Replication leader {}:{} unavailable, retrying: {}",
+                            leader.getHostString(), leader.getPort(), e.toString());
+                    reported = true;
+                }
+            } finally {
+                connected = false;
+                socket = null;
+            }
+            try {
+                if (!stopped) {
+                    Thread.sleep(RECONNECT_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void follow(DataInputStream in) throws IOException {
+        while (!stopped) {
+            int type = in.readUnsignedByte();
+            switch (type) {
+                case ReplicationProtocol.FULL_SYNC -> fullSync(in);
+                case ReplicationProtocol.MUTATION -> {
+                    long seq = in.readLong();
+                    long leaderTime = in.readLong();
+                    apply(MutationCodec.read(in));
+                    appliedLeaderTime = leaderTime;
+                    appliedSeq = seq;
+                    applied.increment();
+                }
+                case ReplicationProtocol.HEARTBEAT -> {
+                    long seq = in.readLong();
+                    long leaderTime = in.readLong();
+                    leaderSeq = seq;
+                    if (appliedSeq >= seq) {
+                        appliedLeaderTime = leaderTime;
+                    }
+                }
+                default -> throw new IOException("Unexpected replication frame " + type);
+            }
+        }
+    }
+
+    /**
+     * Applies every entity of the leader and deletes the local ones it does not have.
+     */
+    private void fullSync(DataInputStream in) throws IOException {
+        long leaderRunId = in.readLong();
+        long start = System.nanoTime();
+        Set<Long> userIds = null;
+        Set<Long> bookIds = null;
+        if (!isEmpty()) {
+            userIds = new HashSet<>();
+            bookIds = new HashSet<>();
+        }
+        long entries = 0;
+        int type;
+        while ((type = in.readUnsignedByte()) == ReplicationProtocol.ENTRY) {
+            StorageMutation mutation = MutationCodec.read(in);
+            apply(mutation);
+            if (userIds != null) {
+                (mutation.isUser() ? userIds : bookIds).add(mutation.getId());
+            }
+            entries++;
+        }
+        if (type != ReplicationProtocol.FULL_SYNC_END) {
+            throw new IOException("Unexpected replication frame " + type + " in a full sync");
+        }
+        long seq = in.readLong();
+        if (userIds != null) {
+            deleteMissing(userIds, bookIds);
+        }
+        runId = leaderRunId;
+        // counted before the seq is published, so whoever sees the seq also sees the full sync
+        fullSyncs.increment();
+        leaderSeq = seq;
+        appliedSeq = seq;
+        log.info("Received full sync of {} entities at seq {} in {} ms", entries, seq, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private boolean isEmpty() {
+        try (StorageSnapshot<Person, Long> users = userStorage.snapshot();
+             BookStorageSnapshot books = bookStorage.snapshot()) {
+            return users.stream().findAny().isEmpty() && books.stream().findAny().isEmpty();
+        }
+    }
+
+    private void deleteMissing(Set<Long> userIds, Set<Long> bookIds) {
+        List<Long> staleUsers;
+        List<Long> staleBooks;
+        try (StorageSnapshot<Person, Long> users = userStorage.snapshot()) {
+            staleUsers = users.stream().map(Person::getId).filter(id -> !userIds.contains(id)).toList();
+        }
+        try (BookStorageSnapshot books = bookStorage.snapshot()) {
+            staleBooks = books.stream().map(Book::getId).filter(id -> !bookIds.contains(id)).toList();
+        }
+        staleUsers.forEach(id -> userStorage.apply(StorageMutation.deleteUser(id)));
+        staleBooks.forEach(id -> bookStorage.apply(StorageMutation.deleteBook(id)));
+        if (!staleUsers.isEmpty() || !staleBooks.isEmpty()) {
+            log.info("Deleted {} users and {} books the replication leader does not have",
+                    staleUsers.size(), staleBooks.size());
+        }
+    }
+
+    private void apply(StorageMutation mutation) {
+        idAllocator.advancePast(mutation.getId());
+        if (mutation.isUser()) {
+            userStorage.apply(mutation);
+        } else {
+            bookStorage.apply(mutation);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Journal that ships the storage mutations to {@link ReplicationFollower}s over TCP, so other
+ * nodes can serve reads from their own copy of the storages.
+ * <p>
+ * {@link #append(StorageMutation)} passes the mutation to the wrapped journal and numbers it into
+ * a ring of the last {@code logSize} mutations. Each connected follower has a sender thread that
+ * streams the ring from where the follower left off, so a follower that reconnects within the
+ * ring resumes where it stopped. A new follower, a follower of an earlier run of the leader or
+ * one that fell behind the ring gets a full sync from the storage snapshots first. Writers are
+ * not stopped for it: the stream resumes after the sequence taken before the snapshots, every
+ * mutation up to it is already visible in them, and replaying later ones on top is idempotent.
+ * <p>
+ * Followers are served once {@link #start(UserStorage, BookStorageRepository)} is called after
+ * recovery, as recovered mutations are applied without being journaled.
+ */
+@Slf4j
+public class ReplicationLeader implements StorageJournal, MeterBinder, DisposableBean {
+
+    private static final int SEND_CHUNK = 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final StorageJournal journal;
+    private final int port;
+    private final int logSize;
+    private final long runId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final StorageMutation[] mutations;
+    private final long[] appendedAt;
+    private final Set<Socket> followers = ConcurrentHashMap.newKeySet();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder fullSyncs = new LongAdder();
+    private long lastSeq;
+    private UserStorage userStorage;
+    private BookStorageRepository bookStorage;
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+    private volatile boolean stopped;
+
+    /**
+     * @param journal - journal to pass the mutations to first, such as the write-ahead log.
+     * @param port - port followers connect to; 0 picks a free one.
+     * @param logSize - number of recent mutations a reconnecting follower can resume from.
+     */
+    public ReplicationLeader(StorageJournal journal, int port, int logSize) {
+        if (logSize <= 0) {
+            throw new IllegalArgumentException("Replication log size must be positive: " + logSize);
+        }
+        this.journal = journal;
+        this.port = port;
+        this.logSize = logSize;
+        this.mutations = new StorageMutation[logSize];
+        this.appendedAt = new long[logSize];
+    }
+
+    @Override
+    public long append(StorageMutation mutation) {
+        long position = journal.append(mutation);
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            int slot = (int) (++lastSeq % logSize);
+            mutations[slot] = mutation;
+            appendedAt[slot] = now;
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return position;
+    }
+
+    @Override
+    public void sync(long position) {
+        journal.sync(position);
+    }
+
+    /**
+     * Starts accepting followers.
+     * @param userStorage - storage the full syncs read users from.
+     * @param bookStorage - storage the full syncs read books from.
+     */
+    public synchronized void start(UserStorage userStorage, BookStorageRepository bookStorage) {
+        if (acceptor != null) {
+            throw new IllegalStateException("Replication leader already started");
+        }
+        this.userStorage = userStorage;
+        this.bookStorage = bookStorage;
+        try {
+            serverSocket = new ServerSocket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(port));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot listen for replication followers on port " + port, e);
+        }
+        acceptor = new Thread(this::accept, "storage-replication-leader");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Replication leader listening on port {}", localPort());
+    }
+
+    /**
+     * Returns the port followers connect to, once started.
+     * @return the port.
+     */
+    public int localPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int followerCount() {
+        return followers.size();
+    }
+
+    /**
+     * Returns the sequence number of the last appended mutation.
+     * @return the sequence, 0 before the first one.
+     */
+    public long lastSeq() {
+        lock.lock();
+        try {
+            return lastSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long fullSyncCount() {
+        return fullSyncs.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("storage.replication.followers", this, ReplicationLeader::followerCount)
+                .description("Followers connected to the replication leader")
+                .register(registry);
+        Gauge.builder("storage.replication.seq", this, ReplicationLeader::lastSeq)
+                .description("Sequence number of the last mutation appended by the replication leader")
+                .register(registry);
+        FunctionCounter.builder("storage.replication.sent", sent, LongAdder::sum)
+                .description("Mutations sent to followers")
+                .register(registry);
+        FunctionCounter.builder("storage.replication.full.syncs", fullSyncs, LongAdder::sum)
+                .description("Full syncs sent to followers that could not resume from the log")
+                .register(registry);
+    }
+
+    /**
+     * Stops accepting followers and disconnects the connected ones.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        stopped = true;
+        lock.lock();
+        try {
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        Thread thread;
+        synchronized (this) {
+            thread = acceptor;
+            closeQuietly(serverSocket);
+        }
+        followers.forEach(ReplicationLeader::closeQuietly);
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    private void accept() {
+        while (!stopped) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!stopped) {
+                    log.error("Replication leader stopped accepting followers", e);
+                }
+                return;
+            }
+            followers.add(socket);
+            Thread sender = new Thread(() -> serve(socket), "storage-replication-sender-" + socket.getPort());
+            sender.setDaemon(true);
+            sender.start();
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+            long followerRunId = in.readLong();
+            long followerSeq = in.readLong();
+            long next = canResume(followerRunId, followerSeq) ? followerSeq + 1 : fullSync(out);
+            log.info("Replicating to follower {} from seq {}", socket.getRemoteSocketAddress(), next);
+            StorageMutation[] chunk = new StorageMutation[SEND_CHUNK];
+            long[] chunkTimes = new long[SEND_CHUNK];
+            while (!stopped) {
+                long sentUpTo = send(out, next, chunk, chunkTimes);
+                next = sentUpTo < 0 ? fullSync(out) : sentUpTo;
+            }
+        } catch (IOException e) {
+            if (!stopped) {
+                log.info("Replication follower {} disconnected: {}", socket.getRemoteSocketAddress(), e.toString());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            followers.remove(socket);
+        }
+    }
+
+    private boolean canResume(long followerRunId, long followerSeq) {
+        lock.lock();
+        try {
+            return followerRunId == runId && followerSeq <= lastSeq && followerSeq >= lastSeq - logSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sends the retained mutations from {@code next} on, or a heartbeat if none come within its interval.
+     * @return the sequence to send next, or -1 if the follower fell behind the ring.
+     */
+    private long send(DataOutputStream out, long next, StorageMutation[] chunk, long[] chunkTimes)
+            throws IOException, InterruptedException {
+        int count;
+        long leaderSeq;
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(ReplicationProtocol.HEARTBEAT_MILLIS);
+            while (lastSeq < next && nanos > 0 && !stopped) {
+                nanos = appended.awaitNanos(nanos);
+            }
+            if (next <= lastSeq - logSize) {
+                return -1;
+            }
+            count = (int) Math.min(SEND_CHUNK, lastSeq - next + 1);
+            for (int i = 0; i < count; i++) {
+                int slot = (int) ((next + i) % logSize);
+                chunk[i] = mutations[slot];
+                chunkTimes[i] = appendedAt[slot];
+            }
+            leaderSeq = lastSeq;
+        } finally {
+            lock.unlock();
+        }
+        for (int i = 0; i < count; i++) {
+            out.writeByte(ReplicationProtocol.MUTATION);
+            out.writeLong(next + i);
+            out.writeLong(chunkTimes[i]);
+            MutationCodec.write(out, chunk[i]);
+            chunk[i] = null;
+        }
+        out.writeByte(ReplicationProtocol.HEARTBEAT);
+        out.writeLong(leaderSeq);
+        out.writeLong(System.currentTimeMillis());
+        out.flush();
+        sent.add(count);
+        return next + count;
+    }
+
+    /**
+     * Sends every stored entity and returns the sequence the stream resumes from.
+     */
+    private long fullSync(DataOutputStream out) throws IOException {
+        long from = lastSeq();
+        long start = System.nanoTime();
+        long entries = 0;
+        out.writeByte(ReplicationProtocol.FULL_SYNC);
+        out.writeLong(runId);
+        try (StorageSnapshot<Person, Long> users = userStorage.snapshot()) {
+            for (Iterator<Person> iterator = users.stream().iterator(); iterator.hasNext(); entries++) {
+                out.writeByte(ReplicationProtocol.ENTRY);
+                MutationCodec.write(out, StorageMutation.saveUser(iterator.next()));
+            }
+        }
+        try (BookStorageSnapshot books = bookStorage.snapshot()) {
+            for (Iterator<Book> iterator = books.stream().iterator(); iterator.hasNext(); entries++) {
+                out.writeByte(ReplicationProtocol.ENTRY);
+                MutationCodec.write(out, StorageMutation.saveBook(iterator.next()));
+            }
+        }
+        out.writeByte(ReplicationProtocol.FULL_SYNC_END);
+        out.writeLong(from);
+        out.flush();
+        fullSyncs.increment();
+        log.info("Sent full sync of {} entities at seq {} in {} ms", entries, from, (System.nanoTime() - start) / 1_000_000);
+        return from + 1;
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            log.debug("Cannot close {}", closeable, e);
+        }
+    }
+}
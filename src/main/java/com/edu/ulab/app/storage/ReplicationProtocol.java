@@ -0,0 +1,40 @@
+package com.edu.ulab.app.storage;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Frames of the replication stream between {@link ReplicationLeader} and {@link ReplicationFollower}.
+ * <p>
+ * On connect the follower sends the run id of the leader it last followed and the last sequence
+ * number it applied. The leader resumes after that sequence if it is the same run and still
+ * retains it; otherwise it sends a full sync: {@link #FULL_SYNC} with its run id, an
+ * {@link #ENTRY} per stored entity and {@link #FULL_SYNC_END} with the sequence the stream
+ * resumes after. Then come {@link #MUTATION} frames, with a {@link #HEARTBEAT} when idle.
+ * Entities and mutations are encoded by {@link MutationCodec}.
+ */
+@UtilityClass
+class ReplicationProtocol {
+
+    /**
+     * Starts a full sync: {@code long runId}.
+     */
+    static final int FULL_SYNC = 1;
+    /**
+     * A stored entity of the full sync: a save mutation.
+     */
+    static final int ENTRY = 2;
+    /**
+     * Ends a full sync: {@code long seq} of the last mutation it covers.
+     */
+    static final int FULL_SYNC_END = 3;
+    /**
+     * {@code long seq}, {@code long leaderTimeMillis} and the mutation.
+     */
+    static final int MUTATION = 4;
+    /**
+     * {@code long lastSeq} and {@code long leaderTimeMillis} of the leader.
+     */
+    static final int HEARTBEAT = 5;
+
+    static final long HEARTBEAT_MILLIS = 1_000;
+}
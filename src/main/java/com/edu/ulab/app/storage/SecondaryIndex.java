@@ -0,0 +1,279 @@
+package com.edu.ulab.app.storage;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * Secondary index of stored entities: maps the key extracted from an entity to the sorted ids of
+ * the entities with that key, kept in a primitive {@link ConcurrentSortedLongSet} per key. An
+ * equality index keeps the keys in a hash map; a range index keeps them sorted, so it also serves
+ * range queries. Entities with a null key are not indexed.
+ * <p>
+ * The index does not lock: the storage changes it under the entity's lock, adding the id before
+ * the entity is stored and removing it after. So it may briefly hold ids whose entities do not
+ * have the key anymore, and every query checks the key of the entities it returns.
+ * <p>
+ * Each change is counted and timed, and {@link #stats()} estimates the heap the index takes,
+ * which shows whether the index pays for itself.
+ *
+ * @param <E> the type of indexed entities.
+ * @param <K> the type of keys.
+ */
+public class SecondaryIndex<E, K> {
+
+    private static final ConcurrentSortedLongSet NO_IDS = new ConcurrentSortedLongSet();
+
+    /**
+     * Estimated heap of an empty id set: the set, its lock and its first, smallest block.
+     */
+    private static final long ID_SET_BYTES = ObjectLayout.shallowSize(ConcurrentSortedLongSet.class)
+            + ObjectLayout.shallowSize(SortedLongSet.class)
+            + ObjectLayout.shallowSize(StampedLock.class)
+            + NO_IDS.sizeInBytes();
+
+    /**
+     * Estimated heap of a key of an equality index besides the key itself: the hash map entry
+     * and the id set.
+     */
+    private static final long HASH_KEY_BYTES = ObjectLayout.hashMapEntrySize() + ID_SET_BYTES;
+
+    /**
+     * Estimated heap of a key of a range index besides the key itself: the skip list entry and
+     * the id set.
+     */
+    private static final long SORTED_KEY_BYTES = ObjectLayout.skipListEntrySize() + ID_SET_BYTES;
+
+    /**
+     * Estimated heap of an id: a long in a block of the id set, which grows by doubling or splits
+     * in halves, so it is between half and fully used.
+     */
+    static final long ENTRY_BYTES = Long.BYTES * 3 / 2;
+
+    private final String name;
+    private final Function<E, K> keyExtractor;
+    private final Comparator<? super K> comparator;
+    private final Map<K, ConcurrentSortedLongSet> entries;
+    private final LongAdder keys = new LongAdder();
+    private final LongAdder ids = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder maintenanceNanos = new LongAdder();
+
+    private SecondaryIndex(String name, Function<E, K> keyExtractor, Comparator<? super K> comparator) {
+        this.name = name;
+        this.keyExtractor = keyExtractor;
+        this.comparator = comparator;
+        this.entries = comparator == null ? new ConcurrentHashMap<>() : new ConcurrentSkipListMap<>(comparator);
+    }
+
+    /**
+     * Declares an index that serves lookups by key.
+     * @param name - index name used in the stats and as the {@code index} tag of the metrics.
+     * @param keyExtractor - returns the key of an entity or null to leave it out.
+     * @return the index.
+     */
+    public static <E, K> SecondaryIndex<E, K> equality(String name, Function<E, K> keyExtractor) {
+        return new SecondaryIndex<>(name, keyExtractor, null);
+    }
+
+    /**
+     * Declares an index that serves lookups by key and by a range of keys.
+     * @param name - index name used in the stats and as the {@code index} tag of the metrics.
+     * @param keyExtractor - returns the key of an entity or null to leave it out.
+     * @return the index.
+     */
+    public static <E, K extends Comparable<? super K>> SecondaryIndex<E, K> range(String name,
+                                                                                Function<E, K> keyExtractor) {
+        return new SecondaryIndex<>(name, keyExtractor, Comparator.naturalOrder());
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public boolean isRange() {
+        return comparator != null;
+    }
+
+    /**
+     * Returns the entities with the key in ascending id order.
+     * @param key - the key.
+     * @param lookup - returns the stored entity with the id or null.
+     * @return the entities; empty list if none found.
+     */
+    public List<E> find(K key, LongFunction<E> lookup) {
+        if (key == null) {
+            return List.of();
+        }
+        List<E> found = new ArrayList<>();
+        collect(key, ids(key), lookup, found);
+        return found;
+    }
+
+    /**
+     * Returns the entities with keys in the range, ordered by key and then by id.
+     * @param from - lower bound, inclusive; must not be null.
+     * @param to - upper bound, inclusive; must not be null.
+     * @param lookup - returns the stored entity with the id or null.
+     * @return the entities; empty list if none found.
+     * @throws UnsupportedOperationException if this is an equality index.
+     */
+    public List<E> findRange(K from, K to, LongFunction<E> lookup) {
+        if (!isRange()) {
+            throw new UnsupportedOperationException("Index " + name + " does not support range queries");
+        }
+        Objects.requireNonNull(from, "Range bounds must not be null");
+        Objects.requireNonNull(to, "Range bounds must not be null");
+        List<E> found = new ArrayList<>();
+        if (comparator.compare(from, to) > 0) {
+            return found;
+        }
+        ((NavigableMap<K, ConcurrentSortedLongSet>) entries).subMap(from, true, to, true)
+                .forEach((key, keyIds) -> collect(key, keyIds, lookup, found));
+        return found;
+    }
+
+    /**
+     * Returns the ids indexed under the key, which may include ids of entities that no longer
+     * have it. Used for keyset pages.
+     * @param key - the key.
+     * @return sorted ids; must not be modified.
+     */
+    ConcurrentSortedLongSet ids(K key) {
+        ConcurrentSortedLongSet keyIds = key == null ? null : entries.get(key);
+        return keyIds == null ? NO_IDS : keyIds;
+    }
+
+    K keyOf(E entity) {
+        return keyExtractor.apply(entity);
+    }
+
+    boolean matches(E entity, K key) {
+        return entity != null && Objects.equals(keyOf(entity), key);
+    }
+
+    boolean keyChanged(E previous, E current) {
+        return !Objects.equals(keyOf(previous), keyOf(current));
+    }
+
+    /**
+     * Indexes the entity under its key. Called with the entity's lock held.
+     */
+    void add(E entity, long id) {
+        K key = keyOf(entity);
+        if (key == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        entries.compute(key, (k, current) -> {
+            ConcurrentSortedLongSet keyIds = current;
+            if (keyIds == null) {
+                keyIds = new ConcurrentSortedLongSet();
+                keys.increment();
+            }
+            if (keyIds.add(id)) {
+                ids.increment();
+            }
+            return keyIds;
+        });
+        record(start);
+    }
+
+    /**
+     * Removes the id from the key the entity has. Called with the entity's lock held.
+     */
+    void remove(E entity, long id) {
+        K key = keyOf(entity);
+        if (key == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        entries.computeIfPresent(key, (k, keyIds) -> {
+            if (keyIds.remove(id)) {
+                ids.decrement();
+            }
+            if (keyIds.size() == 0) {
+                keys.decrement();
+                return null;
+            }
+            return keyIds;
+        });
+        record(start);
+    }
+
+    /**
+     * Returns the size, estimated heap and maintenance cost of the index.
+     * @return the stats.
+     */
+    public IndexStats stats() {
+        long keyCount = keys.sum();
+        long idCount = ids.sum();
+        return new IndexStats(name, isRange() ? "range" : "equality", keyCount, idCount,
+                keyCount * (isRange() ? SORTED_KEY_BYTES : HASH_KEY_BYTES) + idCount * ENTRY_BYTES, updates.sum(), maintenanceNanos.sum());
+    }
+
+    /**
+     * Registers the stats of the index as metrics tagged with the index name.
+     * @param registry - the registry.
+     * @param tags - tags of the storage that owns the index.
+     */
+    void bindTo(MeterRegistry registry, Tags tags) {
+        Tags indexTags = tags.and("index", name);
+        Gauge.builder("storage.index.keys", this, index -> index.keys.sum())
+                .tags(indexTags)
+                .description("Distinct keys of the secondary index")
+                .register(registry);
+        Gauge.builder("storage.index.entries", this, index -> index.ids.sum())
+                .tags(indexTags)
+                .description("Ids held by the secondary index")
+                .register(registry);
+        Gauge.builder("storage.index.memory", this, index -> index.stats().getEstimatedBytes())
+                .tags(indexTags)
+                .baseUnit("bytes")
+                .description("Estimated heap taken by the secondary index")
+                .register(registry);
+        FunctionTimer.builder("storage.index.maintenance", this,
+                        index -> index.updates.sum(), index -> index.maintenanceNanos.sum(), TimeUnit.NANOSECONDS)
+                .tags(indexTags)
+                .description("Changes of the secondary index and the time spent on them")
+                .register(registry);
+    }
+
+    private void collect(K key, ConcurrentSortedLongSet keyIds, LongFunction<E> lookup, List<E> found) {
+        long[] batch = new long[Math.min(Math.max(keyIds.size(), 1), 256)];
+        long cursor = Long.MIN_VALUE;
+        int count;
+        do {
+            count = keyIds.copyAfter(cursor, batch);
+            for (int i = 0; i < count; i++) {
+                E entity = lookup.apply(batch[i]);
+                if (matches(entity, key)) {
+                    found.add(entity);
+                }
+            }
+            if (count > 0) {
+                cursor = batch[count - 1];
+            }
+        } while (count == batch.length);
+    }
+
+    private void record(long start) {
+        maintenanceNanos.add(System.nanoTime() - start);
+        updates.increment();
+    }
+}
@@ -0,0 +1,151 @@
+package com.edu.ulab.app.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.Value;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * The secondary indexes declared for a storage backed by a {@link ConcurrentLongMap}, kept in
+ * step with it. The storage calls {@link #beforePut}, {@link #afterPut} and {@link #afterRemove}
+ * with the entity's lock held, so every index changes together with the entity.
+ * <p>
+ * While a snapshot of the map is open, an id that leaves a key stays indexed under it until
+ * every view that may still see the entity with that key is closed, so index lookups through a
+ * view stay consistent with the view.
+ *
+ * @param <E> the type of indexed entities.
+ */
+class SecondaryIndexes<E> {
+
+    private final String entity;
+    private final List<SecondaryIndex<E, ?>> indexes;
+    private final ConcurrentLongMap<E> storage;
+    private final LockStripes locks;
+    private final Queue<DeferredUnindex<E>> deferred = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param entity - entity name used as the {@code entity} tag of the metrics.
+     * @param storage - the map of stored entities.
+     * @param locks - the locks the storage changes entities under.
+     * @param indexes - the declared indexes.
+     */
+    SecondaryIndexes(String entity, ConcurrentLongMap<E> storage, LockStripes locks,
+                     List<SecondaryIndex<E, ?>> indexes) {
+        this.entity = entity;
+        this.storage = storage;
+        this.locks = locks;
+        this.indexes = List.copyOf(indexes);
+    }
+
+    /**
+     * Indexes the entity before it is stored.
+     */
+    void beforePut(E entity, long id) {
+        for (SecondaryIndex<E, ?> index : indexes) {
+            index.add(entity, id);
+        }
+    }
+
+    /**
+     * Unindexes the replaced entity from the keys that changed, after the entity is stored.
+     */
+    void afterPut(E previous, E current, long id) {
+        if (previous == null) {
+            return;
+        }
+        for (SecondaryIndex<E, ?> index : indexes) {
+            if (index.keyChanged(previous, current)) {
+                unindexLater(index, previous, id);
+            }
+        }
+    }
+
+    /**
+     * Unindexes the entity after it is removed.
+     */
+    void afterRemove(E removed, long id) {
+        for (SecondaryIndex<E, ?> index : indexes) {
+            unindexLater(index, removed, id);
+        }
+    }
+
+    /**
+     * Removes deferred index entries that no open view can see anymore. Called when a view closes.
+     */
+    void viewClosed() {
+        if (!deferred.isEmpty()) {
+            unindexDeferred();
+        }
+    }
+
+    List<IndexStats> stats() {
+        return indexes.stream()
+                .map(SecondaryIndex::stats)
+                .toList();
+    }
+
+    /**
+     * Adds the estimated heap of each index to the footprint of the storage.
+     */
+    void addTo(Map<String, Long> components) {
+        for (IndexStats stats : stats()) {
+            components.put("index." + stats.getName(), stats.getEstimatedBytes());
+        }
+    }
+
+    void bindTo(MeterRegistry registry, Tags tags) {
+        for (SecondaryIndex<E, ?> index : indexes) {
+            index.bindTo(registry, tags.and("entity", entity));
+        }
+    }
+
+    /**
+     * Called with the entity's lock held, after the change is stored.
+     */
+    private void unindexLater(SecondaryIndex<E, ?> index, E previous, long id) {
+        if (!storage.hasOpenSnapshots()) {
+            index.remove(previous, id);
+            return;
+        }
+        deferred.add(new DeferredUnindex<>(index, previous, id, storage.epoch()));
+        if (!storage.hasOpenSnapshots()) {
+            unindexDeferred();
+        }
+    }
+
+    private void unindexDeferred() {
+        long horizon = storage.horizon();
+        for (Iterator<DeferredUnindex<E>> iterator = deferred.iterator(); iterator.hasNext(); ) {
+            DeferredUnindex<E> entry = iterator.next();
+            if (entry.getEpoch() > horizon) {
+                continue;
+            }
+            Lock lock = locks.forId(entry.getId());
+            lock.lock();
+            try {
+                E current = storage.get(entry.getId());
+                if (current == null || entry.getIndex().keyChanged(entry.getPrevious(), current)) {
+                    entry.getIndex().remove(entry.getPrevious(), entry.getId());
+                }
+            } finally {
+                lock.unlock();
+            }
+            iterator.remove();
+        }
+    }
+
+    @Value
+    private static class DeferredUnindex<E> {
+        SecondaryIndex<E, ?> index;
+        E previous;
+        long id;
+        long epoch;
+    }
+}
@@ -0,0 +1,211 @@
+package com.edu.ulab.app.storage;
+
+import lombok.experimental.UtilityClass;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshot of the storages.
+ * <p>
+ * Layout: a header {@code [int magic][int version][long lsn][long entries]} followed by blocks
+ * {@code [int length][int count][int crc32c][payload]} and a zero length terminator. The payload
+ * is a run of save mutations encoded by {@link MutationCodec}, and {@code lsn} is the last
+ * write-ahead log record the snapshot is guaranteed to contain.
+ * <p>
+ * A snapshot is written to a temporary file, forced to disk and atomically moved over the
+ * previous one, so a crash never leaves a half-written snapshot in place. It is loaded by
+ * memory-mapping one block at a time: entries are decoded straight from the page cache
+ * without copying the file into heap buffers.
+ */
+@UtilityClass
+class SnapshotFile {
+
+    private static final int MAGIC = 0x554C5353;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int BLOCK_HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int BLOCK_BYTES = 1 << 20;
+
+    /**
+     * Writes a snapshot and atomically replaces the file.
+     * @param file - snapshot file.
+     * @param lsn - last log record contained in the snapshot.
+     * @param entries - save mutations to write; called with a sink once.
+     * @return number of written entries.
+     */
+    static long write(Path file, long lsn, Consumer<Consumer<StorageMutation>> entries) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            BlockWriter writer = new BlockWriter(channel);
+            writer.writeFully(ByteBuffer.allocate(FILE_HEADER_BYTES));
+            try {
+                entries.accept(writer::add);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+            writer.writeFully(ByteBuffer.allocate(Integer.BYTES));
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(lsn)
+                    .putLong(writer.entries)
+                    .flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return writer.entries;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Loads a snapshot through memory-mapped blocks.
+     * @param file - snapshot file; must exist.
+     * @param consumer - receives each save mutation.
+     * @return last log record contained in the snapshot.
+     */
+    static long load(Path file, Consumer<StorageMutation> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, FILE_HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a storage snapshot: " + file);
+            }
+            long lsn = header.getLong();
+            long expected = header.getLong();
+            long entries = 0;
+            long position = FILE_HEADER_BYTES;
+            while (true) {
+                ByteBuffer blockHeader = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(BLOCK_HEADER_BYTES, size - position));
+                int length = blockHeader.getInt();
+                if (length == 0) {
+                    break;
+                }
+                int count = blockHeader.getInt();
+                int checksum = blockHeader.getInt();
+                position += BLOCK_HEADER_BYTES;
+                if (length < 0 || position + length > size) {
+                    throw new IOException("Truncated snapshot block at " + position + " in " + file);
+                }
+                MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                CRC32C crc = new CRC32C();
+                crc.update(block.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    throw new IOException("Corrupt snapshot block at " + position + " in " + file);
+                }
+                DataInputStream in = new DataInputStream(new ByteBufferInputStream(block));
+                for (int i = 0; i < count; i++) {
+                    consumer.accept(MutationCodec.read(in));
+                }
+                entries += count;
+                position += length;
+            }
+            if (entries != expected) {
+                throw new IOException("Snapshot " + file + " has " + entries + " entries, expected " + expected);
+            }
+            return lsn;
+        }
+    }
+
+    /**
+     * Collects encoded entries into blocks and writes each full block with its checksum.
+     */
+    private static class BlockWriter {
+
+        private final FileChannel channel;
+        private final ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_BYTES + 1024);
+        private final DataOutputStream out = new DataOutputStream(block);
+        private int count;
+        private long entries;
+
+        BlockWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void add(StorageMutation mutation) {
+            try {
+                MutationCodec.write(out, mutation);
+                count++;
+                entries++;
+                if (block.size() >= BLOCK_BYTES) {
+                    flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void flush() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            byte[] bytes = block.toByteArray();
+            CRC32C crc = new CRC32C();
+            crc.update(bytes);
+            writeFully(ByteBuffer.allocate(BLOCK_HEADER_BYTES)
+                    .putInt(bytes.length)
+                    .putInt(count)
+                    .putInt((int) crc.getValue())
+                    .flip());
+            writeFully(ByteBuffer.wrap(bytes));
+            block.reset();
+            count = 0;
+        }
+
+        void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads a mapped block without copying it to the heap.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+    }
+}
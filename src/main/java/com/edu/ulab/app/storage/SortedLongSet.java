@@ -0,0 +1,186 @@
+package com.edu.ulab.app.storage;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Sorted set of longs without boxing, stored as a sorted list of sorted blocks. Adding or
+ * removing a value shifts at most one block, and a range read binary-searches the block and the
+ * position in it, so it costs O(log n) plus the size of the range. The first block starts small
+ * and doubles up to the block size, so a set of a few values, such as the ids under one key of a
+ * {@link SecondaryIndex}, takes a few dozen bytes. Not thread-safe; see
+ * {@link ConcurrentSortedLongSet} for the concurrent storages.
+ */
+class SortedLongSet {
+
+    private static final int BLOCK_SIZE = 512;
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[][] blocks = {new long[INITIAL_CAPACITY]};
+    private int[] sizes = {0};
+    private int blockCount = 1;
+    private int size;
+
+    boolean add(long value) {
+        int block = blockFor(value);
+        int index = Arrays.binarySearch(blocks[block], 0, sizes[block], value);
+        if (index >= 0) {
+            return false;
+        }
+        if (sizes[block] == blocks[block].length && sizes[block] < BLOCK_SIZE) {
+            blocks[block] = Arrays.copyOf(blocks[block], Math.min(sizes[block] << 1, BLOCK_SIZE));
+        }
+        if (sizes[block] == BLOCK_SIZE) {
+            if (block == blockCount - 1 && value > blocks[block][BLOCK_SIZE - 1]) {
+                // ascending ids, as allocated, fill whole blocks instead of leaving halves behind
+                appendBlock(value);
+                return true;
+            }
+            split(block);
+            return add(value);
+        }
+        index = -index - 1;
+        System.arraycopy(blocks[block], index, blocks[block], index + 1, sizes[block] - index);
+        blocks[block][index] = value;
+        sizes[block]++;
+        size++;
+        return true;
+    }
+
+    boolean remove(long value) {
+        int block = blockFor(value);
+        int index = Arrays.binarySearch(blocks[block], 0, sizes[block], value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(blocks[block], index + 1, blocks[block], index, sizes[block] - index - 1);
+        sizes[block]--;
+        size--;
+        if (sizes[block] == 0 && blockCount > 1) {
+            removeBlock(block);
+        }
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long sizeInBytes() {
+        long bytes = 0;
+        for (int block = 0; block < blockCount; block++) {
+            bytes += ObjectLayout.arraySize(long.class, blocks[block].length);
+        }
+        return bytes + ObjectLayout.arraySize(long[].class, blocks.length)
+                + ObjectLayout.arraySize(int.class, sizes.length);
+    }
+
+    /**
+     * Passes the values greater than the given one to the action in ascending order.
+     * @param after - lower bound, exclusive.
+     * @param action - returns false to stop.
+     */
+    void forEachAfter(long after, LongPredicate action) {
+        int block = blockFor(after);
+        int index = Arrays.binarySearch(blocks[block], 0, sizes[block], after);
+        index = index >= 0 ? index + 1 : -index - 1;
+        for (; block < blockCount; block++, index = 0) {
+            for (; index < sizes[block]; index++) {
+                if (!action.test(blocks[block][index])) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the smallest values greater than the given one, in ascending order.
+     * @param after - lower bound, exclusive.
+     * @param into - receives up to its length values.
+     * @return the number of copied values.
+     */
+    int copyAfter(long after, long[] into) {
+        int block = blockFor(after);
+        int index = Arrays.binarySearch(blocks[block], 0, sizes[block], after);
+        index = index >= 0 ? index + 1 : -index - 1;
+        int copied = 0;
+        for (; block < blockCount && copied < into.length; block++, index = 0) {
+            int length = Math.min(sizes[block] - index, into.length - copied);
+            if (length > 0) {
+                System.arraycopy(blocks[block], index, into, copied, length);
+                copied += length;
+            }
+        }
+        return copied;
+    }
+
+    /**
+     * Returns the value at the given position in ascending order.
+     * @param position - from 0 to {@code size() - 1}.
+     * @return the value.
+     */
+    long get(int position) {
+        for (int block = 0; block < blockCount; block++) {
+            if (position < sizes[block]) {
+                return blocks[block][position];
+            }
+            position -= sizes[block];
+        }
+        throw new IndexOutOfBoundsException("Position " + position + " beyond the set");
+    }
+
+    /**
+     * Returns the last block whose first value is not greater than the given one, or the first
+     * block. Only the first block can be empty, and only when the whole set is.
+     */
+    private int blockFor(long value) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (blocks[middle][0] <= value) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private void appendBlock(long value) {
+        ensureBlockCapacity();
+        blocks[blockCount] = new long[BLOCK_SIZE];
+        blocks[blockCount][0] = value;
+        sizes[blockCount] = 1;
+        blockCount++;
+        size++;
+    }
+
+    private void split(int block) {
+        ensureBlockCapacity();
+        System.arraycopy(blocks, block + 1, blocks, block + 2, blockCount - block - 1);
+        System.arraycopy(sizes, block + 1, sizes, block + 2, blockCount - block - 1);
+        int half = BLOCK_SIZE / 2;
+        long[] upper = new long[BLOCK_SIZE];
+        System.arraycopy(blocks[block], half, upper, 0, BLOCK_SIZE - half);
+        blocks[block + 1] = upper;
+        sizes[block + 1] = BLOCK_SIZE - half;
+        sizes[block] = half;
+        blockCount++;
+    }
+
+    private void ensureBlockCapacity() {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount << 1);
+            sizes = Arrays.copyOf(sizes, blockCount << 1);
+        }
+    }
+
+    private void removeBlock(int block) {
+        System.arraycopy(blocks, block + 1, blocks, block, blockCount - block - 1);
+        System.arraycopy(sizes, block + 1, sizes, block, blockCount - block - 1);
+        blockCount--;
+        blocks[blockCount] = null;
+        sizes[blockCount] = 0;
+    }
+}
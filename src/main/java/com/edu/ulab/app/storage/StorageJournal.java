@@ -0,0 +1,39 @@
+package com.edu.ulab.app.storage;
+
+/**
+ * Journal of storage mutations. Storages apply a change and then append it while holding the
+ * lock of the changed id, or from the only thread that changes it, so the journal order matches
+ * the order the changes were applied in and every journaled position is already visible in
+ * memory. If {@link #append(StorageMutation)} throws, they undo the change before releasing the
+ * lock, so a change the journal refused never stays visible. They call {@link #sync(long)} after
+ * releasing the lock, so that concurrent writers can share one flush.
+ */
+public interface StorageJournal {
+
+    /**
+     * Journal that records nothing; used when durability is disabled.
+     */
+    StorageJournal NOOP = new StorageJournal() {
+        @Override
+        public long append(StorageMutation mutation) {
+            return 0;
+        }
+
+        @Override
+        public void sync(long position) {
+        }
+    };
+
+    /**
+     * Adds the mutation to the journal without waiting for it to become durable.
+     * @param mutation - must not be null.
+     * @return position to pass to {@link #sync(long)}.
+     */
+    long append(StorageMutation mutation);
+
+    /**
+     * Blocks until every mutation up to the given position is durable.
+     * @param position - position returned by {@link #append(StorageMutation)}.
+     */
+    void sync(long position);
+}
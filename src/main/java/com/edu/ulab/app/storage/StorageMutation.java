@@ -0,0 +1,62 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import lombok.With;
+
+/**
+ * A single change of the in-memory storages as written to the journal.
+ * Saves carry the full entity state, so replaying a mutation twice is harmless.
+ * A save that created the entity is marked as such for the write-behind flush; the mark is not
+ * journaled, so a replayed save is never taken for a new one.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class StorageMutation {
+
+    public enum Type {
+        SAVE_USER, DELETE_USER, SAVE_BOOK, DELETE_BOOK
+    }
+
+    Type type;
+    long id;
+    Person person;
+    Book book;
+    @With
+    boolean created;
+
+    public static StorageMutation saveUser(Person person) {
+        return new StorageMutation(Type.SAVE_USER, person.getId(), person, null, false);
+    }
+
+    public static StorageMutation saveUser(Person person, boolean created) {
+        return new StorageMutation(Type.SAVE_USER, person.getId(), person, null, created);
+    }
+
+    public static StorageMutation deleteUser(long id) {
+        return new StorageMutation(Type.DELETE_USER, id, null, null, false);
+    }
+
+    public static StorageMutation saveBook(Book book) {
+        return new StorageMutation(Type.SAVE_BOOK, book.getId(), null, book, false);
+    }
+
+    public static StorageMutation saveBook(Book book, boolean created) {
+        return new StorageMutation(Type.SAVE_BOOK, book.getId(), null, book, created);
+    }
+
+    public static StorageMutation deleteBook(long id) {
+        return new StorageMutation(Type.DELETE_BOOK, id, null, null, false);
+    }
+
+    public boolean isUser() {
+        return type == Type.SAVE_USER || type == Type.DELETE_USER;
+    }
+
+    public boolean isDelete() {
+        return type == Type.DELETE_USER || type == Type.DELETE_BOOK;
+    }
+}
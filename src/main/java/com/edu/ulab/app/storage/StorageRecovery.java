@@ -0,0 +1,81 @@
+package com.edu.ulab.app.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Rebuilds the in-memory storages once all beans are created, before the web server starts
+ * accepting requests: loads the database rows, if write-behind is enabled, then the snapshot, if
+ * enabled, then replays the write-ahead log records it does not cover, if the log is enabled, each
+ * newer than the one before. Background snapshots start only afterwards.
+ * Recovered ids, the database ones included, are reported to the {@link IdAllocator}, if the
+ * storage backend has one, so new entities never reuse them.
+ * With write-behind, the replayed mutations are flushed again, as the crash may have come before
+ * their flush. A replication leader starts serving followers and a follower starts following its
+ * leader once the local state is recovered.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StorageRecovery implements SmartInitializingSingleton {
+
+    private final Optional<StorageSnapshotter> snapshotter;
+    private final Optional<WriteAheadLog> writeAheadLog;
+    private final Optional<WriteBehindJournal> writeBehindJournal;
+    private final Optional<WriteBehindTarget> writeBehindTarget;
+    private final Optional<ReplicationLeader> replicationLeader;
+    private final Optional<ReplicationFollower> replicationFollower;
+    private final UserStorage userStorage;
+    private final BookStorageRepository bookStorage;
+    private final Optional<IdAllocator> idAllocator;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        writeBehindTarget.ifPresent(this::load);
+        StorageSnapshotter storageSnapshotter = snapshotter.orElse(null);
+        long snapshotLsn = storageSnapshotter == null ? 0 : storageSnapshotter.load(this::apply);
+        WriteAheadLog wal = writeAheadLog.orElse(null);
+        WriteBehindJournal writeBehind = writeBehindJournal.orElse(null);
+        if (wal != null) {
+            long start = System.nanoTime();
+            long[] replayed = new long[1];
+            wal.replayAfter(snapshotLsn, mutation -> {
+                apply(mutation);
+                if (writeBehind != null) {
+                    writeBehind.enqueue(mutation);
+                }
+                replayed[0]++;
+            });
+            log.info("Replayed {} storage mutations after lsn {} in {} ms",
+                    replayed[0], snapshotLsn, (System.nanoTime() - start) / 1_000_000);
+        }
+        if (storageSnapshotter != null) {
+            storageSnapshotter.start();
+        }
+        replicationLeader.ifPresent(leader -> leader.start(userStorage, bookStorage));
+        replicationFollower.ifPresent(ReplicationFollower::start);
+    }
+
+    private void load(WriteBehindTarget target) {
+        long start = System.nanoTime();
+        long[] loaded = new long[1];
+        target.load(mutation -> {
+            apply(mutation);
+            loaded[0]++;
+        });
+        log.info("Loaded {} entities from the database in {} ms", loaded[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void apply(StorageMutation mutation) {
+        idAllocator.ifPresent(allocator -> allocator.advancePast(mutation.getId()));
+        if (mutation.isUser()) {
+            userStorage.apply(mutation);
+        } else {
+            bookStorage.apply(mutation);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.edu.ulab.app.storage;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +16,14 @@ public interface StorageRepository<E, I> {
      */
     E save(E entity);
 
+    /**
+     * Saves all given entities as one batch: the storages take each lock once for the batch and
+     * wait for the journal once.
+     * @param entities – must not be null and must not contain null.
+     * @return the saved entities in the given order.
+     */
+    List<E> saveAll(Collection<E> entities);
+
     /**
      * Retrieves an entity by its id.
      * @param id – must not be null.
@@ -23,14 +32,49 @@ public interface StorageRepository<E, I> {
     Optional<E> findById(I id);
 
     /**
-     * Returns all instances of the type.
+     * Retrieves the entities with the given ids.
+     * @param ids – must not be null and must not contain null.
+     * @return the entities found, in the order of the ids; missing ids are skipped.
+     */
+    List<E> findAllById(Collection<I> ids);
+
+    /**
+     * Returns all instances of the type as of a single point in time.
+     * Copies the whole storage; prefer {@link #snapshot()} for scans.
      * @return all entities.
      */
     List<E> findAll();
 
+    /**
+     * Returns a page of entities in ascending id order, starting after the given id.
+     * The cost depends on the page size only, not on how deep the page is.
+     * @param afterId - id the page starts after; 0 for the first page; must not be null.
+     * @param limit - maximum number of entities; must be positive.
+     * @return up to {@code limit} entities with ids greater than {@code afterId}.
+     */
+    List<E> findPage(I afterId, int limit);
+
+    /**
+     * Opens a consistent view of the storage that is iterated lazily and does not block writers.
+     * @return the open view; must be closed.
+     */
+    StorageSnapshot<E, I> snapshot();
+
+    /**
+     * Returns the size and maintenance cost of each secondary index of the storage.
+     * @return stats of the declared indexes; empty list if there are none.
+     */
+    List<IndexStats> indexStats();
+
     /**
      * Deletes the entity with the given id.
      * @param id - must not be null.
      */
     void deleteById(I id);
+
+    /**
+     * Deletes the entities with the given ids as one batch.
+     * @param ids - must not be null and must not contain null.
+     */
+    void deleteAllById(Collection<I> ids);
 }
@@ -0,0 +1,27 @@
+package com.edu.ulab.app.storage;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Consistent point-in-time view of a local storage. Entities are read from the storage lazily,
+ * without copying it, and writes made after the view was opened are not visible through it.
+ * Must be closed, preferably with try-with-resources.
+ */
+public interface StorageSnapshot<E, I> extends AutoCloseable {
+    /**
+     * Retrieves an entity by its id as of the moment the view was opened.
+     * @param id - must not be null.
+     * @return the entity with the given id or Optional#empty() if none found.
+     */
+    Optional<E> findById(I id);
+
+    /**
+     * Returns a lazy stream of all entities in the view.
+     * @return stream; valid until the view is closed.
+     */
+    Stream<E> stream();
+
+    @Override
+    void close();
+}
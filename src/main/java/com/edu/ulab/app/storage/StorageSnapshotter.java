@@ -0,0 +1,181 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.config.StorageProperties;
+import com.edu.ulab.app.entity.Person;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Periodically writes a {@link SnapshotFile} of the storages on a background thread and loads
+ * it on startup.
+ * <p>
+ * Writers are not stopped: when the write-ahead log is enabled, it is rotated first and the
+ * returned lsn is stored in the snapshot. Storages apply a change before journaling it, so every
+ * record up to that lsn is already visible while the snapshot is taken; later records may or may
+ * not be, and replaying them on top of the snapshot is idempotent. Once the snapshot is durable,
+ * log segments it covers are deleted.
+ * <p>
+ * Write and load durations are published as the {@code storage.snapshot.write} and
+ * {@code storage.snapshot.load} timers.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "storage.snapshot", name = "enabled", havingValue = "true")
+public class StorageSnapshotter implements DisposableBean {
+
+    private static final String SNAPSHOT_FILE = "storage.snapshot";
+
+    private final Path file;
+    private final long intervalMillis;
+    private final UserStorage userStorage;
+    private final BookStorageRepository bookStorage;
+    private final WriteAheadLog writeAheadLog;
+    private final Timer writeTimer;
+    private final Timer loadTimer;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "storage-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long lastLsn;
+    private volatile long lastEntries;
+
+    public StorageSnapshotter(StorageProperties storageProperties,
+                              UserStorage userStorage,
+                              BookStorageRepository bookStorage,
+                              Optional<WriteAheadLog> writeAheadLog,
+                              MeterRegistry meterRegistry) {
+        StorageProperties.Snapshot snapshot = storageProperties.getSnapshot();
+        this.file = Path.of(snapshot.getDirectory(), SNAPSHOT_FILE);
+        this.intervalMillis = snapshot.getInterval().toMillis();
+        this.userStorage = userStorage;
+        this.bookStorage = bookStorage;
+        this.writeAheadLog = writeAheadLog.orElse(null);
+        this.writeTimer = Timer.builder("storage.snapshot.write")
+                .description("Time to write a storage snapshot")
+                .register(meterRegistry);
+        this.loadTimer = Timer.builder("storage.snapshot.load")
+                .description("Time to load the storage snapshot on startup")
+                .register(meterRegistry);
+        Gauge.builder("storage.snapshot.entries", this, StorageSnapshotter::lastEntries)
+                .description("Entries in the last written or loaded snapshot")
+                .register(meterRegistry);
+        Gauge.builder("storage.snapshot.lsn", this, StorageSnapshotter::lastLsn)
+                .description("Last write-ahead log record covered by the snapshot")
+                .register(meterRegistry);
+        Gauge.builder("storage.snapshot.size", this, StorageSnapshotter::sizeInBytes)
+                .baseUnit("bytes")
+                .description("Size of the snapshot file")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the snapshot, if there is one.
+     * @param consumer - receives each stored entry as a save mutation.
+     * @return last write-ahead log record covered by the snapshot, or 0 when there is none.
+     */
+    public long load(Consumer<StorageMutation> consumer) {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        long[] entries = new long[1];
+        long lsn;
+        try {
+            lsn = SnapshotFile.load(file, mutation -> {
+                consumer.accept(mutation);
+                entries[0]++;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load storage snapshot " + file, e);
+        }
+        long elapsed = System.nanoTime() - start;
+        loadTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        lastLsn = lsn;
+        lastEntries = entries[0];
+        log.info("Loaded {} entries from snapshot {} in {} ms", entries[0], file, elapsed / 1_000_000);
+        return lsn;
+    }
+
+    /**
+     * Starts taking snapshots in the background. Called once the storages are recovered,
+     * so that an empty storage never overwrites a snapshot.
+     */
+    public void start() {
+        executor.scheduleWithFixedDelay(this::snapshotQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes a snapshot of the current storages and drops the log segments it covers.
+     */
+    public synchronized void snapshot() {
+        long start = System.nanoTime();
+        long lsn = writeAheadLog == null ? 0 : writeAheadLog.rotate();
+        long entries;
+        try {
+            entries = SnapshotFile.write(file, lsn, sink -> {
+                try (StorageSnapshot<Person, Long> users = userStorage.snapshot()) {
+                    users.stream().forEach(person -> sink.accept(StorageMutation.saveUser(person)));
+                }
+                try (BookStorageSnapshot books = bookStorage.snapshot()) {
+                    books.stream().forEach(book -> sink.accept(StorageMutation.saveBook(book)));
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write storage snapshot " + file, e);
+        }
+        long elapsed = System.nanoTime() - start;
+        writeTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        lastLsn = lsn;
+        lastEntries = entries;
+        if (writeAheadLog != null) {
+            writeAheadLog.deleteSegmentsUpTo(lsn);
+        }
+        log.info("Wrote {} entries to snapshot {} at lsn {} in {} ms", entries, file, lsn, elapsed / 1_000_000);
+    }
+
+    public long lastLsn() {
+        return lastLsn;
+    }
+
+    public long lastEntries() {
+        return lastEntries;
+    }
+
+    public long sizeInBytes() {
+        try {
+            return Files.exists(file) ? Files.size(file) : 0;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            log.error("Storage snapshot failed", e);
+        }
+    }
+}
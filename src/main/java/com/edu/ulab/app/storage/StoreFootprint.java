@@ -0,0 +1,65 @@
+package com.edu.ulab.app.storage;
+
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * Estimated memory taken by a store, split by the structures it keeps.
+ */
+@Value
+public class StoreFootprint {
+
+    String store;
+
+    /**
+     * Stored entries.
+     */
+    long entries;
+
+    /**
+     * Estimated bytes per structure, such as the entities, the primary map or an index.
+     */
+    Map<String, Long> components;
+
+    /**
+     * Entries added per second, negative if the store shrinks; 0 until it is observed twice.
+     */
+    double entriesPerSecond;
+
+    /**
+     * Bytes added per second, negative if the store shrinks; 0 until it is observed twice.
+     */
+    double bytesPerSecond;
+
+    /**
+     * Creates a footprint without growth rates.
+     * @param store - store name.
+     * @param entries - stored entries.
+     * @param components - estimated bytes per structure, in the order to report them.
+     */
+    public StoreFootprint(String store, long entries, Map<String, Long> components) {
+        this(store, entries, components, 0, 0);
+    }
+
+    public StoreFootprint(String store, long entries, Map<String, Long> components,
+                          double entriesPerSecond, double bytesPerSecond) {
+        this.store = store;
+        this.entries = entries;
+        this.components = components;
+        this.entriesPerSecond = entriesPerSecond;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public long getTotalBytes() {
+        return components.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public long getBytesPerEntry() {
+        return entries == 0 ? 0 : getTotalBytes() / entries;
+    }
+
+    StoreFootprint withGrowth(double entriesPerSecond, double bytesPerSecond) {
+        return new StoreFootprint(store, entries, components, entriesPerSecond, bytesPerSecond);
+    }
+}
@@ -0,0 +1,265 @@
+package com.edu.ulab.app.storage;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent dictionary of repeated strings such as book authors and titles.
+ * Every distinct string gets one shared instance and a dense int code, so the storages can
+ * keep a reference to the shared copy ({@link #intern(String)}) or just the code
+ * ({@link #encode(String)}).
+ * <p>
+ * Entries are reference counted: every {@code intern} or {@code encode} takes a reference that
+ * the storage gives back with {@link #release(String)} when it replaces or removes the value.
+ * The last release drops the entry and its code is reused by the next new string, so strings of
+ * updated and deleted books, unique titles included, do not stay on the heap. Pages of the code
+ * table are allocated as codes are assigned.
+ * Hit ratio and an estimate of the bytes saved by deduplication are published as gauges.
+ */
+@Component
+public class StringDictionary implements MeterBinder, FootprintSource {
+
+    public static final int NO_CODE = -1;
+
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int MAX_PAGES = 1 << 19;
+
+    private final Map<String, Entry> codes = new ConcurrentHashMap<>();
+    private final AtomicInteger live = new AtomicInteger();
+    private volatile String[][] pages = new String[16][];
+    // guarded by this
+    private int nextCode;
+    private int[] freeCodes = new int[64];
+    private int freeCount;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+    private final EntrySampler sampler = new EntrySampler(object -> false);
+
+    /**
+     * Returns the shared instance equal to the given string and takes a reference to it.
+     * @param value - may be null.
+     * @return the shared instance or null.
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        return decode(encode(value));
+    }
+
+    /**
+     * Returns the code of the given string and takes a reference to it, assigning a new code on
+     * first use.
+     * @param value - may be null.
+     * @return the code or {@link #NO_CODE} for null.
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NO_CODE;
+        }
+        Entry entry = codes.get(value);
+        if (entry == null || !entry.retain()) {
+            entry = codes.compute(value, (key, current) ->
+                    current != null && current.retain() ? current : register(key));
+        }
+        lookups.increment();
+        if (entry.value != value) {
+            bytesSaved.add(ObjectLayout.stringSize(value));
+        }
+        return entry.code;
+    }
+
+    /**
+     * Gives back a reference taken by {@link #intern(String)} or {@link #encode(String)}.
+     * The entry is dropped with its last reference and its code may then be assigned to another
+     * string.
+     * @param value - the string or its shared instance; may be null.
+     */
+    public void release(String value) {
+        if (value == null) {
+            return;
+        }
+        codes.computeIfPresent(value, (key, entry) -> {
+            if (entry.references.decrementAndGet() > 0) {
+                return entry;
+            }
+            free(entry.code);
+            return null;
+        });
+    }
+
+    /**
+     * Returns the code of a string already in the dictionary without counting the lookup.
+     * @param value - may be null.
+     * @return the code or {@link #NO_CODE} for null or an unknown string.
+     */
+    int codeOf(String value) {
+        if (value == null) {
+            return NO_CODE;
+        }
+        Entry entry = codes.get(value);
+        return entry == null ? NO_CODE : entry.code;
+    }
+
+    /**
+     * Returns the string for the given code.
+     * @param code - code returned by {@link #encode(String)} and not released since, or {@link #NO_CODE}.
+     * @return the shared instance or null for {@link #NO_CODE}.
+     */
+    public String decode(int code) {
+        if (code == NO_CODE) {
+            return null;
+        }
+        return pages[code >>> PAGE_SHIFT][code & (PAGE_SIZE - 1)];
+    }
+
+    /**
+     * Returns the number of distinct strings.
+     * @return dictionary size.
+     */
+    public int size() {
+        return live.get();
+    }
+
+    /**
+     * Returns the share of lookups that found an existing entry.
+     * @return hit ratio from 0 to 1.
+     */
+    public double hitRatio() {
+        long total = lookups.sum();
+        return total == 0 ? 0 : Math.max(0, (double) (total - misses.sum()) / total);
+    }
+
+    /**
+     * Returns an estimate of heap bytes not spent on duplicate strings.
+     * @return saved bytes.
+     */
+    public long bytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    @Override
+    public StoreFootprint footprint() {
+        int size = size();
+        int capacity;
+        int tableLength;
+        synchronized (this) {
+            capacity = nextCode;
+            tableLength = pages.length;
+        }
+        int allocatedPages = (capacity + PAGE_SIZE - 1) >>> PAGE_SHIFT;
+        Map<String, Long> components = new LinkedHashMap<>();
+        components.put("strings", sampler.estimate(size, () ->
+                capacity == 0 ? null : stringAt(ThreadLocalRandom.current().nextInt(capacity))));
+        components.put("codes", size * (ObjectLayout.hashMapEntrySize() + ObjectLayout.shallowSize(Entry.class)
+                + ObjectLayout.shallowSize(AtomicInteger.class)));
+        components.put("pages", allocatedPages * ObjectLayout.arraySize(String.class, PAGE_SIZE)
+                + ObjectLayout.arraySize(String[].class, tableLength));
+        return new StoreFootprint("dictionary", size, components);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("storage.dictionary.size", this, StringDictionary::size)
+                .description("Distinct strings in the storage dictionary")
+                .register(registry);
+        Gauge.builder("storage.dictionary.hit.ratio", this, StringDictionary::hitRatio)
+                .description("Share of dictionary lookups that found a shared string")
+                .register(registry);
+        Gauge.builder("storage.dictionary.bytes.saved", this, StringDictionary::bytesSaved)
+                .description("Estimated heap bytes saved by deduplicating strings")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Returns the string of a code that may have been assigned but not stored yet, or freed.
+     */
+    private String stringAt(int code) {
+        String[][] table = pages;
+        int page = code >>> PAGE_SHIFT;
+        String[] strings = page < table.length ? table[page] : null;
+        return strings == null ? null : strings[code & (PAGE_SIZE - 1)];
+    }
+
+    /**
+     * Assigns a code to a new string, reusing a freed code if there is one.
+     * Runs inside the map's compute of the string, so a string is registered once.
+     */
+    private synchronized Entry register(String value) {
+        misses.increment();
+        int code;
+        if (freeCount > 0) {
+            code = freeCodes[--freeCount];
+        } else {
+            code = nextCode;
+            int page = code >>> PAGE_SHIFT;
+            if (page >= MAX_PAGES) {
+                throw new IllegalStateException("String dictionary is full");
+            }
+            String[][] table = pages;
+            if (page == table.length) {
+                table = Arrays.copyOf(table, Math.min(table.length << 1, MAX_PAGES));
+            }
+            if (table[page] == null) {
+                table[page] = new String[PAGE_SIZE];
+            }
+            pages = table;
+            nextCode++;
+        }
+        pages[code >>> PAGE_SHIFT][code & (PAGE_SIZE - 1)] = value;
+        live.incrementAndGet();
+        return new Entry(value, code);
+    }
+
+    /**
+     * Clears the code of a dropped entry and keeps it for reuse.
+     * Runs inside the map's compute of the dropped string.
+     */
+    private synchronized void free(int code) {
+        pages[code >>> PAGE_SHIFT][code & (PAGE_SIZE - 1)] = null;
+        if (freeCount == freeCodes.length) {
+            freeCodes = Arrays.copyOf(freeCodes, freeCount << 1);
+        }
+        freeCodes[freeCount++] = code;
+        live.decrementAndGet();
+    }
+
+    /**
+     * Shared instance of a string with its code and number of references.
+     * An entry whose count dropped to zero is dead and is never retained again.
+     */
+    private static final class Entry {
+        private final String value;
+        private final int code;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private Entry(String value, int code) {
+            this.value = value;
+            this.code = code;
+        }
+
+        private boolean retain() {
+            int current;
+            do {
+                current = references.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(current, current + 1));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.edu.ulab.app.storage;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache with long keys and W-TinyLFU eviction.
+ * <p>
+ * New entries enter a small LRU window (1% of the capacity). Entries leaving the window become
+ * candidates for the main space, a segmented LRU of a probation and a protected (80%) part.
+ * When the cache is full, a candidate is admitted only if the {@link FrequencySketch} estimates
+ * it was accessed more often than the probation victim, so a scan of one-off keys cannot flush
+ * the hot working set. An entry hit in probation moves to the protected part.
+ * <p>
+ * Lookups read a {@link ConcurrentHashMap} and never block: the policy is updated under a lock
+ * that readers only try to take, so under contention some accesses are not recorded, which
+ * only makes the frequency estimate slightly less precise. Writes take the lock.
+ * <p>
+ * A value loaded from the backing store is cached with the {@link #stamp()} read before the
+ * load, and only if no {@link #put} or {@link #invalidate} of its key happened since, so a load
+ * that raced with an update or a delete does not bring the old row back. Changes are tracked per
+ * stripe of keys, so an unrelated write on the same stripe only skips caching one load.
+ *
+ * @param <V> the type of cached values.
+ */
+public class TinyLfuCache<V> implements MeterBinder {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int REMOVED = 3;
+    private static final int STAMP_STRIPES = 1024;
+    private static final long NO_STAMP = Long.MAX_VALUE;
+
+    private final String name;
+    private final int maximumSize;
+    private final int maximumWindow;
+    private final int maximumProtected;
+    private final Map<Long, Node<V>> data = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final Deque<V> window = new Deque<>();
+    private final Deque<V> probation = new Deque<>();
+    private final Deque<V> protectedDeque = new Deque<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // guarded by evictionLock: the sequence number of the last change of each stripe of keys
+    private final long[] changedAt = new long[STAMP_STRIPES];
+    private volatile long sequence;
+
+    /**
+     * @param name - cache name used as the {@code cache} tag of the metrics.
+     * @param maximumSize - maximum number of entries; must be positive.
+     */
+    public TinyLfuCache(String name, int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+        this.name = name;
+        this.maximumSize = maximumSize;
+        this.maximumWindow = Math.max(1, maximumSize / 100);
+        this.maximumProtected = (int) ((maximumSize - maximumWindow) * 0.8);
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Returns the cached value and records the access.
+     * @param key - the key.
+     * @return the value or null on a miss.
+     */
+    public V get(long key) {
+        Node<V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            if (evictionLock.tryLock()) {
+                try {
+                    sketch.increment(key);
+                } finally {
+                    evictionLock.unlock();
+                }
+            }
+            return null;
+        }
+        hits.increment();
+        if (evictionLock.tryLock()) {
+            try {
+                onAccess(node);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    /**
+     * Caches the value, replacing a cached one. Used after the value was written to the
+     * backing store.
+     * @param key - the key.
+     * @param value - must not be null.
+     */
+    public void put(long key, V value) {
+        put(key, value, true, NO_STAMP);
+    }
+
+    /**
+     * Caches the value unless the key is already cached.
+     * @param key - the key.
+     * @param value - must not be null.
+     */
+    public void putIfAbsent(long key, V value) {
+        put(key, value, false, NO_STAMP);
+    }
+
+    /**
+     * Caches a value loaded from the backing store unless the key is already cached or was
+     * written or invalidated after the stamp was taken, so that neither a concurrent update nor
+     * a concurrent delete is overwritten with the stale loaded value.
+     * @param key - the key.
+     * @param value - must not be null.
+     * @param stamp - {@link #stamp()} read before the value was loaded.
+     */
+    public void putIfAbsent(long key, V value, long stamp) {
+        put(key, value, false, stamp);
+    }
+
+    /**
+     * Returns the current change sequence, to be read before loading values from the backing store.
+     * @return the stamp for {@link #putIfAbsent(long, Object, long)}.
+     */
+    public long stamp() {
+        return sequence;
+    }
+
+    /**
+     * Removes the key from the cache. Used after the value was deleted from the backing store.
+     * @param key - the key.
+     */
+    public void invalidate(long key) {
+        evictionLock.lock();
+        try {
+            changed(key);
+            Node<V> node = data.remove(key);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("storage.cache.size", this, TinyLfuCache::size)
+                .tag("cache", name)
+                .description("Entries in the bounded in-memory tier")
+                .register(registry);
+        FunctionCounter.builder("storage.cache.hits", this, TinyLfuCache::hitCount)
+                .tag("cache", name)
+                .description("Lookups served from the in-memory tier")
+                .register(registry);
+        FunctionCounter.builder("storage.cache.misses", this, TinyLfuCache::missCount)
+                .tag("cache", name)
+                .description("Lookups that fell through to the database")
+                .register(registry);
+        FunctionCounter.builder("storage.cache.evictions", this, TinyLfuCache::evictionCount)
+                .tag("cache", name)
+                .description("Entries evicted from the in-memory tier")
+                .register(registry);
+    }
+
+    private void put(long key, V value, boolean replace, long stamp) {
+        evictionLock.lock();
+        try {
+            if (replace) {
+                changed(key);
+            } else if (changedAt[stripe(key)] > stamp) {
+                return;
+            }
+            Node<V> node = data.get(key);
+            if (node != null) {
+                if (replace) {
+                    node.value = value;
+                }
+                onAccess(node);
+                return;
+            }
+            node = new Node<>(key, value);
+            data.put(key, node);
+            sketch.increment(key);
+            node.queue = WINDOW;
+            window.addLast(node);
+            evict();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Called with the lock held.
+     */
+    private void changed(long key) {
+        long next = sequence + 1;
+        changedAt[stripe(key)] = next;
+        sequence = next;
+    }
+
+    private static int stripe(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - Integer.numberOfTrailingZeros(STAMP_STRIPES)));
+    }
+
+    /**
+     * Called with the lock held.
+     */
+    private void onAccess(Node<V> node) {
+        sketch.increment(node.key);
+        switch (node.queue) {
+            case WINDOW -> window.moveToLast(node);
+            case PROBATION -> {
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedDeque.addLast(node);
+                if (protectedDeque.size > maximumProtected) {
+                    Node<V> demoted = protectedDeque.removeFirst();
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+            }
+            case PROTECTED -> protectedDeque.moveToLast(node);
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Called with the lock held. Moves window overflow to the tail of probation, then lets the
+     * newest probation entry compete with the oldest one until the cache fits.
+     */
+    private void evict() {
+        while (window.size > maximumWindow) {
+            Node<V> node = window.removeFirst();
+            node.queue = PROBATION;
+            probation.addLast(node);
+        }
+        while (data.size() > maximumSize) {
+            Node<V> victim = probation.first();
+            Node<V> candidate = probation.last();
+            if (victim == null) {
+                evictNode(protectedDeque.first() != null ? protectedDeque.first() : window.first());
+            } else if (victim == candidate || sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evictNode(victim);
+            } else {
+                evictNode(candidate);
+            }
+        }
+    }
+
+    private void evictNode(Node<V> node) {
+        data.remove(node.key, node);
+        unlink(node);
+        evictions.increment();
+    }
+
+    private void unlink(Node<V> node) {
+        switch (node.queue) {
+            case WINDOW -> window.remove(node);
+            case PROBATION -> probation.remove(node);
+            case PROTECTED -> protectedDeque.remove(node);
+            default -> {
+            }
+        }
+        node.queue = REMOVED;
+    }
+
+    private static final class Node<V> {
+        private final long key;
+        private volatile V value;
+        private int queue;
+        private Node<V> prev;
+        private Node<V> next;
+
+        private Node(long key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Access-ordered doubly linked list with a sentinel; the first node is the least recent.
+     */
+    private static final class Deque<V> {
+        private final Node<V> sentinel = new Node<>(0, null);
+        private int size;
+
+        private Deque() {
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+        }
+
+        private Node<V> first() {
+            return sentinel.next == sentinel ? null : sentinel.next;
+        }
+
+        private Node<V> last() {
+            return sentinel.prev == sentinel ? null : sentinel.prev;
+        }
+
+        private void addLast(Node<V> node) {
+            node.prev = sentinel.prev;
+            node.next = sentinel;
+            sentinel.prev.next = node;
+            sentinel.prev = node;
+            size++;
+        }
+
+        private Node<V> removeFirst() {
+            Node<V> node = sentinel.next;
+            remove(node);
+            return node;
+        }
+
+        private void remove(Node<V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        private void moveToLast(Node<V> node) {
+            remove(node);
+            addLast(node);
+        }
+    }
+}
@@ -1,39 +1,258 @@
 package com.edu.ulab.app.storage;
 
 import com.edu.ulab.app.entity.Person;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 
 @Component
-public class UserStorage implements StorageRepository<Person, Long> {
+public class UserStorage implements StorageRepository<Person, Long>, MeterBinder, FootprintSource {
 
-    private final Map<Long, Person> storage = new ConcurrentHashMap<>();
+    private static final int STRIPES = 64;
+
+    private final ConcurrentLongMap<Person> storage = new ConcurrentLongMap<>();
+    private final ConcurrentSortedLongSet ids = new ConcurrentSortedLongSet();
+    private final LockStripes locks = new LockStripes(STRIPES);
+    private final SecondaryIndex<Person, String> titleIndex = SecondaryIndex.equality("title", Person::getTitle);
+    private final SecondaryIndex<Person, Integer> ageIndex = SecondaryIndex.range("age", Person::getAge);
+    private final SecondaryIndexes<Person> indexes = new SecondaryIndexes<>("user", storage, locks,
+            List.of(titleIndex, ageIndex));
+    private final EntrySampler sampler = new EntrySampler(object -> false);
+    private final StorageJournal journal;
+
+    public UserStorage(StorageJournal journal) {
+        this.journal = journal;
+    }
 
     @Override
     public Person save(Person person) {
-        storage.put(person.getId(), person);
+        Long id = Objects.requireNonNull(person.getId(), "Person id must not be null");
+        long position;
+        Lock lock = locks.forId(id);
+        lock.lock();
+        try {
+            position = saveJournaled(id, person);
+        } finally {
+            lock.unlock();
+        }
+        journal.sync(position);
         return person;
     }
 
+    @Override
+    public List<Person> saveAll(Collection<Person> people) {
+        List<Long> ids = people.stream()
+                .map(person -> Objects.requireNonNull(person.getId(), "Person id must not be null"))
+                .toList();
+        long position = 0;
+        List<Lock> batch = locks.forIds(ids);
+        LockStripes.lockAll(batch);
+        try {
+            for (Person person : people) {
+                position = saveJournaled(person.getId(), person);
+            }
+        } finally {
+            LockStripes.unlockAll(batch);
+        }
+        journal.sync(position);
+        return new ArrayList<>(people);
+    }
+
     @Override
     public Optional<Person> findById(Long id) {
         return Optional.ofNullable(storage.get(id));
     }
 
+    @Override
+    public List<Person> findAllById(Collection<Long> ids) {
+        List<Person> people = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Person person = storage.get(id);
+            if (person != null) {
+                people.add(person);
+            }
+        }
+        return people;
+    }
+
     @Override
     public List<Person> findAll() {
-        return storage.values().stream().toList();
+        try (StorageSnapshot<Person, Long> snapshot = snapshot()) {
+            return snapshot.stream().toList();
+        }
+    }
+
+    @Override
+    public List<Person> findPage(Long afterId, int limit) {
+        return KeysetPages.after(ids, afterId, limit, storage::get);
+    }
+
+    /**
+     * Returns all users with the given title using the title index.
+     * @param title - must not be null.
+     * @return users in ascending id order; empty list if none found.
+     */
+    public List<Person> findAllByTitle(String title) {
+        return titleIndex.find(title, storage::get);
+    }
+
+    /**
+     * Returns all users of age in the given range using the age index.
+     * @param from - lower bound, inclusive.
+     * @param to - upper bound, inclusive.
+     * @return users ordered by age and then by id; empty list if none found.
+     */
+    public List<Person> findAllByAgeBetween(int from, int to) {
+        return ageIndex.findRange(from, to, storage::get);
+    }
+
+    @Override
+    public List<IndexStats> indexStats() {
+        return indexes.stats();
+    }
+
+    @Override
+    public StoreFootprint footprint() {
+        int size = storage.size();
+        Map<String, Long> components = new LinkedHashMap<>();
+        components.put("entities", sampler.estimate(size, EntrySampler.randomOf(ids, storage::get)));
+        components.put("primaryMap", storage.sizeInBytes());
+        components.put("ids", ids.sizeInBytes());
+        indexes.addTo(components);
+        return new StoreFootprint("user", size, components);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        indexes.bindTo(registry, Tags.empty());
+    }
+
+    @Override
+    public StorageSnapshot<Person, Long> snapshot() {
+        return new LongMapSnapshot<>(storage.snapshot()) {
+            @Override
+            public void close() {
+                super.close();
+                indexes.viewClosed();
+            }
+        };
     }
 
     @Override
     public void deleteById(Long id) {
-        storage.remove(id);
+        long position;
+        Lock lock = locks.forId(id);
+        lock.lock();
+        try {
+            position = deleteJournaled(id);
+        } finally {
+            lock.unlock();
+        }
+        journal.sync(position);
     }
-}
 
+    @Override
+    public void deleteAllById(Collection<Long> ids) {
+        long position = 0;
+        List<Lock> batch = locks.forIds(ids);
+        LockStripes.lockAll(batch);
+        try {
+            for (Long id : ids) {
+                position = deleteJournaled(id);
+            }
+        } finally {
+            LockStripes.unlockAll(batch);
+        }
+        journal.sync(position);
+    }
 
+    /**
+     * Applies a journaled mutation without journaling it again.
+     * @param mutation - user mutation; must not be null.
+     */
+    public void apply(StorageMutation mutation) {
+        Lock lock = locks.forId(mutation.getId());
+        lock.lock();
+        try {
+            switch (mutation.getType()) {
+                case SAVE_USER -> put(mutation.getId(), mutation.getPerson());
+                case DELETE_USER -> remove(mutation.getId());
+                default -> throw new IllegalArgumentException("Not a user mutation: " + mutation.getType());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
 
+    /**
+     * Stores the person and journals the save with the lock of the id held. If the journal refuses
+     * the save, the previous person is put back, so the change never stays visible unjournaled.
+     * @return journal position of the save.
+     */
+    private long saveJournaled(long id, Person person) {
+        Person previous = storage.get(id);
+        boolean created = put(id, person);
+        try {
+            return journal.append(StorageMutation.saveUser(person, created));
+        } catch (RuntimeException e) {
+            restore(id, previous);
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the person and journals the delete with the lock of the id held, putting the
+     * person back if the journal refuses the delete.
+     * @return journal position of the delete.
+     */
+    private long deleteJournaled(long id) {
+        Person previous = storage.get(id);
+        remove(id);
+        try {
+            return journal.append(StorageMutation.deleteUser(id));
+        } catch (RuntimeException e) {
+            restore(id, previous);
+            throw e;
+        }
+    }
+
+    private void restore(long id, Person previous) {
+        if (previous == null) {
+            remove(id);
+        } else {
+            put(id, previous);
+        }
+    }
+
+    /**
+     * @return whether the person is new.
+     */
+    private boolean put(long id, Person person) {
+        indexes.beforePut(person, id);
+        // the stripe lock is held, so only a new id takes the lock of the id set
+        if (storage.get(id) == null) {
+            ids.add(id);
+        }
+        Person previous = storage.put(id, person);
+        indexes.afterPut(previous, person, id);
+        return previous == null;
+    }
+
+    private void remove(long id) {
+        Person removed = storage.remove(id);
+        if (removed != null) {
+            ids.remove(id);
+            indexes.afterRemove(removed, id);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.edu.ulab.app.storage;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only write-ahead log of storage mutations with group commit.
+ * <p>
+ * Each record is framed as {@code [int length][int crc32c][long lsn][mutation]}.
+ * {@link #append(StorageMutation)} only encodes the record into an in-memory batch. The first
+ * writer to call {@link #sync(long)} while no flush is running becomes the leader: it takes the
+ * whole batch, writes it and forces it to disk once, then wakes every writer whose record was
+ * in that batch. Writers arriving during the fsync collect into the next batch, so under load
+ * many writers share a single fsync.
+ * <p>
+ * The log is a directory of segment files named after the first lsn they may hold.
+ * {@link #rotate()} starts a new segment so that segments already covered by a snapshot can be
+ * dropped with {@link #deleteSegmentsUpTo(long)}. On open, a torn or corrupt tail of the last
+ * segment left by a crash is truncated.
+ */
+@Slf4j
+public class WriteAheadLog implements StorageJournal, MeterBinder, Closeable {
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private final Path directory;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private final AtomicLong appends = new AtomicLong();
+    private final AtomicLong fsyncs = new AtomicLong();
+
+    private ByteArrayOutputStream batch = new ByteArrayOutputStream();
+    private ByteArrayOutputStream spare = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    private final DataOutputStream record = new DataOutputStream(payload);
+    private FileChannel channel;
+    private long lastLsn;
+    private long durableLsn;
+    private boolean flushing;
+    private IOException failure;
+
+    private WriteAheadLog(Path directory, FileChannel channel, long lastLsn) {
+        this.directory = directory;
+        this.channel = channel;
+        this.lastLsn = lastLsn;
+        this.durableLsn = lastLsn;
+    }
+
+    /**
+     * Opens the log in the given directory, creating it if needed and truncating a torn tail.
+     * @param directory - directory of the segment files.
+     * @return the opened log positioned after the last valid record.
+     */
+    public static WriteAheadLog open(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = segments(directory);
+            long[] lastLsn = new long[1];
+            for (int i = 0; i + 1 < segments.size(); i++) {
+                lastLsn[0] = firstLsn(segments.get(i + 1)) - 1;
+            }
+            Path current = segments.isEmpty() ? segmentPath(directory, 1) : segments.get(segments.size() - 1);
+            if (!segments.isEmpty()) {
+                lastLsn[0] = firstLsn(current) - 1;
+            }
+            FileChannel channel = FileChannel.open(current,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long validBytes = scan(channel, (lsn, mutation) -> lastLsn[0] = lsn);
+            if (validBytes < channel.size()) {
+                log.warn("Truncating {} bytes of torn tail in {}", channel.size() - validBytes, current);
+                channel.truncate(validBytes);
+                channel.force(true);
+            }
+            channel.position(validBytes);
+            return new WriteAheadLog(directory, channel, lastLsn[0]);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open write-ahead log in " + directory, e);
+        }
+    }
+
+    /**
+     * Replays every durable record in log order.
+     * @param consumer - receives each mutation.
+     */
+    public void replay(Consumer<StorageMutation> consumer) {
+        replayAfter(0, consumer);
+    }
+
+    /**
+     * Replays, in log order, the durable records with a sequence number above the given one.
+     * @param afterLsn - records up to and including this lsn are skipped.
+     * @param consumer - receives each mutation.
+     */
+    public void replayAfter(long afterLsn, Consumer<StorageMutation> consumer) {
+        lock.lock();
+        try {
+            List<Path> segments = segments(directory);
+            for (int i = 0; i < segments.size(); i++) {
+                if (i + 1 < segments.size() && firstLsn(segments.get(i + 1)) - 1 <= afterLsn) {
+                    continue;
+                }
+                try (FileChannel segment = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                    scan(segment, (lsn, mutation) -> {
+                        if (lsn > afterLsn) {
+                            consumer.accept(mutation);
+                        }
+                    });
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay write-ahead log in " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long append(StorageMutation mutation) {
+        lock.lock();
+        try {
+            checkNotFailed();
+            long lsn = ++lastLsn;
+            payload.reset();
+            record.writeLong(lsn);
+            MutationCodec.write(record, mutation);
+            writeRecord();
+            appends.incrementAndGet();
+            return lsn;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void sync(long lsn) {
+        lock.lock();
+        try {
+            awaitDurable(lsn);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces everything appended so far to disk and starts a new segment.
+     * @return the last lsn written to the closed segments.
+     */
+    public long rotate() {
+        lock.lock();
+        try {
+            awaitDurable(lastLsn);
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            checkNotFailed();
+            if (channel.size() > 0) {
+                FileChannel next = FileChannel.open(segmentPath(directory, lastLsn + 1),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.close();
+                channel = next;
+            }
+            return lastLsn;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot rotate write-ahead log in " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes closed segments whose records all have a sequence number up to the given one.
+     * @param lsn - last lsn covered by a durable snapshot.
+     */
+    public void deleteSegmentsUpTo(long lsn) {
+        lock.lock();
+        try {
+            List<Path> segments = segments(directory);
+            for (int i = 0; i + 1 < segments.size(); i++) {
+                if (firstLsn(segments.get(i + 1)) - 1 <= lsn) {
+                    Files.delete(segments.get(i));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete write-ahead log segments in " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the sequence number of the last appended record.
+     * @return last lsn.
+     */
+    public long lastLsn() {
+        lock.lock();
+        try {
+            return lastLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long appendCount() {
+        return appends.get();
+    }
+
+    public long fsyncCount() {
+        return fsyncs.get();
+    }
+
+    public long sizeInBytes() {
+        try {
+            long size = 0;
+            for (Path segment : segments(directory)) {
+                size += Files.size(segment);
+            }
+            return size;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("storage.wal.appends", this, WriteAheadLog::appendCount)
+                .description("Records appended to the write-ahead log")
+                .register(registry);
+        FunctionCounter.builder("storage.wal.fsyncs", this, WriteAheadLog::fsyncCount)
+                .description("Group commits forced to disk")
+                .register(registry);
+        Gauge.builder("storage.wal.size", this, WriteAheadLog::sizeInBytes)
+                .baseUnit("bytes")
+                .description("Size of the write-ahead log segments")
+                .register(registry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync(lastLsn());
+        lock.lock();
+        try {
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called with the lock held.
+     */
+    private void awaitDurable(long lsn) {
+        while (durableLsn < lsn) {
+            checkNotFailed();
+            if (flushing) {
+                flushed.awaitUninterruptibly();
+            } else {
+                flushBatch();
+            }
+        }
+    }
+
+    /**
+     * Called with the lock held. Releases it for the duration of the write and fsync.
+     */
+    private void flushBatch() {
+        flushing = true;
+        ByteArrayOutputStream pending = batch;
+        long batchLsn = lastLsn;
+        FileChannel target = channel;
+        batch = spare;
+        lock.unlock();
+        IOException error = null;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            target.force(false);
+            fsyncs.incrementAndGet();
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            lock.lock();
+        }
+        pending.reset();
+        spare = pending;
+        if (error != null) {
+            log.error("Write-ahead log in {} failed, rejecting further writes", directory, error);
+            failure = error;
+        } else {
+            durableLsn = batchLsn;
+        }
+        flushing = false;
+        flushed.signalAll();
+    }
+
+    private void writeRecord() throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] bytes = payload.toByteArray();
+        crc.update(bytes);
+        DataOutputStream out = new DataOutputStream(batch);
+        out.writeInt(bytes.length);
+        out.writeInt((int) crc.getValue());
+        out.write(bytes);
+    }
+
+    private void checkNotFailed() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log in " + directory + " has failed", failure);
+        }
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static Path segmentPath(Path directory, long firstLsn) {
+        return directory.resolve(String.format("%020d%s", firstLsn, SEGMENT_SUFFIX));
+    }
+
+    private static long firstLsn(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Reads records from the start of the channel and returns the length of the valid prefix.
+     */
+    private static long scan(FileChannel channel, LoggedMutations consumer) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.read(header, position + header.position());
+            }
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            while (payload.hasRemaining()) {
+                channel.read(payload, position + HEADER_BYTES + payload.position());
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array()));
+            long lsn = in.readLong();
+            consumer.accept(lsn, MutationCodec.read(in));
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    /**
+     * Callback receiving a logged mutation with its log sequence number.
+     */
+    @FunctionalInterface
+    interface LoggedMutations {
+        void accept(long lsn, StorageMutation mutation);
+    }
+}
@@ -0,0 +1,403 @@
+package com.edu.ulab.app.storage;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Journal that makes the in-memory storages a write cache in front of the database: writes are
+ * acknowledged once they are in memory, and a background flusher writes them to the
+ * {@link WriteBehindTarget} in batches.
+ * <p>
+ * {@link #append(StorageMutation)} passes the mutation to the wrapped journal and makes it
+ * pending, replacing the pending mutation of the same entity in its place, so a burst of writes to
+ * one id costs one row write. The flusher waits up to the linger time for a full batch, takes the
+ * oldest pending mutations and writes them, retrying a failed batch with backoff; mutations of the
+ * same ids made meanwhile follow in a later batch, so the database sees them in order.
+ * <p>
+ * A batch the target keeps rejecting for its content, see {@link RejectedWriteException}, is split
+ * in halves after the given number of attempts, down to single mutations; a mutation rejected that
+ * many times is dead-lettered: logged, counted in {@code storage.writebehind.dead.letters} and
+ * skipped, together with every later mutation of its entity, so one bad row does not hold up the
+ * others. Any other failure, such as the database being down, is retried until it succeeds.
+ * <p>
+ * The number of pending entities is bounded by backpressure in {@link #sync(long)}: storages call
+ * it after releasing their locks, and it blocks the writer while more than the capacity is pending
+ * or being written, so the service slows down to the pace of the database instead of filling the
+ * heap. {@link #destroy()} releases the waiting writers and drains everything still pending.
+ */
+@Slf4j
+public class WriteBehindJournal implements StorageJournal, MeterBinder, DisposableBean {
+
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+    private static final int SHUTDOWN_ATTEMPTS = 3;
+
+    private final StorageJournal journal;
+    private final WriteBehindTarget target;
+    private final int capacity;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final int maxAttempts;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingAdded = lock.newCondition();
+    private final Condition pendingFlushed = lock.newCondition();
+    private final Map<Long, StorageMutation> pendingUsers = new LinkedHashMap<>();
+    private final Map<Long, StorageMutation> pendingBooks = new LinkedHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder deadLetters = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final Set<Long> quarantinedUsers = new HashSet<>();
+    private final Set<Long> quarantinedBooks = new HashSet<>();
+    private final Thread flusher;
+    private Timer batchTimer;
+    private int writing;
+    private int flushWaiters;
+    private volatile boolean stopped;
+
+    /**
+     * Starts the flusher.
+     * @param journal - journal to pass the mutations to first, such as the write-ahead log.
+     * @param target - where the mutations are flushed.
+     * @param capacity - pending entities above which writers are held back.
+     * @param batchSize - maximum number of mutations written at once.
+     * @param linger - how long the flusher waits for a full batch.
+     * @param maxAttempts - rejections of a batch before it is split, or its only mutation dead-lettered.
+     */
+    public WriteBehindJournal(StorageJournal journal, WriteBehindTarget target,
+                              int capacity, int batchSize, Duration linger, int maxAttempts) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Capacity and batch size must be positive: " + capacity + ", " + batchSize);
+        }
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts must be positive: " + maxAttempts);
+        }
+        this.journal = journal;
+        this.target = target;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.lingerNanos = linger.toNanos();
+        this.maxAttempts = maxAttempts;
+        this.flusher = new Thread(this::run, "storage-write-behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public long append(StorageMutation mutation) {
+        long position = journal.append(mutation);
+        enqueue(mutation);
+        return position;
+    }
+
+    /**
+     * Waits for the wrapped journal, then holds the writer back while the flusher is behind.
+     */
+    @Override
+    public void sync(long position) {
+        journal.sync(position);
+        lock.lock();
+        try {
+            if (backlog() > capacity && !stopped) {
+                throttled.increment();
+                while (backlog() > capacity && !stopped) {
+                    pendingFlushed.awaitUninterruptibly();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes the mutation pending without journaling it, such as one replayed on recovery.
+     * Saves carry the full state, so flushing a mutation the database already has is harmless,
+     * unless it is marked as a creation, which the target inserts.
+     * @param mutation - must not be null.
+     */
+    public void enqueue(StorageMutation mutation) {
+        Map<Long, StorageMutation> pending = mutation.isUser() ? pendingUsers : pendingBooks;
+        lock.lock();
+        try {
+            StorageMutation previous = pending.get(mutation.getId());
+            if (previous != null) {
+                pending.put(mutation.getId(), coalesce(previous, mutation));
+                coalesced.increment();
+            } else {
+                pending.put(mutation.getId(), mutation);
+            }
+            int size = pendingUsers.size() + pendingBooks.size();
+            if (size == 1 || size >= batchSize) {
+                pendingAdded.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of entities waiting to be written or being written.
+     * @return pending entities.
+     */
+    public int backlog() {
+        lock.lock();
+        try {
+            return pendingUsers.size() + pendingBooks.size() + writing;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long flushedCount() {
+        return flushed.sum();
+    }
+
+    public long deadLetterCount() {
+        return deadLetters.sum();
+    }
+
+    /**
+     * Blocks until every mutation made pending so far is written, without lingering for full batches.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            flushWaiters++;
+            pendingAdded.signal();
+            while (backlog() > 0) {
+                pendingFlushed.awaitUninterruptibly();
+            }
+        } finally {
+            flushWaiters--;
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("storage.writebehind.backlog", this, WriteBehindJournal::backlog)
+                .description("Entities waiting to be written to the database")
+                .register(registry);
+        FunctionCounter.builder("storage.writebehind.coalesced", coalesced, LongAdder::sum)
+                .description("Writes replaced by a later write of the same entity before the flush")
+                .register(registry);
+        FunctionCounter.builder("storage.writebehind.flushed", flushed, LongAdder::sum)
+                .description("Mutations written to the database")
+                .register(registry);
+        FunctionCounter.builder("storage.writebehind.failures", failures, LongAdder::sum)
+                .description("Batches that failed and were retried")
+                .register(registry);
+        FunctionCounter.builder("storage.writebehind.dropped", dropped, LongAdder::sum)
+                .description("Mutations given up on shutdown after repeated failures")
+                .register(registry);
+        FunctionCounter.builder("storage.writebehind.dead.letters", deadLetters, LongAdder::sum)
+                .description("Mutations the database kept rejecting, skipped with the later mutations of their entities")
+                .register(registry);
+        FunctionCounter.builder("storage.writebehind.throttled", throttled, LongAdder::sum)
+                .description("Writers held back because the backlog was full")
+                .register(registry);
+        batchTimer = Timer.builder("storage.writebehind.batch")
+                .description("Time to write a batch to the database")
+                .register(registry);
+    }
+
+    /**
+     * Stops the flusher after it has written every pending mutation.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        lock.lock();
+        try {
+            stopped = true;
+            pendingAdded.signal();
+            pendingFlushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.join();
+        log.info("Write-behind flusher stopped: {} mutations flushed, {} coalesced, {} dropped, {} dead-lettered",
+                flushed.sum(), coalesced.sum(), dropped.sum(), deadLetters.sum());
+    }
+
+    private void run() {
+        List<StorageMutation> batch;
+        while ((batch = take()) != null) {
+            write(batch);
+            lock.lock();
+            try {
+                writing = 0;
+                pendingFlushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Waits for pending mutations and takes the oldest ones, lingering for a full batch.
+     * @return the batch, or null once stopped with nothing pending.
+     */
+    private List<StorageMutation> take() {
+        lock.lock();
+        try {
+            long lingerUntil = 0;
+            while (true) {
+                int pending = pendingUsers.size() + pendingBooks.size();
+                if (pending == 0) {
+                    if (stopped) {
+                        return null;
+                    }
+                    lingerUntil = 0;
+                    pendingAdded.awaitUninterruptibly();
+                    continue;
+                }
+                if (pending >= batchSize || stopped || flushWaiters > 0) {
+                    break;
+                }
+                long now = System.nanoTime();
+                if (lingerUntil == 0) {
+                    lingerUntil = now + lingerNanos;
+                }
+                if (now - lingerUntil >= 0) {
+                    break;
+                }
+                try {
+                    pendingAdded.awaitNanos(lingerUntil - now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            List<StorageMutation> batch = new ArrayList<>(Math.min(batchSize, pendingUsers.size() + pendingBooks.size()));
+            drain(pendingUsers, batch);
+            drain(pendingBooks, batch);
+            writing = batch.size();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces a pending mutation with a later one of the same entity. An entity created since the
+     * last flush is still new to the database when saved again, while one created after a pending
+     * delete of its id, such as a book moved between partitions, may still have its row there.
+     */
+    private static StorageMutation coalesce(StorageMutation previous, StorageMutation mutation) {
+        if (previous.isCreated() && !mutation.isDelete()) {
+            return mutation.withCreated(true);
+        }
+        if (mutation.isCreated() && previous.isDelete()) {
+            return mutation.withCreated(false);
+        }
+        return mutation;
+    }
+
+    private void drain(Map<Long, StorageMutation> pending, List<StorageMutation> batch) {
+        Iterator<StorageMutation> iterator = pending.values().iterator();
+        while (batch.size() < batchSize && iterator.hasNext()) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Writes the batch, leaving out the mutations of quarantined entities. Runs on the flusher only.
+     */
+    private void write(List<StorageMutation> batch) {
+        List<StorageMutation> writable = new ArrayList<>(batch.size());
+        for (StorageMutation mutation : batch) {
+            if ((mutation.isUser() ? quarantinedUsers : quarantinedBooks).contains(mutation.getId())) {
+                deadLetter(mutation, null);
+            } else {
+                writable.add(mutation);
+            }
+        }
+        if (!writable.isEmpty()) {
+            writeOrSplit(writable);
+        }
+    }
+
+    private void writeOrSplit(List<StorageMutation> batch) {
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                target.write(batch);
+                if (batchTimer != null) {
+                    batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+                flushed.add(batch.size());
+                return;
+            } catch (RejectedWriteException e) {
+                failures.increment();
+                if (attempt >= maxAttempts) {
+                    if (batch.size() == 1) {
+                        deadLetter(batch.get(0), e);
+                        return;
+                    }
+                    int half = batch.size() / 2;
+                    log.warn("Write-behind batch of {} rejected {} times, splitting it", batch.size(), attempt, e);
+                    writeOrSplit(batch.subList(0, half));
+                    writeOrSplit(batch.subList(half, batch.size()));
+                    return;
+                }
+                backoff(batch, attempt, e);
+            } catch (RuntimeException e) {
+                failures.increment();
+                if (stopped && attempt >= SHUTDOWN_ATTEMPTS) {
+                    dropped.add(batch.size());
+                    log.error("Dropping {} write-behind mutations after {} attempts on shutdown",
+                            batch.size(), attempt, e);
+                    return;
+                }
+                backoff(batch, attempt, e);
+            }
+        }
+    }
+
+    private void backoff(List<StorageMutation> batch, int attempt, RuntimeException e) {
+        long backoff = Math.min(MAX_BACKOFF_MILLIS, 100L << Math.min(attempt - 1, 10));
+        log.warn("Write-behind batch of {} failed, attempt {}, retrying in {} ms",
+                batch.size(), attempt, backoff, e);
+        try {
+            Thread.sleep(backoff);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Skips the mutation and quarantines its entity, so its later mutations, which the database
+     * could apply to a row that is not the entity's, are skipped too.
+     * @param cause - the rejection, or null for a later mutation of a quarantined entity.
+     */
+    private void deadLetter(StorageMutation mutation, RuntimeException cause) {
+        (mutation.isUser() ? quarantinedUsers : quarantinedBooks).add(mutation.getId());
+        deadLetters.increment();
+        log.error("Dead-lettered write-behind mutation {} of {} {}", mutation.getType(),
+                mutation.isUser() ? "user" : "book", mutation.getId(), cause);
+    }
+}
@@ -0,0 +1,28 @@
+package com.edu.ulab.app.storage;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Durable store the {@link WriteBehindJournal} flushes the storage mutations to.
+ */
+public interface WriteBehindTarget {
+
+    /**
+     * Writes a batch of mutations atomically. The batch holds at most one mutation per user id
+     * and one per book id, each the latest state of the entity when the batch was taken.
+     * @param batch - mutations in the order they were first made pending.
+     * @throws RejectedWriteException if the content of the batch was refused; the batch is then
+     * retried a few times and split to find the refused mutations.
+     * @throws RuntimeException if the batch could not be written otherwise; it is then retried.
+     */
+    void write(List<StorageMutation> batch);
+
+    /**
+     * Passes every stored entity to the sink as a save, so that the storages start from the state
+     * of the target. Targets that keep no entities pass nothing.
+     * @param sink - receives the users first, then the books.
+     */
+    default void load(Consumer<StorageMutation> sink) {
+    }
+}
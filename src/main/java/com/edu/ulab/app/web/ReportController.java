@@ -0,0 +1,40 @@
+package com.edu.ulab.app.web;
+
+import com.edu.ulab.app.facade.BookReportFacade;
+import com.edu.ulab.app.web.constant.WebConstant;
+import com.edu.ulab.app.web.response.BookReportResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.edu.ulab.app.web.constant.WebConstant.DEFAULT_TOP_SIZE;
+
+@Slf4j
+@RestController
+@RequestMapping(value = WebConstant.VERSION_URL + "/report",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+public class ReportController {
+    private final BookReportFacade bookReportFacade;
+
+    public ReportController(BookReportFacade bookReportFacade) {
+        this.bookReportFacade = bookReportFacade;
+    }
+
+    @GetMapping(value = "/books")
+    @Operation(summary = "Get catalogue report: total pages, top users by pages and top authors by books.",
+            responses = {@ApiResponse(description = "Book report",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = BookReportResponse.class)))})
+    public BookReportResponse getBookReport(@RequestParam(defaultValue = DEFAULT_TOP_SIZE) int top) {
+        BookReportResponse response = bookReportFacade.getBookReport(top);
+        log.info("Response with book report over {} books", response.getBookCount());
+        return response;
+    }
+}
@@ -1,10 +1,14 @@
 package com.edu.ulab.app.web;
 
+import com.edu.ulab.app.facade.CatalogueExportFacade;
 import com.edu.ulab.app.facade.UserDataFacade;
 import com.edu.ulab.app.web.constant.WebConstant;
 import com.edu.ulab.app.web.request.UpdateUserBookRequest;
 import com.edu.ulab.app.web.request.UserBookRequest;
+import com.edu.ulab.app.web.request.UserIdsRequest;
+import com.edu.ulab.app.web.response.UserBookListResponse;
 import com.edu.ulab.app.web.response.UserBookResponse;
+import com.edu.ulab.app.web.response.UserPageResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -13,8 +17,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.Pattern;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
+import static com.edu.ulab.app.web.constant.WebConstant.DEFAULT_PAGE_SIZE;
 import static com.edu.ulab.app.web.constant.WebConstant.REQUEST_ID_PATTERN;
 import static com.edu.ulab.app.web.constant.WebConstant.RQID;
 
@@ -24,9 +32,11 @@ import static com.edu.ulab.app.web.constant.WebConstant.RQID;
         produces = MediaType.APPLICATION_JSON_VALUE)
 public class UserController {
     private final UserDataFacade userDataFacade;
+    private final CatalogueExportFacade catalogueExportFacade;
 
-    public UserController(UserDataFacade userDataFacade) {
+    public UserController(UserDataFacade userDataFacade, CatalogueExportFacade catalogueExportFacade) {
         this.userDataFacade = userDataFacade;
+        this.catalogueExportFacade = catalogueExportFacade;
     }
 
     @PostMapping(value = "/create")
@@ -65,6 +75,41 @@ public class UserController {
         return response;
     }
 
+    @PostMapping(value = "/get-many")
+    @Operation(summary = "Get users with books for up to 1000 user ids.",
+            responses = {@ApiResponse(description = "Users with books",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = UserBookListResponse.class)))})
+    public UserBookListResponse getUsersWithBooks(@RequestBody UserIdsRequest request) {
+        UserBookListResponse response = userDataFacade.getUsersWithBooks(request);
+        log.info("Response with {} users and {} not found ids", response.getUsers().size(),
+                response.getNotFoundIds().size());
+        return response;
+    }
+
+    @GetMapping(value = "/list")
+    @Operation(summary = "Get page of users ordered by id, starting after the given user id.",
+            responses = {@ApiResponse(description = "Users page",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = UserPageResponse.class)))})
+    public UserPageResponse getUsers(@RequestParam(defaultValue = "0") Long afterId,
+                                     @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+        UserPageResponse response = userDataFacade.getUsers(afterId, limit);
+        log.info("Response with users page after id {}: {} users", afterId, response.getUsers().size());
+        return response;
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all users with their books, one JSON object per line.",
+            responses = {@ApiResponse(description = "Users with books as NDJSON",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE))})
+    public void exportUsers(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        long users = catalogueExportFacade.exportUsers(response.getOutputStream());
+        log.info("Response with export of {} users", users);
+    }
+
     @DeleteMapping(value = "/delete/{userId}")
     @Operation(summary = "Delete user with books.",
             responses = {@ApiResponse(description = "User book",
@@ -5,8 +5,14 @@ import lombok.experimental.UtilityClass;
 @UtilityClass
 public class BookSQLConstant {
     public static final String INSERT_INTO_BOOK_VALUES = "INSERT INTO BOOK(TITLE, AUTHOR, PAGE_COUNT, USER_ID) VALUES (?,?,?,?)";
+    public static final String INSERT_INTO_BOOK = "INSERT INTO BOOK(TITLE, AUTHOR, PAGE_COUNT, USER_ID) VALUES ";
+    public static final String BOOK_VALUES_ROW = "(?,?,?,?)";
+    public static final String RETURNING_ID = " RETURNING ID";
     public static final String UPDATE_BOOK_ID = "UPDATE BOOK SET TITLE=?, AUTHOR=?, PAGE_COUNT=?, USER_ID=? WHERE ID=?";
     public static final String SELECT_FROM_BOOK_ID = "SELECT * FROM BOOK WHERE ID=?";
     public static final String DELETE_FROM_BOOK_ID = "DELETE FROM BOOK WHERE ID=?";
+    public static final String DELETE_FROM_BOOK_USER_ID = "DELETE FROM BOOK WHERE USER_ID=?";
     public static final String SELECT_FROM_BOOK_USER_ID = "SELECT * FROM BOOK WHERE USER_ID=?";
+    public static final String SELECT_BOOK_IDS_USER_IDS = "SELECT USER_ID, ID FROM BOOK WHERE USER_ID IN (:userIds) ORDER BY USER_ID, ID";
+    public static final String SELECT_FROM_BOOK_USER_ID_PAGE = "SELECT * FROM BOOK WHERE USER_ID=? AND ID>? ORDER BY ID LIMIT ?";
 }
@@ -7,5 +7,8 @@ public class UserSQLConstant {
     public static final String INSERT_INTO_PERSON_VALUES = "INSERT INTO PERSON(FULL_NAME, TITLE, AGE) VALUES (?,?,?)";
     public static final String UPDATE_PERSON_ID = "UPDATE PERSON SET FULL_NAME=?, TITLE=?, AGE=? WHERE ID=?";
     public static final String SELECT_FROM_PERSON_ID = "SELECT * FROM PERSON WHERE ID=?";
+    public static final String SELECT_FROM_PERSON_IDS = "SELECT * FROM PERSON WHERE ID IN (:ids)";
+    public static final String SELECT_PERSON_BOOK_IDS = "SELECT P.ID, B.ID FROM PERSON P LEFT JOIN BOOK B ON B.USER_ID=P.ID WHERE P.ID=? ORDER BY B.ID";
     public static final String DELETE_FROM_PERSON_ID = "DELETE FROM PERSON WHERE ID=?";
+    public static final String SELECT_FROM_PERSON_PAGE = "SELECT * FROM PERSON WHERE ID>? ORDER BY ID LIMIT ?";
 }
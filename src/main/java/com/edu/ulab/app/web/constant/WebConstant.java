@@ -7,4 +7,7 @@ public class WebConstant {
     public static final String VERSION_URL = "/api/v1";
     public static final String RQID = "rqid";
     public static final String REQUEST_ID_PATTERN = "^[A-Za-z0-9_-]*$";
+    public static final String DEFAULT_PAGE_SIZE = "20";
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final String DEFAULT_TOP_SIZE = "10";
 }
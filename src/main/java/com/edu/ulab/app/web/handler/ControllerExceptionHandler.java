@@ -2,6 +2,7 @@ package com.edu.ulab.app.web.handler;
 
 import com.edu.ulab.app.exception.BookNotFoundException;
 import com.edu.ulab.app.exception.NotFoundException;
+import com.edu.ulab.app.exception.ReadOnlyReplicaException;
 import com.edu.ulab.app.exception.UserNotFoundException;
 import com.edu.ulab.app.web.response.BaseWebResponse;
 import lombok.NonNull;
@@ -42,6 +43,22 @@ public class ControllerExceptionHandler {
                 .body(new BaseWebResponse(createErrorMessage(exc)));
     }
 
+    @ExceptionHandler({IllegalArgumentException.class})
+    public ResponseEntity<BaseWebResponse> handleIllegalArgumentException(
+            @NotNull final IllegalArgumentException exc) {
+        log.error(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new BaseWebResponse(createErrorMessage(exc)));
+    }
+
+    @ExceptionHandler({ReadOnlyReplicaException.class})
+    public ResponseEntity<BaseWebResponse> handleReadOnlyReplicaException(
+            @NotNull final ReadOnlyReplicaException exc) {
+        log.error(exc.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new BaseWebResponse(createErrorMessage(exc)));
+    }
+
     private String createErrorMessage(Exception exception) {
         final String message = exception.getMessage();
         log.error(ExceptionHandlerUtils.buildErrorMessage(exception));
@@ -0,0 +1,10 @@
+package com.edu.ulab.app.web.request;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class UserIdsRequest {
+    private List<Long> userIds;
+}
@@ -0,0 +1,36 @@
+package com.edu.ulab.app.web.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BookReportResponse {
+    private int bookCount;
+    private long totalPages;
+    private int userCount;
+    private int authorCount;
+    private List<UserPages> topUsersByPages;
+    private List<AuthorBooks> topAuthorsByBooks;
+    /**
+     * Time spent aggregating the columns, including copying the books into them when the kept
+     * copy was stale.
+     */
+    private long scanMillis;
+
+    @Data
+    @Builder
+    public static class UserPages {
+        private long userId;
+        private long pages;
+    }
+
+    @Data
+    @Builder
+    public static class AuthorBooks {
+        private String author;
+        private long books;
+    }
+}
@@ -0,0 +1,19 @@
+package com.edu.ulab.app.web.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class UserBookListResponse {
+    /**
+     * Found users with their book ids, in the order of the requested ids.
+     */
+    private List<UserBookResponse> users;
+    /**
+     * Requested ids without a user.
+     */
+    private List<Long> notFoundIds;
+}
@@ -0,0 +1,16 @@
+package com.edu.ulab.app.web.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class UserPageResponse {
+    private List<UserResponse> users;
+    /**
+     * Cursor of the next page: id of the last user of this page, null on the last page.
+     */
+    private Long nextAfterId;
+}
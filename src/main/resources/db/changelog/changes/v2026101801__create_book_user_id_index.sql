@@ -0,0 +1 @@
+create index idx_ulab_edu_book_user_id_id on ulab_edu.book (user_id, id);
@@ -16,3 +16,5 @@ CREATE TABLE IF NOT EXISTS BOOK
     PAGE_COUNT INTEGER,
     USER_ID BIGINT
 );
+
+CREATE INDEX IF NOT EXISTS BOOK_USER_ID_ID ON BOOK (USER_ID, ID);
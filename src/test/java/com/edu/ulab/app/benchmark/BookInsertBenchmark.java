@@ -0,0 +1,115 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.config.BenchmarkTest;
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
+import com.edu.ulab.app.service.impl.MultiRowBookWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static com.edu.ulab.app.web.constant.BookSQLConstant.INSERT_INTO_BOOK_VALUES;
+
+/**
+ * Сравнение вставки 10k книг на H2: по одной строке через {@code INSERT_INTO_BOOK_VALUES},
+ * JDBC-пакетами и многострочными INSERT разного размера.
+ */
+@Slf4j
+@BenchmarkTest
+@DisplayName("Book insert benchmark.")
+public class BookInsertBenchmark {
+
+    private static final int BOOKS = 10_000;
+    private static final int ROUNDS = 5;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:bookinsert;DB_CLOSE_DELAY=-1", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE BOOK (ID BIGINT AUTO_INCREMENT PRIMARY KEY, TITLE VARCHAR(255), "
+                + "AUTHOR VARCHAR(255), PAGE_COUNT INTEGER, USER_ID BIGINT)");
+        jdbcTemplate.execute("CREATE INDEX BOOK_USER_ID_ID ON BOOK (USER_ID, ID)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.destroy();
+    }
+
+    @Test
+    @DisplayName("Row by row vs JDBC batch vs multi-row INSERT, 10k books")
+    void insert() {
+        BookMapper bookMapper = Mappers.getMapper(BookMapper.class);
+        measure("row by row", this::insertRowByRow);
+        BookServiceImplTemplate batch = new BookServiceImplTemplate(jdbcTemplate, bookMapper,
+                new MultiRowBookWriter(jdbcTemplate, 1), false, true);
+        measure("JDBC batch of " + BookServiceImplTemplate.INSERT_BATCH_SIZE, batch::createBooks);
+        for (int rows : new int[]{10, 100, 500, 1_000, 2_000, MultiRowBookWriter.MAX_PARAMETERS / 4}) {
+            MultiRowBookWriter writer = new MultiRowBookWriter(jdbcTemplate, rows);
+            measure("multi-row INSERT of " + writer.rowsPerStatement(), writer::insert);
+        }
+    }
+
+    private void insertRowByRow(List<BookDto> books) {
+        for (BookDto bookDto : books) {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(INSERT_INTO_BOOK_VALUES, new String[]{"id"});
+                ps.setString(1, bookDto.getTitle());
+                ps.setString(2, bookDto.getAuthor());
+                ps.setLong(3, bookDto.getPageCount());
+                ps.setLong(4, bookDto.getUserId());
+                return ps;
+            }, keyHolder);
+            bookDto.setId(keyHolder.getKeyAs(Long.class));
+        }
+    }
+
+    private void measure(String name, Consumer<List<BookDto>> insert) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round <= ROUNDS; round++) {
+            List<BookDto> books = books();
+            jdbcTemplate.execute("TRUNCATE TABLE BOOK");
+            long start = System.nanoTime();
+            insert.accept(books);
+            long elapsed = System.nanoTime() - start;
+            if (round > 0) {
+                best = Math.min(best, elapsed);
+            }
+            if (books.get(BOOKS - 1).getId() == null) {
+                throw new IllegalStateException(name + " did not read back the generated ids");
+            }
+        }
+        log.info("{}: {} ms, {} rows/s", name, best / 1_000_000, BOOKS * 1_000_000_000L / best);
+    }
+
+    private static List<BookDto> books() {
+        return IntStream.range(0, BOOKS)
+                .mapToObj(i -> {
+                    BookDto bookDto = new BookDto();
+                    bookDto.setUserId(1L + i / 50);
+                    bookDto.setTitle("Title " + i);
+                    bookDto.setAuthor("Author " + i % 500);
+                    bookDto.setPageCount(100 + i % 400);
+                    return bookDto;
+                })
+                .toList();
+    }
+}
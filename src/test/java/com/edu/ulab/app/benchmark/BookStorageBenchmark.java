@@ -0,0 +1,71 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.config.BenchmarkTest;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.storage.BookStorage;
+import com.edu.ulab.app.storage.StorageJournal;
+import com.edu.ulab.app.storage.StringDictionary;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Замер получения книг пользователя в {@link BookStorage}: полный просмотр против индекса userId.
+ */
+@Slf4j
+@BenchmarkTest
+@DisplayName("Book storage lookup by user benchmark.")
+public class BookStorageBenchmark {
+
+    private static final int BOOKS = 1_000_000;
+    private static final int USERS = 100_000;
+    private static final int ITERATIONS = 200;
+
+    @Test
+    @DisplayName("Scan vs index, 1M books")
+    void scanVsIndex() {
+        BookStorage bookStorage = new BookStorage(new StringDictionary(), StorageJournal.NOOP);
+        for (long id = 0; id < BOOKS; id++) {
+            Book book = new Book();
+            book.setId(id);
+            book.setUserId(id % USERS);
+            book.setTitle("Title");
+            book.setAuthor("Author");
+            book.setPageCount(100);
+            bookStorage.save(book);
+        }
+
+        long scanNanos = measure(userId -> bookStorage.findAll()
+                .stream()
+                .filter(book -> book.getUserId().equals(userId))
+                .toList());
+        long indexNanos = measure(bookStorage::findAllByUserId);
+
+        log.info("findAll + filter: {} us/op", scanNanos / 1_000);
+        log.info("findAllByUserId: {} us/op", indexNanos / 1_000);
+    }
+
+    private long measure(Lookup lookup) {
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            lookup.find(randomUser());
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertEquals(BOOKS / USERS, lookup.find(randomUser()).size());
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private long randomUser() {
+        return ThreadLocalRandom.current().nextLong(USERS);
+    }
+
+    private interface Lookup {
+        List<Book> find(Long userId);
+    }
+}
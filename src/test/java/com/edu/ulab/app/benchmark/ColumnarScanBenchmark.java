@@ -0,0 +1,90 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.config.BenchmarkTest;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.storage.BookColumns;
+import com.edu.ulab.app.storage.GroupTotals;
+import com.edu.ulab.app.storage.OffHeapBookStorage;
+import com.edu.ulab.app.storage.StorageJournal;
+import com.edu.ulab.app.storage.StringDictionary;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Замер отчёта "страниц на пользователя" и "книг на автора": поток объектов {@link Book}
+ * против параллельного прохода по колонкам {@link BookColumns}, с построением колонок после
+ * записи и по сохранённой копии.
+ */
+@Slf4j
+@BenchmarkTest
+@DisplayName("Columnar book scan benchmark.")
+public class ColumnarScanBenchmark {
+
+    private static final int BOOKS = 3_000_000;
+    private static final int USERS = 200_000;
+    private static final int AUTHORS = 10_000;
+    private static final int ITERATIONS = 10;
+
+    @Test
+    @DisplayName("Book objects vs columns, 3M books")
+    void objectsVsColumns() {
+        StringDictionary dictionary = new StringDictionary();
+        OffHeapBookStorage storage = new OffHeapBookStorage(dictionary, StorageJournal.NOOP);
+        List<Book> books = new ArrayList<>(BOOKS);
+        for (long id = 1; id <= BOOKS; id++) {
+            Book book = new Book();
+            book.setId(id);
+            book.setUserId(id % USERS + 1);
+            book.setTitle(dictionary.intern("Title " + id % 1000));
+            book.setAuthor(dictionary.intern("Author " + id % AUTHORS));
+            book.setPageCount(id % 500);
+            books.add(book);
+        }
+        storage.saveAll(books);
+
+        long objectChecksum = 0;
+        long columnChecksum = 0;
+        double objectNanos = 0;
+        double buildNanos = 0;
+        double columnNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long begin = System.nanoTime();
+            Map<Long, Long> pagesPerUser = books.stream()
+                    .collect(Collectors.groupingBy(Book::getUserId, Collectors.summingLong(Book::getPageCount)));
+            Map<String, Long> booksPerAuthor = books.stream()
+                    .collect(Collectors.groupingBy(Book::getAuthor, Collectors.counting()));
+            objectNanos += System.nanoTime() - begin;
+            objectChecksum += pagesPerUser.get(1L) + booksPerAuthor.size();
+
+            // a write makes the kept columns stale, so the report builds them again
+            storage.save(books.get(i));
+            begin = System.nanoTime();
+            BookColumns columns = storage.columns();
+            buildNanos += System.nanoTime() - begin;
+            begin = System.nanoTime();
+            GroupTotals userTotals = columns.pagesPerUser();
+            GroupTotals authorTotals = columns.booksPerAuthor();
+            columnNanos += System.nanoTime() - begin;
+            columnChecksum += userTotals.get(1L) + authorTotals.size();
+        }
+        if (objectChecksum != columnChecksum) {
+            throw new IllegalStateException("Reports differ: " + objectChecksum + " != " + columnChecksum);
+        }
+        log.info("Parallelism of the common pool: {}", ForkJoinPool.commonPool().getParallelism());
+        log.info("Book objects: {} ms per report, {} M rows/s", Math.round(objectNanos / ITERATIONS / 1e6),
+                Math.round(2L * BOOKS * ITERATIONS / (objectNanos / 1e3)));
+        log.info("Columns after a write: {} ms per report ({} ms build + {} ms scan), {} M rows/s",
+                Math.round((buildNanos + columnNanos) / ITERATIONS / 1e6), Math.round(buildNanos / ITERATIONS / 1e6),
+                Math.round(columnNanos / ITERATIONS / 1e6),
+                Math.round(2L * BOOKS * ITERATIONS / ((buildNanos + columnNanos) / 1e3)));
+        log.info("Kept columns: {} ms per report, {} M rows/s", Math.round(columnNanos / ITERATIONS / 1e6),
+                Math.round(2L * BOOKS * ITERATIONS / (columnNanos / 1e3)));
+    }
+}
@@ -0,0 +1,81 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.config.BenchmarkTest;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.storage.BookStorage;
+import com.edu.ulab.app.storage.FootprintEndpoint;
+import com.edu.ulab.app.storage.StorageJournal;
+import com.edu.ulab.app.storage.StoreFootprint;
+import com.edu.ulab.app.storage.StringDictionary;
+import com.edu.ulab.app.storage.UserStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Сравнение оценки {@link FootprintEndpoint} с замером занимаемой кучи и стоимость одного опроса.
+ */
+@Slf4j
+@BenchmarkTest
+@DisplayName("Footprint estimate benchmark.")
+public class FootprintEstimateBenchmark {
+
+    private static final int USERS = 200_000;
+    private static final int BOOKS = 1_000_000;
+    private static final int SCRAPES = 1_000;
+
+    @Test
+    @DisplayName("Estimated vs measured heap, 200k users and 1M books")
+    void estimateAccuracy() {
+        long before = usedHeap();
+        StringDictionary dictionary = new StringDictionary();
+        UserStorage userStorage = new UserStorage(StorageJournal.NOOP);
+        BookStorage bookStorage = new BookStorage(dictionary, StorageJournal.NOOP);
+        for (long id = 1; id <= USERS; id++) {
+            Person person = new Person();
+            person.setId(id);
+            person.setFullName("Person " + id);
+            person.setTitle("title " + id % 20);
+            person.setAge(18 + (int) (id % 60));
+            userStorage.save(person);
+        }
+        for (long id = 1; id <= BOOKS; id++) {
+            Book book = new Book();
+            book.setId(USERS + id);
+            book.setUserId(1 + id % USERS);
+            book.setTitle("Title " + id % 50_000);
+            book.setAuthor("Author " + id % 5_000);
+            book.setPageCount(100 + id % 400);
+            bookStorage.save(book);
+        }
+        long measured = usedHeap() - before;
+        FootprintEndpoint endpoint = new FootprintEndpoint(List.of(userStorage, bookStorage, dictionary),
+                System::nanoTime);
+
+        FootprintEndpoint.FootprintReport report = endpoint.footprint();
+        for (StoreFootprint store : report.getStores()) {
+            log.info("{}: {} entries, {} bytes, {}", store.getStore(), store.getEntries(), store.getTotalBytes(),
+                    store.getComponents());
+        }
+        log.info("Estimated {} MB, measured {} MB", report.getTotalBytes() >> 20, measured >> 20);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < SCRAPES; i++) {
+            userStorage.footprint();
+            bookStorage.footprint();
+            dictionary.footprint();
+        }
+        log.info("Footprint of all stores: {} us per scrape", (System.nanoTime() - start) / SCRAPES / 1_000);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
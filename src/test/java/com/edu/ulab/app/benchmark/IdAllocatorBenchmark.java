@@ -0,0 +1,74 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.config.BenchmarkTest;
+import com.edu.ulab.app.storage.IdAllocator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Замер выдачи id под нагрузкой: общий {@link AtomicLong} против блоков {@link IdAllocator}.
+ */
+@Slf4j
+@BenchmarkTest
+@DisplayName("Id allocation benchmark.")
+public class IdAllocatorBenchmark {
+
+    private static final int IDS_PER_THREAD = 2_000_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("AtomicLong vs IdAllocator, 32 and 64 threads")
+    void atomicVsLeased() throws InterruptedException {
+        for (int threads : new int[]{32, 64}) {
+            AtomicLong counter = new AtomicLong();
+            IdAllocator idAllocator = IdAllocator.open(directory.resolve("ids-" + threads), 1024);
+
+            measure(threads, counter::incrementAndGet);
+            measure(threads, idAllocator::nextId);
+            double atomic = measure(threads, counter::incrementAndGet);
+            double leased = measure(threads, idAllocator::nextId);
+
+            log.info("{} threads, AtomicLong: {} Mops/s", threads, String.format("%.1f", atomic));
+            log.info("{} threads, IdAllocator: {} Mops/s, {} leases", threads,
+                    String.format("%.1f", leased), idAllocator.leaseCount());
+        }
+    }
+
+    private double measure(int threads, LongSupplier ids) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    long sink = 0;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        sink += ids.getAsLong();
+                    }
+                    if (sink == 42) {
+                        log.trace("{}", sink);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long nanos = System.nanoTime() - begin;
+        return (double) threads * IDS_PER_THREAD * 1_000 / nanos;
+    }
+}
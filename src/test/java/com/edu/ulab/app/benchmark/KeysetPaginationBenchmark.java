@@ -0,0 +1,83 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.config.BenchmarkTest;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.storage.StorageJournal;
+import com.edu.ulab.app.storage.UserStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.List;
+import java.util.function.LongFunction;
+
+import static com.edu.ulab.app.web.constant.UserSQLConstant.SELECT_FROM_PERSON_PAGE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Замер времени чтения страницы на разной глубине: OFFSET против курсора по id,
+ * в H2 через {@link JdbcTemplate} и в {@link UserStorage}.
+ */
+@Slf4j
+@BenchmarkTest
+@DisplayName("Keyset vs offset pagination benchmark.")
+public class KeysetPaginationBenchmark {
+
+    private static final int ROWS = 200_000;
+    private static final int PAGE = 20;
+    private static final int ITERATIONS = 2_000;
+    private static final long[] DEPTHS = {0, ROWS / 2, ROWS - PAGE};
+    private static final String SELECT_FROM_PERSON_OFFSET = "SELECT * FROM PERSON ORDER BY ID LIMIT ? OFFSET ?";
+
+    @Test
+    @DisplayName("H2, 200k rows")
+    void jdbcTemplate() {
+        SingleConnectionDataSource dataSource =
+                new SingleConnectionDataSource("jdbc:h2:mem:keyset;DB_CLOSE_DELAY=-1", "sa", "", true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE PERSON(ID BIGINT PRIMARY KEY, FULL_NAME VARCHAR(255), TITLE VARCHAR(255), AGE INTEGER)");
+        jdbcTemplate.execute("INSERT INTO PERSON SELECT X, 'name ' || X, 'title', 30 FROM SYSTEM_RANGE(1, " + ROWS + ")");
+
+        for (long depth : DEPTHS) {
+            long offsetNanos = measure(offset -> jdbcTemplate.queryForList(SELECT_FROM_PERSON_OFFSET, PAGE, offset), depth);
+            long keysetNanos = measure(after -> jdbcTemplate.queryForList(SELECT_FROM_PERSON_PAGE, after, PAGE), depth);
+            log.info("H2 depth {}: OFFSET {} us/page, keyset {} us/page", depth, offsetNanos / 1_000, keysetNanos / 1_000);
+        }
+        dataSource.destroy();
+    }
+
+    @Test
+    @DisplayName("UserStorage, 200k users")
+    void userStorage() {
+        UserStorage userStorage = new UserStorage(StorageJournal.NOOP);
+        for (long id = 1; id <= ROWS; id++) {
+            Person person = new Person();
+            person.setId(id);
+            person.setFullName("name " + id);
+            person.setTitle("title");
+            person.setAge(30);
+            userStorage.save(person);
+        }
+
+        for (long depth : DEPTHS) {
+            long keysetNanos = measure(after -> userStorage.findPage(after, PAGE), depth);
+            log.info("UserStorage depth {}: keyset {} ns/page", depth, keysetNanos);
+        }
+    }
+
+    /**
+     * @param page - reads a page at the given depth: the offset or the id the page starts after.
+     */
+    private long measure(LongFunction<List<?>> page, long depth) {
+        for (int i = 0; i < ITERATIONS / 2; i++) {
+            page.apply(depth);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertEquals(PAGE, page.apply(depth).size());
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
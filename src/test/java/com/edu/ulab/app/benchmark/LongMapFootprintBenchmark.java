@@ -0,0 +1,73 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.config.BenchmarkTest;
+import com.edu.ulab.app.storage.ConcurrentLongMap;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Замер занимаемой кучи: {@link ConcurrentLongMap} против {@link HashMap} и {@link ConcurrentHashMap}.
+ * Значения общие для всех карт, поэтому разница приходится только на ключи и структуру карты.
+ */
+@Slf4j
+@BenchmarkTest
+@DisplayName("Long map heap footprint benchmark.")
+public class LongMapFootprintBenchmark {
+
+    private static final int ENTRIES = 2_000_000;
+
+    @Test
+    @DisplayName("Heap per entry, 2M entries")
+    void heapFootprint() {
+        Object[] values = new Object[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++) {
+            values[i] = new Object();
+        }
+
+        log.info("HashMap<Long, V>: {} bytes/entry", measure(() -> {
+            Map<Long, Object> map = new HashMap<>();
+            for (int i = 0; i < ENTRIES; i++) {
+                map.put(i * 31L + 1_000_000L, values[i]);
+            }
+            return map;
+        }));
+        log.info("ConcurrentHashMap<Long, V>: {} bytes/entry", measure(() -> {
+            Map<Long, Object> map = new ConcurrentHashMap<>();
+            for (int i = 0; i < ENTRIES; i++) {
+                map.put(i * 31L + 1_000_000L, values[i]);
+            }
+            return map;
+        }));
+        log.info("ConcurrentLongMap<V>: {} bytes/entry", measure(() -> {
+            ConcurrentLongMap<Object> map = new ConcurrentLongMap<>();
+            for (int i = 0; i < ENTRIES; i++) {
+                map.put(i * 31L + 1_000_000L, values[i]);
+            }
+            return map;
+        }));
+    }
+
+    private long measure(Supplier<Object> fill) {
+        long before = usedHeap();
+        Object map = fill.get();
+        long after = usedHeap();
+        if (map.hashCode() == 42) {
+            log.trace("keep reachable");
+        }
+        return (after - before) / ENTRIES;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
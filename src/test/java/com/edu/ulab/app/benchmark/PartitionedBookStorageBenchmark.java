@@ -0,0 +1,102 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.config.BenchmarkTest;
+import com.edu.ulab.app.config.StorageProperties;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.storage.BookStorage;
+import com.edu.ulab.app.storage.BookStorageRepository;
+import com.edu.ulab.app.storage.PartitionedBookStorage;
+import com.edu.ulab.app.storage.StorageJournal;
+import com.edu.ulab.app.storage.StringDictionary;
+import com.edu.ulab.app.storage.WriteAheadLog;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Замер записи книг пользователей из многих потоков: {@link BookStorage} с блокировками
+ * против {@link PartitionedBookStorage} с писателем на раздел, в памяти и с журналом.
+ */
+@Slf4j
+@BenchmarkTest
+@DisplayName("Partitioned book storage write benchmark.")
+public class PartitionedBookStorageBenchmark {
+
+    private static final int THREADS = 32;
+    private static final int USERS_PER_THREAD = 500;
+    private static final int BOOKS_PER_USER = 10;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Striped locks vs partition writers, 32 threads")
+    void lockedVsPartitioned() throws Exception {
+        StorageProperties properties = new StorageProperties();
+
+        double locked = measure(journal -> new BookStorage(new StringDictionary(), journal), "locked-noop", false);
+        double partitioned = measure(journal ->
+                new PartitionedBookStorage(new StringDictionary(), journal, properties), "partitioned-noop", false);
+        log.info("In memory, BookStorage: {} books/s", Math.round(locked));
+        log.info("In memory, PartitionedBookStorage: {} books/s", Math.round(partitioned));
+
+        locked = measure(journal -> new BookStorage(new StringDictionary(), journal), "locked-wal", true);
+        partitioned = measure(journal ->
+                new PartitionedBookStorage(new StringDictionary(), journal, properties), "partitioned-wal", true);
+        log.info("With WAL, BookStorage: {} books/s", Math.round(locked));
+        log.info("With WAL, PartitionedBookStorage: {} books/s", Math.round(partitioned));
+    }
+
+    private double measure(Function<StorageJournal, BookStorageRepository> factory, String name, boolean wal)
+            throws Exception {
+        WriteAheadLog writeAheadLog = wal ? WriteAheadLog.open(directory.resolve(name)) : null;
+        BookStorageRepository bookStorage = factory.apply(wal ? writeAheadLog : StorageJournal.NOOP);
+        AtomicLong ids = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            long firstUser = (long) t * USERS_PER_THREAD;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (long userId = firstUser; userId < firstUser + USERS_PER_THREAD; userId++) {
+                        for (int i = 0; i < BOOKS_PER_USER; i++) {
+                            bookStorage.save(book(ids.incrementAndGet(), userId));
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long nanos = System.nanoTime() - begin;
+        if (bookStorage instanceof PartitionedBookStorage partitioned) {
+            partitioned.destroy();
+        }
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+        }
+        return (double) THREADS * USERS_PER_THREAD * BOOKS_PER_USER * 1_000_000_000 / nanos;
+    }
+
+    private Book book(long id, long userId) {
+        Book book = new Book();
+        book.setId(id);
+        book.setUserId(userId);
+        book.setTitle("Title");
+        book.setAuthor("Author");
+        book.setPageCount(100);
+        return book;
+    }
+}
@@ -0,0 +1,99 @@
+package com.edu.ulab.app.benchmark;
+
+import com.edu.ulab.app.config.BenchmarkTest;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.mapper.RowMappers;
+import lombok.extern.slf4j.Slf4j;
+import org.h2.tools.SimpleResultSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Сравнение {@link BeanPropertyRowMapper} и скомпилированного маппера на 100k строк книг:
+ * только разбор строк из результата в памяти и запрос к H2 целиком.
+ */
+@Slf4j
+@BenchmarkTest
+@DisplayName("Row mapper benchmark.")
+public class RowMapperBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final int ROUNDS = 10;
+
+    @Test
+    @DisplayName("BeanPropertyRowMapper vs compiled row mapper, 100k rows")
+    void mapRows() throws SQLException {
+        measureMapping("BeanPropertyRowMapper", () -> new RowMapperResultSetExtractor<>(new BeanPropertyRowMapper<>(Book.class)));
+        measureMapping("compiled row mapper", RowMappers.BOOK::rows);
+
+        SingleConnectionDataSource dataSource =
+                new SingleConnectionDataSource("jdbc:h2:mem:rowmapperbench;DB_CLOSE_DELAY=-1", "sa", "", true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE BOOK AS SELECT X AS ID, 'Title ' || X AS TITLE, 'Author ' || MOD(X, 500) "
+                + "AS AUTHOR, CAST(100 + MOD(X, 400) AS INTEGER) AS PAGE_COUNT, 1 + X / 50 AS USER_ID "
+                + "FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        measureQuery("BeanPropertyRowMapper", jdbcTemplate,
+                () -> new RowMapperResultSetExtractor<>(new BeanPropertyRowMapper<>(Book.class)));
+        measureQuery("compiled row mapper", jdbcTemplate, RowMappers.BOOK::rows);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.destroy();
+    }
+
+    private void measureMapping(String name, Supplier<ResultSetExtractor<List<Book>>> mapper) throws SQLException {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round <= ROUNDS; round++) {
+            SimpleResultSet rs = resultSet();
+            long start = System.nanoTime();
+            List<Book> books = mapper.get().extractData(rs);
+            long elapsed = System.nanoTime() - start;
+            if (round > 0) {
+                best = Math.min(best, elapsed);
+            }
+            check(books);
+        }
+        log.info("Mapping only, {}: {} ms, {} ns/row", name, best / 1_000_000, best / ROWS);
+    }
+
+    private void measureQuery(String name, JdbcTemplate jdbcTemplate, Supplier<ResultSetExtractor<List<Book>>> mapper) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            List<Book> books = jdbcTemplate.query("SELECT * FROM BOOK", mapper.get());
+            long elapsed = System.nanoTime() - start;
+            if (round > 0) {
+                best = Math.min(best, elapsed);
+            }
+            check(books);
+        }
+        log.info("H2 query, {}: {} ms, {} ns/row", name, best / 1_000_000, best / ROWS);
+    }
+
+    private static SimpleResultSet resultSet() {
+        SimpleResultSet rs = new SimpleResultSet();
+        rs.addColumn("ID", Types.BIGINT, 19, 0);
+        rs.addColumn("TITLE", Types.VARCHAR, 255, 0);
+        rs.addColumn("AUTHOR", Types.VARCHAR, 255, 0);
+        rs.addColumn("PAGE_COUNT", Types.INTEGER, 10, 0);
+        rs.addColumn("USER_ID", Types.BIGINT, 19, 0);
+        for (long id = 1; id <= ROWS; id++) {
+            rs.addRow(id, "Title " + id, "Author " + id % 500, (int) (100 + id % 400), 1 + id / 50);
+        }
+        return rs;
+    }
+
+    private static void check(List<Book> books) {
+        if (books.size() != ROWS || books.get(ROWS - 1).getPageCount() <= 0) {
+            throw new IllegalStateException("Unexpected mapping result");
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.edu.ulab.app.config;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Аннотация для нагрузочных замеров. По умолчанию не запускаются,
+ * включаются через {@code mvn test -Dbenchmark=true -Dtest=<BenchmarkClass>}.
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BenchmarkTest {
+}
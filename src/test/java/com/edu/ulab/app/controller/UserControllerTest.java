@@ -4,6 +4,7 @@ import static com.edu.ulab.app.web.constant.WebConstant.VERSION_URL;
 
 import com.edu.ulab.app.config.ControllerConfig;
 import com.edu.ulab.app.config.PostgreSqlContainerConfig;
+import com.edu.ulab.app.facade.CatalogueExportFacade;
 import com.edu.ulab.app.facade.UserDataFacade;
 import com.edu.ulab.app.web.UserController;
 import com.edu.ulab.app.web.handler.ControllerExceptionHandler;
@@ -52,8 +53,10 @@ class UserControllerTest {
     private static Gson gson = new GsonBuilder().create();
 
     @BeforeAll
-    public static void init(@Autowired UserDataFacade userDataFacade, @Autowired Validator validator) {
-        mockMvc = MockMvcBuilders.standaloneSetup(new UserController(userDataFacade))
+    public static void init(@Autowired UserDataFacade userDataFacade,
+                            @Autowired CatalogueExportFacade catalogueExportFacade,
+                            @Autowired Validator validator) {
+        mockMvc = MockMvcBuilders.standaloneSetup(new UserController(userDataFacade, catalogueExportFacade))
                 .setControllerAdvice(new ControllerExceptionHandler())
                 .setValidator(validator)
                 .build();
@@ -0,0 +1,95 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.storage.BookStorage;
+import com.edu.ulab.app.storage.StorageJournal;
+import com.edu.ulab.app.storage.StringDictionary;
+import com.edu.ulab.app.web.response.BookReportResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Тестирование функционала {@link BookReportFacade}.
+ */
+@DisplayName("Testing book report functionality.")
+public class BookReportFacadeTest {
+
+    private BookStorage bookStorage;
+
+    @BeforeEach
+    void setUp() {
+        bookStorage = Mockito.spy(new BookStorage(new StringDictionary(), StorageJournal.NOOP));
+        bookStorage.save(book(1L, 10L, 100));
+        bookStorage.save(book(2L, 20L, 50));
+    }
+
+    @Test
+    @DisplayName("Колонки без изменений хранилища строятся один раз.")
+    void keptColumns_Test() {
+
+        //given
+        BookReportFacade reportFacade = new BookReportFacade(bookStorage, Duration.ZERO);
+
+        //when
+        reportFacade.getBookReport(5);
+        BookReportResponse report = reportFacade.getBookReport(5);
+
+        //then
+        assertEquals(2, report.getBookCount());
+        assertEquals(150, report.getTotalPages());
+        verify(bookStorage, times(1)).columns();
+    }
+
+    @Test
+    @DisplayName("После записи колонки перестраиваются.")
+    void rebuiltColumns_Test() {
+
+        //given
+        BookReportFacade reportFacade = new BookReportFacade(bookStorage, Duration.ZERO);
+        reportFacade.getBookReport(5);
+
+        //when
+        bookStorage.save(book(3L, 10L, 25));
+        BookReportResponse report = reportFacade.getBookReport(5);
+
+        //then
+        assertEquals(3, report.getBookCount());
+        assertEquals(125, report.getTopUsersByPages().get(0).getPages());
+        verify(bookStorage, times(2)).columns();
+    }
+
+    @Test
+    @DisplayName("Колонки перестраиваются не чаще заданного интервала.")
+    void columnsMaxAge_Test() {
+
+        //given
+        BookReportFacade reportFacade = new BookReportFacade(bookStorage, Duration.ofHours(1));
+        reportFacade.getBookReport(5);
+
+        //when
+        bookStorage.deleteById(2L);
+        BookReportResponse report = reportFacade.getBookReport(5);
+
+        //then
+        assertEquals(2, report.getBookCount());
+        verify(bookStorage, times(1)).columns();
+    }
+
+    private static Book book(Long id, Long userId, long pageCount) {
+        Book book = new Book();
+        book.setId(id);
+        book.setUserId(userId);
+        book.setTitle("Title " + id);
+        book.setAuthor("Author");
+        book.setPageCount(pageCount);
+        return book;
+    }
+}
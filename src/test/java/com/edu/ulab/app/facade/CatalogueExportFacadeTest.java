@@ -0,0 +1,203 @@
+package com.edu.ulab.app.facade;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.storage.BookStorage;
+import com.edu.ulab.app.storage.StorageJournal;
+import com.edu.ulab.app.storage.StringDictionary;
+import com.edu.ulab.app.storage.UserStorage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Тестирование функционала {@link CatalogueExportFacade} на H2.
+ */
+@DisplayName("Testing catalogue export functionality.")
+public class CatalogueExportFacadeTest {
+
+    private static final int FETCH_SIZE = 2;
+
+    private Connection connection;
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private UserStorage userStorage;
+    private BookStorage bookStorage;
+    private CatalogueExportFacade exportFacade;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = Mockito.spy(DriverManager.getConnection("jdbc:h2:mem:catalogueexport", "sa", ""));
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(connection, true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE SCHEMA ULAB_EDU");
+        jdbcTemplate.execute("CREATE TABLE ULAB_EDU.PERSON (ID BIGINT PRIMARY KEY, FULL_NAME VARCHAR(255), "
+                + "TITLE VARCHAR(255), AGE INTEGER)");
+        jdbcTemplate.execute("CREATE TABLE ULAB_EDU.BOOK (ID BIGINT PRIMARY KEY, TITLE VARCHAR(255), "
+                + "AUTHOR VARCHAR(255), PAGE_COUNT INTEGER, USER_ID BIGINT)");
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        userStorage = new UserStorage(StorageJournal.NOOP);
+        bookStorage = new BookStorage(new StringDictionary(), StorageJournal.NOOP);
+        exportFacade = exportFacade("jpa");
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        connection.close();
+    }
+
+    @Test
+    @DisplayName("Выгрузка пользователей с книгами построчно в NDJSON. Должно пройти успешно.")
+    void exportUsers_Test() throws IOException, SQLException {
+
+        //given
+        jdbcTemplate.update("INSERT INTO ULAB_EDU.PERSON VALUES (1, 'Ann \"A\" Lee', 'reader', 30), "
+                + "(2, 'Bob Ray', 'writer', 41), (3, 'Cid Moe', 'editor', 52)");
+        jdbcTemplate.update("INSERT INTO ULAB_EDU.BOOK VALUES (12, 'Emma', 'Austen', 300, 1), "
+                + "(10, 'Dune', 'Herbert', 600, 1), (11, 'Ulysses', NULL, 700, 3)");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //when
+        long users = exportFacade.exportUsers(out);
+
+        //then
+        String export = out.toString(StandardCharsets.UTF_8);
+        List<String> lines = export.lines().toList();
+        assertEquals(3, users);
+        assertEquals(3, lines.size());
+        assertTrue(export.endsWith("}\n"));
+        JsonNode ann = objectMapper.readTree(lines.get(0));
+        assertEquals("Ann \"A\" Lee", ann.get("fullName").asText());
+        assertEquals(30, ann.get("age").asInt());
+        assertEquals(2, ann.get("books").size());
+        assertEquals(10, ann.get("books").get(0).get("id").asLong());
+        assertEquals(600, ann.get("books").get(0).get("pageCount").asInt());
+        assertEquals(12, ann.get("books").get(1).get("id").asLong());
+        assertEquals(0, objectMapper.readTree(lines.get(1)).get("books").size());
+        JsonNode cid = objectMapper.readTree(lines.get(2));
+        assertEquals(3, cid.get("id").asLong());
+        assertTrue(cid.get("books").get(0).get("author").isNull());
+        verify(connection).prepareStatement(eq(CatalogueExportFacade.SELECT_PERSON_BOOKS),
+                eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY));
+    }
+
+    @Test
+    @DisplayName("Курсор читает строки порциями заданного размера.")
+    void fetchSize_Test() throws IOException, SQLException {
+
+        //given
+        PreparedStatement[] statement = new PreparedStatement[1];
+        Mockito.doAnswer(invocation -> {
+            statement[0] = Mockito.spy((PreparedStatement) invocation.callRealMethod());
+            return statement[0];
+        }).when(connection).prepareStatement(eq(CatalogueExportFacade.SELECT_PERSON_BOOKS),
+                eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY));
+
+        //when
+        long users = exportFacade.exportUsers(new ByteArrayOutputStream());
+
+        //then
+        assertEquals(0, users);
+        verify(statement[0]).setFetchSize(FETCH_SIZE);
+    }
+
+    @Test
+    @DisplayName("Бэкенд template выгружается из таблиц без схемы.")
+    void exportTemplateBackend_Test() throws IOException, SQLException {
+
+        //given
+        jdbcTemplate.execute("CREATE TABLE PERSON (ID BIGINT PRIMARY KEY, FULL_NAME VARCHAR(255), "
+                + "TITLE VARCHAR(255), AGE INTEGER)");
+        jdbcTemplate.execute("CREATE TABLE BOOK (ID BIGINT PRIMARY KEY, TITLE VARCHAR(255), "
+                + "AUTHOR VARCHAR(255), PAGE_COUNT INTEGER, USER_ID BIGINT)");
+        jdbcTemplate.update("INSERT INTO PERSON VALUES (5, 'Eve Day', 'reader', 25)");
+        jdbcTemplate.update("INSERT INTO BOOK VALUES (50, 'Dune', 'Herbert', 600, 5)");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //when
+        long users = exportFacade("template").exportUsers(out);
+
+        //then
+        assertEquals(1, users);
+        JsonNode eve = objectMapper.readTree(out.toString(StandardCharsets.UTF_8).lines().findFirst().orElseThrow());
+        assertEquals(5, eve.get("id").asLong());
+        assertEquals(50, eve.get("books").get(0).get("id").asLong());
+        verify(connection).prepareStatement(eq(CatalogueExportFacade.SELECT_TEMPLATE_PERSON_BOOKS),
+                eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY));
+    }
+
+    @Test
+    @DisplayName("Бэкенд storage выгружается из хранилищ в памяти страницами без запроса к базе.")
+    void exportStorageBackend_Test() throws IOException, SQLException {
+
+        //given
+        for (long id = 1; id <= 3; id++) {
+            Person person = new Person();
+            person.setId(id);
+            person.setFullName("Person " + id);
+            person.setTitle("reader");
+            person.setAge(20 + (int) id);
+            userStorage.save(person);
+        }
+        bookStorage.save(book(31L, 3L));
+        bookStorage.save(book(30L, 3L));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //when
+        long users = exportFacade("storage").exportUsers(out);
+
+        //then
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(3, users);
+        assertEquals(3, lines.size());
+        JsonNode third = objectMapper.readTree(lines.get(2));
+        assertEquals(3, third.get("id").asLong());
+        assertEquals(23, third.get("age").asInt());
+        assertEquals(30, third.get("books").get(0).get("id").asLong());
+        assertEquals(31, third.get("books").get(1).get("id").asLong());
+        assertEquals(0, objectMapper.readTree(lines.get(0)).get("books").size());
+        verify(connection, never()).prepareStatement(anyString(), anyInt(), anyInt());
+    }
+
+    private CatalogueExportFacade exportFacade(String backend) {
+        return new CatalogueExportFacade(jdbcTemplate, transactionManager, objectMapper, FETCH_SIZE, backend,
+                userStorage, bookStorage);
+    }
+
+    private static Book book(long id, long userId) {
+        Book book = new Book();
+        book.setId(id);
+        book.setUserId(userId);
+        book.setTitle("Title " + id);
+        book.setAuthor("Author");
+        book.setPageCount(100);
+        return book;
+    }
+}
@@ -0,0 +1,131 @@
+package com.edu.ulab.app.mapper;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Тестирование функционала {@link CompiledRowMapper}.
+ */
+@DisplayName("Testing compiled row mapper functionality.")
+public class CompiledRowMapperTest {
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:rowmapper;DB_CLOSE_DELAY=-1", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE PERSON (ID BIGINT PRIMARY KEY, FULL_NAME VARCHAR(255), "
+                + "TITLE VARCHAR(255), AGE INTEGER)");
+        jdbcTemplate.execute("CREATE TABLE BOOK (ID BIGINT PRIMARY KEY, TITLE VARCHAR(255), AUTHOR VARCHAR(255), "
+                + "PAGE_COUNT INTEGER, USER_ID BIGINT)");
+        jdbcTemplate.update("INSERT INTO PERSON VALUES (1, 'Ann Lee', 'reader', 30), (2, 'Bob Ray', 'writer', 41)");
+        jdbcTemplate.update("INSERT INTO BOOK VALUES (10, 'Dune', 'Herbert', 600, 1), (11, 'Emma', NULL, 300, NULL)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.destroy();
+    }
+
+    @Test
+    @DisplayName("Результат совпадает с BeanPropertyRowMapper, включая null. Должно пройти успешно.")
+    void sameAsBeanPropertyRowMapper_Test() {
+
+        //when
+        List<Person> persons = jdbcTemplate.query("SELECT * FROM PERSON ORDER BY ID", RowMappers.PERSON.rows());
+        List<Book> books = jdbcTemplate.query("SELECT * FROM BOOK ORDER BY ID", RowMappers.BOOK.rows());
+        List<BookDto> bookDtos = jdbcTemplate.query("SELECT * FROM BOOK ORDER BY ID", RowMappers.BOOK_DTO);
+
+        //then
+        assertThat(persons).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(
+                jdbcTemplate.query("SELECT * FROM PERSON ORDER BY ID", new BeanPropertyRowMapper<>(Person.class)));
+        assertThat(books).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(
+                jdbcTemplate.query("SELECT * FROM BOOK ORDER BY ID", new BeanPropertyRowMapper<>(Book.class)));
+        assertThat(bookDtos).containsExactlyElementsOf(
+                jdbcTemplate.query("SELECT * FROM BOOK ORDER BY ID", new BeanPropertyRowMapper<>(BookDto.class)));
+        assertEquals("Ann Lee", persons.get(0).getFullName());
+        assertEquals(600, books.get(0).getPageCount());
+        assertNull(books.get(1).getUserId());
+        assertNull(books.get(1).getAuthor());
+    }
+
+    @Test
+    @DisplayName("Столбцы сопоставляются один раз на набор столбцов, лишние пропускаются.")
+    void shapes_Test() {
+
+        //given
+        CompiledRowMapper<Person> mapper = CompiledRowMapper.of(Person.class);
+
+        //when
+        jdbcTemplate.query("SELECT * FROM PERSON", mapper.rows());
+        jdbcTemplate.query("SELECT * FROM PERSON WHERE ID=?", mapper, 2L);
+        List<Person> reordered = jdbcTemplate.query(
+                "SELECT AGE, 'x' AS EXTRA, FULL_NAME AS fullName, ID FROM PERSON ORDER BY ID", mapper);
+
+        //then
+        assertEquals(2, mapper.shapeCount());
+        assertEquals(41, reordered.get(1).getAge());
+        assertEquals("Bob Ray", reordered.get(1).getFullName());
+        assertNull(reordered.get(1).getTitle());
+    }
+
+    @Test
+    @DisplayName("Чередование наборов строк разной формы в одном потоке. Столбцы не путаются.")
+    void interleavedResultSets_Test() {
+
+        //given
+        CompiledRowMapper<Person> mapper = CompiledRowMapper.of(Person.class);
+        List<Person> inner = new ArrayList<>();
+
+        //when
+        List<Person> outer = jdbcTemplate.query("SELECT ID, FULL_NAME, AGE FROM PERSON ORDER BY ID", (rs, rowNum) -> {
+            Person person = mapper.mapRow(rs, rowNum);
+            inner.addAll(jdbcTemplate.query("SELECT AGE, TITLE FROM PERSON WHERE ID=?", mapper, person.getId()));
+            return person;
+        });
+
+        //then
+        assertEquals("Bob Ray", outer.get(1).getFullName());
+        assertEquals(41, outer.get(1).getAge());
+        assertEquals(2L, outer.get(1).getId());
+        assertEquals("writer", inner.get(1).getTitle());
+        assertNull(inner.get(1).getFullName());
+    }
+
+    @Test
+    @DisplayName("NULL в столбце примитивного свойства отклоняется, как в BeanPropertyRowMapper.")
+    void nullPrimitive_FailedTest() {
+
+        //given
+        jdbcTemplate.update("INSERT INTO BOOK VALUES (12, 'Blank', 'Nobody', NULL, 1)");
+
+        //when
+        //then
+        assertThatThrownBy(() -> jdbcTemplate.query("SELECT * FROM BOOK WHERE ID=12",
+                new BeanPropertyRowMapper<>(Book.class)))
+                .isInstanceOf(TypeMismatchException.class);
+        assertThatThrownBy(() -> jdbcTemplate.query("SELECT * FROM BOOK WHERE ID=12", RowMappers.BOOK.rows()))
+                .isInstanceOf(TypeMismatchException.class)
+                .hasMessageContaining("pageCount");
+    }
+}
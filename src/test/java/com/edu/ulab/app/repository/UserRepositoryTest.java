@@ -9,6 +9,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.jdbc.Sql;
 
@@ -244,4 +245,28 @@ public class UserRepositoryTest {
         assertUpdateCount(0);
         assertDeleteCount(1);
     }
+
+    @DisplayName("Получить страницу пользователей после id. Число select должно равняться 1")
+    @Test
+    @Rollback
+    @Sql({"classpath:sql/1_clear_schema.sql",
+            "classpath:sql/2_insert_person_data.sql",
+            "classpath:sql/3_insert_book_data.sql"
+    })
+    void findPage_thenAssertDmlCount() {
+
+        //given
+
+        //When
+        List<Person> firstPage = userRepository.findPage(0L, PageRequest.ofSize(10));
+        List<Person> nextPage = userRepository.findPage(1001L, PageRequest.ofSize(10));
+
+        //Then
+        assertThat(firstPage).extracting(Person::getId).containsExactly(1001L);
+        assertThat(nextPage).isEmpty();
+        assertSelectCount(2);
+        assertInsertCount(0);
+        assertUpdateCount(0);
+        assertDeleteCount(0);
+    }
 }
@@ -0,0 +1,83 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.service.impl.BookServiceImplStorage;
+import com.edu.ulab.app.storage.BookStorage;
+import com.edu.ulab.app.storage.IdAllocator;
+import com.edu.ulab.app.storage.StorageJournal;
+import com.edu.ulab.app.storage.StringDictionary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mapstruct.factory.Mappers;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Тестирование функционала {@link BookServiceImplStorage}.
+ */
+@DisplayName("Testing storage book functionality.")
+public class BookServiceImplStorageTest {
+
+    private BookStorage bookStorage;
+    private BookServiceImplStorage bookService;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        bookStorage = new BookStorage(new StringDictionary(), StorageJournal.NOOP);
+        bookService = new BookServiceImplStorage(bookStorage, Mappers.getMapper(BookMapper.class),
+                IdAllocator.open(directory.resolve("storage.ids"), 16), Optional.empty());
+    }
+
+    @Test
+    @DisplayName("Создание книги без id выделяет ей id. Должно пройти успешно.")
+    void createBookWithoutId_Test() {
+
+        //given
+        BookDto bookDto = bookDto("Title");
+
+        //when
+        BookDto created = bookService.createBook(bookDto);
+
+        //then
+        assertNotNull(created.getId());
+        assertEquals("Title", bookStorage.findById(created.getId()).orElseThrow().getTitle());
+    }
+
+    @Test
+    @DisplayName("Создание нескольких книг без id выделяет им разные id.")
+    void createBooksWithoutIds_Test() {
+
+        //given
+        List<BookDto> bookDtos = List.of(bookDto("First"), bookDto("Second"));
+
+        //when
+        List<BookDto> created = bookService.createBooks(bookDtos);
+
+        //then
+        assertThat(created).extracting(BookDto::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(bookStorage.findAllByUserId(1L)).extracting(Book::getTitle)
+                .containsExactlyInAnyOrder("First", "Second");
+    }
+
+    private static BookDto bookDto(String title) {
+        BookDto bookDto = new BookDto();
+        bookDto.setUserId(1L);
+        bookDto.setTitle(title);
+        bookDto.setAuthor("Author");
+        bookDto.setPageCount(100);
+        return bookDto;
+    }
+}
@@ -0,0 +1,237 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.dto.BookDto;
+import com.edu.ulab.app.exception.BookNotFoundException;
+import com.edu.ulab.app.mapper.BookMapper;
+import com.edu.ulab.app.service.impl.BookServiceImplTemplate;
+import com.edu.ulab.app.service.impl.MultiRowBookWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Тестирование функционала {@link BookServiceImplTemplate} и {@link MultiRowBookWriter} на H2.
+ */
+@DisplayName("Testing book JdbcTemplate functionality.")
+public class BookServiceImplTemplateTest {
+
+    private Connection connection;
+    private JdbcTemplate jdbcTemplate;
+    private BookServiceImplTemplate bookService;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = Mockito.spy(DriverManager.getConnection("jdbc:h2:mem:booktemplate", "sa", ""));
+        jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        jdbcTemplate.execute("CREATE TABLE BOOK (ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "USER_ID BIGINT, TITLE VARCHAR(50), AUTHOR VARCHAR(50), PAGE_COUNT BIGINT)");
+        bookService = service(false);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        jdbcTemplate.execute("DROP TABLE BOOK");
+        connection.close();
+    }
+
+    @Test
+    @DisplayName("Создание 50 книг одним пакетом с получением сгенерированных id. Должно пройти успешно.")
+    void createBooks_Test() throws SQLException {
+
+        //given
+        List<BookDto> books = books(50);
+
+        //when
+        List<BookDto> created = bookService.createBooks(books);
+
+        //then
+        List<Long> ids = jdbcTemplate.queryForList("SELECT ID FROM BOOK ORDER BY ID", Long.class);
+        assertThat(created).extracting(BookDto::getId).containsExactlyElementsOf(ids);
+        assertEquals(50, ids.size());
+        assertEquals("Title 7", jdbcTemplate.queryForObject("SELECT TITLE FROM BOOK WHERE ID=?",
+                String.class, created.get(7).getId()));
+        verify(connection, times(1)).prepareStatement(anyString(), any(String[].class));
+    }
+
+    @Test
+    @DisplayName("Книги сверх размера пакета вставляются следующим пакетом. Должно пройти успешно.")
+    void createBooksInBatches_Test() throws SQLException {
+
+        //given
+        List<BookDto> books = books(BookServiceImplTemplate.INSERT_BATCH_SIZE + 1);
+
+        //when
+        List<BookDto> created = bookService.createBooks(books);
+
+        //then
+        assertThat(created).extracting(BookDto::getId).doesNotContainNull().doesNotHaveDuplicates();
+        verify(connection, times(2)).prepareStatement(anyString(), any(String[].class));
+    }
+
+    @Test
+    @DisplayName("Некорректная книга отклоняет весь пакет до вставки.")
+    void createBooksInvalid_Test() {
+
+        //given
+        List<BookDto> books = books(3);
+        books.get(2).setAuthor(null);
+
+        //then
+        assertThatThrownBy(() -> bookService.createBooks(books))
+                .isInstanceOf(BookNotFoundException.class);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM BOOK", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Создание книг многострочными INSERT по частям с получением id по порядку. Должно пройти успешно.")
+    void createBooksMultiRow_Test() throws SQLException {
+
+        //given
+        bookService = service(true);
+        List<BookDto> books = books(2_500);
+
+        //when
+        List<BookDto> created = bookService.createBooks(books);
+
+        //then
+        List<Long> ids = jdbcTemplate.queryForList("SELECT ID FROM BOOK ORDER BY ID", Long.class);
+        assertThat(created).extracting(BookDto::getId).containsExactlyElementsOf(ids);
+        assertEquals("Title 2499", jdbcTemplate.queryForObject("SELECT TITLE FROM BOOK WHERE ID=?",
+                String.class, created.get(2_499).getId()));
+        verify(connection, times(3)).prepareStatement(anyString(), any(String[].class));
+    }
+
+    @Test
+    @DisplayName("Число строк в одном INSERT ограничено лимитом параметров PostgreSQL.")
+    void rowsPerStatementLimit_Test() {
+
+        //when
+        MultiRowBookWriter writer = new MultiRowBookWriter(jdbcTemplate, 100_000);
+
+        //then
+        assertEquals(MultiRowBookWriter.MAX_PARAMETERS / 4, writer.rowsPerStatement());
+    }
+
+    @Test
+    @DisplayName("Обновление и удаление книги одним запросом без предварительного чтения. Должно пройти успешно.")
+    void updateDeleteBook_Test() throws SQLException {
+
+        //given
+        BookDto book = bookService.createBooks(books(1)).get(0);
+        book.setTitle("Updated");
+
+        //when
+        bookService.updateBook(book);
+        String title = jdbcTemplate.queryForObject("SELECT TITLE FROM BOOK WHERE ID=?", String.class, book.getId());
+        bookService.deleteBookById(book.getId());
+
+        //then
+        assertEquals("Updated", title);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM BOOK", Integer.class));
+        verify(connection, times(1)).prepareStatement(anyString(), any(String[].class));
+        verify(connection, times(1)).prepareStatement(startsWith("UPDATE"));
+        verify(connection, times(1)).prepareStatement(startsWith("DELETE"));
+        verify(connection, never()).prepareStatement(startsWith("SELECT *"));
+    }
+
+    @Test
+    @DisplayName("Обновление и удаление несуществующей книги. Должно выбросить ошибку.")
+    void updateDeleteMissingBook_Test() {
+
+        //given
+        BookDto book = books(1).get(0);
+        book.setId(42L);
+
+        //then
+        assertThatThrownBy(() -> bookService.updateBook(book))
+                .isInstanceOf(BookNotFoundException.class);
+        assertThatThrownBy(() -> bookService.deleteBookById(42L))
+                .isInstanceOf(BookNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Удаление всех книг пользователя одним запросом. Должно пройти успешно.")
+    void deleteBooksByUserId_Test() throws SQLException {
+
+        //given
+        bookService.createBooks(books(5));
+        BookDto otherBook = books(1).get(0);
+        otherBook.setUserId(2L);
+        bookService.createBooks(List.of(otherBook));
+
+        //when
+        bookService.deleteBooksByUserId(1L);
+
+        //then
+        assertThat(jdbcTemplate.queryForList("SELECT ID FROM BOOK", Long.class)).containsExactly(otherBook.getId());
+        verify(connection, times(1)).prepareStatement(startsWith("DELETE"));
+    }
+
+    @Test
+    @DisplayName("Получение id книг пользователей запросами IN фиксированных размеров. Должно пройти успешно.")
+    void getBookIdsByUserIds_Test() throws SQLException {
+
+        //given
+        List<BookDto> books = books(6);
+        for (int i = 0; i < books.size(); i++) {
+            books.get(i).setUserId(1L + i % 3);
+        }
+        bookService.createBooks(books);
+        List<Long> userIds = LongStream.rangeClosed(1, 300).boxed().toList();
+
+        //when
+        Map<Long, List<Long>> bookIds = bookService.getBookIdsByUserIds(userIds);
+        bookService.getBookIdsByUserIds(List.of(2L, 5L));
+
+        //then
+        assertEquals(3, bookIds.size());
+        assertThat(bookIds.get(1L)).containsExactly(books.get(0).getId(), books.get(3).getId());
+        assertThat(bookIds.get(3L)).containsExactly(books.get(2).getId(), books.get(5).getId());
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(connection, times(3)).prepareStatement(sql.capture());
+        assertThat(sql.getAllValues()).allMatch(statement -> statement.startsWith("SELECT USER_ID, ID FROM BOOK"));
+        assertEquals(3, new HashSet<>(sql.getAllValues()).size());
+    }
+
+    private BookServiceImplTemplate service(boolean multiRowInsert) {
+        return new BookServiceImplTemplate(jdbcTemplate, Mappers.getMapper(BookMapper.class),
+                new MultiRowBookWriter(jdbcTemplate, 1_000), multiRowInsert, true);
+    }
+
+    private static List<BookDto> books(int count) {
+        return LongStream.range(0, count)
+                .mapToObj(i -> {
+                    BookDto bookDto = new BookDto();
+                    bookDto.setUserId(1L);
+                    bookDto.setTitle("Title " + i);
+                    bookDto.setAuthor("Author");
+                    bookDto.setPageCount(100 + i);
+                    return bookDto;
+                })
+                .toList();
+    }
+}
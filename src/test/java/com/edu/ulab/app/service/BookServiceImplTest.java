@@ -8,6 +8,7 @@ import com.edu.ulab.app.mapper.BookMapper;
 import com.edu.ulab.app.repository.BookRepository;
 import com.edu.ulab.app.repository.UserRepository;
 import com.edu.ulab.app.service.impl.BookServiceImpl;
+import com.edu.ulab.app.service.impl.EntityUpsertWriter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -26,6 +27,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -53,6 +56,9 @@ public class BookServiceImplTest {
     @Mock
     BookMapper bookMapper;
 
+    @Mock
+    EntityUpsertWriter upsertWriter;
+
     @BeforeEach
     void setUp() {
         person  = new Person();
@@ -294,6 +300,41 @@ public class BookServiceImplTest {
                 .deleteById(999L);
     }
 
+    @Test
+    @DisplayName("Обновление книг одной пакетной записью. Должно пройти успешно.")
+    void updateBooks_Test() {
+
+        //given
+        bookDto.setId(1L);
+        book.setId(1L);
+
+        //when
+        when(bookMapper.bookDtoToBook(bookDto)).thenReturn(book);
+        when(upsertWriter.updateBooks(List.of(book))).thenReturn(List.of());
+        when(bookMapper.bookToBookDto(book)).thenReturn(result);
+
+        //then
+        List<BookDto> updated = bookService.updateBooks(List.of(bookDto));
+        assertEquals(List.of(result), updated);
+        verify(bookRepository, never()).save(book);
+    }
+
+    @Test
+    @DisplayName("Обновление книг с несуществующим id. Должно выбросить ошибку.")
+    void updateBooksNonExistent_FailedTest() {
+
+        //given
+        bookDto.setId(100L);
+
+        //when
+        when(bookMapper.bookDtoToBook(bookDto)).thenReturn(book);
+        when(upsertWriter.updateBooks(List.of(book))).thenReturn(List.of(100L));
+
+        //then
+        assertThatThrownBy(() -> bookService.updateBooks(List.of(bookDto)))
+                .isInstanceOf(BookNotFoundException.class);
+    }
+
     @Test
     @DisplayName("Создание книги со значением null.")
     void createBookByNull_FailedTest() {
@@ -0,0 +1,165 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.service.impl.EntityUpsertWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Тестирование функционала {@link EntityUpsertWriter} на H2.
+ */
+@DisplayName("Testing entity batch update functionality.")
+public class EntityUpsertWriterTest {
+
+    private Connection connection;
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private EntityUpsertWriter upsertWriter;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = Mockito.spy(DriverManager.getConnection("jdbc:h2:mem:entityupsert", "sa", ""));
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(connection, true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE SCHEMA ULAB_EDU");
+        jdbcTemplate.execute("CREATE TABLE ULAB_EDU.PERSON (ID BIGINT PRIMARY KEY, FULL_NAME VARCHAR(50), "
+                + "TITLE VARCHAR(50), AGE INTEGER)");
+        jdbcTemplate.execute("CREATE TABLE ULAB_EDU.BOOK (ID BIGINT PRIMARY KEY, USER_ID BIGINT, TITLE VARCHAR(50), "
+                + "AUTHOR VARCHAR(50), PAGE_COUNT INTEGER)");
+        jdbcTemplate.update("INSERT INTO ULAB_EDU.PERSON VALUES (1, 'Ann Lee', 'reader', 30)");
+        jdbcTemplate.update("INSERT INTO ULAB_EDU.BOOK SELECT X, 1, 'Title ' || X, 'Author', 100 "
+                + "FROM SYSTEM_RANGE(1, 300)");
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        upsertWriter = new EntityUpsertWriter(jdbcTemplate, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        connection.close();
+    }
+
+    @Test
+    @DisplayName("Обновление 300 книг постоянным числом запросов. Должно пройти успешно.")
+    void updateBooks_Test() throws SQLException {
+
+        //given
+        List<Book> books = LongStream.rangeClosed(1, 300)
+                .mapToObj(id -> book(id, "Updated " + id))
+                .toList();
+
+        //when
+        List<Long> missing = upsertWriter.updateBooks(books);
+
+        //then
+        assertThat(missing).isEmpty();
+        assertEquals(300, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ULAB_EDU.BOOK WHERE TITLE LIKE 'Updated %' AND PAGE_COUNT = 200", Integer.class));
+        verify(connection, times(1)).prepareStatement(startsWith("UPDATE ulab_edu.book"));
+        verify(connection, never()).prepareStatement(startsWith("SELECT"));
+    }
+
+    @Test
+    @DisplayName("Несуществующая книга откатывает запись всех книг и возвращается в ответе.")
+    void updateMissingBooks_Test() throws SQLException {
+
+        //given
+        List<Book> books = List.of(book(2L, "Updated"), book(999L, "Missing"));
+
+        //when
+        List<Long> missing = upsertWriter.updateBooks(books);
+
+        //then
+        assertThat(missing).containsExactly(999L);
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ULAB_EDU.BOOK WHERE TITLE IN ('Updated', 'Missing')", Integer.class));
+        verify(connection).rollback();
+    }
+
+    @Test
+    @DisplayName("Обновление пользователя и отказ для несуществующего без вставки строки.")
+    void updatePeople_Test() {
+
+        //given
+        Person person = new Person();
+        person.setId(1L);
+        person.setFullName("Ann Ray");
+        person.setTitle("writer");
+        person.setAge(31);
+        Person missingPerson = new Person();
+        missingPerson.setId(2L);
+        missingPerson.setFullName("Bob Ray");
+        missingPerson.setTitle("writer");
+        missingPerson.setAge(41);
+
+        //when
+        List<Long> updated = upsertWriter.updatePeople(List.of(person));
+        List<Long> missing = upsertWriter.updatePeople(List.of(missingPerson));
+
+        //then
+        assertThat(updated).isEmpty();
+        assertThat(missing).containsExactly(2L);
+        assertEquals("Ann Ray", jdbcTemplate.queryForObject(
+                "SELECT FULL_NAME FROM ULAB_EDU.PERSON WHERE ID=1", String.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ULAB_EDU.PERSON", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Несуществующая книга откатывает и обновление пользователя в общей транзакции.")
+    void updateInOuterTransaction_Test() {
+
+        //given
+        Person person = new Person();
+        person.setId(1L);
+        person.setFullName("Ann Ray");
+        person.setTitle("writer");
+        person.setAge(31);
+        TransactionTemplate outer = new TransactionTemplate(transactionManager);
+
+        //when
+        Throwable thrown = catchThrowable(() -> outer.executeWithoutResult(status -> {
+            upsertWriter.updatePeople(List.of(person));
+            upsertWriter.updateBooks(List.of(book(2L, "Updated"), book(999L, "Missing")));
+        }));
+
+        //then
+        assertThat(thrown).isInstanceOf(UnexpectedRollbackException.class);
+        assertEquals("Ann Lee", jdbcTemplate.queryForObject(
+                "SELECT FULL_NAME FROM ULAB_EDU.PERSON WHERE ID=1", String.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ULAB_EDU.BOOK WHERE TITLE = 'Updated'", Integer.class));
+    }
+
+    private static Book book(long id, String title) {
+        Book book = new Book();
+        book.setId(id);
+        book.setUserId(1L);
+        book.setTitle(title);
+        book.setAuthor("Author");
+        book.setPageCount(200);
+        return book;
+    }
+}
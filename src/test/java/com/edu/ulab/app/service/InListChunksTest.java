@@ -0,0 +1,51 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.service.impl.InListChunks;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Тестирование функционала {@link InListChunks}.
+ */
+@DisplayName("Testing IN-list chunks functionality.")
+public class InListChunksTest {
+
+    @Test
+    @DisplayName("Id без повторов делятся на части фиксированных размеров с дополнением последним id.")
+    void chunks_Test() {
+
+        //given
+        List<Long> ids = LongStream.rangeClosed(1, 300).boxed().toList();
+
+        //when
+        List<List<Long>> chunks = InListChunks.chunks(ids);
+
+        //then
+        assertEquals(2, chunks.size());
+        assertEquals(InListChunks.MAX_CHUNK_SIZE, chunks.get(0).size());
+        assertEquals(64, chunks.get(1).size());
+        assertEquals(257L, chunks.get(1).get(0));
+        assertThat(chunks.get(1).subList(44, 64)).containsOnly(300L);
+    }
+
+    @Test
+    @DisplayName("Повторяющиеся id читаются один раз, пустой список не даёт частей.")
+    void chunksDistinct_Test() {
+
+        //when
+        List<List<Long>> chunks = InListChunks.chunks(List.of(5L, 3L, 5L, 3L, 7L));
+
+        //then
+        assertEquals(1, chunks.size());
+        assertEquals(16, chunks.get(0).size());
+        assertThat(chunks.get(0).subList(0, 3)).containsExactly(5L, 3L, 7L);
+        assertThat(chunks.get(0).subList(3, 16)).containsOnly(7L);
+        assertThat(InListChunks.chunks(List.of())).isEmpty();
+    }
+}
@@ -0,0 +1,118 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.ReadOnlyReplicaException;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.service.impl.UserServiceImplStorage;
+import com.edu.ulab.app.storage.BookStorage;
+import com.edu.ulab.app.storage.IdAllocator;
+import com.edu.ulab.app.storage.ReplicationFollower;
+import com.edu.ulab.app.storage.StorageJournal;
+import com.edu.ulab.app.storage.StringDictionary;
+import com.edu.ulab.app.storage.UserStorage;
+import com.edu.ulab.app.web.handler.ControllerExceptionHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование функционала {@link UserServiceImplStorage}.
+ */
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+@DisplayName("Testing storage user functionality.")
+public class UserServiceImplStorageTest {
+
+    private UserStorage userStorage;
+    private UserDto userDto;
+    private Person person;
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    UserMapper userMapper;
+
+    @Mock
+    ReplicationFollower replicationFollower;
+
+    @BeforeEach
+    void setUp() {
+        userStorage = new UserStorage(StorageJournal.NOOP);
+
+        userDto = new UserDto();
+        userDto.setId(1L);
+        userDto.setAge(11);
+        userDto.setFullName("test name");
+        userDto.setTitle("test title");
+
+        person = new Person();
+        person.setId(1L);
+        person.setFullName("test name");
+        person.setAge(11);
+        person.setTitle("test title");
+    }
+
+    @Test
+    @DisplayName("Ведущий узел сохраняет пользователя. Должно пройти успешно.")
+    void createUser_Test() {
+
+        //given
+        UserServiceImplStorage userService = userService(Optional.empty());
+        when(userMapper.userDtoToPerson(userDto)).thenReturn(person);
+        when(userMapper.personToUserDto(person)).thenReturn(userDto);
+
+        //when
+        UserDto result = userService.createUser(userDto);
+
+        //then
+        assertEquals(1L, result.getId());
+        assertThat(userStorage.findById(1L)).contains(person);
+    }
+
+    @Test
+    @DisplayName("Ведомый узел отклоняет создание, изменение и удаление, хранилище не меняется.")
+    void followerRejectsWrites_Test() {
+
+        //given
+        userStorage.save(person);
+        UserServiceImplStorage userService = userService(Optional.of(replicationFollower));
+        when(replicationFollower.leaderAddress()).thenReturn("leader:7400");
+        UserDto update = new UserDto();
+        update.setId(1L);
+        update.setAge(12);
+
+        //when
+        //then
+        assertThatThrownBy(() -> userService.createUser(userDto))
+                .isInstanceOf(ReadOnlyReplicaException.class)
+                .hasMessageContaining("leader:7400");
+        assertThatThrownBy(() -> userService.updateUser(update))
+                .isInstanceOf(ReadOnlyReplicaException.class);
+        assertThatThrownBy(() -> userService.deleteUserById(1L))
+                .isInstanceOf(ReadOnlyReplicaException.class);
+        assertEquals(11, userStorage.findById(1L).orElseThrow().getAge());
+        assertEquals(HttpStatus.CONFLICT, new ControllerExceptionHandler()
+                .handleReadOnlyReplicaException(new ReadOnlyReplicaException("leader:7400")).getStatusCode());
+    }
+
+    private UserServiceImplStorage userService(Optional<ReplicationFollower> follower) {
+        return new UserServiceImplStorage(userStorage, new BookStorage(new StringDictionary(), StorageJournal.NOOP),
+                userMapper, IdAllocator.open(directory.resolve("storage.ids"), 16), follower);
+    }
+}
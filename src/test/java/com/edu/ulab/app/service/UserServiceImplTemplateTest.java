@@ -0,0 +1,149 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.dto.UserBooksDto;
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.exception.UserNotFoundException;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.service.impl.UserServiceImplTemplate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Тестирование функционала {@link UserServiceImplTemplate} на H2.
+ */
+@DisplayName("Testing user JdbcTemplate functionality.")
+public class UserServiceImplTemplateTest {
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private UserServiceImplTemplate userService;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:usertemplate;DB_CLOSE_DELAY=-1", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE PERSON (ID BIGINT PRIMARY KEY, FULL_NAME VARCHAR(255), "
+                + "TITLE VARCHAR(255), AGE INTEGER)");
+        jdbcTemplate.execute("CREATE TABLE BOOK (ID BIGINT PRIMARY KEY, TITLE VARCHAR(255), AUTHOR VARCHAR(255), "
+                + "PAGE_COUNT INTEGER, USER_ID BIGINT)");
+        jdbcTemplate.update("INSERT INTO PERSON VALUES (1, 'Ann Lee', 'reader', 30), (2, 'Bob Ray', 'writer', 41)");
+        jdbcTemplate.update("INSERT INTO BOOK VALUES (12, 'Emma', 'Austen', 300, 1), (10, 'Dune', 'Herbert', 600, 1), "
+                + "(11, 'Ulysses', 'Joyce', 700, 3)");
+        userService = new UserServiceImplTemplate(jdbcTemplate, Mappers.getMapper(UserMapper.class), true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.destroy();
+    }
+
+    @Test
+    @DisplayName("Получение пользователя с id его книг одним запросом. Должно пройти успешно.")
+    void getUserWithBookIds_Test() {
+
+        //when
+        UserBooksDto userBooks = userService.getUserWithBookIds(1L);
+
+        //then
+        assertEquals(1L, userBooks.getUserId());
+        assertThat(userBooks.getBookIds()).containsExactly(10L, 12L);
+    }
+
+    @Test
+    @DisplayName("Пользователь без книг возвращается с пустым списком id.")
+    void getUserWithoutBooks_Test() {
+
+        //when
+        UserBooksDto userBooks = userService.getUserWithBookIds(2L);
+
+        //then
+        assertEquals(2L, userBooks.getUserId());
+        assertThat(userBooks.getBookIds()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Получение несуществующего пользователя. Должно выбросить ошибку.")
+    void getMissingUserWithBookIds_Test() {
+
+        //when //then
+        assertThatThrownBy(() -> userService.getUserWithBookIds(3L))
+                .isInstanceOf(UserNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Получение пользователей по списку id в порядке запроса без повторов и отсутствующих.")
+    void getUsersByIds_Test() {
+
+        //given
+        jdbcTemplate.update("INSERT INTO PERSON SELECT X, 'Name ' || X, 'reader', 20 FROM SYSTEM_RANGE(3, 400)");
+        List<Long> ids = new ArrayList<>(LongStream.rangeClosed(1, 400).boxed().toList());
+        Collections.reverse(ids);
+        ids.add(401L);
+        ids.add(2L);
+
+        //when
+        List<UserDto> users = userService.getUsersByIds(ids);
+
+        //then
+        assertEquals(400, users.size());
+        assertEquals(400L, users.get(0).getId());
+        assertEquals("Bob Ray", users.get(398).getFullName());
+        assertEquals(1L, users.get(399).getId());
+    }
+
+    @Test
+    @DisplayName("Обновление и удаление пользователя по числу изменённых строк. Должно пройти успешно.")
+    void updateDeleteUser_Test() {
+
+        //given
+        UserDto userDto = new UserDto();
+        userDto.setId(2L);
+        userDto.setFullName("Bob Ray");
+        userDto.setTitle("editor");
+        userDto.setAge(42);
+
+        //when
+        UserDto updated = userService.updateUser(userDto);
+        userService.deleteUserById(2L);
+
+        //then
+        assertEquals(2L, updated.getId());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PERSON", Integer.class));
+        assertThatThrownBy(() -> userService.deleteUserById(2L))
+                .isInstanceOf(UserNotFoundException.class);
+        userDto.setId(3L);
+        assertThatThrownBy(() -> userService.updateUser(userDto))
+                .isInstanceOf(UserNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Проверка существования чтением строки при отключённом режиме. Должно пройти успешно.")
+    void deleteUserWithSelect_Test() {
+
+        //given
+        userService = new UserServiceImplTemplate(jdbcTemplate, Mappers.getMapper(UserMapper.class), false);
+
+        //when
+        userService.deleteUserById(2L);
+
+        //then
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM PERSON", Integer.class));
+        assertThatThrownBy(() -> userService.deleteUserById(2L))
+                .isInstanceOf(UserNotFoundException.class);
+    }
+}
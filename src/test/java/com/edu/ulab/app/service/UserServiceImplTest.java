@@ -5,6 +5,7 @@ import com.edu.ulab.app.entity.Person;
 import com.edu.ulab.app.exception.UserNotFoundException;
 import com.edu.ulab.app.mapper.UserMapper;
 import com.edu.ulab.app.repository.UserRepository;
+import com.edu.ulab.app.service.impl.EntityUpsertWriter;
 import com.edu.ulab.app.service.impl.UserServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,9 +13,11 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -22,6 +25,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -45,6 +50,9 @@ public class UserServiceImplTest {
     @Mock
     UserMapper userMapper;
 
+    @Mock
+    EntityUpsertWriter upsertWriter;
+
     @BeforeEach
     void setUp() {
         userDto = new UserDto();
@@ -101,9 +109,8 @@ public class UserServiceImplTest {
 
         //when
         when(userMapper.userDtoToPerson(userDto)).thenReturn(person);
-        when(userRepository.findById(person.getId())).thenReturn(Optional.of(person));
-        when(userRepository.save(person)).thenReturn(savedPerson);
-        when(userMapper.personToUserDto(savedPerson)).thenReturn(updateResult);
+        when(upsertWriter.updatePeople(List.of(person))).thenReturn(List.of());
+        when(userMapper.personToUserDto(person)).thenReturn(updateResult);
 
         //then
         UserDto userDtoUpdateResult = userService.updateUser(userDto);
@@ -111,6 +118,23 @@ public class UserServiceImplTest {
         assertEquals("test", userDtoUpdateResult.getTitle());
         assertEquals("test", userDtoUpdateResult.getFullName());
         assertEquals(20, userDtoUpdateResult.getAge());
+        verify(userRepository, never()).save(person);
+    }
+
+    @Test
+    @DisplayName("Обновление несуществующего пользователя. Должно выбросить ошибку.")
+    void updatePersonNonExistent_FailedTest() {
+
+        //given
+        userDto.setId(999L);
+
+        //when
+        when(userMapper.userDtoToPerson(userDto)).thenReturn(person);
+        when(upsertWriter.updatePeople(List.of(person))).thenReturn(List.of(999L));
+
+        //then
+        assertThatThrownBy(() -> userService.updateUser(userDto))
+                .isInstanceOf(UserNotFoundException.class);
     }
 
     @Test
@@ -162,6 +186,21 @@ public class UserServiceImplTest {
         assertNull(userById);
     }
 
+    @Test
+    @DisplayName("Получение страницы пользователей. Должно пройти успешно.")
+    void getUsers_Test() {
+
+        //given
+
+        //when
+        when(userRepository.findPage(0L, PageRequest.ofSize(20))).thenReturn(List.of(savedPerson));
+        when(userMapper.personToUserDto(savedPerson)).thenReturn(result);
+
+        //then
+        List<UserDto> users = userService.getUsers(0L, 20);
+        assertEquals(List.of(result), users);
+    }
+
     @Test()
     @DisplayName("Создание пользователя со значением null.")
     void createPersonByNull_thenExIsThrow() {
@@ -0,0 +1,208 @@
+package com.edu.ulab.app.service;
+
+import com.edu.ulab.app.dto.UserDto;
+import com.edu.ulab.app.entity.Person;
+import com.edu.ulab.app.exception.UserNotFoundException;
+import com.edu.ulab.app.mapper.UserMapper;
+import com.edu.ulab.app.repository.BookRepository;
+import com.edu.ulab.app.repository.UserRepository;
+import com.edu.ulab.app.service.impl.UserServiceImplTiered;
+import com.edu.ulab.app.storage.TinyLfuCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестирование функционала {@link UserServiceImplTiered}.
+ */
+@ActiveProfiles("test")
+@ExtendWith(SpringExtension.class)
+@DisplayName("Testing tiered user functionality.")
+public class UserServiceImplTieredTest {
+
+    private Person savedPerson;
+    private UserDto result;
+    private TinyLfuCache<Person> userCache;
+    private UserServiceImplTiered userService;
+
+    @Mock
+    UserRepository userRepository;
+
+    @Mock
+    BookRepository bookRepository;
+
+    @Mock
+    UserMapper userMapper;
+
+    @BeforeEach
+    void setUp() {
+        userCache = new TinyLfuCache<>("users", 10);
+        userService = new UserServiceImplTiered(userRepository, bookRepository, userMapper, userCache);
+
+        savedPerson = new Person();
+        savedPerson.setId(1L);
+        savedPerson.setFullName("test name");
+        savedPerson.setAge(11);
+        savedPerson.setTitle("test title");
+
+        result = new UserDto();
+        result.setId(1L);
+        result.setAge(11);
+        result.setFullName("test name");
+        result.setTitle("test title");
+    }
+
+    @Test
+    @DisplayName("Повторное получение пользователя обслуживается из памяти.")
+    void getPersonFromCache_Test() {
+
+        //given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(savedPerson));
+        when(userMapper.personToUserDto(savedPerson)).thenReturn(result);
+
+        //when
+        userService.getUserById(1L);
+        UserDto userDtoResult = userService.getUserById(1L);
+
+        //then
+        assertEquals(1L, userDtoResult.getId());
+        verify(userRepository, times(1)).findById(1L);
+        assertEquals(1, userCache.hitCount());
+    }
+
+    @Test
+    @DisplayName("Удаление пользователя удаляет его из памяти.")
+    void deletePerson_Test() {
+
+        //given
+        userCache.put(1L, savedPerson);
+
+        //when
+        userService.deleteUserById(1L);
+
+        //then
+        verify(userRepository).deleteById(1L);
+        assertNull(userCache.get(1L));
+        assertThatThrownBy(() -> userService.getUserById(1L))
+                .isInstanceOf(UserNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Пользователь, удалённый во время загрузки из базы, не попадает в память.")
+    void loadRacingDelete_Test() {
+
+        //given
+        AtomicInteger loads = new AtomicInteger();
+        when(userRepository.findById(1L)).thenAnswer(invocation -> {
+            int load = loads.incrementAndGet();
+            if (load == 1) {
+                // another request deletes the user after this load has read the row
+                userService.deleteUserById(1L);
+                return Optional.of(savedPerson);
+            }
+            return load == 2 ? Optional.of(savedPerson) : Optional.empty();
+        });
+        when(userMapper.personToUserDto(savedPerson)).thenReturn(result);
+
+        //when
+        userService.getUserById(1L);
+
+        //then
+        verify(userRepository).deleteById(1L);
+        assertNull(userCache.get(1L));
+        assertThatThrownBy(() -> userService.getUserById(1L))
+                .isInstanceOf(UserNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Изменение, завершившееся после конкурентного удаления, не возвращает пользователя в память.")
+    void updateRacingDelete_Test() {
+
+        //given
+        UserDto update = userDto(12);
+        Person updatedPerson = person(12);
+        userCache.put(1L, savedPerson);
+        when(userMapper.userDtoToPerson(update)).thenReturn(updatedPerson);
+        when(userRepository.save(updatedPerson)).thenAnswer(invocation -> {
+            // another request deletes the user after this update has written the row
+            userService.deleteUserById(1L);
+            return updatedPerson;
+        });
+        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+
+        //when
+        userService.updateUser(update);
+
+        //then
+        verify(userRepository).deleteById(1L);
+        assertNull(userCache.get(1L));
+        assertThatThrownBy(() -> userService.getUserById(1L))
+                .isInstanceOf(UserNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Изменения, вернувшиеся не в порядке записи, не оставляют в памяти старую версию.")
+    void updatesOutOfOrder_Test() {
+
+        //given
+        UserDto first = userDto(12);
+        UserDto second = userDto(13);
+        Person firstPerson = person(12);
+        Person secondPerson = person(13);
+        userCache.put(1L, savedPerson);
+        when(userMapper.userDtoToPerson(first)).thenReturn(firstPerson);
+        when(userMapper.userDtoToPerson(second)).thenReturn(secondPerson);
+        when(userRepository.save(any(Person.class))).thenAnswer(invocation -> {
+            Person written = invocation.getArgument(0);
+            if (written == firstPerson) {
+                // the second update commits after the first one and returns before it
+                userService.updateUser(second);
+            }
+            return written;
+        });
+        when(userRepository.findById(1L)).thenReturn(Optional.of(secondPerson));
+        UserDto latest = userDto(13);
+        when(userMapper.personToUserDto(secondPerson)).thenReturn(latest);
+
+        //when
+        userService.updateUser(first);
+
+        //then
+        assertNull(userCache.get(1L));
+        assertEquals(13, userService.getUserById(1L).getAge());
+        assertEquals(secondPerson, userCache.get(1L));
+    }
+
+    private static UserDto userDto(int age) {
+        UserDto userDto = new UserDto();
+        userDto.setId(1L);
+        userDto.setAge(age);
+        userDto.setFullName("test name");
+        userDto.setTitle("test title");
+        return userDto;
+    }
+
+    private static Person person(int age) {
+        Person person = new Person();
+        person.setId(1L);
+        person.setFullName("test name");
+        person.setAge(age);
+        person.setTitle("test title");
+        return person;
+    }
+}
@@ -0,0 +1,102 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Тестирование функционала {@link BookColumns}.
+ */
+@DisplayName("Testing book columns functionality.")
+public class BookColumnsTest {
+
+    @Test
+    @DisplayName("Колонки хранилища в куче и вне кучи дают одинаковые агрегаты.")
+    void columns_Test() {
+
+        //given
+        StringDictionary dictionary = new StringDictionary();
+        BookStorage heap = new BookStorage(dictionary, StorageJournal.NOOP);
+        OffHeapBookStorage offHeap = new OffHeapBookStorage(dictionary, StorageJournal.NOOP);
+        List<Book> books = List.of(
+                book(1L, 10L, "Tolstoy", 100),
+                book(2L, 10L, "Chekhov", 50),
+                book(3L, 20L, "Tolstoy", 300),
+                book(4L, 30L, "Tolstoy", 10));
+        heap.saveAll(books);
+        offHeap.saveAll(books);
+        heap.deleteById(4L);
+        offHeap.deleteById(4L);
+
+        for (BookColumns columns : List.of(heap.columns(), offHeap.columns())) {
+
+            //when
+            GroupTotals pagesPerUser = columns.pagesPerUser();
+            List<GroupTotals.Group> authors = columns.booksPerAuthor().top(5);
+
+            //then
+            assertEquals(3, columns.size());
+            assertEquals(450, columns.totalPages());
+            assertEquals(2, pagesPerUser.size());
+            assertEquals(150, pagesPerUser.get(10L));
+            assertEquals(300, pagesPerUser.get(20L));
+            assertEquals(0, pagesPerUser.get(30L));
+            assertThat(authors).extracting(group -> columns.decode(group.getKey()), GroupTotals.Group::getTotal)
+                    .containsExactly(
+                            tuple("Tolstoy", 2L),
+                            tuple("Chekhov", 1L));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1L, 1_000_003L})
+    @DisplayName("Параллельный подсчёт по плотным и разреженным ключам совпадает с последовательным.")
+    void parallelScan_Test(long userIdStep) {
+
+        //given
+        StringDictionary dictionary = new StringDictionary();
+        int author = dictionary.encode("Author");
+        BookColumns columns = new BookColumns(dictionary, 16);
+        int rows = ColumnScans.LEAF_ROWS * 5 + 17;
+        long expectedTotal = 0;
+        Map<Long, Long> expectedPerUser = new HashMap<>();
+        for (int row = 0; row < rows; row++) {
+            long userId = row % 1000 * userIdStep;
+            long pageCount = row % 7;
+            columns.add(row + 1, userId, pageCount, StringDictionary.NO_CODE, author);
+            expectedTotal += pageCount;
+            expectedPerUser.merge(userId, pageCount, Long::sum);
+        }
+
+        //when
+        GroupTotals pagesPerUser = columns.pagesPerUser();
+
+        //then
+        assertEquals(expectedTotal, columns.totalPages());
+        assertEquals(expectedPerUser.size(), pagesPerUser.size());
+        expectedPerUser.forEach((userId, pages) -> assertEquals(pages, pagesPerUser.get(userId)));
+        assertEquals(rows, columns.booksPerAuthor().get(author));
+        long maxPages = expectedPerUser.values().stream().mapToLong(Long::longValue).max().orElseThrow();
+        assertEquals(maxPages, pagesPerUser.top(3).get(0).getTotal());
+    }
+
+    private Book book(Long id, Long userId, String author, long pageCount) {
+        Book book = new Book();
+        book.setId(id);
+        book.setUserId(userId);
+        book.setTitle("Title " + id);
+        book.setAuthor(author);
+        book.setPageCount(pageCount);
+        return book;
+    }
+}
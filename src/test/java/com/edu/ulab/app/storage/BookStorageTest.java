@@ -0,0 +1,292 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тестирование функционала {@link BookStorage}.
+ */
+@DisplayName("Testing book storage functionality.")
+public class BookStorageTest {
+
+    private BookStorage bookStorage;
+
+    @BeforeEach
+    void setUp() {
+        bookStorage = new BookStorage(new StringDictionary(), StorageJournal.NOOP);
+    }
+
+    @Test
+    @DisplayName("Получение книг пользователя по индексу. Должно пройти успешно.")
+    void findAllByUserId_Test() {
+
+        //given
+        bookStorage.save(book(1L, 10L));
+        bookStorage.save(book(2L, 10L));
+        bookStorage.save(book(3L, 20L));
+
+        //then
+        assertThat(bookStorage.findAllByUserId(10L))
+                .extracting(Book::getId)
+                .containsExactlyInAnyOrder(1L, 2L);
+        assertThat(bookStorage.findAllByUserId(30L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Получение по индексу более чем 256 книг пользователя в порядке id.")
+    void findAllByUserIdMany_Test() {
+
+        //given
+        for (long id = 600; id > 0; id--) {
+            bookStorage.save(book(id, id % 2 == 0 ? 10L : 20L));
+        }
+
+        //then
+        List<Book> books = bookStorage.findAllByUserId(10L);
+        assertEquals(300, books.size());
+        assertEquals(2L, books.get(0).getId());
+        assertEquals(600L, books.get(299).getId());
+    }
+
+    @Test
+    @DisplayName("Смена владельца книги переносит её в индексе.")
+    void updateUserId_Test() {
+
+        //given
+        bookStorage.save(book(1L, 10L));
+
+        //when
+        bookStorage.save(book(1L, 20L));
+
+        //then
+        assertTrue(bookStorage.findAllByUserId(10L).isEmpty());
+        assertEquals(1, bookStorage.findAllByUserId(20L).size());
+    }
+
+    @Test
+    @DisplayName("Удаление книги удаляет её из индекса.")
+    void deleteById_Test() {
+
+        //given
+        bookStorage.save(book(1L, 10L));
+
+        //when
+        bookStorage.deleteById(1L);
+
+        //then
+        assertTrue(bookStorage.findById(1L).isEmpty());
+        assertTrue(bookStorage.findAllByUserId(10L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Параллельная запись из нескольких потоков. Данные не должны теряться.")
+    void concurrentSave_Test() throws Exception {
+
+        //given
+        int threads = 8;
+        int perThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        //when
+        for (int t = 0; t < threads; t++) {
+            long offset = (long) t * perThread;
+            futures.add(executor.submit(() -> {
+                for (long i = 0; i < perThread; i++) {
+                    bookStorage.save(book(offset + i, i % 100));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        //then
+        assertEquals(threads * perThread, bookStorage.findAll().size());
+        assertEquals(threads * perThread / 100, bookStorage.findAllByUserId(42L).size());
+    }
+
+    @Test
+    @DisplayName("Снимок видит книги пользователя на момент открытия.")
+    void snapshotFindAllByUserId_Test() {
+
+        //given
+        bookStorage.save(book(1L, 10L));
+        bookStorage.save(book(2L, 10L));
+
+        //when
+        try (BookStorageSnapshot snapshot = bookStorage.snapshot()) {
+            bookStorage.save(book(1L, 20L));
+            bookStorage.deleteById(2L);
+            bookStorage.save(book(3L, 10L));
+
+            //then
+            assertThat(snapshot.findAllByUserId(10L)).extracting(Book::getId).containsExactlyInAnyOrder(1L, 2L);
+            assertThat(snapshot.findAllByUserId(20L)).isEmpty();
+            assertEquals(2, snapshot.stream().count());
+            assertThat(bookStorage.findAllByUserId(10L)).extracting(Book::getId).containsExactly(3L);
+        }
+        assertThat(bookStorage.findAllByUserId(20L)).extracting(Book::getId).containsExactly(1L);
+        assertThat(bookStorage.findAllByUserId(10L)).extracting(Book::getId).containsExactly(3L);
+    }
+
+    @Test
+    @DisplayName("Постраничное чтение по курсору id. Должно пройти успешно.")
+    void findPage_Test() {
+
+        //given
+        for (long id = 1; id <= 10; id++) {
+            bookStorage.save(book(id, id % 2 == 0 ? 10L : 20L));
+        }
+        bookStorage.deleteById(4L);
+
+        //when
+        List<Book> first = bookStorage.findPage(0L, 3);
+        List<Book> next = bookStorage.findPage(first.get(first.size() - 1).getId(), 3);
+        List<Book> userPage = bookStorage.findPageByUserId(10L, 2L, 2);
+
+        //then
+        assertThat(first).extracting(Book::getId).containsExactly(1L, 2L, 3L);
+        assertThat(next).extracting(Book::getId).containsExactly(5L, 6L, 7L);
+        assertThat(bookStorage.findPage(9L, 3)).extracting(Book::getId).containsExactly(10L);
+        assertThat(userPage).extracting(Book::getId).containsExactly(6L, 8L);
+    }
+
+    @Test
+    @DisplayName("Пакетные сохранение, чтение и удаление. Журнал синхронизируется один раз на пакет.")
+    void bulkOperations_Test() {
+
+        //given
+        List<Long> syncs = new ArrayList<>();
+        StorageJournal journal = new StorageJournal() {
+            private long position;
+
+            @Override
+            public long append(StorageMutation mutation) {
+                return ++position;
+            }
+
+            @Override
+            public void sync(long position) {
+                syncs.add(position);
+            }
+        };
+        bookStorage = new BookStorage(new StringDictionary(), journal);
+
+        //when
+        bookStorage.saveAll(List.of(book(1L, 10L), book(2L, 10L), book(3L, 20L)));
+        List<Book> found = bookStorage.findAllById(List.of(3L, 4L, 1L));
+        bookStorage.deleteAllById(List.of(1L, 3L, 5L));
+
+        //then
+        assertThat(found).extracting(Book::getId).containsExactly(3L, 1L);
+        assertThat(bookStorage.findAllByUserId(10L)).extracting(Book::getId).containsExactly(2L);
+        assertThat(bookStorage.findAllByUserId(20L)).isEmpty();
+        assertThat(syncs).containsExactly(3L, 6L);
+    }
+
+    @Test
+    @DisplayName("Поиск книг по автору. Смена автора и удаление обновляют индекс.")
+    void findAllByAuthor_Test() {
+
+        //given
+        bookStorage.save(book(1L, 10L, "Tolstoy"));
+        bookStorage.save(book(2L, 20L, "Tolstoy"));
+        bookStorage.save(book(3L, 10L, "Chekhov"));
+
+        //when
+        bookStorage.save(book(1L, 10L, "Chekhov"));
+        bookStorage.deleteById(3L);
+
+        //then
+        assertThat(bookStorage.findAllByAuthor("Tolstoy")).extracting(Book::getId).containsExactly(2L);
+        assertThat(bookStorage.findAllByAuthor("Chekhov")).extracting(Book::getId).containsExactly(1L);
+        assertThat(bookStorage.indexStats())
+                .extracting(IndexStats::getName, IndexStats::getKeys, IndexStats::getEntries)
+                .containsExactly(tuple("userId", 2L, 2L), tuple("author", 2L, 2L));
+    }
+
+    @Test
+    @DisplayName("Строки заменённых и удалённых книг освобождаются в словаре.")
+    void releaseStrings_Test() {
+
+        //given
+        StringDictionary dictionary = new StringDictionary();
+        bookStorage = new BookStorage(dictionary, StorageJournal.NOOP);
+        bookStorage.save(book(1L, 10L, "Tolstoy"));
+        bookStorage.save(book(2L, 10L, "Tolstoy"));
+        Book renamed = book(1L, 10L, "Chekhov");
+        renamed.setTitle("Renamed");
+
+        //when
+        bookStorage.save(renamed);
+        bookStorage.save(bookStorage.findById(2L).orElseThrow());
+        bookStorage.deleteById(2L);
+
+        //then
+        assertEquals(2, dictionary.size());
+        assertEquals(StringDictionary.NO_CODE, dictionary.codeOf("Title 1"));
+        assertEquals(StringDictionary.NO_CODE, dictionary.codeOf("Tolstoy"));
+        assertEquals("Renamed", dictionary.decode(dictionary.codeOf("Renamed")));
+    }
+
+    @Test
+    @DisplayName("Отказ журнала отменяет сохранение и удаление книги в памяти.")
+    void journalFailure_Test() {
+
+        //given
+        FailingJournal journal = new FailingJournal();
+        bookStorage = new BookStorage(new StringDictionary(), journal);
+        bookStorage.save(book(1L, 10L, "Kept"));
+        journal.failing = true;
+
+        //when
+        assertThatThrownBy(() -> bookStorage.save(book(1L, 20L, "Lost")))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> bookStorage.saveAll(List.of(book(2L, 10L))))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> bookStorage.deleteById(1L))
+                .isInstanceOf(IllegalStateException.class);
+
+        //then
+        assertEquals("Kept", bookStorage.findById(1L).orElseThrow().getAuthor());
+        assertThat(bookStorage.findAllByUserId(10L)).extracting(Book::getId).containsExactly(1L);
+        assertThat(bookStorage.findAllByUserId(20L)).isEmpty();
+        assertThat(bookStorage.findAllByAuthor("Lost")).isEmpty();
+        assertTrue(bookStorage.findById(2L).isEmpty());
+        assertThat(bookStorage.findPage(0L, 10)).extracting(Book::getId).containsExactly(1L);
+    }
+
+    private Book book(Long id, Long userId, String author) {
+        Book book = book(id, userId);
+        book.setAuthor(author);
+        return book;
+    }
+
+    private Book book(Long id, Long userId) {
+        Book book = new Book();
+        book.setId(id);
+        book.setUserId(userId);
+        book.setTitle("Title " + id);
+        book.setAuthor("Author");
+        book.setPageCount(100);
+        return book;
+    }
+}
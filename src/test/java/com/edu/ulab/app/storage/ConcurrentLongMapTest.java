@@ -0,0 +1,170 @@
+package com.edu.ulab.app.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тестирование функционала {@link ConcurrentLongMap}.
+ */
+@DisplayName("Testing primitive long map functionality.")
+public class ConcurrentLongMapTest {
+
+    @Test
+    @DisplayName("Случайные операции совпадают с HashMap.")
+    void randomOperations_Test() {
+
+        //given
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        //when
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000) - 2_500L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+
+        //then
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+        map.forEach((key, value) -> assertEquals(expected.get(key), value));
+    }
+
+    @Test
+    @DisplayName("Получение отсутствующего ключа и запись null.")
+    void absentKeyAndNullValue_Test() {
+
+        //given
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+
+        //then
+        assertNull(map.get(0L));
+        assertNull(map.remove(Long.MIN_VALUE));
+        assertThrows(NullPointerException.class, () -> map.put(1L, null));
+    }
+
+    @Test
+    @DisplayName("Параллельная запись с ростом сегментов. Данные не должны теряться.")
+    void concurrentPut_Test() throws Exception {
+
+        //given
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        //when
+        for (int t = 0; t < 8; t++) {
+            long offset = t * 100_000L;
+            futures.add(executor.submit(() -> {
+                for (long key = offset; key < offset + 100_000; key++) {
+                    map.put(key, key);
+                    assertEquals(key, map.get(key));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //then
+        assertEquals(800_000, map.size());
+        for (long key = 0; key < 800_000; key++) {
+            assertEquals(key, map.get(key));
+        }
+    }
+
+    @Test
+    @DisplayName("Снимок не видит изменений, сделанных после его открытия.")
+    void snapshotIsolation_Test() {
+
+        //given
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        for (long key = 0; key < 1_000; key++) {
+            map.put(key, "v" + key);
+        }
+
+        //when
+        try (ConcurrentLongMap.Snapshot<String> snapshot = map.snapshot()) {
+            map.put(1L, "updated");
+            map.remove(2L);
+            map.put(5_000L, "added");
+            for (long key = 10_000; key < 20_000; key++) {
+                map.put(key, "grow");
+            }
+            map.remove(10_000L);
+
+            //then
+            assertEquals("v1", snapshot.get(1L));
+            assertEquals("v2", snapshot.get(2L));
+            assertNull(snapshot.get(5_000L));
+            assertEquals(1_000, snapshot.stream().count());
+            assertThat(snapshot.stream()).doesNotContain("updated", "added", "grow");
+            assertEquals("updated", map.get(1L));
+            assertNull(map.get(2L));
+            assertEquals(10_999, map.size());
+        }
+        assertFalse(map.hasOpenSnapshots());
+        assertNull(map.get(2L));
+        assertEquals(10_999, map.values().size());
+    }
+
+    @Test
+    @DisplayName("Снимок при параллельной записи видит согласованный срез.")
+    void snapshotConsistentCut_Test() throws Exception {
+
+        //given
+        int keys = 200_000;
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        //when
+        Future<?> writer = executor.submit(() -> {
+            for (long key = 0; key < keys; key++) {
+                if (key > 0) {
+                    map.remove(key - 1);
+                }
+                map.put(key, key);
+            }
+        });
+        int nonEmpty = 0;
+        while (!writer.isDone()) {
+            try (ConcurrentLongMap.Snapshot<Long> snapshot = map.snapshot()) {
+                List<Long> values = snapshot.stream().toList();
+
+                //then
+                assertTrue(values.size() <= 1, "a cut contains at most one key: " + values);
+                if (!values.isEmpty()) {
+                    nonEmpty++;
+                    assertEquals(values.get(0), snapshot.get(values.get(0)));
+                }
+            }
+        }
+        writer.get();
+        executor.shutdown();
+        assertThat(nonEmpty).isPositive();
+        assertEquals(1, map.size());
+        assertEquals(keys - 1, map.get(keys - 1));
+    }
+}
@@ -0,0 +1,112 @@
+package com.edu.ulab.app.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тестирование функционала {@link ConcurrentSortedLongSet}.
+ */
+@DisplayName("Testing concurrent sorted long set functionality.")
+public class ConcurrentSortedLongSetTest {
+
+    @Test
+    @DisplayName("Параллельная запись и чтение страниц. Страницы всегда отсортированы.")
+    void concurrentAddAndCopy_Test() throws Exception {
+
+        //given
+        ConcurrentSortedLongSet set = new ConcurrentSortedLongSet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+
+        //when
+        for (int thread = 0; thread < 3; thread++) {
+            int offset = thread;
+            writers.add(executor.submit(() -> {
+                for (long value = offset; value < 60_000; value += 3) {
+                    set.add(value);
+                }
+            }));
+        }
+        Future<Boolean> reader = executor.submit(() -> {
+            long[] page = new long[100];
+            boolean sorted = true;
+            while (writing.get()) {
+                int count = set.copyAfter(1_000, page);
+                for (int i = 0; i < count; i++) {
+                    sorted &= page[i] > 1_000 && (i == 0 || page[i] > page[i - 1]);
+                }
+            }
+            return sorted;
+        });
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+
+        //then
+        assertTrue(reader.get(30, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(60_000, set.size());
+        long[] page = new long[3];
+        assertEquals(3, set.copyAfter(59_996, page));
+        assertThat(page).containsExactly(59_997, 59_998, 59_999);
+        assertTrue(set.sizeInBytes() < 60_000L * 20);
+    }
+
+    @Test
+    @DisplayName("Страница по курсору пропускает удалённые сущности.")
+    void keysetPage_Test() {
+
+        //given
+        ConcurrentSortedLongSet set = new ConcurrentSortedLongSet();
+        for (long value = 1; value <= 1_000; value++) {
+            set.add(value);
+        }
+        set.remove(500);
+
+        //when
+        List<Long> page = KeysetPages.after(set, 400, 200, id -> id % 2 == 0 ? id : null);
+
+        //then
+        assertEquals(200, page.size());
+        assertEquals(402L, page.get(0));
+        assertThat(page).doesNotContain(500L);
+        assertEquals(802L, page.get(page.size() - 1));
+    }
+
+    @Test
+    @DisplayName("Малое множество занимает малый блок и растёт до полного.")
+    void smallSetGrows_Test() {
+
+        //given
+        ConcurrentSortedLongSet set = new ConcurrentSortedLongSet();
+        set.add(7);
+        set.add(3);
+        long small = set.sizeInBytes();
+
+        //when
+        for (long value = 2_000; value > 0; value -= 2) {
+            set.add(value);
+        }
+
+        //then
+        assertTrue(small < 128);
+        assertEquals(1_002, set.size());
+        long[] page = new long[5];
+        assertEquals(5, set.copyAfter(0, page));
+        assertThat(page).containsExactly(2, 3, 4, 6, 7);
+    }
+}
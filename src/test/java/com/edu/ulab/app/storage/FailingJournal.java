@@ -0,0 +1,22 @@
+package com.edu.ulab.app.storage;
+
+/**
+ * Journal for tests that refuses every append while {@link #failing} is set, as a write-ahead
+ * log does after a failed write.
+ */
+class FailingJournal implements StorageJournal {
+
+    volatile boolean failing;
+
+    @Override
+    public long append(StorageMutation mutation) {
+        if (failing) {
+            throw new IllegalStateException("Journal is failed");
+        }
+        return 0;
+    }
+
+    @Override
+    public void sync(long position) {
+    }
+}
@@ -0,0 +1,132 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Тестирование функционала {@link FootprintEndpoint}.
+ */
+@DisplayName("Testing memory footprint endpoint functionality.")
+public class FootprintEndpointTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private StringDictionary dictionary;
+    private UserStorage userStorage;
+    private BookStorage bookStorage;
+    private FootprintEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        dictionary = new StringDictionary();
+        userStorage = new UserStorage(StorageJournal.NOOP);
+        bookStorage = new BookStorage(dictionary, StorageJournal.NOOP);
+        endpoint = new FootprintEndpoint(List.of(userStorage, bookStorage, dictionary), clock::get);
+    }
+
+    @Test
+    @DisplayName("Оценка размера объекта по раскладке полей. Общие объекты не учитываются.")
+    void objectLayout_Test() {
+
+        //given
+        Book book = book(1000L, 2000L, "Title", "Author");
+        long strings = ObjectLayout.stringSize("Title") + ObjectLayout.stringSize("Author");
+        long ids = 2 * ObjectLayout.shallowSize(Long.class);
+
+        //when
+        long deep = ObjectLayout.deepSize(book, object -> false);
+        long withoutStrings = ObjectLayout.deepSize(book, object -> object instanceof String);
+
+        //then
+        assertEquals(ObjectLayout.shallowSize(Book.class) + ids + strings, deep);
+        assertEquals(ObjectLayout.shallowSize(Book.class) + ids, withoutStrings);
+        assertEquals(0, ObjectLayout.shallowSize(Book.class) % 8);
+        assertThat(ObjectLayout.stringSize("Автор")).isGreaterThan(ObjectLayout.stringSize("Title"));
+    }
+
+    @Test
+    @DisplayName("Отчет о памяти хранилищ по структурам. Должно пройти успешно.")
+    void footprint_Test() {
+
+        //given
+        for (long id = 1; id <= 100; id++) {
+            userStorage.save(person(id, "reader", 20 + (int) (id % 10)));
+            bookStorage.save(book(id, 1000 + id, "Title", "Author " + id % 5));
+        }
+
+        //when
+        FootprintEndpoint.FootprintReport report = endpoint.footprint();
+
+        //then
+        assertThat(report.getStores()).extracting(StoreFootprint::getStore)
+                .containsExactly("user", "book", "dictionary");
+        StoreFootprint books = endpoint.store("book");
+        assertEquals(100, books.getEntries());
+        assertThat(books.getComponents()).containsOnlyKeys("entities", "primaryMap", "ids",
+                "index.userId", "index.author");
+        long bookBytes = ObjectLayout.shallowSize(Book.class) + 2 * ObjectLayout.shallowSize(Long.class);
+        assertEquals(100 * bookBytes, books.getComponents().get("entities"));
+        assertEquals(6, endpoint.store("dictionary").getEntries());
+        assertEquals(report.getStores().stream().mapToLong(StoreFootprint::getTotalBytes).sum(),
+                report.getTotalBytes());
+        assertNull(endpoint.store("missing"));
+    }
+
+    @Test
+    @DisplayName("Скорость роста хранилища между наблюдениями. Должно пройти успешно.")
+    void growth_Test() {
+
+        //given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        endpoint.bindTo(registry);
+        for (long id = 1; id <= 50; id++) {
+            userStorage.save(person(id, "reader", 30));
+        }
+
+        //when
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        StoreFootprint cached = endpoint.store("user");
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(9500));
+        StoreFootprint grown = endpoint.store("user");
+
+        //then
+        assertEquals(0, cached.getEntries());
+        assertEquals(50, grown.getEntries());
+        assertEquals(5.0, grown.getEntriesPerSecond(), 0.01);
+        assertThat(grown.getBytesPerSecond()).isPositive();
+        assertEquals(50, registry.get("storage.footprint.entries").tag("store", "user").gauge().value());
+        assertEquals(5.0, registry.get("storage.footprint.entries.growth").tag("store", "user").gauge().value(), 0.01);
+        assertThat(registry.get("storage.footprint.bytes").tag("store", "user").tag("component", "index.age")
+                .gauge().value()).isPositive();
+    }
+
+    private static Person person(long id, String title, int age) {
+        Person person = new Person();
+        person.setId(id);
+        person.setFullName("Person " + id);
+        person.setTitle(title);
+        person.setAge(age);
+        return person;
+    }
+
+    private static Book book(long id, long userId, String title, String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setUserId(userId);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setPageCount(100);
+        return book;
+    }
+}
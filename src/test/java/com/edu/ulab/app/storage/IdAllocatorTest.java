@@ -0,0 +1,84 @@
+package com.edu.ulab.app.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Тестирование функционала {@link IdAllocator}.
+ */
+@DisplayName("Testing id allocator functionality.")
+public class IdAllocatorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Параллельное получение id. Значения не должны повторяться.")
+    void concurrentNextId_Test() throws Exception {
+
+        //given
+        int threads = 32;
+        int perThread = 10_000;
+        IdAllocator idAllocator = IdAllocator.open(directory.resolve("storage.ids"), 100);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        //when
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    ids.add(idAllocator.nextId());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //then
+        assertEquals(threads * perThread, ids.size());
+        assertThat(ids).allMatch(id -> id > 0 && id < idAllocator.highWaterMark());
+    }
+
+    @Test
+    @DisplayName("После перезапуска id продолжаются выше сохранённой отметки.")
+    void restart_Test() {
+
+        //given
+        Path file = directory.resolve("storage.ids");
+        IdAllocator first = IdAllocator.open(file, 10);
+        long last = 0;
+        for (int i = 0; i < 25; i++) {
+            last = first.nextId();
+        }
+
+        //when
+        IdAllocator restarted = IdAllocator.open(file, 10);
+        long resumed = restarted.nextId();
+        IdAllocator second = IdAllocator.open(file, 10);
+        second.advancePast(1_000_000L);
+        long advanced = second.nextId();
+        IdAllocator third = IdAllocator.open(file, 10);
+
+        //then
+        assertThat(resumed).isGreaterThan(last);
+        assertThat(second.highWaterMark()).isGreaterThan(advanced);
+        assertThat(advanced).isGreaterThan(1_000_000L);
+        assertThat(third.nextId()).isGreaterThan(advanced);
+    }
+}
@@ -0,0 +1,192 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тестирование функционала {@link OffHeapBookStorage}.
+ */
+@DisplayName("Testing off-heap book storage functionality.")
+public class OffHeapBookStorageTest {
+
+    private OffHeapBookStorage bookStorage;
+
+    @BeforeEach
+    void setUp() {
+        bookStorage = new OffHeapBookStorage(new StringDictionary(), StorageJournal.NOOP);
+    }
+
+    @Test
+    @DisplayName("Открытый снимок не останавливает запись и отдаёт книги на момент чтения.")
+    void snapshotDoesNotBlockWriters_Test() throws Exception {
+
+        //given
+        bookStorage.save(book(1L, 10L, "Title", "Author"));
+        bookStorage.save(book(2L, 10L, "Title", null));
+
+        //when
+        List<Book> books;
+        try (BookStorageSnapshot snapshot = bookStorage.snapshot()) {
+            Iterator<Book> iterator = snapshot.stream().iterator();
+            Book first = iterator.next();
+            CompletableFuture.runAsync(() -> {
+                bookStorage.save(book(3L, 10L, "Other", "Author"));
+                bookStorage.deleteById(2L);
+            }).get(5, TimeUnit.SECONDS);
+            books = new ArrayList<>(List.of(first));
+            iterator.forEachRemaining(books::add);
+        }
+
+        //then
+        assertThat(books).extracting(Book::getId).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(books).extracting(Book::getAuthor).containsExactlyInAnyOrder("Author", null);
+        assertThat(bookStorage.findAllByUserId(10L)).extracting(Book::getId).containsExactlyInAnyOrder(1L, 3L);
+    }
+
+    @Test
+    @DisplayName("Сохранение и получение книги. Должно пройти успешно.")
+    void saveAndFind_Test() {
+
+        //given
+        Book book = book(1L, 10L, "Война и мир", "Толстой");
+
+        //when
+        bookStorage.save(book);
+
+        //then
+        Book found = bookStorage.findById(1L).orElseThrow();
+        assertEquals(book, found);
+        assertEquals(1, bookStorage.size());
+    }
+
+    @Test
+    @DisplayName("Обновление книги со сменой владельца.")
+    void update_Test() {
+
+        //given
+        bookStorage.save(book(1L, 10L, "Title", "Author"));
+        bookStorage.save(book(2L, 10L, "Title", "Author"));
+
+        //when
+        bookStorage.save(book(1L, 20L, "New title", null));
+
+        //then
+        assertThat(bookStorage.findAllByUserId(10L)).extracting(Book::getId).containsExactly(2L);
+        assertThat(bookStorage.findAllByUserId(20L)).extracting(Book::getTitle).containsExactly("New title");
+        assertEquals(null, bookStorage.findById(1L).orElseThrow().getAuthor());
+        assertThat(bookStorage.findAllByAuthor("Author")).extracting(Book::getId).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Удаление книги освобождает слот для повторного использования.")
+    void deleteAndReuse_Test() {
+
+        //given
+        for (long id = 0; id < 100; id++) {
+            bookStorage.save(book(id, id % 3, "Title", "Author"));
+        }
+        long reserved = bookStorage.reservedBytes();
+
+        //when
+        for (long id = 0; id < 100; id += 2) {
+            bookStorage.deleteById(id);
+        }
+        for (long id = 100; id < 150; id++) {
+            bookStorage.save(book(id, 7L, "Title", "Author"));
+        }
+
+        //then
+        assertEquals(100, bookStorage.size());
+        assertEquals(100, bookStorage.findAll().size());
+        assertEquals(50, bookStorage.findAllByUserId(7L).size());
+        assertTrue(bookStorage.findById(0L).isEmpty());
+        assertEquals(reserved, bookStorage.reservedBytes());
+        assertThat(bookStorage.findAllByUserId(1L)).allMatch(book -> book.getId() % 2 == 1);
+    }
+
+    @Test
+    @DisplayName("Длинные строки хранятся через словарь без ограничения длины.")
+    void longTitle_Test() {
+
+        //given
+        String title = "x".repeat(1_000);
+
+        //when
+        bookStorage.save(book(1L, 1L, title, "Author"));
+
+        //then
+        assertEquals(title, bookStorage.findById(1L).orElseThrow().getTitle());
+    }
+
+    @Test
+    @DisplayName("Постраничное чтение по курсору id. Должно пройти успешно.")
+    void findPage_Test() {
+
+        //given
+        for (long id = 3_000; id > 0; id--) {
+            bookStorage.save(book(id, id % 3, "Title", "Author"));
+        }
+        for (long id = 1; id <= 3_000; id += 2) {
+            bookStorage.deleteById(id);
+        }
+
+        //when
+        List<Book> page = bookStorage.findPage(1_000L, 3);
+        List<Book> userPage = bookStorage.findPageByUserId(0L, 1_000L, 3);
+
+        //then
+        assertThat(page).extracting(Book::getId).containsExactly(1_002L, 1_004L, 1_006L);
+        assertThat(userPage).extracting(Book::getId).containsExactly(1_002L, 1_008L, 1_014L);
+        assertThat(bookStorage.findPage(2_998L, 3)).extracting(Book::getId).containsExactly(3_000L);
+        assertEquals(1_500, bookStorage.findPage(0L, 10_000).size());
+    }
+
+    @Test
+    @DisplayName("Отказ журнала отменяет сохранение и удаление книги вне кучи.")
+    void journalFailure_Test() {
+
+        //given
+        FailingJournal journal = new FailingJournal();
+        bookStorage = new OffHeapBookStorage(new StringDictionary(), journal);
+        bookStorage.save(book(1L, 10L, "Kept", "Author"));
+        journal.failing = true;
+
+        //when
+        assertThatThrownBy(() -> bookStorage.save(book(1L, 20L, "Lost", "Other")))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> bookStorage.save(book(2L, 10L, "Lost", "Author")))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> bookStorage.deleteById(1L))
+                .isInstanceOf(IllegalStateException.class);
+
+        //then
+        assertEquals("Kept", bookStorage.findById(1L).orElseThrow().getTitle());
+        assertThat(bookStorage.findAllByUserId(10L)).extracting(Book::getId).containsExactly(1L);
+        assertThat(bookStorage.findAllByUserId(20L)).isEmpty();
+        assertThat(bookStorage.findAllByAuthor("Other")).isEmpty();
+        assertEquals(1, bookStorage.size());
+    }
+
+    private Book book(Long id, Long userId, String title, String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setUserId(userId);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setPageCount(100);
+        return book;
+    }
+}
@@ -0,0 +1,165 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.config.StorageProperties;
+import com.edu.ulab.app.entity.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тестирование функционала {@link PartitionedBookStorage}.
+ */
+@DisplayName("Testing partitioned book storage functionality.")
+public class PartitionedBookStorageTest {
+
+    private PartitionedBookStorage bookStorage;
+
+    @BeforeEach
+    void setUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.getBook().setPartitions(4);
+        properties.getBook().setBatchSize(16);
+        bookStorage = new PartitionedBookStorage(new StringDictionary(), StorageJournal.NOOP, properties);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        bookStorage.destroy();
+    }
+
+    @Test
+    @DisplayName("Сохранение, получение и удаление книг. Должно пройти успешно.")
+    void saveFindDelete_Test() {
+
+        //given
+        bookStorage.save(book(1L, 10L));
+        bookStorage.save(book(2L, 10L));
+        bookStorage.save(book(3L, 20L));
+
+        //when
+        bookStorage.deleteById(2L);
+        bookStorage.deleteById(42L);
+
+        //then
+        assertThat(bookStorage.findById(1L)).map(Book::getUserId).contains(10L);
+        assertTrue(bookStorage.findById(2L).isEmpty());
+        assertThat(bookStorage.findAllByUserId(10L)).extracting(Book::getId).containsExactly(1L);
+        assertThat(bookStorage.findAll()).extracting(Book::getId).containsExactlyInAnyOrder(1L, 3L);
+    }
+
+    @Test
+    @DisplayName("Смена владельца переносит книгу в другой раздел без дублей.")
+    void moveBetweenPartitions_Test() {
+
+        //given
+        for (long userId = 0; userId < 16; userId++) {
+            bookStorage.save(book(1L, userId));
+        }
+
+        //when
+        bookStorage.save(book(1L, 100L));
+
+        //then
+        assertThat(bookStorage.findAll()).extracting(Book::getUserId).containsExactly(100L);
+        assertThat(bookStorage.findAllByUserId(15L)).isEmpty();
+        assertThat(bookStorage.findAllByUserId(100L)).extracting(Book::getId).containsExactly(1L);
+        try (BookStorageSnapshot snapshot = bookStorage.snapshot()) {
+            assertThat(snapshot.findById(1L)).map(Book::getUserId).contains(100L);
+        }
+    }
+
+    @Test
+    @DisplayName("Параллельная запись из нескольких потоков. Данные не должны теряться.")
+    void concurrentSave_Test() throws Exception {
+
+        //given
+        int threads = 8;
+        int perThread = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        //when
+        for (int t = 0; t < threads; t++) {
+            long offset = (long) t * perThread;
+            futures.add(executor.submit(() -> {
+                for (long i = 0; i < perThread; i++) {
+                    bookStorage.save(book(offset + i, i % 100));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        //then
+        assertEquals(threads * perThread, bookStorage.findAll().size());
+        assertEquals(threads * perThread / 100, bookStorage.findAllByUserId(42L).size());
+        assertEquals(threads * perThread, bookStorage.commandCount());
+    }
+
+    @Test
+    @DisplayName("Запись после остановки отклоняется.")
+    void saveAfterDestroy_Test() throws InterruptedException {
+
+        //when
+        bookStorage.destroy();
+
+        //then
+        assertThatThrownBy(() -> bookStorage.save(book(1L, 10L)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Отказ журнала отменяет изменение книги в разделе.")
+    void journalFailure_Test() throws InterruptedException {
+
+        //given
+        bookStorage.destroy();
+        FailingJournal journal = new FailingJournal();
+        StorageProperties properties = new StorageProperties();
+        properties.getBook().setPartitions(4);
+        bookStorage = new PartitionedBookStorage(new StringDictionary(), journal, properties);
+        bookStorage.save(book(1L, 10L));
+        journal.failing = true;
+        Book changed = book(1L, 10L);
+        changed.setTitle("Lost");
+
+        //when
+        assertThatThrownBy(() -> bookStorage.save(changed))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> bookStorage.save(book(2L, 10L)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> bookStorage.deleteById(1L))
+                .isInstanceOf(IllegalStateException.class);
+
+        //then
+        assertEquals("Title 1", bookStorage.findById(1L).orElseThrow().getTitle());
+        assertTrue(bookStorage.findById(2L).isEmpty());
+        assertThat(bookStorage.findAllByUserId(10L)).extracting(Book::getId).containsExactly(1L);
+    }
+
+    private Book book(Long id, Long userId) {
+        Book book = new Book();
+        book.setId(id);
+        book.setUserId(userId);
+        book.setTitle("Title " + id);
+        book.setAuthor("Author");
+        book.setPageCount(100);
+        return book;
+    }
+}
@@ -0,0 +1,182 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тестирование функционала {@link ReplicationLeader} и {@link ReplicationFollower}.
+ * Лидер и ведомый работают на loopback, каждый со своими хранилищами.
+ */
+@DisplayName("Testing storage replication functionality.")
+public class ReplicationTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @TempDir
+    Path directory;
+
+    private ReplicationLeader leader;
+    private UserStorage leaderUsers;
+    private BookStorage leaderBooks;
+    private ReplicationFollower follower;
+    private UserStorage followerUsers;
+    private BookStorage followerBooks;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (follower != null) {
+            follower.destroy();
+        }
+        if (leader != null) {
+            leader.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Изменения лидера применяются на ведомом, отставание сходится к нулю.")
+    void replicate_Test() throws Exception {
+
+        //given
+        startLeader(1_000);
+        startFollower();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        follower.bindTo(registry);
+        await(() -> follower.isConnected() && follower.fullSyncCount() == 1);
+
+        //when
+        for (long id = 1; id <= 10; id++) {
+            leaderUsers.save(person(id, 20));
+            leaderBooks.save(book(100 + id, id));
+        }
+        leaderUsers.save(person(1L, 21));
+        leaderBooks.deleteById(102L);
+        leaderUsers.deleteById(10L);
+        await(() -> follower.appliedSeq() == leader.lastSeq() && follower.lag() == 0);
+
+        //then
+        assertEquals(21, followerUsers.findById(1L).orElseThrow().getAge());
+        assertThat(followerUsers.findById(10L)).isEmpty();
+        assertThat(followerBooks.findAllByUserId(2L)).isEmpty();
+        assertThat(followerBooks.findAllByUserId(3L)).extracting(Book::getId).containsExactly(103L);
+        assertEquals(9, followerUsers.findAll().size());
+        assertEquals(9, followerBooks.findAll().size());
+        await(() -> follower.lagMillis() == 0);
+        assertEquals(0, registry.get("storage.replication.lag").gauge().value());
+        assertEquals(0, registry.get("storage.replication.lag.time").timeGauge().value(TimeUnit.MILLISECONDS));
+        assertEquals(1, registry.get("storage.replication.connected").gauge().value());
+        assertEquals(23, registry.get("storage.replication.applied").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Новый ведомый получает полную копию, лишние записи ведомого удаляются.")
+    void fullSync_Test() throws Exception {
+
+        //given
+        leaderUsers = new UserStorage(StorageJournal.NOOP);
+        leaderBooks = new BookStorage(new StringDictionary(), StorageJournal.NOOP);
+        leader = new ReplicationLeader(StorageJournal.NOOP, 0, 1_000);
+        leaderUsers.save(person(1L, 30));
+        leaderBooks.save(book(11L, 1L));
+        followerUsers = new UserStorage(StorageJournal.NOOP);
+        followerBooks = new BookStorage(new StringDictionary(), StorageJournal.NOOP);
+        followerUsers.save(person(2L, 40));
+        followerBooks.save(book(12L, 2L));
+
+        //when
+        leader.start(leaderUsers, leaderBooks);
+        follower = new ReplicationFollower(followerUsers, followerBooks,
+                IdAllocator.open(directory.resolve("storage.ids"), 16), "127.0.0.1", leader.localPort());
+        follower.start();
+        await(() -> follower.fullSyncCount() == 1);
+
+        //then
+        assertThat(followerUsers.findAll()).extracting(Person::getId).containsExactly(1L);
+        assertThat(followerBooks.findAll()).extracting(Book::getId).containsExactly(11L);
+        assertEquals(1, leader.fullSyncCount());
+    }
+
+    @Test
+    @DisplayName("Ведомый после переподключения продолжает с последней позиции, а отставший получает полную копию.")
+    void resume_Test() throws Exception {
+
+        //given
+        startLeader(8);
+        startFollower();
+        leaderUsers.save(person(1L, 20));
+        await(() -> follower.appliedSeq() == 1);
+
+        //when
+        follower.stop();
+        leaderUsers.save(person(2L, 20));
+        leaderUsers.save(person(3L, 20));
+        follower.start();
+        await(() -> follower.appliedSeq() == 3);
+        long fullSyncsAfterResume = follower.fullSyncCount();
+        follower.stop();
+        for (long id = 4; id <= 20; id++) {
+            leaderUsers.save(person(id, 20));
+        }
+        follower.start();
+        await(() -> follower.appliedSeq() == 20);
+
+        //then
+        assertEquals(1, fullSyncsAfterResume);
+        assertEquals(2, follower.fullSyncCount());
+        assertEquals(20, followerUsers.findAll().size());
+    }
+
+    private void startLeader(int logSize) {
+        leader = new ReplicationLeader(StorageJournal.NOOP, 0, logSize);
+        leaderUsers = new UserStorage(leader);
+        leaderBooks = new BookStorage(new StringDictionary(), leader);
+        leader.start(leaderUsers, leaderBooks);
+    }
+
+    private void startFollower() {
+        followerUsers = new UserStorage(StorageJournal.NOOP);
+        followerBooks = new BookStorage(new StringDictionary(), StorageJournal.NOOP);
+        follower = new ReplicationFollower(followerUsers, followerBooks,
+                IdAllocator.open(directory.resolve("storage.ids"), 16), "127.0.0.1", leader.localPort());
+        follower.start();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Replication did not catch up in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private static Person person(long id, int age) {
+        Person person = new Person();
+        person.setId(id);
+        person.setFullName("Person " + id);
+        person.setTitle("reader");
+        person.setAge(age);
+        return person;
+    }
+
+    private static Book book(long id, long userId) {
+        Book book = new Book();
+        book.setId(id);
+        book.setUserId(userId);
+        book.setTitle("Title " + id);
+        book.setAuthor("Author");
+        book.setPageCount(100);
+        return book;
+    }
+}
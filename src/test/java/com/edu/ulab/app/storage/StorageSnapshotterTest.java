@@ -0,0 +1,139 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.config.StorageProperties;
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Тестирование функционала {@link StorageSnapshotter}.
+ */
+@DisplayName("Testing storage snapshot functionality.")
+public class StorageSnapshotterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Снимок во время записи и дозапись журнала восстанавливают хранилища.")
+    void snapshotAndReplay_Test() throws Exception {
+
+        //given
+        int users = 5_000;
+        StorageProperties properties = properties();
+        try (WriteAheadLog wal = WriteAheadLog.open(directory.resolve("wal"))) {
+            UserStorage userStorage = new UserStorage(wal);
+            BookStorage bookStorage = new BookStorage(new StringDictionary(), wal);
+            StorageSnapshotter snapshotter = snapshotter(properties, userStorage, bookStorage, wal, new SimpleMeterRegistry());
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            Future<?> writer = executor.submit(() -> {
+                for (long id = 0; id < users; id++) {
+                    userStorage.save(person(id));
+                    bookStorage.save(book(id, id));
+                }
+            });
+
+            //when
+            snapshotter.snapshot();
+            writer.get();
+            userStorage.deleteById(0L);
+            bookStorage.deleteById(1L);
+            executor.shutdown();
+        }
+
+        //then
+        MeterRegistry registry = new SimpleMeterRegistry();
+        UserStorage userStorage = new UserStorage(StorageJournal.NOOP);
+        BookStorage bookStorage = new BookStorage(new StringDictionary(), StorageJournal.NOOP);
+        IdAllocator idAllocator = IdAllocator.open(directory.resolve("storage.ids"), 16);
+        try (WriteAheadLog wal = WriteAheadLog.open(directory.resolve("wal"))) {
+            StorageRecovery recovery = new StorageRecovery(
+                    Optional.of(snapshotter(properties, userStorage, bookStorage, wal, registry)),
+                    Optional.of(wal), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(),
+                    userStorage, bookStorage, Optional.of(idAllocator));
+            recovery.afterSingletonsInstantiated();
+        }
+        assertThat(idAllocator.nextId()).isGreaterThanOrEqualTo(users);
+        assertEquals(users - 1, userStorage.findAll().size());
+        assertEquals(users - 1, bookStorage.findAll().size());
+        assertThat(bookStorage.findAllByUserId(2L)).extracting(Book::getTitle).containsExactly("Title 2");
+        assertEquals(1, registry.get("storage.snapshot.load").timer().count());
+    }
+
+    @Test
+    @DisplayName("Снимок без журнала сохраняет и загружает все записи.")
+    void snapshotWithoutWal_Test() {
+
+        //given
+        StorageProperties properties = properties();
+        UserStorage userStorage = new UserStorage(StorageJournal.NOOP);
+        BookStorage bookStorage = new BookStorage(new StringDictionary(), StorageJournal.NOOP);
+        userStorage.save(person(1L));
+        bookStorage.save(book(10L, 1L));
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StorageSnapshotter snapshotter = snapshotter(properties, userStorage, bookStorage, null, registry);
+        snapshotter.snapshot();
+
+        //when
+        UserStorage loadedUsers = new UserStorage(StorageJournal.NOOP);
+        BookStorage loadedBooks = new BookStorage(new StringDictionary(), StorageJournal.NOOP);
+        long lsn = snapshotter(properties, loadedUsers, loadedBooks, null, new SimpleMeterRegistry())
+                .load(mutation -> {
+                    if (mutation.isUser()) {
+                        loadedUsers.apply(mutation);
+                    } else {
+                        loadedBooks.apply(mutation);
+                    }
+                });
+
+        //then
+        assertEquals(0, lsn);
+        assertEquals("Full name", loadedUsers.findById(1L).orElseThrow().getFullName());
+        assertThat(loadedBooks.findAllByUserId(1L)).extracting(Book::getId).containsExactly(10L);
+        assertEquals(1, registry.get("storage.snapshot.write").timer().count());
+        assertEquals(2, snapshotter.lastEntries());
+    }
+
+    private StorageProperties properties() {
+        StorageProperties properties = new StorageProperties();
+        properties.getSnapshot().setDirectory(directory.toString());
+        return properties;
+    }
+
+    private StorageSnapshotter snapshotter(StorageProperties properties, UserStorage userStorage,
+                                           BookStorage bookStorage, WriteAheadLog wal, MeterRegistry registry) {
+        return new StorageSnapshotter(properties, userStorage, bookStorage, Optional.ofNullable(wal), registry);
+    }
+
+    private Person person(Long id) {
+        Person person = new Person();
+        person.setId(id);
+        person.setFullName("Full name");
+        person.setTitle("Reader");
+        person.setAge(30);
+        return person;
+    }
+
+    private Book book(Long id, Long userId) {
+        Book book = new Book();
+        book.setId(id);
+        book.setUserId(userId);
+        book.setTitle("Title " + id);
+        book.setAuthor("Author");
+        book.setPageCount(100);
+        return book;
+    }
+}
@@ -0,0 +1,78 @@
+package com.edu.ulab.app.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тестирование функционала {@link StringDictionary}.
+ */
+@DisplayName("Testing string dictionary functionality.")
+public class StringDictionaryTest {
+
+    @Test
+    @DisplayName("Одинаковые строки заменяются общим экземпляром.")
+    void intern_Test() {
+
+        //given
+        StringDictionary dictionary = new StringDictionary();
+        String first = new String("Лев Толстой");
+        String second = new String("Лев Толстой");
+
+        //when
+        String shared = dictionary.intern(first);
+
+        //then
+        assertSame(shared, dictionary.intern(second));
+        assertEquals(1, dictionary.size());
+        assertEquals(0.5, dictionary.hitRatio());
+        assertEquals(ObjectLayout.stringSize(second), dictionary.bytesSaved());
+        assertTrue(dictionary.bytesSaved() > 0);
+    }
+
+    @Test
+    @DisplayName("Коды строк декодируются обратно.")
+    void encodeDecode_Test() {
+
+        //given
+        StringDictionary dictionary = new StringDictionary();
+
+        //when
+        int author = dictionary.encode("Author");
+        int title = dictionary.encode("Title");
+
+        //then
+        assertEquals(author, dictionary.encode("Author"));
+        assertEquals("Title", dictionary.decode(title));
+        assertEquals(StringDictionary.NO_CODE, dictionary.encode(null));
+        assertNull(dictionary.decode(StringDictionary.NO_CODE));
+    }
+
+    @Test
+    @DisplayName("Последнее освобождение удаляет строку, а её код переиспользуется.")
+    void release_Test() {
+
+        //given
+        StringDictionary dictionary = new StringDictionary();
+        int title = dictionary.encode("Title");
+        dictionary.encode("Title");
+        dictionary.encode("Author");
+
+        //when
+        dictionary.release("Title");
+        int retained = dictionary.codeOf("Title");
+        dictionary.release("Title");
+        int reused = dictionary.encode("Other title");
+
+        //then
+        assertEquals(title, retained);
+        assertEquals(StringDictionary.NO_CODE, dictionary.codeOf("Title"));
+        assertEquals(title, reused);
+        assertEquals("Other title", dictionary.decode(reused));
+        assertEquals(2, dictionary.size());
+    }
+}
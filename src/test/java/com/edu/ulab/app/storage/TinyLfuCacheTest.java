@@ -0,0 +1,109 @@
+package com.edu.ulab.app.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Тестирование функционала {@link TinyLfuCache}.
+ */
+@DisplayName("Testing W-TinyLFU cache functionality.")
+public class TinyLfuCacheTest {
+
+    @Test
+    @DisplayName("Размер кэша не превышает заданного предела.")
+    void bounded_Test() {
+
+        //given
+        TinyLfuCache<String> cache = new TinyLfuCache<>("test", 1_000);
+
+        //when
+        for (long key = 0; key < 100_000; key++) {
+            cache.put(key, "v" + key);
+        }
+
+        //then
+        assertEquals(1_000, cache.size());
+        assertEquals(99_000, cache.evictionCount());
+    }
+
+    @Test
+    @DisplayName("Горячие ключи переживают сканирование редких ключей.")
+    void scanResistance_Test() {
+
+        //given
+        TinyLfuCache<Long> cache = new TinyLfuCache<>("test", 1_000);
+        for (int round = 0; round < 5; round++) {
+            for (long key = 0; key < 500; key++) {
+                if (cache.get(key) == null) {
+                    cache.putIfAbsent(key, key);
+                }
+            }
+        }
+
+        //when
+        for (long key = 1_000_000; key < 1_100_000; key++) {
+            if (cache.get(key) == null) {
+                cache.putIfAbsent(key, key);
+            }
+        }
+
+        //then
+        int hot = 0;
+        for (long key = 0; key < 500; key++) {
+            if (cache.get(key) != null) {
+                hot++;
+            }
+        }
+        assertThat(hot).isGreaterThan(450);
+        assertEquals(1_000, cache.size());
+    }
+
+    @Test
+    @DisplayName("Запись заменяет значение, putIfAbsent и удаление.")
+    void putAndInvalidate_Test() {
+
+        //given
+        TinyLfuCache<String> cache = new TinyLfuCache<>("test", 10);
+
+        //when
+        cache.put(1L, "first");
+        cache.putIfAbsent(1L, "stale");
+        cache.put(2L, "second");
+        cache.put(2L, "updated");
+        cache.invalidate(1L);
+
+        //then
+        assertNull(cache.get(1L));
+        assertEquals("updated", cache.get(2L));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    @DisplayName("Значение, загруженное до удаления или записи ключа, не кэшируется.")
+    void stalePutIfAbsent_Test() {
+
+        //given
+        TinyLfuCache<String> cache = new TinyLfuCache<>("test", 100);
+        long deletedStamp = cache.stamp();
+        cache.invalidate(1L);
+        long updatedStamp = cache.stamp();
+        cache.put(2L, "new");
+        cache.invalidate(2L);
+
+        //when
+        cache.putIfAbsent(1L, "deleted", deletedStamp);
+        cache.putIfAbsent(2L, "old", updatedStamp);
+        cache.putIfAbsent(3L, "loaded", deletedStamp);
+
+        //then
+        assertNull(cache.get(1L));
+        assertNull(cache.get(2L));
+        assertEquals("loaded", cache.get(3L));
+    }
+}
@@ -0,0 +1,141 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Person;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тестирование функционала {@link UserStorage}.
+ */
+@DisplayName("Testing user storage functionality.")
+public class UserStorageTest {
+
+    private UserStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        userStorage = new UserStorage(StorageJournal.NOOP);
+    }
+
+    @Test
+    @DisplayName("Поиск пользователей по званию. Смена звания переносит пользователя в индексе.")
+    void findAllByTitle_Test() {
+
+        //given
+        userStorage.save(person(1L, "reader", 20));
+        userStorage.save(person(2L, "reader", 30));
+        userStorage.save(person(3L, "writer", 40));
+
+        //when
+        userStorage.save(person(2L, "writer", 30));
+        userStorage.deleteById(3L);
+
+        //then
+        assertThat(userStorage.findAllByTitle("reader")).extracting(Person::getId).containsExactly(1L);
+        assertThat(userStorage.findAllByTitle("writer")).extracting(Person::getId).containsExactly(2L);
+        assertThat(userStorage.findAllByTitle("editor")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Поиск пользователей по диапазону возраста. Должно пройти успешно.")
+    void findAllByAgeBetween_Test() {
+
+        //given
+        userStorage.save(person(1L, "reader", 45));
+        userStorage.save(person(2L, "reader", 18));
+        userStorage.save(person(3L, "reader", 30));
+        userStorage.save(person(4L, "reader", 30));
+
+        //when
+        userStorage.save(person(1L, "reader", 25));
+
+        //then
+        assertThat(userStorage.findAllByAgeBetween(20, 30)).extracting(Person::getId).containsExactly(1L, 3L, 4L);
+        assertThat(userStorage.findAllByAgeBetween(40, 50)).isEmpty();
+        assertThat(userStorage.findAllByAgeBetween(30, 20)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Статистика индексов учитывает ключи, записи и изменения.")
+    void indexStats_Test() {
+
+        //given
+        userStorage.save(person(1L, "reader", 20));
+        userStorage.save(person(2L, "reader", 30));
+
+        //when
+        userStorage.deleteById(2L);
+        List<IndexStats> stats = userStorage.indexStats();
+
+        //then
+        assertThat(stats).extracting(IndexStats::getName).containsExactly("title", "age");
+        IndexStats title = stats.get(0);
+        assertEquals("equality", title.getKind());
+        assertEquals(1, title.getKeys());
+        assertEquals(1, title.getEntries());
+        assertEquals(3, title.getUpdates());
+        assertThat(title.getEstimatedBytes()).isPositive();
+        assertEquals("range", stats.get(1).getKind());
+    }
+
+    @Test
+    @DisplayName("Снимок находит пользователя по старому ключу, пока он открыт.")
+    void snapshotKeepsIndexEntry_Test() {
+
+        //given
+        userStorage.save(person(1L, "reader", 20));
+
+        //when
+        try (StorageSnapshot<Person, Long> snapshot = userStorage.snapshot()) {
+            userStorage.save(person(1L, "writer", 20));
+
+            //then
+            assertThat(userStorage.indexStats().get(0).getKeys()).isEqualTo(2);
+            assertThat(userStorage.findAllByTitle("reader")).isEmpty();
+            assertEquals("reader", snapshot.findById(1L).orElseThrow().getTitle());
+        }
+        assertThat(userStorage.indexStats().get(0).getKeys()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Отказ журнала отменяет сохранение и удаление пользователя в памяти.")
+    void journalFailure_Test() {
+
+        //given
+        FailingJournal journal = new FailingJournal();
+        userStorage = new UserStorage(journal);
+        userStorage.save(person(1L, "reader", 30));
+        journal.failing = true;
+
+        //when
+        assertThatThrownBy(() -> userStorage.save(person(1L, "writer", 31)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> userStorage.save(person(2L, "reader", 40)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> userStorage.deleteById(1L))
+                .isInstanceOf(IllegalStateException.class);
+
+        //then
+        assertEquals("reader", userStorage.findById(1L).orElseThrow().getTitle());
+        assertThat(userStorage.findAllByTitle("writer")).isEmpty();
+        assertThat(userStorage.findAllByTitle("reader")).extracting(Person::getId).containsExactly(1L);
+        assertTrue(userStorage.findById(2L).isEmpty());
+    }
+
+    private Person person(Long id, String title, int age) {
+        Person person = new Person();
+        person.setId(id);
+        person.setFullName("Person " + id);
+        person.setTitle(title);
+        person.setAge(age);
+        return person;
+    }
+}
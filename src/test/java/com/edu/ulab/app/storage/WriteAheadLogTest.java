@@ -0,0 +1,176 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тестирование функционала {@link WriteAheadLog}.
+ */
+@DisplayName("Testing write-ahead log functionality.")
+public class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Восстановление хранилищ из журнала после перезапуска.")
+    void recovery_Test() throws Exception {
+
+        //given
+        try (WriteAheadLog wal = WriteAheadLog.open(directory)) {
+            UserStorage userStorage = new UserStorage(wal);
+            BookStorage bookStorage = new BookStorage(new StringDictionary(), wal);
+            userStorage.save(person(1L));
+            userStorage.save(person(2L));
+            userStorage.deleteById(2L);
+            bookStorage.save(book(10L, 1L));
+            bookStorage.save(book(11L, 1L));
+            bookStorage.deleteById(10L);
+        }
+
+        //when
+        UserStorage userStorage = new UserStorage(StorageJournal.NOOP);
+        BookStorage bookStorage = new BookStorage(new StringDictionary(), StorageJournal.NOOP);
+        try (WriteAheadLog wal = WriteAheadLog.open(directory)) {
+            wal.replay(mutation -> {
+                if (mutation.isUser()) {
+                    userStorage.apply(mutation);
+                } else {
+                    bookStorage.apply(mutation);
+                }
+            });
+            assertEquals(6, wal.lastLsn());
+        }
+
+        //then
+        assertThat(userStorage.findAll()).extracting(Person::getId).containsExactly(1L);
+        assertEquals("Full name", userStorage.findById(1L).orElseThrow().getFullName());
+        assertThat(bookStorage.findAllByUserId(1L)).extracting(Book::getId).containsExactly(11L);
+    }
+
+    @Test
+    @DisplayName("Оборванная запись в конце журнала отбрасывается.")
+    void tornTail_Test() throws Exception {
+
+        //given
+        try (WriteAheadLog wal = WriteAheadLog.open(directory)) {
+            wal.sync(wal.append(StorageMutation.saveUser(person(1L))));
+        }
+        Path path = directory.resolve("00000000000000000001.wal");
+        long validSize = Files.size(path);
+        Files.write(path, new byte[]{0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        //when
+        List<StorageMutation> mutations = new ArrayList<>();
+        try (WriteAheadLog wal = WriteAheadLog.open(directory)) {
+            wal.replay(mutations::add);
+            wal.sync(wal.append(StorageMutation.deleteUser(1L)));
+            assertEquals(2, wal.lastLsn());
+        }
+
+        //then
+        assertEquals(1, mutations.size());
+        assertTrue(Files.size(path) > validSize);
+        try (WriteAheadLog wal = WriteAheadLog.open(directory)) {
+            List<StorageMutation> reopened = new ArrayList<>();
+            wal.replay(reopened::add);
+            assertThat(reopened).extracting(StorageMutation::getType)
+                    .containsExactly(StorageMutation.Type.SAVE_USER, StorageMutation.Type.DELETE_USER);
+        }
+    }
+
+    @Test
+    @DisplayName("Параллельные писатели разделяют fsync.")
+    void groupCommit_Test() throws Exception {
+
+        //given
+        int threads = 16;
+        int perThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        //when
+        try (WriteAheadLog wal = WriteAheadLog.open(directory)) {
+            UserStorage userStorage = new UserStorage(wal);
+            for (int t = 0; t < threads; t++) {
+                long offset = (long) t * perThread;
+                futures.add(executor.submit(() -> {
+                    for (long id = offset; id < offset + perThread; id++) {
+                        userStorage.save(person(id));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            //then
+            assertEquals(threads * perThread, wal.appendCount());
+            assertThat(wal.fsyncCount()).isLessThan(wal.appendCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Ротация сегментов и удаление покрытых снимком.")
+    void rotate_Test() throws Exception {
+
+        //given
+        long rotatedLsn;
+        try (WriteAheadLog wal = WriteAheadLog.open(directory)) {
+            wal.sync(wal.append(StorageMutation.saveUser(person(1L))));
+            wal.sync(wal.append(StorageMutation.saveUser(person(2L))));
+            rotatedLsn = wal.rotate();
+            wal.sync(wal.append(StorageMutation.deleteUser(1L)));
+
+            //when
+            wal.deleteSegmentsUpTo(rotatedLsn);
+        }
+
+        //then
+        assertEquals(2, rotatedLsn);
+        try (WriteAheadLog wal = WriteAheadLog.open(directory)) {
+            List<StorageMutation> tail = new ArrayList<>();
+            wal.replayAfter(rotatedLsn, tail::add);
+            assertThat(tail).extracting(StorageMutation::getType).containsExactly(StorageMutation.Type.DELETE_USER);
+            assertEquals(3, wal.lastLsn());
+            wal.sync(wal.append(StorageMutation.deleteUser(2L)));
+            assertEquals(4, wal.lastLsn());
+        }
+    }
+
+    private Person person(Long id) {
+        Person person = new Person();
+        person.setId(id);
+        person.setFullName("Full name");
+        person.setTitle("Reader");
+        person.setAge(30);
+        return person;
+    }
+
+    private Book book(Long id, Long userId) {
+        Book book = new Book();
+        book.setId(id);
+        book.setUserId(userId);
+        book.setTitle("Title");
+        book.setAuthor("Author");
+        book.setPageCount(100);
+        return book;
+    }
+}
@@ -0,0 +1,281 @@
+package com.edu.ulab.app.storage;
+
+import com.edu.ulab.app.entity.Book;
+import com.edu.ulab.app.entity.Person;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тестирование функционала {@link WriteBehindJournal}.
+ */
+@DisplayName("Testing write-behind journal functionality.")
+public class WriteBehindJournalTest {
+
+    private final List<List<StorageMutation>> batches = new CopyOnWriteArrayList<>();
+    private WriteBehindJournal journal;
+    private SingleConnectionDataSource dataSource;
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (journal != null) {
+            journal.destroy();
+        }
+        if (dataSource != null) {
+            dataSource.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Повторные записи одного id сливаются в одну. Должно пройти успешно.")
+    void coalesce_Test() {
+
+        //given
+        journal = new WriteBehindJournal(StorageJournal.NOOP, batches::add, 100, 10, Duration.ofMinutes(1), 3);
+        UserStorage userStorage = new UserStorage(journal);
+
+        //when
+        userStorage.save(person(1L, 20));
+        userStorage.save(person(2L, 30));
+        userStorage.save(person(1L, 21));
+        userStorage.save(person(1L, 22));
+        userStorage.deleteById(2L);
+        journal.flush();
+
+        //then
+        List<StorageMutation> flushed = batches.stream().flatMap(List::stream).toList();
+        assertThat(flushed).extracting(StorageMutation::getType, StorageMutation::getId)
+                .containsExactly(
+                        tuple(StorageMutation.Type.SAVE_USER, 1L),
+                        tuple(StorageMutation.Type.DELETE_USER, 2L));
+        assertEquals(22, flushed.get(0).getPerson().getAge());
+        assertTrue(flushed.get(0).isCreated());
+        assertEquals(3, journal.coalescedCount());
+        assertEquals(0, journal.backlog());
+    }
+
+    @Test
+    @DisplayName("Создание после ожидающего удаления того же id не считается вставкой. Должно пройти успешно.")
+    void createdAfterDelete_Test() {
+
+        //given
+        journal = new WriteBehindJournal(StorageJournal.NOOP, batches::add, 100, 10, Duration.ofMinutes(1), 3);
+
+        //when
+        journal.enqueue(StorageMutation.deleteBook(3L));
+        journal.enqueue(StorageMutation.saveBook(book(3L, 2L), true));
+        journal.flush();
+
+        //then
+        List<StorageMutation> flushed = batches.stream().flatMap(List::stream).toList();
+        assertThat(flushed).extracting(StorageMutation::getType, StorageMutation::isCreated)
+                .containsExactly(tuple(StorageMutation.Type.SAVE_BOOK, false));
+    }
+
+    @Test
+    @DisplayName("Писатель ждет, пока очередь больше емкости. Должно пройти успешно.")
+    void backpressure_Test() throws Exception {
+
+        //given
+        CountDownLatch databaseSlow = new CountDownLatch(1);
+        journal = new WriteBehindJournal(StorageJournal.NOOP, batch -> {
+            awaitQuietly(databaseSlow);
+            batches.add(batch);
+        }, 2, 1, Duration.ZERO, 3);
+        UserStorage userStorage = new UserStorage(journal);
+        userStorage.save(person(1L, 20));
+        userStorage.save(person(2L, 20));
+
+        //when
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> userStorage.save(person(3L, 20)));
+        Thread.sleep(200);
+        boolean blocked = !writer.isDone();
+        databaseSlow.countDown();
+        writer.get(5, TimeUnit.SECONDS);
+        journal.flush();
+
+        //then
+        assertThat(blocked).isTrue();
+        assertThat(batches).hasSize(3);
+        assertThat(userStorage.findById(3L)).isPresent();
+    }
+
+    @Test
+    @DisplayName("Остановка дописывает все ожидающие записи. Должно пройти успешно.")
+    void drainOnShutdown_Test() throws InterruptedException {
+
+        //given
+        journal = new WriteBehindJournal(StorageJournal.NOOP, batches::add, 100, 2, Duration.ofMinutes(1), 3);
+        BookStorage bookStorage = new BookStorage(new StringDictionary(), journal);
+        for (long id = 1; id <= 5; id++) {
+            bookStorage.save(book(id, 1L));
+        }
+
+        //when
+        journal.destroy();
+
+        //then
+        assertThat(batches).allMatch(batch -> batch.size() <= 2);
+        assertEquals(5, journal.flushedCount());
+        journal = null;
+    }
+
+    @Test
+    @DisplayName("Запись пакета в базу через JDBC: вставка, обновление и удаление с сохранением id.")
+    void jdbcTarget_Test() {
+
+        //given
+        JdbcTemplate jdbcTemplate = database("writebehind");
+        WriteBehindTarget target = jdbcTarget(jdbcTemplate);
+        target.write(List.of(StorageMutation.saveUser(person(7L, 20), true), StorageMutation.saveBook(book(70L, 7L), true),
+                StorageMutation.saveBook(book(71L, 7L), true), StorageMutation.saveBook(book(72L, 7L))));
+
+        //when
+        target.write(List.of(StorageMutation.saveUser(person(7L, 21)), StorageMutation.deleteBook(71L)));
+
+        //then
+        Map<String, Object> person = jdbcTemplate.queryForMap("SELECT * FROM ulab_edu.person WHERE id = 7");
+        assertEquals(21, person.get("AGE"));
+        assertEquals(List.of(70L, 72L), jdbcTemplate.queryForList("SELECT id FROM ulab_edu.book ORDER BY id", Long.class));
+        assertFalse(jdbcTemplate.queryForList("SELECT id FROM ulab_edu.person", Long.class).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Создание с id, уже занятым в базе, не перезаписывает строку. Должно пройти успешно.")
+    void jdbcTargetConflict_Test() {
+
+        //given
+        JdbcTemplate jdbcTemplate = database("writebehindconflict");
+        jdbcTemplate.update("INSERT INTO ulab_edu.person(id, full_name, title, age) VALUES (7, 'Other', 'writer', 50)");
+        WriteBehindTarget target = jdbcTarget(jdbcTemplate);
+
+        //when
+        List<StorageMutation> batch = List.of(StorageMutation.saveUser(person(7L, 20), true));
+
+        //then
+        RejectedWriteException rejected = assertThrows(RejectedWriteException.class, () -> target.write(batch));
+        assertThat(rejected).hasCauseInstanceOf(DuplicateKeyException.class);
+        assertEquals("Other", jdbcTemplate.queryForObject("SELECT full_name FROM ulab_edu.person WHERE id = 7", String.class));
+    }
+
+    @Test
+    @DisplayName("Отклонённая базой строка откладывается, остальные записываются, поток записи не останавливается.")
+    void deadLetter_Test() {
+
+        //given
+        JdbcTemplate jdbcTemplate = database("writebehinddeadletter");
+        jdbcTemplate.update("INSERT INTO ulab_edu.person(id, full_name, title, age) VALUES (7, 'Other', 'writer', 50)");
+        journal = new WriteBehindJournal(StorageJournal.NOOP, jdbcTarget(jdbcTemplate), 100, 10, Duration.ofMinutes(1), 2);
+        journal.enqueue(StorageMutation.saveUser(person(6L, 20), true));
+        journal.enqueue(StorageMutation.saveUser(person(7L, 20), true));
+        journal.enqueue(StorageMutation.saveUser(person(8L, 20), true));
+        journal.flush();
+
+        //when
+        journal.enqueue(StorageMutation.saveUser(person(7L, 21)));
+        journal.enqueue(StorageMutation.saveUser(person(9L, 20), true));
+        journal.flush();
+
+        //then
+        assertEquals(List.of(6L, 7L, 8L, 9L),
+                jdbcTemplate.queryForList("SELECT id FROM ulab_edu.person ORDER BY id", Long.class));
+        assertEquals("Other", jdbcTemplate.queryForObject("SELECT full_name FROM ulab_edu.person WHERE id = 7", String.class));
+        assertEquals(2, journal.deadLetterCount());
+        assertEquals(3, journal.flushedCount());
+        assertEquals(0, journal.backlog());
+    }
+
+    @Test
+    @DisplayName("Восстановление загружает строки базы в хранилища и выделяет id после них. Должно пройти успешно.")
+    void loadOnRecovery_Test() {
+
+        //given
+        JdbcTemplate jdbcTemplate = database("writebehindload");
+        jdbcTemplate.update("INSERT INTO ulab_edu.person(id, full_name, title, age) VALUES (5, 'Reader', 'reader', 30)");
+        jdbcTemplate.update("INSERT INTO ulab_edu.book(id, user_id, title, author, page_count) "
+                + "VALUES (900, 5, 'Title', 'Author', 120)");
+        UserStorage userStorage = new UserStorage(StorageJournal.NOOP);
+        BookStorage bookStorage = new BookStorage(new StringDictionary(), StorageJournal.NOOP);
+        IdAllocator idAllocator = IdAllocator.open(directory.resolve("storage.ids"), 16);
+        StorageRecovery recovery = new StorageRecovery(Optional.empty(), Optional.empty(), Optional.empty(),
+                Optional.of(jdbcTarget(jdbcTemplate)), Optional.empty(), Optional.empty(),
+                userStorage, bookStorage, Optional.of(idAllocator));
+
+        //when
+        recovery.afterSingletonsInstantiated();
+
+        //then
+        assertEquals("Reader", userStorage.findById(5L).orElseThrow().getFullName());
+        assertEquals(120, bookStorage.findById(900L).orElseThrow().getPageCount());
+        assertThat(idAllocator.nextId()).isGreaterThan(900L);
+    }
+
+    private JdbcTemplate database(String name) {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "", true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS ulab_edu");
+        jdbcTemplate.execute("CREATE TABLE ulab_edu.person (id BIGINT PRIMARY KEY, full_name VARCHAR(50), "
+                + "title VARCHAR(50), age INTEGER)");
+        jdbcTemplate.execute("CREATE TABLE ulab_edu.book (id BIGINT PRIMARY KEY, user_id BIGINT, "
+                + "title VARCHAR(50), author VARCHAR(50), page_count INTEGER)");
+        return jdbcTemplate;
+    }
+
+    private JdbcWriteBehindTarget jdbcTarget(JdbcTemplate jdbcTemplate) {
+        return new JdbcWriteBehindTarget(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)), 100);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Person person(long id, int age) {
+        Person person = new Person();
+        person.setId(id);
+        person.setFullName("Person " + id);
+        person.setTitle("reader");
+        person.setAge(age);
+        return person;
+    }
+
+    private static Book book(long id, long userId) {
+        Book book = new Book();
+        book.setId(id);
+        book.setUserId(userId);
+        book.setTitle("Title " + id);
+        book.setAuthor("Author");
+        book.setPageCount(100);
+        return book;
+    }
+}